@@ -0,0 +1,87 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.io.File;
+import java.util.function.BiFunction;
+
+/**
+ * Base class of the size bounded caches saved on disk.
+ * Each cache entry is described in a metadata file: <key>.json
+ *     where the key is the SHA-256 hash of the URL.
+ * The entries are kept in a LruMap.
+ */
+public abstract class AbstractDiskCache {
+    private static final String METADATA_EXTENSION = ".json";
+
+    private final File cacheDirectory;
+    private final long maxSize; // In bytes
+
+    protected AbstractDiskCache(File cacheDirectory, long maxSize) {
+        this.cacheDirectory = cacheDirectory;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the cache, or a new cache if the cache directory or the cache maximum size changed.
+     * Returns null when the cache is disabled.
+     * @param cache The current cache, or null.
+     * @param cacheDirectory The cache directory, from the settings.
+     * @param maxSize The cache maximum size, in bytes, from the settings.
+     * @param cacheConstructor Used to create the cache.
+     */
+    public static <C extends AbstractDiskCache> C getCache(
+            C cache, String cacheDirectory, long maxSize, BiFunction<File, Long, C> cacheConstructor) {
+
+        if (cacheDirectory == null || maxSize <= 0) {
+            return null;
+        }
+
+        File cacheDirectoryFile = new File(cacheDirectory);
+        if (cache == null ||
+                !cacheDirectoryFile.equals(cache.getCacheDirectory()) ||
+                maxSize != cache.getMaxSize()) {
+            return cacheConstructor.apply(cacheDirectoryFile, maxSize);
+        }
+
+        return cache;
+    }
+
+    public File getCacheDirectory() {
+        return this.cacheDirectory;
+    }
+
+    public long getMaxSize() {
+        return this.maxSize;
+    }
+
+    protected File[] listMetadataFiles() {
+        return this.cacheDirectory.listFiles((dir, name) -> name.endsWith(METADATA_EXTENSION));
+    }
+
+    protected File getMetadataFile(String key) {
+        return new File(this.cacheDirectory, key + METADATA_EXTENSION);
+    }
+
+    protected static String getKey(String url) {
+        return DigestUtils.sha256Hex(url);
+    }
+}
@@ -0,0 +1,286 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine;
+
+import au.gov.aims.eatlas.searchengine.admin.SearchEngineConfig;
+import au.gov.aims.eatlas.searchengine.logger.AbstractLogger;
+import au.gov.aims.eatlas.searchengine.logger.Level;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Local copy of the base map used to create AtlasMapper layer thumbnails.
+ * The base map is saved on disk as a pyramid of world tiles (EPSG:4326), requested once
+ *     from the base layer URL. Base layer images are cropped and scaled from the tiles,
+ *     so only the layer image needs to be requested for each layer.
+ * Level z has 2^(z+1) x 2^z tiles of 256 x 256 pixels.
+ *     Tiles are requested the first time they are needed, then re-used by every thumbnail.
+ */
+public class BaseMapCache {
+    public static final int TILE_SIZE = 256; // In pixels
+    public static final int MAX_LEVEL = 14; // Tiles of ~0.01 degree
+
+    private static final String TILE_EXTENSION = ".tile";
+
+    // Decoded tiles kept in memory (~256 KB each)
+    private static final int MEMORY_CACHE_SIZE = 64;
+
+    // Base layer URL -> BaseMapCache
+    private static final Map<String, BaseMapCache> INSTANCES = new ConcurrentHashMap<>();
+
+    private final File cacheDirectory;
+    // Example: https://maps.eatlas.org.au/maps/wms?SERVICE=WMS&REQUEST=GetMap&LAYERS=ea-be:World_Bright-Earth-e-Atlas-basemap&FORMAT=image/jpeg&TRANSPARENT=false&VERSION=1.1.1&SRS=EPSG:4326&BBOX={BBOX}&WIDTH={WIDTH}&HEIGHT={HEIGHT}
+    private final String baseLayerUrl;
+
+    // Access ordered map, used as a LRU list.
+    private final LinkedHashMap<String, BufferedImage> tiles;
+    // Locks used to request each tile only once, when many threads need it at the same time.
+    //     A lock is removed once no thread is using it.
+    private final Map<String, TileLock> tileLocks;
+
+    public BaseMapCache(File cacheDirectory, String baseLayerUrl) {
+        this.cacheDirectory = cacheDirectory;
+        this.baseLayerUrl = baseLayerUrl;
+        this.tiles = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, BufferedImage> eldest) {
+                return this.size() > MEMORY_CACHE_SIZE;
+            }
+        };
+        this.tileLocks = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns the base map cache for the base layer URL.
+     * Returns null when the search engine is not configured.
+     */
+    public static BaseMapCache getInstance(String baseLayerUrl) {
+        if (baseLayerUrl == null || baseLayerUrl.isEmpty()) {
+            return null;
+        }
+        SearchEngineConfig config = SearchEngineConfig.getInstance();
+        String baseMapCacheDirectory = config == null ? null : config.getBaseMapCacheDirectory();
+        if (baseMapCacheDirectory == null) {
+            return null;
+        }
+
+        // Each base layer URL have its own pyramid of tiles.
+        File cacheDirectory = new File(baseMapCacheDirectory, DigestUtils.sha256Hex(baseLayerUrl));
+        BaseMapCache baseMapCache = INSTANCES.get(baseLayerUrl);
+        if (baseMapCache == null || !cacheDirectory.equals(baseMapCache.getCacheDirectory())) {
+            baseMapCache = new BaseMapCache(cacheDirectory, baseLayerUrl);
+            INSTANCES.put(baseLayerUrl, baseMapCache);
+        }
+        return baseMapCache;
+    }
+
+    public File getCacheDirectory() {
+        return this.cacheDirectory;
+    }
+
+    /**
+     * Returns the base map image for the bounding box (in degrees), scaled to width x height pixels.
+     * Returns null if a tile can not be requested.
+     */
+    public BufferedImage getImage(HttpClient httpClient, double west, double south, double east, double north,
+            int width, int height, Integer timeout, AbstractLogger logger) {
+
+        if (width <= 0 || height <= 0 || east <= west || north <= south) {
+            return null;
+        }
+
+        int level = BaseMapCache.getLevel((east - west) / width, (north - south) / height);
+        double tileSpan = BaseMapCache.getTileSpan(level);
+        int maxX = (1 << (level + 1)) - 1;
+        int maxY = (1 << level) - 1;
+
+        // Tiles intersecting the bbox. Tile y=0 is at the top (north).
+        int minTileX = BaseMapCache.clamp((int)Math.floor((west + 180) / tileSpan), 0, maxX);
+        int maxTileX = BaseMapCache.clamp((int)Math.ceil((east + 180) / tileSpan) - 1, 0, maxX);
+        int minTileY = BaseMapCache.clamp((int)Math.floor((90 - north) / tileSpan), 0, maxY);
+        int maxTileY = BaseMapCache.clamp((int)Math.ceil((90 - south) / tileSpan) - 1, 0, maxY);
+
+        double scaleX = width / (east - west);
+        double scaleY = height / (north - south);
+
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+
+            for (int tileY = minTileY; tileY <= maxTileY; tileY++) {
+                for (int tileX = minTileX; tileX <= maxTileX; tileX++) {
+                    BufferedImage tile = this.getTile(httpClient, level, tileX, tileY, timeout, logger);
+                    if (tile == null) {
+                        return null;
+                    }
+
+                    double tileWest = -180 + tileX * tileSpan;
+                    double tileNorth = 90 - tileY * tileSpan;
+
+                    // Round the tile corners (not the tile size), to avoid gaps between tiles.
+                    int x1 = (int)Math.round((tileWest - west) * scaleX);
+                    int x2 = (int)Math.round((tileWest + tileSpan - west) * scaleX);
+                    int y1 = (int)Math.round((north - tileNorth) * scaleY);
+                    int y2 = (int)Math.round((north - tileNorth + tileSpan) * scaleY);
+
+                    graphics.drawImage(tile, x1, y1, x2, y2, 0, 0, tile.getWidth(), tile.getHeight(), null);
+                }
+            }
+        } finally {
+            graphics.dispose();
+        }
+
+        return image;
+    }
+
+    // Lowest level which has at least the requested resolution (in degrees per pixel).
+    public static int getLevel(double degreesPerPixelX, double degreesPerPixelY) {
+        double degreesPerPixel = Math.min(degreesPerPixelX, degreesPerPixelY);
+        for (int level = 0; level < MAX_LEVEL; level++) {
+            if (BaseMapCache.getTileSpan(level) / TILE_SIZE <= degreesPerPixel) {
+                return level;
+            }
+        }
+        return MAX_LEVEL;
+    }
+
+    // Width and height of a tile, in degrees
+    public static double getTileSpan(int level) {
+        return 180.0 / (1 << level);
+    }
+
+    private BufferedImage getTile(HttpClient httpClient, int level, int tileX, int tileY, Integer timeout, AbstractLogger logger) {
+        String key = level + "/" + tileX + "/" + tileY;
+
+        synchronized (this.tiles) {
+            BufferedImage tile = this.tiles.get(key);
+            if (tile != null) {
+                return tile;
+            }
+        }
+
+        TileLock lock = this.tileLocks.compute(key, (k, tileLock) -> {
+            TileLock usedLock = tileLock == null ? new TileLock() : tileLock;
+            usedLock.users++;
+            return usedLock;
+        });
+        try {
+            synchronized (lock) {
+                try {
+                    // The tile may have been loaded by another thread while waiting for the lock.
+                    synchronized (this.tiles) {
+                        BufferedImage tile = this.tiles.get(key);
+                        if (tile != null) {
+                            return tile;
+                        }
+                    }
+
+                    File tileFile = new File(this.cacheDirectory, key + TILE_EXTENSION);
+                    if (!tileFile.isFile()) {
+                        if (!this.downloadTile(httpClient, level, tileX, tileY, tileFile, timeout, logger)) {
+                            return null;
+                        }
+                    }
+
+                    BufferedImage tile = ImageIO.read(tileFile);
+                    if (tile == null) {
+                        logger.addMessage(Level.WARNING, String.format("Invalid base map tile: %s", tileFile));
+                        FileUtils.deleteQuietly(tileFile);
+                        return null;
+                    }
+
+                    synchronized (this.tiles) {
+                        this.tiles.put(key, tile);
+                    }
+                    return tile;
+                } catch(Exception ex) {
+                    logger.addMessage(Level.WARNING, String.format("Exception occurred while loading the base map tile: %s", key), ex);
+                    return null;
+                }
+            }
+        } finally {
+            this.tileLocks.computeIfPresent(key, (k, tileLock) -> --tileLock.users <= 0 ? null : tileLock);
+        }
+    }
+
+    private boolean downloadTile(HttpClient httpClient, int level, int tileX, int tileY, File tileFile, Integer timeout, AbstractLogger logger) throws IOException, InterruptedException {
+        double tileSpan = BaseMapCache.getTileSpan(level);
+        double tileWest = -180 + tileX * tileSpan;
+        double tileNorth = 90 - tileY * tileSpan;
+        String bbox = String.format(Locale.ENGLISH, "%.12f,%.12f,%.12f,%.12f",
+                tileWest, tileNorth - tileSpan, tileWest + tileSpan, tileNorth);
+
+        String tileUrl = this.baseLayerUrl
+                .replace("{BBOX}", bbox)
+                .replace("{WIDTH}", "" + TILE_SIZE)
+                .replace("{HEIGHT}", "" + TILE_SIZE);
+
+        try (HttpClient.Response response = httpClient.getRequest(tileUrl, timeout, logger)) {
+            if (response == null) {
+                return false;
+            }
+            int statusCode = response.statusCode();
+            if (statusCode < 200 || statusCode >= 300 || response.bodySize() <= 0) {
+                logger.addMessage(Level.WARNING, String.format("Invalid base map tile URL: %s status code: %d", tileUrl, statusCode));
+                return false;
+            }
+
+            // Save the tile as received. Write in a temporary file first, other threads may read the tile.
+            FileUtils.forceMkdirParent(tileFile);
+            File tmpFile = File.createTempFile(".tmp_", TILE_EXTENSION, tileFile.getParentFile());
+            try {
+                try (InputStream inputStream = response.bodyStream()) {
+                    Files.copy(inputStream, tmpFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+                Files.move(tmpFile.toPath(), tileFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                FileUtils.deleteQuietly(tmpFile);
+            }
+        }
+
+        return true;
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    // Number of threads using the lock. Only modified in the tileLocks compute functions.
+    private static class TileLock {
+        private int users = 0;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine;
+
+/**
+ * Keep track of consecutive request failures for a host.
+ * After FAILURE_THRESHOLD consecutive failures, the circuit "opens":
+ *     requests to the host fail immediately, for OPEN_DURATION.
+ * Then the circuit is "half-open": a single "probe" request is sent.
+ *     Its success close the circuit, its failure re-open it.
+ */
+public class CircuitBreaker {
+    private static final int FAILURE_THRESHOLD = 5;
+    private static final long OPEN_DURATION = 60000; // 1 minute, in milliseconds
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String host;
+    private final long openDuration;
+    private State state;
+    private int consecutiveFailures;
+    private long openedAt;
+    // True while the half-open probe request is waiting for its response.
+    private boolean probeInFlight;
+    // Timestamp of the last time the circuit opened. Used by indexers to find out if requests failed during a harvest.
+    private Long lastOpened;
+
+    public CircuitBreaker(String host) {
+        this(host, OPEN_DURATION);
+    }
+
+    // Used in tests, to avoid waiting a minute for the circuit to get half-open.
+    CircuitBreaker(String host, long openDuration) {
+        this.host = host;
+        this.state = State.CLOSED;
+        this.consecutiveFailures = 0;
+        this.openedAt = 0;
+        this.openDuration = openDuration;
+        this.probeInFlight = false;
+        this.lastOpened = null;
+    }
+
+    public String getHost() {
+        return this.host;
+    }
+
+    public synchronized State getState() {
+        if (this.state == State.OPEN && System.currentTimeMillis() >= this.openedAt + this.openDuration) {
+            this.state = State.HALF_OPEN;
+        }
+        return this.state;
+    }
+
+    public boolean isOpen() {
+        return this.getState() == State.OPEN;
+    }
+
+    // Time to wait before the circuit gets half-open, in milliseconds.
+    public synchronized long getRemainingOpenTime() {
+        if (this.getState() != State.OPEN) {
+            return 0;
+        }
+        return Math.max(0, this.openedAt + this.openDuration - System.currentTimeMillis());
+    }
+
+    public synchronized boolean wasOpenedSince(long timestamp) {
+        return this.lastOpened != null && this.lastOpened >= timestamp;
+    }
+
+    /**
+     * Returns true if a request can be sent to the host.
+     * While the circuit is half-open, only one request is allowed,
+     *     until its success or failure is recorded.
+     * Allowed requests must be followed by a call to recordSuccess or recordFailure.
+     */
+    public synchronized boolean allowRequest() {
+        State currentState = this.getState();
+        if (currentState == State.OPEN) {
+            return false;
+        }
+        if (currentState == State.HALF_OPEN) {
+            if (this.probeInFlight) {
+                return false;
+            }
+            this.probeInFlight = true;
+        }
+        return true;
+    }
+
+    public synchronized void recordSuccess() {
+        this.consecutiveFailures = 0;
+        this.probeInFlight = false;
+        this.state = State.CLOSED;
+    }
+
+    public synchronized void recordFailure() {
+        this.consecutiveFailures++;
+        this.probeInFlight = false;
+        State currentState = this.getState();
+        if (currentState == State.HALF_OPEN ||
+                (currentState == State.CLOSED && this.consecutiveFailures >= FAILURE_THRESHOLD)) {
+            this.state = State.OPEN;
+            this.openedAt = System.currentTimeMillis();
+            this.lastOpened = this.openedAt;
+        }
+    }
+}
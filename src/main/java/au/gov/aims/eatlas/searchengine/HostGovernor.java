@@ -0,0 +1,104 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine;
+
+import au.gov.aims.eatlas.searchengine.admin.HostLimit;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throttle the requests sent to a host:
+ *     A token bucket limits the number of requests per second,
+ *     a semaphore limits the number of simultaneous requests.
+ * tryAcquire() returns how long to wait before the request is allowed.
+ */
+public class HostGovernor {
+    // Time to wait before trying again, when too many requests are in flight, in milliseconds.
+    private static final long IN_FLIGHT_RETRY_DELAY = 100;
+
+    private final HostLimit hostLimit;
+    private final Semaphore inFlightPermits;
+
+    // Token bucket. The bucket can hold up to 1 second worth of requests.
+    private final double requestsPerSecond;
+    private final double bucketSize;
+    private double tokens;
+    private long lastRefill;
+
+    public HostGovernor(HostLimit hostLimit, int defaultMaxInFlight) {
+        this.hostLimit = hostLimit;
+
+        int maxInFlight = hostLimit == null || hostLimit.getMaxInFlight() <= 0 ?
+                defaultMaxInFlight : hostLimit.getMaxInFlight();
+        this.inFlightPermits = new Semaphore(maxInFlight, true);
+
+        this.requestsPerSecond = hostLimit == null ? 0 : hostLimit.getRequestsPerSecond();
+        this.bucketSize = Math.max(1, this.requestsPerSecond);
+        this.tokens = this.bucketSize;
+        this.lastRefill = System.nanoTime();
+    }
+
+    public HostLimit getHostLimit() {
+        return this.hostLimit;
+    }
+
+    /**
+     * Check if a request can be sent to the host, without waiting. The calling threads
+     * must not be blocked by a throttled host, like the threads which schedule the request retries.
+     * Calls to tryAcquire returning 0 must be followed by a call to release, once the response is received.
+     * @return 0 if the request can be sent to the host, or else
+     *     the time to wait before trying again, in milliseconds.
+     */
+    public long tryAcquire() {
+        if (!this.inFlightPermits.tryAcquire()) {
+            return IN_FLIGHT_RETRY_DELAY;
+        }
+        long waitNanos = this.takeToken();
+        if (waitNanos > 0) {
+            this.inFlightPermits.release();
+            return Math.max(1, TimeUnit.NANOSECONDS.toMillis(waitNanos));
+        }
+        return 0;
+    }
+
+    public void release() {
+        this.inFlightPermits.release();
+    }
+
+    // Returns 0 if a token was taken from the bucket,
+    //     or the time to wait for the next token, in nanoseconds.
+    private synchronized long takeToken() {
+        if (this.requestsPerSecond <= 0) {
+            return 0;
+        }
+
+        long now = System.nanoTime();
+        this.tokens = Math.min(this.bucketSize,
+                this.tokens + (now - this.lastRefill) * this.requestsPerSecond / TimeUnit.SECONDS.toNanos(1));
+        this.lastRefill = now;
+
+        if (this.tokens >= 1) {
+            this.tokens -= 1;
+            return 0;
+        }
+
+        return Math.max(1, (long)((1 - this.tokens) * TimeUnit.SECONDS.toNanos(1) / this.requestsPerSecond));
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a request is not sent because too many requests
+ * to the host failed recently (see CircuitBreaker).
+ */
+public class HostUnavailableException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public HostUnavailableException(String host) {
+        super(String.format("Host %s is unavailable. Too many requests failed recently.", host));
+    }
+}
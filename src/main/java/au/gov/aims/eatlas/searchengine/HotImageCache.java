@@ -0,0 +1,151 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * In memory cache of the most requested thumbnails.
+ * The image bytes are kept off-heap, in direct ByteBuffers.
+ * Cache hits are served with the file size and last modified date recorded when the file was loaded,
+ *     without accessing the file system. Thumbnails are content-addressed, so a file is never
+ *     updated once written. Deleted thumbnails must be removed from the cache, using remove(File).
+ * The cache is size bounded. The least recently used thumbnails are evicted
+ *     when the cache get larger than its maximum size.
+ */
+public class HotImageCache {
+    public static final long DEFAULT_MAX_SIZE = 32L * 1024 * 1024; // 32 MB
+    // Larger files are streamed from disk.
+    public static final long DEFAULT_MAX_ENTRY_SIZE = 512L * 1024; // 512 kB
+
+    private static HotImageCache instance;
+
+    private final long maxEntrySize; // In bytes
+
+    private final LruMap<File, Entry> entries;
+
+    private long hitCount;
+    private long missCount;
+
+    public HotImageCache(long maxSize, long maxEntrySize) {
+        this.maxEntrySize = Math.min(maxEntrySize, maxSize);
+        this.entries = new LruMap<>(maxSize, Entry::getSize, null);
+    }
+
+    public static synchronized HotImageCache getInstance() {
+        if (instance == null) {
+            instance = new HotImageCache(DEFAULT_MAX_SIZE, DEFAULT_MAX_ENTRY_SIZE);
+        }
+        return instance;
+    }
+
+    public long getMaxSize() {
+        return this.entries.getMaxSize();
+    }
+
+    public synchronized long getTotalSize() {
+        return this.entries.getTotalSize();
+    }
+
+    public synchronized long getHitCount() {
+        return this.hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return this.missCount;
+    }
+
+    /**
+     * Returns the cached entry, without accessing the file system.
+     * Returns null if the file is not cached. Call load to cache it.
+     */
+    public synchronized Entry get(File file) {
+        Entry entry = this.entries.get(file);
+        if (entry == null) {
+            this.missCount++;
+        } else {
+            this.hitCount++;
+        }
+        return entry;
+    }
+
+    /**
+     * Load the file content in the cache.
+     * Returns null if the file is too large to be cached.
+     * @param lastModified The file last modified date, as returned by File.lastModified().
+     * @param size The file size, as returned by File.length().
+     */
+    public Entry load(File file, long lastModified, long size) throws IOException {
+        if (size > this.maxEntrySize) {
+            return null;
+        }
+
+        Entry entry = new Entry(HotImageCache.read(file, size), lastModified, size);
+        synchronized (this) {
+            this.entries.put(file, entry);
+        }
+        return entry;
+    }
+
+    public synchronized void remove(File file) {
+        this.entries.remove(file);
+    }
+
+    private static ByteBuffer read(File file, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int)size);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException(String.format("The file %s was truncated while it was being read.", file));
+                }
+            }
+        }
+        buffer.flip();
+        return buffer.asReadOnlyBuffer();
+    }
+
+    public static class Entry {
+        private final ByteBuffer content;
+        private final long lastModified;
+        private final long size;
+
+        public Entry(ByteBuffer content, long lastModified, long size) {
+            this.content = content;
+            this.lastModified = lastModified;
+            this.size = size;
+        }
+
+        // Returns a read only buffer, positioned at the start of the file content.
+        public ByteBuffer getContent() {
+            return this.content.duplicate();
+        }
+
+        public long getLastModified() {
+            return this.lastModified;
+        }
+
+        public long getSize() {
+            return this.size;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine;
+
+import au.gov.aims.eatlas.searchengine.logger.AbstractLogger;
+import au.gov.aims.eatlas.searchengine.logger.Level;
+import org.apache.commons.io.FileUtils;
+import org.apache.http.entity.ContentType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * On disk cache of HTTP responses, used to send conditional requests.
+ * Each response is saved in 2 files:
+ *     <key>.body: The response body.
+ *     <key>.json: The URL, ETag, Last-Modified and Content-Type of the response.
+ * The cache is size bounded. The least recently used responses are deleted
+ *     when the cache get larger than its maximum size.
+ */
+public class HttpCache extends AbstractDiskCache {
+    private static final Logger LOGGER = LogManager.getLogger(HttpCache.class.getName());
+
+    private static final String BODY_EXTENSION = ".body";
+
+    // Evicted entries are deleted from disk.
+    private final LruMap<String, Entry> entries;
+
+    public HttpCache(File cacheDirectory, long maxSize) {
+        super(cacheDirectory, maxSize);
+        this.entries = new LruMap<>(maxSize, Entry::getSize, (key, entry) -> this.deleteFiles(key));
+        this.loadEntries();
+    }
+
+    public synchronized long getTotalSize() {
+        return this.entries.getTotalSize();
+    }
+
+    public synchronized Entry get(String url) {
+        return this.entries.get(AbstractDiskCache.getKey(url));
+    }
+
+    /**
+     * Returns the cached response, flagged as not modified.
+     * Returns null if the cached body can not be read.
+     */
+    public HttpClient.Response getResponse(Entry entry) {
+        File bodyFile = this.getBodyFile(entry.getKey());
+        ResponseBody body;
+        // The body is copied, the cache file may get evicted while the response is in use.
+        try (InputStream inputStream = new FileInputStream(bodyFile)) {
+            body = ResponseBody.read(inputStream, null);
+        } catch(IOException ex) {
+            LOGGER.warn(String.format("Can not read cached HTTP response body: %s", bodyFile), ex);
+            this.remove(entry.getUrl());
+            return null;
+        }
+
+        // Update the file last modified date, to keep track of the least recently used entries after a restart.
+        bodyFile.setLastModified(System.currentTimeMillis());
+
+        return new HttpClient.Response(
+                200,
+                body,
+                entry.getContentType() == null ? null : ContentType.parse(entry.getContentType()),
+                entry.getHeaders(),
+                HttpClient.parseHttpLastModifiedHeader(entry.getLastModified()),
+                true);
+    }
+
+    /**
+     * Cache the response, if it has a validator (ETag or Last-Modified).
+     */
+    public void put(String url, HttpClient.Response response, AbstractLogger logger) {
+        if (response == null || response.statusCode() != 200) {
+            return;
+        }
+
+        String etag = response.header("ETag");
+        String lastModified = response.header("Last-Modified");
+        if (etag == null && lastModified == null) {
+            // The response can not be revalidated. No point caching it.
+            return;
+        }
+
+        long size = response.bodySize();
+        if (size > this.getMaxSize()) {
+            return;
+        }
+
+        ContentType contentType = response.contentType();
+        Entry entry = new Entry(AbstractDiskCache.getKey(url), url, etag, lastModified,
+                contentType == null ? null : contentType.toString(), size);
+
+        synchronized (this) {
+            try {
+                FileUtils.forceMkdir(this.getCacheDirectory());
+                try (InputStream inputStream = response.bodyStream()) {
+                    Files.copy(inputStream, this.getBodyFile(entry.getKey()).toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+                FileUtils.writeStringToFile(this.getMetadataFile(entry.getKey()), entry.toJSON().toString(), StandardCharsets.UTF_8);
+            } catch(IOException ex) {
+                logger.addMessage(Level.WARNING, String.format("Exception occurred while caching the HTTP response for URL: %s", url), ex);
+                this.deleteFiles(entry.getKey());
+                return;
+            }
+
+            this.entries.put(entry.getKey(), entry);
+        }
+    }
+
+    public synchronized void remove(String url) {
+        String key = AbstractDiskCache.getKey(url);
+        this.entries.remove(key);
+        this.deleteFiles(key);
+    }
+
+    private synchronized void loadEntries() {
+        File[] metadataFiles = this.listMetadataFiles();
+        if (metadataFiles == null) {
+            return;
+        }
+
+        List<Entry> loadedEntries = new ArrayList<>();
+        for (File metadataFile : metadataFiles) {
+            try {
+                Entry entry = Entry.fromJSON(new JSONObject(FileUtils.readFileToString(metadataFile, StandardCharsets.UTF_8)));
+                File bodyFile = this.getBodyFile(entry.getKey());
+                if (bodyFile.isFile()) {
+                    entry.lastUsed = bodyFile.lastModified();
+                    loadedEntries.add(entry);
+                } else {
+                    FileUtils.deleteQuietly(metadataFile);
+                }
+            } catch(Exception ex) {
+                LOGGER.warn(String.format("Invalid HTTP cache entry: %s", metadataFile), ex);
+                FileUtils.deleteQuietly(metadataFile);
+            }
+        }
+
+        // Oldest first. Entries which doesn't fit in the cache anymore are evicted.
+        loadedEntries.sort(Comparator.comparingLong(entry -> entry.lastUsed));
+        for (Entry entry : loadedEntries) {
+            this.entries.put(entry.getKey(), entry);
+        }
+    }
+
+    private void deleteFiles(String key) {
+        FileUtils.deleteQuietly(this.getBodyFile(key));
+        FileUtils.deleteQuietly(this.getMetadataFile(key));
+    }
+
+    private File getBodyFile(String key) {
+        return new File(this.getCacheDirectory(), key + BODY_EXTENSION);
+    }
+
+    public static class Entry {
+        private final String key;
+        private final String url;
+        private final String etag;
+        private final String lastModified;
+        private final String contentType;
+        private final long size;
+        private long lastUsed;
+
+        public Entry(String key, String url, String etag, String lastModified, String contentType, long size) {
+            this.key = key;
+            this.url = url;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.contentType = contentType;
+            this.size = size;
+            this.lastUsed = System.currentTimeMillis();
+        }
+
+        public String getKey() {
+            return this.key;
+        }
+
+        public String getUrl() {
+            return this.url;
+        }
+
+        public String getEtag() {
+            return this.etag;
+        }
+
+        public String getLastModified() {
+            return this.lastModified;
+        }
+
+        public String getContentType() {
+            return this.contentType;
+        }
+
+        public long getSize() {
+            return this.size;
+        }
+
+        public Map<String, String> getHeaders() {
+            Map<String, String> headers = new LinkedHashMap<>();
+            if (this.etag != null) {
+                headers.put("ETag", this.etag);
+            }
+            if (this.lastModified != null) {
+                headers.put("Last-Modified", this.lastModified);
+            }
+            if (this.contentType != null) {
+                headers.put("Content-Type", this.contentType);
+            }
+            return headers;
+        }
+
+        public JSONObject toJSON() {
+            return new JSONObject()
+                .put("key", this.key)
+                .put("url", this.url)
+                .put("etag", this.etag)
+                .put("lastModified", this.lastModified)
+                .put("contentType", this.contentType)
+                .put("size", this.size);
+        }
+
+        public static Entry fromJSON(JSONObject json) {
+            return new Entry(
+                json.getString("key"),
+                json.optString("url", null),
+                json.optString("etag", null),
+                json.optString("lastModified", null),
+                json.optString("contentType", null),
+                json.optLong("size", 0));
+        }
+    }
+}
@@ -1,56 +1,129 @@
 package au.gov.aims.eatlas.searchengine;
 
+import au.gov.aims.eatlas.searchengine.admin.HostLimit;
+import au.gov.aims.eatlas.searchengine.admin.SearchEngineConfig;
 import au.gov.aims.eatlas.searchengine.logger.AbstractLogger;
 import au.gov.aims.eatlas.searchengine.logger.Level;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.http.Consts;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.http.entity.ContentType;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.text.PDFTextStripper;
 import org.joda.time.DateTime;
 import org.joda.time.format.DateTimeFormat;
 import org.json.JSONObject;
-import org.jsoup.Connection;
+import org.json.JSONTokener;
 import org.jsoup.Jsoup;
+import org.jsoup.helper.HttpConnection;
 import org.jsoup.nodes.Document;
 
 import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLContext;
-import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.TrustManager;
 import javax.net.ssl.X509TrustManager;
 import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
 import java.security.cert.X509Certificate;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
 
 public class HttpClient {
     private static final Logger LOGGER = LogManager.getLogger(HttpClient.class.getName());
 
-    private static final int JSOUP_RETRY = 2;//5;
+    private static final int REQUEST_RETRY = 2;//5;
     // NOTE: The delay is incremental: 5, 10, 20, 40, 80...
-    private static final int JSOUP_RETRY_INITIAL_DELAY = 5; // In seconds
+    //     A random jitter of up to 50% is removed from the delay,
+    //     to avoid all threads re-trying at the same time.
+    private static final int REQUEST_RETRY_INITIAL_DELAY = 5; // In seconds
     private static final int DEFAULT_REQUEST_TIMEOUT = 120000;
+    private static final int CONNECT_TIMEOUT = 30000;
     private static final int POST_MAX_FOLLOW_REDIRECT = 5;
 
+    // Default maximum number of simultaneous requests sent to a single host.
+    //     Connections are kept alive and re-used between requests.
+    //     Can be set per host in the search engine config (see HostLimit).
+    private static final int MAX_CONNECTIONS_PER_HOST = 10;
+    // Time to wait before trying again, while the circuit breaker of the host
+    //     is waiting for the response of its half-open probe request.
+    private static final long CIRCUIT_BREAKER_PROBE_WAIT = 1000; // In milliseconds
+
     private static HttpClient instance;
 
+    private HttpCache httpCache;
+    private TextCache textCache;
+
+    // Shared transports. They keep a pool of connections and TLS sessions.
+    //     redirectTransport: Follow redirections, used with GET requests.
+    //     noRedirectTransport: Used with POST requests, which needs to be re-posted to the redirected URL.
+    private final java.net.http.HttpClient redirectTransport;
+    private final java.net.http.HttpClient noRedirectTransport;
+    private final Map<String, HostGovernor> hostGovernors;
+    private final Map<String, CircuitBreaker> circuitBreakers;
+
+    // Used to send delayed retries, without blocking the thread which sent the request.
+    private final ScheduledExecutorService retryScheduler;
+    private final long retryInitialDelay; // In milliseconds
+
+    protected HttpClient() {
+        this(REQUEST_RETRY_INITIAL_DELAY * 1000L);
+    }
+
+    // Used in tests, to avoid waiting seconds between retries.
+    HttpClient(long retryInitialDelay) {
+        this.retryInitialDelay = retryInitialDelay;
+        SSLContext sslContext = HttpClient.createSSLContext();
+        this.redirectTransport = HttpClient.createTransport(sslContext, java.net.http.HttpClient.Redirect.ALWAYS);
+        this.noRedirectTransport = HttpClient.createTransport(sslContext, java.net.http.HttpClient.Redirect.NEVER);
+        this.hostGovernors = new ConcurrentHashMap<>();
+        this.circuitBreakers = new ConcurrentHashMap<>();
+        this.retryScheduler = Executors.newScheduledThreadPool(4, runnable -> {
+            Thread thread = new Thread(runnable, "HttpClient-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
     public static HttpClient getInstance() {
         if (instance == null) {
-            instance = new HttpClient();
-
             // Disable Hostname verifier globally.
             // NOTE: This is required to be able to request from IP. Example: https://12.34.56.78/geonetwork
+            //     The system property must be set before the first java.net.http client is created.
             HttpsURLConnection.setDefaultHostnameVerifier((hostname, session) -> true);
+            System.setProperty("jdk.internal.httpclient.disableHostnameVerification", "true");
+
+            instance = new HttpClient();
         }
 
         return instance;
@@ -61,36 +134,218 @@ public class HttpClient {
     }
 
     public Response getRequest(String url, Integer timeout, AbstractLogger logger) throws IOException, InterruptedException {
+        return this.getRequest(url, timeout, null, logger);
+    }
+
+    /**
+     * Send a GET request.
+     * @param maxBodySize Maximum size of the response body, in bytes, or null for unlimited.
+     *     A {@link ResponseTooLargeException} is thrown when the response body is larger.
+     */
+    public Response getRequest(String url, Integer timeout, Long maxBodySize, AbstractLogger logger) throws IOException, InterruptedException {
+        String fixedUrl = HttpClient.fixUrlString(url);
+        HttpRequest.Builder requestBuilder = this.getRequestBuilder(fixedUrl, timeout).GET();
+        return this.request(fixedUrl, requestBuilder, true, maxBodySize, logger);
+    }
+
+    /**
+     * Send a GET request, with extra request headers (such as conditional request headers).
+     */
+    public Response getConditionalRequest(String url, Map<String, String> headers, Long maxBodySize, AbstractLogger logger) throws IOException, InterruptedException {
         String fixedUrl = HttpClient.fixUrlString(url);
-        Connection jsoupConnection = this.getJsoupConnection(fixedUrl, timeout, logger);
-        jsoupConnection.followRedirects(true);
-        return this.request(fixedUrl, jsoupConnection, logger);
+        HttpRequest.Builder requestBuilder = this.getRequestBuilder(fixedUrl, null).GET();
+        if (headers != null) {
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                requestBuilder.header(header.getKey(), header.getValue());
+            }
+        }
+        return this.request(fixedUrl, requestBuilder, true, maxBodySize, logger);
+    }
+
+    /**
+     * Download a document and extract its text content (see {@link Response#extractText()}),
+     * using the text cache. The cached text is re-used when the server responds
+     * with "304 Not Modified", or when the downloaded document is identical
+     * (same SHA-256 hash) to a previously extracted document.
+     * Falls back to a normal GET request when the text cache is disabled.
+     */
+    public String getTextContent(String url, Long maxBodySize, AbstractLogger logger) throws IOException, InterruptedException {
+        TextCache textCache = this.getTextCache();
+        if (textCache == null) {
+            try (Response response = this.getRequest(url, null, maxBodySize, logger)) {
+                TextExtractor.Result result = this.extractText(url, response, logger);
+                return result == null ? null : result.getText();
+            }
+        }
+
+        String fixedUrl = HttpClient.fixUrlString(url);
+        TextCache.Entry cacheEntry = textCache.get(fixedUrl);
+
+        try (Response response = this.getConditionalRequest(fixedUrl,
+                cacheEntry == null ? null : cacheEntry.getConditionalHeaders(), maxBodySize, logger)) {
+
+            int statusCode = response == null ? -1 : response.statusCode();
+            if (statusCode == 304 && cacheEntry != null) {
+                String cachedText = textCache.getText(cacheEntry.getBodyHash());
+                if (cachedText != null) {
+                    return cachedText;
+                }
+
+                // The cached text was deleted. Request the URL again, without the conditional headers.
+                textCache.remove(fixedUrl);
+                return this.getTextContent(url, maxBodySize, logger);
+            }
+
+            if (statusCode != 200) {
+                TextExtractor.Result result = this.extractText(fixedUrl, response, logger);
+                return result == null ? null : result.getText();
+            }
+
+            String bodyHash;
+            try (InputStream inputStream = response.bodyStream()) {
+                bodyHash = DigestUtils.sha256Hex(inputStream);
+            }
+
+            // Same document as one previously downloaded (from this URL or another one)
+            String text = textCache.getText(bodyHash);
+            if (text == null) {
+                TextExtractor.Result result = this.extractText(fixedUrl, response, logger);
+                text = result.getText();
+
+                // Text truncated by the time limit depends on the server load.
+                //     Don't cache it, the extraction will be attempted again on the next harvest.
+                if (result.getLimit() == TextExtractor.Limit.TIME) {
+                    return text;
+                }
+            }
+
+            textCache.put(fixedUrl, response, bodyHash, text, logger);
+            return text;
+        }
+    }
+
+    // Extract the text using the extraction limits set in the search engine config.
+    //     Documents which reach a limit are logged, so the admin can see which ones got truncated.
+    private TextExtractor.Result extractText(String url, Response response, AbstractLogger logger) throws IOException, InterruptedException {
+        SearchEngineConfig config = SearchEngineConfig.getInstance();
+        Integer timeout = config == null ? null : config.getTextExtractionTimeout();
+        Integer maxPages = config == null ? null : config.getTextExtractionMaxPages();
+
+        TextExtractor.Result result = TextExtractor.getInstance().extract(response, timeout, maxPages);
+        if (result != null && result.getLimit() == TextExtractor.Limit.PAGES) {
+            logger.addMessage(Level.WARNING, String.format("Text extraction page limit reached for URL: %s. Only the first %d pages were indexed.",
+                    url, result.getPages()));
+        } else if (result != null && result.getLimit() == TextExtractor.Limit.TIME) {
+            logger.addMessage(Level.WARNING, String.format("Text extraction time limit reached for URL: %s. Only the first %d pages were indexed.",
+                    url, result.getPages()));
+        }
+        return result;
+    }
+
+    /**
+     * Send a GET request, without waiting for the response.
+     * Failed requests are re-tried with a delay, without blocking any thread.
+     * The returned future fails with a {@link HostUnavailableException}
+     * when the host circuit breaker is open.
+     */
+    public CompletableFuture<Response> getRequestAsync(String url, AbstractLogger logger) {
+        String fixedUrl = HttpClient.fixUrlString(url);
+        HttpRequest.Builder requestBuilder = this.getRequestBuilder(fixedUrl, null).GET();
+        return this.requestAsync(fixedUrl, requestBuilder.build(), true, null, logger);
+    }
+
+    /**
+     * Conditional GET request, using the HTTP cache.
+     * If the server responds with "304 Not Modified", the response is loaded
+     * from the cache and flagged as not modified (see {@link Response#isNotModified()}).
+     * Falls back to a normal GET request when the HTTP cache is disabled.
+     */
+    public Response getCachedRequest(String url, AbstractLogger logger) throws IOException, InterruptedException {
+        return this.getCachedRequest(url, null, logger);
+    }
+
+    public Response getCachedRequest(String url, Long maxBodySize, AbstractLogger logger) throws IOException, InterruptedException {
+        HttpCache httpCache = this.getHttpCache();
+        if (httpCache == null) {
+            return this.getRequest(url, null, maxBodySize, logger);
+        }
+
+        String fixedUrl = HttpClient.fixUrlString(url);
+        HttpRequest.Builder requestBuilder = this.getRequestBuilder(fixedUrl, null).GET();
+
+        HttpCache.Entry cacheEntry = httpCache.get(fixedUrl);
+        if (cacheEntry != null) {
+            if (cacheEntry.getEtag() != null) {
+                requestBuilder.header("If-None-Match", cacheEntry.getEtag());
+            }
+            if (cacheEntry.getLastModified() != null) {
+                requestBuilder.header("If-Modified-Since", cacheEntry.getLastModified());
+            }
+        }
+
+        Response response = this.request(fixedUrl, requestBuilder, true, maxBodySize, logger);
+        if (response != null && response.statusCode() == 304 && cacheEntry != null) {
+            response.close();
+            Response cachedResponse = httpCache.getResponse(cacheEntry);
+            if (cachedResponse != null) {
+                return cachedResponse;
+            }
+
+            // The cached file was deleted. Request the URL again, without the conditional headers,
+            //     and replace the cache entry with the new response.
+            httpCache.remove(fixedUrl);
+            response = this.getRequest(url, null, maxBodySize, logger);
+        }
+
+        httpCache.put(fixedUrl, response, logger);
+        return response;
+    }
+
+    // The HTTP cache is saved in the image cache directory.
+    // Returns null when the search engine is not configured, or when the cache is disabled.
+    private synchronized HttpCache getHttpCache() {
+        SearchEngineConfig config = SearchEngineConfig.getInstance();
+        this.httpCache = config == null ? null : AbstractDiskCache.getCache(this.httpCache,
+                config.getHttpCacheDirectory(), config.getHttpCacheMaxSize() * 1024 * 1024, HttpCache::new);
+        return this.httpCache;
+    }
+
+    // The text cache is saved in the image cache directory.
+    // Returns null when the search engine is not configured, or when the cache is disabled.
+    private synchronized TextCache getTextCache() {
+        SearchEngineConfig config = SearchEngineConfig.getInstance();
+        this.textCache = config == null ? null : AbstractDiskCache.getCache(this.textCache,
+                config.getTextCacheDirectory(), config.getTextCacheMaxSize() * 1024 * 1024, TextCache::new);
+        return this.textCache;
     }
 
     public Response postXmlRequest(String url, String requestBody, AbstractLogger logger) throws IOException, InterruptedException {
-        return this.postXmlRequest(HttpClient.fixUrlString(url), requestBody, null, 0, logger);
+        return this.postXmlRequest(HttpClient.fixUrlString(url), requestBody, null, null, 0, logger);
     }
 
     public Response postXmlRequest(String url, String requestBody, Integer timeout, AbstractLogger logger) throws IOException, InterruptedException {
-        return this.postXmlRequest(HttpClient.fixUrlString(url), requestBody, timeout, 0, logger);
+        return this.postXmlRequest(HttpClient.fixUrlString(url), requestBody, timeout, null, 0, logger);
+    }
+
+    public Response postXmlRequest(String url, String requestBody, Integer timeout, Long maxBodySize, AbstractLogger logger) throws IOException, InterruptedException {
+        return this.postXmlRequest(HttpClient.fixUrlString(url), requestBody, timeout, maxBodySize, 0, logger);
     }
 
-    private Response postXmlRequest(String fixedUrl, String requestBody, Integer timeout, int attempt, AbstractLogger logger) throws IOException, InterruptedException {
-        Connection jsoupConnection = this.getJsoupConnection(fixedUrl, timeout, logger)
-                .followRedirects(false)
-                .method(Connection.Method.POST)
+    private Response postXmlRequest(String fixedUrl, String requestBody, Integer timeout, Long maxBodySize, int attempt, AbstractLogger logger) throws IOException, InterruptedException {
+        HttpRequest.Builder requestBuilder = this.getRequestBuilder(fixedUrl, timeout)
                 .header("Content-Type", "application/xml")
-                .requestBody(requestBody);
+                .POST(HttpRequest.BodyPublishers.ofString(requestBody == null ? "" : requestBody, StandardCharsets.UTF_8));
 
-        Response response = this.request(fixedUrl, jsoupConnection, logger);
+        Response response = this.request(fixedUrl, requestBuilder, false, maxBodySize, logger);
 
         int statusCode = response == null ? -1 : response.statusCode();
         if (statusCode == 301 || statusCode == 302 || statusCode == 308) {
             if (attempt > POST_MAX_FOLLOW_REDIRECT) {
                 throw new IOException("Maximum POST redirection limit reached");
             } else {
-                String redirectUrl = response.header("Location");
-                return this.postXmlRequest(redirectUrl, requestBody, timeout, attempt++, logger);
+                // The Location header may be relative to the requested URL
+                String redirectUrl = URI.create(fixedUrl).resolve(response.header("Location")).toString();
+                return this.postXmlRequest(redirectUrl, requestBody, timeout, maxBodySize, attempt + 1, logger);
             }
         } else {
             return response;
@@ -111,64 +366,226 @@ public class HttpClient {
         return String.join("/", safeParts);
     }
 
-    private Response request(String url, Connection jsoupConnection, AbstractLogger logger) throws IOException, InterruptedException {
-        IOException lastException = null;
-        int delay = JSOUP_RETRY_INITIAL_DELAY;
+    private Response request(String url, HttpRequest.Builder requestBuilder, boolean followRedirects, Long maxBodySize, AbstractLogger logger) throws IOException, InterruptedException {
+        CompletableFuture<Response> futureResponse = this.requestAsync(url, requestBuilder.build(), followRedirects, maxBodySize, logger);
+        try {
+            return futureResponse.get();
+        } catch(InterruptedException ex) {
+            futureResponse.cancel(false);
+            throw ex;
+        } catch(ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException)cause;
+            }
+            if (cause instanceof InterruptedException) {
+                throw (InterruptedException)cause;
+            }
+            throw new IOException(String.format("Exception occurred while requesting URL: %s", url), cause);
+        }
+    }
 
-        for (int i=0; i<JSOUP_RETRY; i++) {
-            try {
-                return new Response(jsoupConnection.execute());
-            } catch (IOException ex) {
-                // The following IOException (and maybe more) may occur when the computer lose network connection:
-                //     SocketTimeoutException, ConnectException, UnknownHostException
-                LOGGER.debug(String.format("Connection timed out while requesting URL: %s%nWait for %d seconds before re-trying [%d/%d].",
-                        url, delay, i+1, JSOUP_RETRY));
-                lastException = ex;
-                Thread.sleep(delay * 1000L);
-                delay *= 2;
+    private CompletableFuture<Response> requestAsync(String url, HttpRequest request, boolean followRedirects, Long maxBodySize, AbstractLogger logger) {
+        CompletableFuture<Response> futureResponse = new CompletableFuture<>();
+        this.sendRequest(url, request, followRedirects, maxBodySize, 0, this.retryInitialDelay, futureResponse, logger);
+        return futureResponse;
+    }
+
+    private void sendRequest(
+            String url, HttpRequest request, boolean followRedirects, Long maxBodySize,
+            int attempt, long delay, CompletableFuture<Response> futureResponse, AbstractLogger logger) {
+
+        if (futureResponse.isDone()) {
+            // Cancelled
+            return;
+        }
+
+        CircuitBreaker circuitBreaker = this.getCircuitBreaker(request.uri());
+        if (circuitBreaker.isOpen()) {
+            futureResponse.completeExceptionally(new HostUnavailableException(circuitBreaker.getHost()));
+            return;
+        }
+
+        // Don't wait for the host governor here. This method is also called by
+        //     the retry scheduler threads, which are shared by all the hosts.
+        //     Schedule the request for later instead.
+        HostGovernor hostGovernor = this.getHostGovernor(request.uri());
+        long throttleDelay = hostGovernor.tryAcquire();
+        if (throttleDelay > 0) {
+            this.scheduleRequest(url, request, followRedirects, maxBodySize, attempt, delay, throttleDelay, futureResponse, logger);
+            return;
+        }
+
+        if (!circuitBreaker.allowRequest()) {
+            hostGovernor.release();
+            if (circuitBreaker.isOpen()) {
+                futureResponse.completeExceptionally(new HostUnavailableException(circuitBreaker.getHost()));
+            } else {
+                // The circuit is half-open and its probe request is in flight. Wait for its response.
+                this.scheduleRequest(url, request, followRedirects, maxBodySize, attempt, delay, CIRCUIT_BREAKER_PROBE_WAIT, futureResponse, logger);
+            }
+            return;
+        }
+
+        java.net.http.HttpClient transport = followRedirects ? this.redirectTransport : this.noRedirectTransport;
+        transport.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream()).whenComplete((httpResponse, throwable) -> {
+            Throwable cause = (throwable instanceof CompletionException && throwable.getCause() != null) ?
+                    throwable.getCause() : throwable;
+
+            // The body is streamed. The connection is in use until the body is fully read.
+            if (cause == null) {
+                try {
+                    Response response = new Response(httpResponse, maxBodySize);
+                    hostGovernor.release();
+                    int statusCode = response.statusCode();
+                    if (!HttpClient.isHostFailure(statusCode)) {
+                        circuitBreaker.recordSuccess();
+                        futureResponse.complete(response);
+                        return;
+                    }
+
+                    // The host is down or overloaded. Example: a proxy returning 502, 503 or 504 for a dead host.
+                    circuitBreaker.recordFailure();
+                    if (attempt + 1 >= REQUEST_RETRY) {
+                        logger.addMessage(Level.WARNING, String.format("Server returned status code %d %d times while requesting URL: %s",
+                                statusCode, attempt + 1, url));
+                        futureResponse.complete(response);
+                        return;
+                    }
+                    response.close();
+                    this.retryRequest(url, request, followRedirects, maxBodySize, attempt, delay, futureResponse,
+                            new IOException(String.format("Server returned status code %d", statusCode)), logger);
+                    return;
+                } catch(ResponseTooLargeException ex) {
+                    // Not a host failure. No point re-trying.
+                    hostGovernor.release();
+                    circuitBreaker.recordSuccess();
+                    futureResponse.completeExceptionally(ex);
+                    return;
+                } catch(Exception ex) {
+                    cause = ex;
+                }
+            }
+            hostGovernor.release();
+
+            // The following IOException (and maybe more) may occur when the computer lose network connection:
+            //     HttpTimeoutException, ConnectException, UnknownHostException
+            circuitBreaker.recordFailure();
+            if (!(cause instanceof IOException) || attempt + 1 >= REQUEST_RETRY) {
+                logger.addMessage(Level.WARNING, String.format("Connection timed out %d times while requesting URL: %s", attempt + 1, url));
+                futureResponse.completeExceptionally(cause);
+                return;
             }
+
+            this.retryRequest(url, request, followRedirects, maxBodySize, attempt, delay, futureResponse, cause, logger);
+        });
+    }
+
+    // Send the request again after the delay, minus a random jitter. The delay is doubled for the next attempt.
+    private void retryRequest(
+            String url, HttpRequest request, boolean followRedirects, Long maxBodySize,
+            int attempt, long delay, CompletableFuture<Response> futureResponse, Throwable cause, AbstractLogger logger) {
+
+        long jitteredDelay = delay - (long)(ThreadLocalRandom.current().nextDouble() * delay / 2);
+        LOGGER.debug(String.format("Request failed while requesting URL: %s (%s)%nWait for %d ms before re-trying [%d/%d].",
+                url, cause.getMessage(), jitteredDelay, attempt + 1, REQUEST_RETRY));
+
+        try {
+            this.retryScheduler.schedule(
+                    () -> this.sendRequest(url, request, followRedirects, maxBodySize, attempt + 1, delay * 2, futureResponse, logger),
+                    jitteredDelay, TimeUnit.MILLISECONDS);
+        } catch(RejectedExecutionException ex) {
+            futureResponse.completeExceptionally(cause);
+        }
+    }
+
+    // Server errors (5xx) and "429 Too Many Requests" count as host failures for the circuit breaker.
+    private static boolean isHostFailure(int statusCode) {
+        return statusCode >= 500 || statusCode == 429;
+    }
+
+    // Send the request later, without blocking the calling thread.
+    private void scheduleRequest(
+            String url, HttpRequest request, boolean followRedirects, Long maxBodySize,
+            int attempt, long delay, long wait, CompletableFuture<Response> futureResponse, AbstractLogger logger) {
+
+        try {
+            this.retryScheduler.schedule(
+                    () -> this.sendRequest(url, request, followRedirects, maxBodySize, attempt, delay, futureResponse, logger),
+                    wait, TimeUnit.MILLISECONDS);
+        } catch(RejectedExecutionException ex) {
+            futureResponse.completeExceptionally(ex);
         }
-        logger.addMessage(Level.WARNING, String.format("Connection timed out %d times while requesting URL: %s", JSOUP_RETRY, url));
+    }
 
-        throw lastException;
+    /**
+     * Returns the circuit breaker of the URL's host.
+     * Indexers can use it to pause or stop a harvest when a host is down.
+     */
+    public CircuitBreaker getCircuitBreaker(String url) {
+        return this.getCircuitBreaker(URI.create(HttpClient.fixUrlString(url)));
     }
 
-    private Connection getJsoupConnection(String url, Integer timeout, AbstractLogger logger) {
-        // JSoup takes care of following redirections.
-        //     IOUtils.toString(URL, Charset) does not.
-        //
+    private CircuitBreaker getCircuitBreaker(URI uri) {
+        String host = uri.getHost() == null ? "" : uri.getHost().toLowerCase(Locale.ENGLISH);
+        return this.circuitBreakers.computeIfAbsent(host, CircuitBreaker::new);
+    }
+
+    // The governor is re-created when the host limits are changed in the settings.
+    private HostGovernor getHostGovernor(URI uri) {
+        String host = uri.getHost() == null ? "" : uri.getHost().toLowerCase(Locale.ENGLISH);
+
+        SearchEngineConfig config = SearchEngineConfig.getInstance();
+        HostLimit hostLimit = config == null ? null : config.getHostLimit(host);
+
+        return this.hostGovernors.compute(host, (key, hostGovernor) -> {
+            if (hostGovernor == null || !Objects.equals(hostLimit, hostGovernor.getHostLimit())) {
+                return new HostGovernor(hostLimit, MAX_CONNECTIONS_PER_HOST);
+            }
+            return hostGovernor;
+        });
+    }
+
+    private HttpRequest.Builder getRequestBuilder(String url, Integer timeout) {
         // timeout(120000)
-        //     Socket timeout, in ms. Set to 120,000 (2 minutes).
+        //     Request timeout, in ms. Set to 120,000 (2 minutes).
         //     Some services (i.e. Legacy GeoServer) take almost 2 minutes to respond.
-        //     Default: 30000 (30 seconds)
-        // ignoreHttpErrors(true)
-        //     To make it more robust
-        // ignoreContentType(true)
-        //     JSoup is quite picky with content types (aka mimetype).
-        //     It only allows text/*, application/xml, or application/*+xml
-        //     Some websites could be setup with wrong content type.
-        //     We use "ignoreContentType" to work around this issue.
-        // maxBodySize(0)
-        //     Default to 2MB. 0 = Infinite.
-        //     AtlasMapper layer list for the eAtlas is larger than 2MB.
-        // sslSocketFactory(...)
-        //     To deal with dodgy SSL certificates.
-        Connection connection = Jsoup
-                .connect(url)
-                .timeout(timeout == null ? DEFAULT_REQUEST_TIMEOUT : timeout)
-                .ignoreHttpErrors(true)
-                .ignoreContentType(true)
-                .maxBodySize(0);
-
-        SSLSocketFactory sslSocketFactory = this.socketFactory(logger);
-        if (sslSocketFactory != null) {
-            connection = connection.sslSocketFactory(sslSocketFactory);
-        }
-
-        return connection;
-    }
-
-    private SSLSocketFactory socketFactory(AbstractLogger logger) {
+        // User-Agent
+        //     Same user agent as JSoup. Some websites refuse requests from unknown user agents.
+        // Accept-Encoding
+        //     The response body is decompressed in the Response constructor.
+        // HTTP/2
+        //     Negotiated with HTTPS only. Plain HTTP requests are sent using HTTP/1.1, to avoid
+        //     HTTP/2 upgrade requests, which are not supported by some legacy servers.
+        URI uri = URI.create(url);
+        HttpRequest.Builder requestBuilder = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofMillis(timeout == null ? DEFAULT_REQUEST_TIMEOUT : timeout))
+                .header("User-Agent", HttpConnection.DEFAULT_UA)
+                .header("Accept-Encoding", "gzip");
+
+        if (!"https".equalsIgnoreCase(uri.getScheme())) {
+            requestBuilder.version(java.net.http.HttpClient.Version.HTTP_1_1);
+        }
+
+        return requestBuilder;
+    }
+
+    private static java.net.http.HttpClient createTransport(SSLContext sslContext, java.net.http.HttpClient.Redirect redirect) {
+        java.net.http.HttpClient.Builder transportBuilder = java.net.http.HttpClient.newBuilder()
+                .version(java.net.http.HttpClient.Version.HTTP_2)
+                .followRedirects(redirect)
+                .connectTimeout(Duration.ofMillis(CONNECT_TIMEOUT));
+
+        // To deal with dodgy SSL certificates.
+        if (sslContext != null) {
+            transportBuilder.sslContext(sslContext);
+        }
+
+        return transportBuilder.build();
+    }
+
+    // Shared by all requests, which allows TLS session resumption.
+    private static SSLContext createSSLContext() {
         TrustManager[] trustAllCerts = new TrustManager[]{new X509TrustManager() {
             public X509Certificate[] getAcceptedIssuers() {
                 return new X509Certificate[0];
@@ -178,31 +595,75 @@ public class HttpClient {
         }};
 
         try {
-            SSLContext sslContext = SSLContext.getInstance("SSL");
+            SSLContext sslContext = SSLContext.getInstance("TLS");
             sslContext.init(null, trustAllCerts, new SecureRandom());
-            return sslContext.getSocketFactory();
+            return sslContext;
         } catch (Exception ex) {
-            logger.addMessage(Level.ERROR, "Failed to create a SSL socket factory.", ex);
+            LOGGER.error("Failed to create a SSL context.", ex);
             return null;
         }
     }
 
-    public static class Response {
-        private final byte[] bodyBytes;
+    public static class Response implements Closeable {
+        private final ResponseBody body;
         private final ContentType contentType;
         private final int statusCode;
         private final Map<String, String> headers;
         private final Long lastModified;
+        // True when the response was loaded from the HTTP cache, after a "304 Not Modified"
+        private final boolean notModified;
+
+        /**
+         * Stream the response body.
+         * @param maxBodySize Maximum size of the (uncompressed) body, in bytes, or null for unlimited.
+         */
+        public Response(HttpResponse<InputStream> httpResponse, Long maxBodySize) throws IOException {
+            Map<String, String> headers = new LinkedHashMap<>();
+            for (Map.Entry<String, List<String>> header : httpResponse.headers().map().entrySet()) {
+                if (header.getValue() != null && !header.getValue().isEmpty()) {
+                    headers.put(header.getKey(), header.getValue().get(0));
+                }
+            }
 
-        // HttpConnection.Response
-        public Response(org.jsoup.Connection.Response jsoupResponse) {
-            this.bodyBytes = jsoupResponse.bodyAsBytes();
-            this.statusCode = jsoupResponse.statusCode();
-            this.headers = jsoupResponse.headers();
-            this.lastModified = HttpClient.parseHttpLastModifiedHeader(jsoupResponse.header("Last-Modified"));
+            this.headers = headers;
+            this.statusCode = httpResponse.statusCode();
+            this.lastModified = HttpClient.parseHttpLastModifiedHeader(this.header("Last-Modified"));
+            this.notModified = false;
+
+            String contentTypeStr = this.header("Content-Type");
+            ContentType contentType = null;
+            if (contentTypeStr != null && !contentTypeStr.isEmpty()) {
+                try {
+                    contentType = ContentType.parse(contentTypeStr);
+                } catch(Exception ex) {
+                    LOGGER.debug(String.format("Invalid content type: %s", contentTypeStr), ex);
+                }
+            }
+            this.contentType = contentType;
 
-            String contentTypeStr = jsoupResponse.contentType();
-            this.contentType = contentTypeStr == null? null : ContentType.parse(contentTypeStr);
+            try (InputStream inputStream = httpResponse.body()) {
+                // Fail early, without downloading the body, when the server announce a body that is too large.
+                if (maxBodySize != null && maxBodySize > 0) {
+                    long contentLength = httpResponse.headers().firstValueAsLong("Content-Length").orElse(-1);
+                    if (contentLength > maxBodySize) {
+                        throw new ResponseTooLargeException(maxBodySize);
+                    }
+                }
+
+                if ("gzip".equalsIgnoreCase(this.header("Content-Encoding"))) {
+                    // The max size applies to the uncompressed body.
+                    ResponseBody body;
+                    try (InputStream gzipInputStream = new GZIPInputStream(inputStream)) {
+                        body = ResponseBody.read(gzipInputStream, maxBodySize);
+                    } catch(EOFException ex) {
+                        // Empty body (i.e. HEAD request, 204 No Content, 304 Not Modified)
+                        body = ResponseBody.empty();
+                    }
+                    this.body = body;
+                } else {
+                    this.body = ResponseBody.read(inputStream, maxBodySize);
+                }
+            }
         }
 
         public Response(
@@ -212,29 +673,90 @@ public class HttpClient {
                 Map<String, String> headers,
                 Long lastModified) {
 
+            this(statusCode, bodyBytes, contentType, headers, lastModified, false);
+        }
+
+        public Response(
+                int statusCode,
+                byte[] bodyBytes,
+                ContentType contentType,
+                Map<String, String> headers,
+                Long lastModified,
+                boolean notModified) {
+
+            this(statusCode, bodyBytes == null ? null : ResponseBody.of(bodyBytes), contentType, headers, lastModified, notModified);
+        }
+
+        public Response(
+                int statusCode,
+                ResponseBody body,
+                ContentType contentType,
+                Map<String, String> headers,
+                Long lastModified,
+                boolean notModified) {
+
             this.statusCode = statusCode;
-            this.bodyBytes = bodyBytes;
+            this.body = body;
             this.contentType = contentType;
             this.headers = headers;
             this.lastModified = lastModified;
+            this.notModified = notModified;
+        }
+
+        /**
+         * Returns the response body.
+         * Large bodies are saved in a temporary file. Prefer streaming the body
+         * using {@link #bodyStream()} or {@link #bodyBuffer()} over loading it in memory.
+         */
+        public ResponseBody getResponseBody() {
+            return this.body;
+        }
+
+        public long bodySize() {
+            return this.body == null ? 0 : this.body.getSize();
         }
 
         public byte[] bodyAsBytes() {
-            return this.bodyBytes;
+            if (this.body == null) {
+                return null;
+            }
+            try {
+                return this.body.getBytes();
+            } catch(IOException ex) {
+                throw new UncheckedIOException("Exception occurred while reading the response body", ex);
+            }
         }
 
         public String body() {
-            return this.bodyBytes == null ? null :
-                    new String(this.bodyBytes, StandardCharsets.UTF_8);
+            if (this.body == null) {
+                return null;
+            }
+            try {
+                return this.body.getString(StandardCharsets.UTF_8);
+            } catch(IOException ex) {
+                throw new UncheckedIOException("Exception occurred while reading the response body", ex);
+            }
         }
 
+        // The JSON document is parsed from the stream, without loading the body in a String.
         public JSONObject jsonBody() {
-            String body = this.body();
-            return body == null ? null : new JSONObject(body);
+            if (this.body == null) {
+                return null;
+            }
+            try (Reader reader = this.body.getReader(StandardCharsets.UTF_8)) {
+                return new JSONObject(new JSONTokener(reader));
+            } catch(IOException ex) {
+                throw new UncheckedIOException("Exception occurred while reading the response body", ex);
+            }
         }
 
-        public InputStream bodyStream() {
-            return new ByteArrayInputStream(this.bodyBytes == null ? new byte[0] : this.bodyBytes);
+        public InputStream bodyStream() throws IOException {
+            return this.body == null ? new ByteArrayInputStream(new byte[0]) : this.body.getInputStream();
+        }
+
+        // Read-only view of the body. Memory mapped when the body was saved to a temporary file.
+        public ByteBuffer bodyBuffer() throws IOException {
+            return this.body == null ? ByteBuffer.allocate(0) : this.body.getByteBuffer();
         }
 
         public int statusCode() {
@@ -245,8 +767,20 @@ public class HttpClient {
             return this.contentType;
         }
 
+        // HTTP header names are case-insensitive
         public String header(String name) {
-            return this.headers == null ? null : this.headers.get(name);
+            if (this.headers == null || name == null) {
+                return null;
+            }
+            String value = this.headers.get(name);
+            if (value == null) {
+                for (Map.Entry<String, String> header : this.headers.entrySet()) {
+                    if (name.equalsIgnoreCase(header.getKey())) {
+                        return header.getValue();
+                    }
+                }
+            }
+            return value;
         }
 
         public String getFileExtension() {
@@ -257,22 +791,37 @@ public class HttpClient {
             return this.lastModified;
         }
 
-        public String extractText() throws IOException {
-            ContentType contentType = this.contentType();
-            String mimeType = contentType.getMimeType();
+        public boolean isNotModified() {
+            return this.notModified;
+        }
 
-            if (ContentType.TEXT_HTML.equals(contentType) ||
-                    ContentType.APPLICATION_XHTML_XML.equals(contentType)) {
-                return HttpClient.extractHTMLTextContent(this.body());
-            }
-            if ("application/pdf".equals(mimeType)) {
-                return HttpClient.extractPDFTextContent(this.bodyAsBytes());
-            }
+        /**
+         * Extract the text content of the body, using the default extraction limits.
+         * See {@link TextExtractor}.
+         */
+        public String extractText() throws IOException, InterruptedException {
+            TextExtractor.Result result = TextExtractor.getInstance().extract(this, null, null);
+            return result == null ? null : result.getText();
+        }
 
-            return this.body();
+        /**
+         * Delete the temporary file used to store the response body, if any.
+         * Temporary files are also deleted when the response is garbage collected.
+         */
+        @Override
+        public void close() {
+            if (this.body != null) {
+                this.body.close();
+            }
         }
     }
 
+    public static String extractHTMLTextContent(InputStream htmlDocumentInputStream) throws IOException {
+        // NOTE: The charset is detected from the HTML meta tags, defaults to UTF-8.
+        Document document = Jsoup.parse(htmlDocumentInputStream, null, "");
+        return document.body().text();
+    }
+
     public static String extractHTMLTextContent(String htmlDocumentStr) {
         // JSoup is a HTML parsing library made to work with real life web documents.
         //     The parser handle broken HTML document the same way a browser would.
@@ -284,7 +833,7 @@ public class HttpClient {
     }
 
     public static String extractPDFTextContent(byte[] documentBytes) throws IOException {
-        try (PDDocument document = Loader.loadPDF(documentBytes)) {
+        try (PDDocument document = Loader.loadPDF(new RandomAccessReadBuffer(documentBytes), IOUtils.createTempFileOnlyStreamCache())) {
             return new PDFTextStripper().getText(document);
         }
     }
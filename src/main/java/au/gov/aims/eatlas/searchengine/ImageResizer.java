@@ -1,19 +1,101 @@
 package au.gov.aims.eatlas.searchengine;
 
+import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
 import java.awt.Graphics2D;
-import java.awt.Image;
+import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
 
 public class ImageResizer {
+    // Same quality as ImageIO.write
+    private static final float JPEG_QUALITY = 0.75f;
+
+    // JPEG writers are expensive to look up and create. Keep one per thread.
+    private static final ThreadLocal<ImageWriter> JPEG_WRITER = ThreadLocal.withInitial(() -> {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpg");
+        return writers.hasNext() ? writers.next() : null;
+    });
+
     public static byte[] getImageData(BufferedImage image) throws IOException {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        ImageIO.write(image, "jpg", baos);
+        writeJpeg(image, baos);
         return baos.toByteArray();
     }
 
+    public static void writeJpeg(BufferedImage image, OutputStream outputStream) throws IOException {
+        ImageWriter writer = JPEG_WRITER.get();
+        if (writer == null) {
+            ImageIO.write(image, "jpg", outputStream);
+            return;
+        }
+
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(JPEG_QUALITY);
+
+        try (ImageOutputStream imageOutputStream = ImageIO.createImageOutputStream(outputStream)) {
+            writer.setOutput(imageOutputStream);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.reset();
+        }
+    }
+
+    /**
+     * Decode the image, skipping pixels when the image is much larger than the target size.
+     * The decoded image is still at least twice the size of the thumbnail,
+     *     so the thumbnail quality is not affected.
+     */
+    public static BufferedImage readImage(InputStream inputStream, int targetWidth, int targetHeight) throws IOException {
+        try (ImageInputStream imageInputStream = ImageIO.createImageInputStream(inputStream)) {
+            if (imageInputStream == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInputStream);
+            if (!readers.hasNext()) {
+                return null;
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageInputStream, true, true);
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = getSubsampling(reader.getWidth(0), reader.getHeight(0), targetWidth, targetHeight);
+                if (subsampling > 1) {
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    public static int getSubsampling(int originalWidth, int originalHeight, int targetWidth, int targetHeight) {
+        if (originalWidth <= 0 || originalHeight <= 0) {
+            return 1;
+        }
+        double scale = Math.max(
+            (double) targetWidth / originalWidth,
+            (double) targetHeight / originalHeight
+        );
+
+        return Math.max(1, (int) (1 / (scale * 2)));
+    }
+
     public static BufferedImage resizeCropImage(BufferedImage originalImage, int targetWidth, int targetHeight) throws IOException {
         int originalWidth = originalImage.getWidth();
         int originalHeight = originalImage.getHeight();
@@ -28,23 +110,39 @@ public class ImageResizer {
             (double) targetHeight / originalHeight
         );
 
-        int scaledWidth = (int) (scale * originalWidth);
-        int scaledHeight = (int) (scale * originalHeight);
+        // Crop the original image to the target aspect ratio (center crop),
+        //     so only the visible pixels are scaled.
+        int cropWidth = Math.max(1, Math.min(originalWidth, (int) Math.round(targetWidth / scale)));
+        int cropHeight = Math.max(1, Math.min(originalHeight, (int) Math.round(targetHeight / scale)));
+        int x = (originalWidth - cropWidth) / 2;
+        int y = (originalHeight - cropHeight) / 2;
+        BufferedImage image = originalImage.getSubimage(x, y, cropWidth, cropHeight);
 
-        // Resize the image
-        Image tmp = originalImage.getScaledInstance(scaledWidth, scaledHeight, Image.SCALE_SMOOTH);
-        BufferedImage resizedImage = new BufferedImage(scaledWidth, scaledHeight, BufferedImage.TYPE_INT_RGB);
+        // Halve the image size using bilinear interpolation, until it's less than twice the target size.
+        //     Scaling down by more than half in one step would skip pixels.
+        int width = cropWidth;
+        int height = cropHeight;
+        int imageType = originalImage.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        while (width / 2 >= targetWidth && height / 2 >= targetHeight) {
+            width /= 2;
+            height /= 2;
+            image = drawScaled(image, width, height, imageType, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        }
 
-        Graphics2D g2d = resizedImage.createGraphics();
-        g2d.drawImage(tmp, 0, 0, null);
-        g2d.dispose();
+        // Last step, using bicubic interpolation.
+        return drawScaled(image, targetWidth, targetHeight, BufferedImage.TYPE_INT_RGB, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+    }
+
+    private static BufferedImage drawScaled(BufferedImage image, int width, int height, int imageType, Object interpolation) {
+        BufferedImage scaledImage = new BufferedImage(width, height, imageType);
 
-        // Crop the image to the target dimensions (center crop)
-        int x = (scaledWidth - targetWidth) / 2;
-        int y = (scaledHeight - targetHeight) / 2;
+        Graphics2D g2d = scaledImage.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, interpolation);
+        g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.drawImage(image, 0, 0, width, height, null);
+        g2d.dispose();
 
-        return resizedImage.getSubimage(x, y,
-            Math.min(targetWidth, scaledWidth),
-            Math.min(targetHeight, scaledHeight));
+        return scaledImage;
     }
 }
@@ -0,0 +1,117 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * Size bounded map, used by the caches to keep track of their entries.
+ * The least recently used (LRU) entries are evicted
+ *     when the total size of the entries get larger than the maximum size.
+ * The eviction listener is called for each evicted entry,
+ *     to let the cache delete the files of the entry. It must not modify the map.
+ * Not thread safe. The caches synchronise their access to the map.
+ */
+public class LruMap<K, V> {
+    private final long maxSize;
+    private final ToLongFunction<V> sizeFunction;
+    private final BiConsumer<K, V> evictionListener;
+
+    // Access ordered map, used as a LRU list.
+    private final LinkedHashMap<K, V> entries;
+    private long totalSize;
+
+    /**
+     * @param maxSize The maximum total size of the entries.
+     * @param sizeFunction Returns the size of an entry.
+     * @param evictionListener Called for each evicted entry. Can be null.
+     */
+    public LruMap(long maxSize, ToLongFunction<V> sizeFunction, BiConsumer<K, V> evictionListener) {
+        this.maxSize = maxSize;
+        this.sizeFunction = sizeFunction;
+        this.evictionListener = evictionListener;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.totalSize = 0;
+    }
+
+    public long getMaxSize() {
+        return this.maxSize;
+    }
+
+    public long getTotalSize() {
+        return this.totalSize;
+    }
+
+    public int size() {
+        return this.entries.size();
+    }
+
+    public boolean containsKey(K key) {
+        return this.entries.containsKey(key);
+    }
+
+    // Returns the value, and flag it as the most recently used.
+    public V get(K key) {
+        return this.entries.get(key);
+    }
+
+    /**
+     * Add the value, as the most recently used, then evict the least recently used entries.
+     * The eviction listener is not called for the replaced value.
+     * @return The replaced value, or null.
+     */
+    public V put(K key, V value) {
+        V oldValue = this.entries.put(key, value);
+        if (oldValue != null) {
+            this.totalSize -= this.sizeFunction.applyAsLong(oldValue);
+        }
+        this.totalSize += this.sizeFunction.applyAsLong(value);
+        this.evict();
+        return oldValue;
+    }
+
+    /**
+     * Remove the value. The eviction listener is not called.
+     * @return The removed value, or null.
+     */
+    public V remove(K key) {
+        V value = this.entries.remove(key);
+        if (value != null) {
+            this.totalSize -= this.sizeFunction.applyAsLong(value);
+        }
+        return value;
+    }
+
+    // Remove the least recently used entries, until the map is smaller than its max size.
+    private void evict() {
+        Iterator<Map.Entry<K, V>> iterator = this.entries.entrySet().iterator();
+        while (this.totalSize > this.maxSize && iterator.hasNext()) {
+            Map.Entry<K, V> entry = iterator.next();
+            iterator.remove();
+            this.totalSize -= this.sizeFunction.applyAsLong(entry.getValue());
+            if (this.evictionListener != null) {
+                this.evictionListener.accept(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Body of a HTTP response.
+ * The body is streamed into memory. Bodies larger than the memory threshold
+ *     are spilled to a temporary file, to keep large documents
+ *     (PDF, AtlasMapper layers.json, etc) out of the heap.
+ * The body can be read using an InputStream, or a read-only ByteBuffer
+ *     (memory mapped when the body is on disk), without copying it.
+ * The temporary file is deleted when the body is closed,
+ *     or when the body is garbage collected.
+ */
+public class ResponseBody implements Closeable {
+    private static final Logger LOGGER = LogManager.getLogger(ResponseBody.class.getName());
+
+    // Bodies larger than 1 MB are saved in a temporary file.
+    public static final int MEMORY_THRESHOLD = 1024 * 1024;
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final Cleaner CLEANER = Cleaner.create();
+    private static final ResponseBody EMPTY = new ResponseBody(new byte[0], 0);
+
+    // In memory body. Only the first "size" bytes of the array are used.
+    private final byte[] bytes;
+    // Temporary file, used when the body is larger than the memory threshold.
+    private final File file;
+    private final long size;
+    private final Cleaner.Cleanable cleanable;
+
+    private ResponseBody(byte[] bytes, long size) {
+        this.bytes = bytes;
+        this.file = null;
+        this.size = size;
+        this.cleanable = null;
+    }
+
+    private ResponseBody(File file, long size) {
+        this.bytes = null;
+        this.file = file;
+        this.size = size;
+        this.cleanable = CLEANER.register(this, new FileDeleter(file));
+    }
+
+    public static ResponseBody empty() {
+        return EMPTY;
+    }
+
+    public static ResponseBody of(byte[] bytes) {
+        return bytes == null ? EMPTY : new ResponseBody(bytes, bytes.length);
+    }
+
+    /**
+     * Read the input stream, until the end of the stream.
+     * The input stream is not closed.
+     * @param inputStream The stream to read.
+     * @param maxSize Maximum number of bytes allowed, or null for unlimited.
+     * @throws ResponseTooLargeException if the stream contains more than maxSize bytes.
+     */
+    public static ResponseBody read(InputStream inputStream, Long maxSize) throws IOException {
+        if (inputStream == null) {
+            return EMPTY;
+        }
+        long limit = (maxSize == null || maxSize <= 0) ? Long.MAX_VALUE : maxSize;
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int size = 0;
+        int read;
+        while ((read = inputStream.read(buffer, size, buffer.length - size)) != -1) {
+            size += read;
+            if (size > limit) {
+                throw new ResponseTooLargeException(limit);
+            }
+            if (size == buffer.length) {
+                if (buffer.length >= MEMORY_THRESHOLD) {
+                    return ResponseBody.spill(buffer, size, inputStream, limit);
+                }
+                buffer = Arrays.copyOf(buffer, Math.min(buffer.length * 2, MEMORY_THRESHOLD));
+            }
+        }
+
+        return size == 0 ? EMPTY : new ResponseBody(buffer, size);
+    }
+
+    // Write what was read so far to a temporary file, then stream the rest of the body to the file.
+    private static ResponseBody spill(byte[] buffer, int bufferSize, InputStream inputStream, long limit) throws IOException {
+        File tmpFile = File.createTempFile("eatlas-response-", ".body");
+        boolean success = false;
+        try {
+            long size = bufferSize;
+            try (OutputStream outputStream = new FileOutputStream(tmpFile)) {
+                outputStream.write(buffer, 0, bufferSize);
+                int read;
+                while ((read = inputStream.read(buffer)) != -1) {
+                    size += read;
+                    if (size > limit) {
+                        throw new ResponseTooLargeException(limit);
+                    }
+                    outputStream.write(buffer, 0, read);
+                }
+            }
+            success = true;
+            return new ResponseBody(tmpFile, size);
+        } finally {
+            if (!success) {
+                FileUtils.deleteQuietly(tmpFile);
+            }
+        }
+    }
+
+    public long getSize() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size <= 0;
+    }
+
+    public boolean isOnDisk() {
+        return this.file != null;
+    }
+
+    /**
+     * Returns the temporary file containing the body,
+     * or null if the body is in memory.
+     */
+    public File getFile() {
+        return this.file;
+    }
+
+    public InputStream getInputStream() throws IOException {
+        if (this.file != null) {
+            return new BufferedInputStream(new FileInputStream(this.file), BUFFER_SIZE);
+        }
+        return new ByteArrayInputStream(this.bytes, 0, (int)this.size);
+    }
+
+    public Reader getReader(Charset charset) throws IOException {
+        return new InputStreamReader(this.getInputStream(), charset);
+    }
+
+    /**
+     * Returns a read-only view of the body.
+     * The file is memory mapped when the body is on disk.
+     */
+    public ByteBuffer getByteBuffer() throws IOException {
+        if (this.file != null) {
+            try (FileChannel channel = FileChannel.open(this.file.toPath(), StandardOpenOption.READ)) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+        }
+        return ByteBuffer.wrap(this.bytes, 0, (int)this.size).asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns a copy of the body.
+     * Avoid with large bodies, use getInputStream or getByteBuffer instead.
+     */
+    public byte[] getBytes() throws IOException {
+        if (this.file != null) {
+            return FileUtils.readFileToByteArray(this.file);
+        }
+        return this.bytes.length == this.size ? this.bytes : Arrays.copyOf(this.bytes, (int)this.size);
+    }
+
+    public String getString(Charset charset) throws IOException {
+        if (this.file != null) {
+            return FileUtils.readFileToString(this.file, charset);
+        }
+        return new String(this.bytes, 0, (int)this.size, charset);
+    }
+
+    /**
+     * Delete the temporary file, if any.
+     */
+    @Override
+    public void close() {
+        if (this.cleanable != null) {
+            this.cleanable.clean();
+        }
+    }
+
+    // NOTE: Must not reference the ResponseBody, otherwise it would never be garbage collected.
+    private static class FileDeleter implements Runnable {
+        private final File file;
+
+        public FileDeleter(File file) {
+            this.file = file;
+        }
+
+        @Override
+        public void run() {
+            if (this.file.exists() && !this.file.delete()) {
+                LOGGER.warn(String.format("Could not delete temporary response file: %s", this.file));
+            }
+        }
+    }
+}
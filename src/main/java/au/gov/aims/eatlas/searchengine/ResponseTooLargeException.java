@@ -0,0 +1,33 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a response body is larger than the maximum response size
+ * allowed for the request (see ResponseBody).
+ */
+public class ResponseTooLargeException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public ResponseTooLargeException(long maxSize) {
+        super(String.format("The response body is larger than the maximum allowed size of %d bytes.", maxSize));
+    }
+}
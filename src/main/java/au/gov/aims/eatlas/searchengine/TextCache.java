@@ -0,0 +1,293 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine;
+
+import au.gov.aims.eatlas.searchengine.logger.AbstractLogger;
+import au.gov.aims.eatlas.searchengine.logger.Level;
+import org.apache.commons.io.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * On disk cache of the text extracted from downloaded documents (HTML pages, PDF, etc).
+ * Used to avoid extracting the text of documents which have not changed since the last harvest.
+ *     <urlKey>.json: The URL, ETag, Last-Modified and body hash (SHA-256) of the last response.
+ *     <bodyHash>.txt: The text extracted from the body.
+ * The text files are content-addressed: URLs serving the same document share the same text file.
+ * The cache size is the size of the text files. The least recently used text files are deleted,
+ *     with the URL entries using them, when the cache get larger than its maximum size.
+ */
+public class TextCache extends AbstractDiskCache {
+    private static final Logger LOGGER = LogManager.getLogger(TextCache.class.getName());
+
+    private static final String TEXT_EXTENSION = ".txt";
+
+    // Body hash -> text size. Each text file is counted once, regardless of the number of URLs using it.
+    private final LruMap<String, Long> texts;
+    // URL key -> entry
+    private final Map<String, Entry> entries;
+    // Body hash -> keys of the URLs using the text file
+    private final Map<String, Set<String>> textUsers;
+
+    public TextCache(File cacheDirectory, long maxSize) {
+        super(cacheDirectory, maxSize);
+        this.texts = new LruMap<>(maxSize, Long::longValue, (bodyHash, size) -> this.deleteText(bodyHash));
+        this.entries = new HashMap<>();
+        this.textUsers = new HashMap<>();
+        this.loadEntries();
+    }
+
+    public synchronized long getTotalSize() {
+        return this.texts.getTotalSize();
+    }
+
+    public synchronized Entry get(String url) {
+        Entry entry = this.entries.get(AbstractDiskCache.getKey(url));
+        if (entry != null) {
+            // Flag the text as recently used
+            this.texts.get(entry.getBodyHash());
+        }
+        return entry;
+    }
+
+    /**
+     * Returns the cached text for the given response body hash,
+     *     or null if no document with that hash is cached.
+     */
+    public String getText(String bodyHash) {
+        if (bodyHash == null) {
+            return null;
+        }
+        synchronized (this) {
+            if (this.texts.get(bodyHash) == null) {
+                return null;
+            }
+        }
+
+        File textFile = this.getTextFile(bodyHash);
+        try {
+            String text = FileUtils.readFileToString(textFile, StandardCharsets.UTF_8);
+            // Update the file last modified date, to keep track of the least recently used entries after a restart.
+            textFile.setLastModified(System.currentTimeMillis());
+            return text;
+        } catch(IOException ex) {
+            LOGGER.warn(String.format("Can not read cached text: %s", textFile), ex);
+            return null;
+        }
+    }
+
+    /**
+     * Cache the text extracted from a response.
+     * The response validators (ETag, Last-Modified) are saved to send conditional requests.
+     */
+    public void put(String url, HttpClient.Response response, String bodyHash, String text, AbstractLogger logger) {
+        if (response == null || bodyHash == null || text == null) {
+            return;
+        }
+
+        long size = text.getBytes(StandardCharsets.UTF_8).length;
+        if (size > this.getMaxSize()) {
+            return;
+        }
+
+        Entry entry = new Entry(AbstractDiskCache.getKey(url), url,
+                response.header("ETag"), response.header("Last-Modified"), bodyHash);
+
+        synchronized (this) {
+            try {
+                FileUtils.forceMkdir(this.getCacheDirectory());
+                File textFile = this.getTextFile(bodyHash);
+                if (!this.texts.containsKey(bodyHash) || !textFile.isFile()) {
+                    FileUtils.writeStringToFile(textFile, text, StandardCharsets.UTF_8);
+                }
+                FileUtils.writeStringToFile(this.getMetadataFile(entry.getKey()), entry.toJSON().toString(), StandardCharsets.UTF_8);
+            } catch(IOException ex) {
+                logger.addMessage(Level.WARNING, String.format("Exception occurred while caching the text extracted from URL: %s", url), ex);
+                this.remove(url);
+                return;
+            }
+
+            this.addEntry(entry, size);
+        }
+    }
+
+    public synchronized void remove(String url) {
+        String key = AbstractDiskCache.getKey(url);
+        this.removeEntry(key);
+        FileUtils.deleteQuietly(this.getMetadataFile(key));
+    }
+
+    private synchronized void addEntry(Entry entry, long textSize) {
+        Entry oldEntry = this.entries.put(entry.getKey(), entry);
+        if (oldEntry != null && !oldEntry.getBodyHash().equals(entry.getBodyHash())) {
+            this.removeTextUser(oldEntry.getBodyHash(), entry.getKey());
+        }
+        this.textUsers.computeIfAbsent(entry.getBodyHash(), bodyHash -> new HashSet<>()).add(entry.getKey());
+        // May evict the least recently used texts
+        this.texts.put(entry.getBodyHash(), textSize);
+    }
+
+    private synchronized void removeEntry(String key) {
+        Entry entry = this.entries.remove(key);
+        if (entry != null) {
+            this.removeTextUser(entry.getBodyHash(), key);
+        }
+    }
+
+    // Delete the text file when it's not used by another URL.
+    private synchronized void removeTextUser(String bodyHash, String key) {
+        Set<String> users = this.textUsers.get(bodyHash);
+        if (users != null) {
+            users.remove(key);
+            if (users.isEmpty()) {
+                this.texts.remove(bodyHash);
+                this.deleteText(bodyHash);
+            }
+        }
+    }
+
+    // Delete the text file, and the entries of the URLs using it.
+    private synchronized void deleteText(String bodyHash) {
+        Set<String> users = this.textUsers.remove(bodyHash);
+        if (users != null) {
+            for (String key : users) {
+                this.entries.remove(key);
+                FileUtils.deleteQuietly(this.getMetadataFile(key));
+            }
+        }
+        FileUtils.deleteQuietly(this.getTextFile(bodyHash));
+    }
+
+    private synchronized void loadEntries() {
+        File[] metadataFiles = this.listMetadataFiles();
+        if (metadataFiles == null) {
+            return;
+        }
+
+        Map<String, File> textFiles = new HashMap<>();
+        List<Entry> loadedEntries = new ArrayList<>();
+        for (File metadataFile : metadataFiles) {
+            try {
+                Entry entry = Entry.fromJSON(new JSONObject(FileUtils.readFileToString(metadataFile, StandardCharsets.UTF_8)));
+                File textFile = this.getTextFile(entry.getBodyHash());
+                if (textFile.isFile()) {
+                    textFiles.put(entry.getBodyHash(), textFile);
+                    loadedEntries.add(entry);
+                } else {
+                    FileUtils.deleteQuietly(metadataFile);
+                }
+            } catch(Exception ex) {
+                LOGGER.warn(String.format("Invalid text cache entry: %s", metadataFile), ex);
+                FileUtils.deleteQuietly(metadataFile);
+            }
+        }
+
+        // Oldest text first. Texts which doesn't fit in the cache anymore are evicted.
+        loadedEntries.sort(Comparator.comparingLong(entry -> textFiles.get(entry.getBodyHash()).lastModified()));
+        for (Entry entry : loadedEntries) {
+            this.addEntry(entry, textFiles.get(entry.getBodyHash()).length());
+        }
+    }
+
+    private File getTextFile(String bodyHash) {
+        return new File(this.getCacheDirectory(), bodyHash + TEXT_EXTENSION);
+    }
+
+    public static class Entry {
+        private final String key;
+        private final String url;
+        private final String etag;
+        private final String lastModified;
+        private final String bodyHash;
+
+        public Entry(String key, String url, String etag, String lastModified, String bodyHash) {
+            this.key = key;
+            this.url = url;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.bodyHash = bodyHash;
+        }
+
+        public String getKey() {
+            return this.key;
+        }
+
+        public String getUrl() {
+            return this.url;
+        }
+
+        public String getEtag() {
+            return this.etag;
+        }
+
+        public String getLastModified() {
+            return this.lastModified;
+        }
+
+        public String getBodyHash() {
+            return this.bodyHash;
+        }
+
+        /**
+         * Headers used to send a conditional request.
+         * Empty when the response had no validator.
+         */
+        public Map<String, String> getConditionalHeaders() {
+            Map<String, String> headers = new LinkedHashMap<>();
+            if (this.etag != null) {
+                headers.put("If-None-Match", this.etag);
+            }
+            if (this.lastModified != null) {
+                headers.put("If-Modified-Since", this.lastModified);
+            }
+            return headers;
+        }
+
+        public JSONObject toJSON() {
+            return new JSONObject()
+                .put("key", this.key)
+                .put("url", this.url)
+                .put("etag", this.etag)
+                .put("lastModified", this.lastModified)
+                .put("bodyHash", this.bodyHash);
+        }
+
+        public static Entry fromJSON(JSONObject json) {
+            return new Entry(
+                json.getString("key"),
+                json.optString("url", null),
+                json.optString("etag", null),
+                json.optString("lastModified", null),
+                json.getString("bodyHash"));
+        }
+    }
+}
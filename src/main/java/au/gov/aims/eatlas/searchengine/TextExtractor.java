@@ -0,0 +1,325 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine;
+
+import org.apache.http.entity.ContentType;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.text.PDFTextStripper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Extract the text content of downloaded documents (HTML, PDF).
+ * The extraction runs in its own bounded thread pool, away from the harvest threads.
+ * Each document is limited in time and in number of pages. When a limit is reached,
+ *     the text extracted so far is returned, flagged as truncated, so the document
+ *     still get indexed.
+ * PDF documents are loaded using a temporary file stream cache,
+ *     to keep large documents out of the heap.
+ */
+public class TextExtractor {
+    public static final int DEFAULT_TIMEOUT = 60; // In seconds
+    public static final int DEFAULT_MAX_PAGES = 300;
+
+    // Text extraction is CPU intensive. Keep it to a few threads,
+    //     to avoid starving the harvest and the search.
+    private static final int THREAD_POOL_SIZE = 2;
+
+    // Time given to the extraction thread to return the text extracted so far,
+    //     after the time limit, before it get interrupted.
+    private static final long TIMEOUT_GRACE_PERIOD = 5000; // In milliseconds
+
+    private static TextExtractor instance;
+
+    private final ThreadPoolExecutor threadPool;
+    // Harvest threads wait for a free extraction thread, up to the extraction time limit.
+    //     Permits are released when the extraction actually ends, so documents
+    //     which can't be interrupted keep their thread, and the pool stay bounded.
+    private final Semaphore permits;
+
+    // Stats, since the application started
+    private final AtomicLong extractedCount = new AtomicLong();
+    private final AtomicLong pageCount = new AtomicLong();
+    private final AtomicLong pageLimitCount = new AtomicLong();
+    private final AtomicLong timeLimitCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+
+    private TextExtractor(int threadPoolSize) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.threadPool = new ThreadPoolExecutor(
+                threadPoolSize, threadPoolSize,
+                0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(threadPoolSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "TextExtractor-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.permits = new Semaphore(threadPoolSize);
+    }
+
+    public static synchronized TextExtractor getInstance() {
+        if (instance == null) {
+            instance = new TextExtractor(THREAD_POOL_SIZE);
+        }
+        return instance;
+    }
+
+    /**
+     * Extract the text content of the response body.
+     * Responses which are not HTML or PDF are returned as text.
+     * @param timeout Maximum extraction time, in seconds, or null for the default.
+     * @param maxPages Maximum number of PDF pages to extract, or null for the default.
+     */
+    public Result extract(HttpClient.Response response, Integer timeout, Integer maxPages) throws IOException, InterruptedException {
+        if (response == null) {
+            return null;
+        }
+
+        ContentType contentType = response.contentType();
+        String mimeType = contentType == null ? null : contentType.getMimeType();
+        boolean html = ContentType.TEXT_HTML.getMimeType().equals(mimeType) ||
+                ContentType.APPLICATION_XHTML_XML.getMimeType().equals(mimeType);
+        boolean pdf = "application/pdf".equals(mimeType);
+        if (!html && !pdf) {
+            return new Result(response.body(), null, 0);
+        }
+
+        long timeoutMs = (timeout == null || timeout <= 0 ? DEFAULT_TIMEOUT : timeout) * 1000L;
+        int safeMaxPages = maxPages == null || maxPages <= 0 ? DEFAULT_MAX_PAGES : maxPages;
+        long deadline = System.currentTimeMillis() + timeoutMs;
+
+        // The extraction thread write the text in this writer (synchronised),
+        //     so the text extracted so far can be returned if the thread needs to be interrupted.
+        StringWriter writer = new StringWriter();
+        Extraction extraction = new Extraction(response, pdf, safeMaxPages, deadline, writer);
+
+        // Both extraction threads are stuck on documents which can't be interrupted.
+        //     Don't block the harvest thread forever, index the document without its text.
+        if (!this.permits.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS)) {
+            this.timeLimitCount.incrementAndGet();
+            return new Result("", Limit.TIME, 0);
+        }
+        Future<Result> future;
+        try {
+            future = this.threadPool.submit(() -> {
+                try {
+                    return extraction.call();
+                } finally {
+                    this.permits.release();
+                }
+            });
+        } catch(RuntimeException ex) {
+            this.permits.release();
+            throw ex;
+        }
+
+        Result result;
+        try {
+            result = future.get(timeoutMs + TIMEOUT_GRACE_PERIOD, TimeUnit.MILLISECONDS);
+        } catch(TimeoutException ex) {
+            // Stuck on a single page (or in the HTML parser). Return what we have.
+            future.cancel(true);
+            result = new Result(writer.toString(), Limit.TIME, extraction.getExtractedPages());
+        } catch(InterruptedException ex) {
+            future.cancel(true);
+            throw ex;
+        } catch(ExecutionException ex) {
+            this.failedCount.incrementAndGet();
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Exception occurred while extracting the document text", cause);
+        }
+
+        this.extractedCount.incrementAndGet();
+        this.pageCount.addAndGet(result.getPages());
+        if (result.getLimit() == Limit.PAGES) {
+            this.pageLimitCount.incrementAndGet();
+        } else if (result.getLimit() == Limit.TIME) {
+            this.timeLimitCount.incrementAndGet();
+        }
+
+        return result;
+    }
+
+    public long getExtractedCount() {
+        return this.extractedCount.get();
+    }
+
+    public long getPageCount() {
+        return this.pageCount.get();
+    }
+
+    public long getPageLimitCount() {
+        return this.pageLimitCount.get();
+    }
+
+    public long getTimeLimitCount() {
+        return this.timeLimitCount.get();
+    }
+
+    public long getFailedCount() {
+        return this.failedCount.get();
+    }
+
+    // Load PDF objects in a temporary file rather than in memory.
+    private static PDDocument loadPDF(ResponseBody body) throws IOException {
+        RandomAccessRead pdfSource = body.isOnDisk() ?
+                new RandomAccessReadBufferedFile(body.getFile()) :
+                new RandomAccessReadBuffer(body.getByteBuffer());
+
+        return Loader.loadPDF(pdfSource, IOUtils.createTempFileOnlyStreamCache());
+    }
+
+    private static class Extraction {
+        private final HttpClient.Response response;
+        private final boolean pdf;
+        private final int maxPages;
+        private final long deadline;
+        private final StringWriter writer;
+        private volatile int extractedPages;
+
+        public Extraction(HttpClient.Response response, boolean pdf, int maxPages, long deadline, StringWriter writer) {
+            this.response = response;
+            this.pdf = pdf;
+            this.maxPages = maxPages;
+            this.deadline = deadline;
+            this.writer = writer;
+            this.extractedPages = 0;
+        }
+
+        public int getExtractedPages() {
+            return this.extractedPages;
+        }
+
+        public Result call() throws IOException {
+            if (!this.pdf) {
+                try (InputStream inputStream = this.response.bodyStream()) {
+                    return new Result(HttpClient.extractHTMLTextContent(inputStream), null, 0);
+                }
+            }
+
+            ResponseBody body = this.response.getResponseBody();
+            if (body == null || body.isEmpty()) {
+                return new Result("", null, 0);
+            }
+
+            try (PDDocument document = TextExtractor.loadPDF(body)) {
+                int totalPages = document.getNumberOfPages();
+                Limit limit = null;
+                if (totalPages > this.maxPages) {
+                    limit = Limit.PAGES;
+                }
+
+                PDFTextStripper stripper = new DeadlinePDFTextStripper(this);
+                stripper.setEndPage(Math.min(totalPages, this.maxPages));
+                try {
+                    stripper.writeText(document, this.writer);
+                } catch(DeadlineException ex) {
+                    limit = Limit.TIME;
+                }
+
+                return new Result(this.writer.toString(), limit, this.extractedPages);
+            }
+        }
+    }
+
+    // Stop the extraction between pages, when the time limit is reached.
+    private static class DeadlinePDFTextStripper extends PDFTextStripper {
+        private final Extraction extraction;
+
+        public DeadlinePDFTextStripper(Extraction extraction) {
+            this.extraction = extraction;
+        }
+
+        @Override
+        protected void startPage(PDPage page) throws IOException {
+            if (System.currentTimeMillis() > this.extraction.deadline || Thread.currentThread().isInterrupted()) {
+                throw new DeadlineException();
+            }
+            super.startPage(page);
+        }
+
+        @Override
+        protected void endPage(PDPage page) throws IOException {
+            super.endPage(page);
+            this.extraction.extractedPages++;
+        }
+    }
+
+    private static class DeadlineException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public DeadlineException() {
+            super("Text extraction time limit reached");
+        }
+    }
+
+    public enum Limit {
+        PAGES, TIME
+    }
+
+    public static class Result {
+        private final String text;
+        // The limit which truncated the text, or null if the whole document was extracted.
+        private final Limit limit;
+        private final int pages;
+
+        public Result(String text, Limit limit, int pages) {
+            this.text = text;
+            this.limit = limit;
+            this.pages = pages;
+        }
+
+        public String getText() {
+            return this.text;
+        }
+
+        public Limit getLimit() {
+            return this.limit;
+        }
+
+        public boolean isTruncated() {
+            return this.limit != null;
+        }
+
+        public int getPages() {
+            return this.pages;
+        }
+    }
+}
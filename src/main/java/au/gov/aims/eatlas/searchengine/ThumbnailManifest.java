@@ -0,0 +1,142 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In memory list of the thumbnails of an index cache directory (filename -> size, last modified).
+ * Used to check if thumbnails exist, and how old they are, without hitting the disk
+ *     for every entity of every harvest (the cache directory may be on a network drive).
+ * The directory is scanned once, when the manifest is first requested.
+ *     The manifest is then kept up to date by the ImageCache and the ThumbnailCollector.
+ * Thumbnails deleted manually are not noticed until the application is restarted.
+ */
+public class ThumbnailManifest {
+    private static final Logger LOGGER = LogManager.getLogger(ThumbnailManifest.class.getName());
+
+    // Temporary files created by ImageCache.store
+    private static final String TEMPORARY_FILE_PREFIX = ".tmp_";
+
+    // Cache directory -> manifest
+    private static final Map<File, ThumbnailManifest> MANIFESTS = new ConcurrentHashMap<>();
+
+    private final File cacheDirectory;
+    private final Map<String, Entry> entries;
+
+    public ThumbnailManifest(File cacheDirectory) {
+        this.cacheDirectory = cacheDirectory;
+        this.entries = new ConcurrentHashMap<>();
+        this.load();
+    }
+
+    public static ThumbnailManifest getInstance(File cacheDirectory) {
+        return MANIFESTS.computeIfAbsent(cacheDirectory, ThumbnailManifest::new);
+    }
+
+    /**
+     * Remove the file from the manifest of the cache directory, if it was loaded.
+     */
+    public static void fileDeleted(File cacheDirectory, String filename) {
+        ThumbnailManifest manifest = MANIFESTS.get(cacheDirectory);
+        if (manifest != null) {
+            manifest.remove(filename);
+        }
+    }
+
+    public File getCacheDirectory() {
+        return this.cacheDirectory;
+    }
+
+    public int size() {
+        return this.entries.size();
+    }
+
+    public Entry get(String filename) {
+        return filename == null ? null : this.entries.get(filename);
+    }
+
+    public void put(String filename, long size, long lastModified) {
+        this.entries.put(filename, new Entry(size, lastModified));
+    }
+
+    public void remove(String filename) {
+        if (filename != null) {
+            this.entries.remove(filename);
+        }
+    }
+
+    // The file attributes are read while listing the directories,
+    //     which is much cheaper than requesting them for each file.
+    private void load() {
+        if (this.cacheDirectory == null || !this.cacheDirectory.isDirectory()) {
+            return;
+        }
+
+        try {
+            Files.walkFileTree(this.cacheDirectory.toPath(), new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    String filename = file.getFileName().toString();
+                    if (attributes.isRegularFile() && !filename.startsWith(TEMPORARY_FILE_PREFIX)) {
+                        ThumbnailManifest.this.put(filename, attributes.size(), attributes.lastModifiedTime().toMillis());
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException ex) {
+                    LOGGER.warn(String.format("Can not read thumbnail file attributes: %s", file), ex);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch(IOException ex) {
+            LOGGER.error(String.format("Can not list the thumbnails of cache directory: %s", this.cacheDirectory), ex);
+        }
+    }
+
+    public static class Entry {
+        private final long size;
+        private final long lastModified;
+
+        public Entry(long size, long lastModified) {
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        public long getSize() {
+            return this.size;
+        }
+
+        public long getLastModified() {
+            return this.lastModified;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine.admin;
+
+import org.json.JSONObject;
+
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Limits applied by the HttpClient to all requests sent to a host,
+ * shared by all indexers.
+ * Host "*" is used for hosts which have no limits defined.
+ */
+public class HostLimit {
+    public static final String DEFAULT_HOST = "*";
+
+    // Host name. Example: maps.eatlas.org.au
+    private final String host;
+
+    // Maximum number of requests per second. 0 = unlimited.
+    private final double requestsPerSecond;
+
+    // Maximum number of simultaneous requests. 0 = use default.
+    private final int maxInFlight;
+
+    public HostLimit(String host, double requestsPerSecond, int maxInFlight) {
+        this.host = host == null ? null : host.trim().toLowerCase(Locale.ENGLISH);
+        this.requestsPerSecond = Math.max(0, requestsPerSecond);
+        this.maxInFlight = Math.max(0, maxInFlight);
+    }
+
+    public String getHost() {
+        return this.host;
+    }
+
+    public double getRequestsPerSecond() {
+        return this.requestsPerSecond;
+    }
+
+    public int getMaxInFlight() {
+        return this.maxInFlight;
+    }
+
+    public JSONObject toJSON() {
+        return new JSONObject()
+                .put("host", this.host)
+                .put("requestsPerSecond", this.requestsPerSecond)
+                .put("maxInFlight", this.maxInFlight);
+    }
+
+    public static HostLimit fromJSON(JSONObject json) {
+        if (json == null) {
+            return null;
+        }
+
+        String host = json.optString("host", null);
+        if (host == null || host.isEmpty()) {
+            return null;
+        }
+
+        return new HostLimit(
+                host,
+                json.optDouble("requestsPerSecond", 0),
+                json.optInt("maxInFlight", 0));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || this.getClass() != o.getClass()) {
+            return false;
+        }
+        HostLimit that = (HostLimit) o;
+        return Double.compare(this.requestsPerSecond, that.requestsPerSecond) == 0 &&
+                this.maxInFlight == that.maxInFlight &&
+                Objects.equals(this.host, that.host);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.host, this.requestsPerSecond, this.maxInFlight);
+    }
+}
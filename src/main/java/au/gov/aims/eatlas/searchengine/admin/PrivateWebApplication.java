@@ -24,6 +24,8 @@ import au.gov.aims.eatlas.searchengine.logger.AbstractLogger;
 import au.gov.aims.eatlas.searchengine.client.ESClient;
 import au.gov.aims.eatlas.searchengine.client.SearchClient;
 import au.gov.aims.eatlas.searchengine.client.SearchUtils;
+import au.gov.aims.eatlas.searchengine.index.ThumbnailCollector;
+import au.gov.aims.eatlas.searchengine.index.ThumbnailQueue;
 import au.gov.aims.eatlas.searchengine.rest.PublicWebApplication;
 import jakarta.servlet.ServletContext;
 import jakarta.ws.rs.core.Context;
@@ -51,12 +53,18 @@ public class PrivateWebApplication extends ResourceConfig {
                 SearchClient searchClient = ESClient.getInstance();
                 if (searchClient.isHealthy()) {
                     SearchUtils.deleteOrphanIndexes(searchClient);
+
+                    // Resume the thumbnails which were queued when the application stopped.
+                    ThumbnailQueue.getInstance().resume(searchClient, logger);
+
+                    // Periodically delete the thumbnails which are not used anymore.
+                    ThumbnailCollector.getInstance().start(searchClient);
                 } else {
                     LOGGER.warn("The Elastic Search server is not healthy (not running or status red).");
                 }
             } catch (Exception ex) {
                 LOGGER.error(
-                    "An exception occurred while deleting orphan search indexes.", ex);
+                    "An exception occurred while cleaning up the search indexes.", ex);
             }
         }
 
@@ -19,6 +19,7 @@
 package au.gov.aims.eatlas.searchengine.admin;
 
 import au.gov.aims.eatlas.searchengine.HttpClient;
+import au.gov.aims.eatlas.searchengine.TextExtractor;
 import au.gov.aims.eatlas.searchengine.logger.AbstractLogger;
 import au.gov.aims.eatlas.searchengine.index.AbstractIndexer;
 import au.gov.aims.eatlas.searchengine.logger.Level;
@@ -34,7 +35,9 @@ import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.ConcurrentModificationException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class SearchEngineConfig {
     private static final long DEFAULT_GLOBAL_THUMBNAIL_TTL = 30; // TTL, in days
@@ -43,6 +46,10 @@ public class SearchEngineConfig {
     private static final int DEFAULT_NUMBER_OF_REPLICAS = 0;
     private static final int DEFAULT_THUMBNAIL_WIDTH = 200;
     private static final int DEFAULT_THUMBNAIL_HEIGHT = 150;
+    private static final long DEFAULT_HTTP_CACHE_MAX_SIZE = 500; // In MB
+    private static final long DEFAULT_TEXT_CACHE_MAX_SIZE = 100; // In MB
+    private static final int DEFAULT_TEXT_EXTRACTION_TIMEOUT = TextExtractor.DEFAULT_TIMEOUT; // In seconds
+    private static final int DEFAULT_TEXT_EXTRACTION_MAX_PAGES = TextExtractor.DEFAULT_MAX_PAGES;
 
     private static final int RANDOM_TOKEN_LENGTH = 12;
 
@@ -73,11 +80,22 @@ public class SearchEngineConfig {
     private String imageCacheDirectory;
     private int thumbnailWidth;
     private int thumbnailHeight;
+    // Maximum size of the HTTP response cache, in MB. 0 to disable.
+    private long httpCacheMaxSize = DEFAULT_HTTP_CACHE_MAX_SIZE;
+    private long textCacheMaxSize = DEFAULT_TEXT_CACHE_MAX_SIZE;
+    // Limits applied to the text extraction of each external link document.
+    private int textExtractionTimeout = DEFAULT_TEXT_EXTRACTION_TIMEOUT; // In seconds
+    private int textExtractionMaxPages = DEFAULT_TEXT_EXTRACTION_MAX_PAGES;
     // When thumbnails settings are changed, all thumbnails are invalidated.
     private long lastThumbnailSettingChangeDate = -1;
     // Used to craft URL to preview images
     private String searchEngineBaseUrl;
+    // Request limits, per host. Shared by all indexers.
+    private List<HostLimit> hostLimits;
     private List<AbstractIndexer<?>> indexers;
+    // Index -> indexer, used to find the indexer of each search result.
+    //     Rebuilt when the indexers or the settings change.
+    private volatile Map<String, AbstractIndexer<?>> indexerMap;
 
     private SearchEngineConfig(HttpClient httpClient, File configFile, AbstractLogger logger) throws IOException {
         this.httpClient = httpClient;
@@ -121,7 +139,9 @@ public class SearchEngineConfig {
 
     public void reload(AbstractLogger logger) throws IOException {
         this.indexers = new ArrayList<>();
+        this.indexerMap = null;
         this.elasticSearchUrls = null;
+        this.hostLimits = new ArrayList<>();
         if (this.configFile != null && this.configFile.canRead()) {
             // Set lastModified to config file last modified
             this.lastModified = this.configFile.lastModified();
@@ -157,6 +177,9 @@ public class SearchEngineConfig {
             // Set this.lastModified to config file last modified
             this.lastModified = this.configFile.lastModified();
         }
+
+        // Indexes may have been renamed
+        this.indexerMap = null;
     }
 
     public List<AbstractIndexer<?>> getIndexers() {
@@ -175,17 +198,35 @@ public class SearchEngineConfig {
 
     public AbstractIndexer<?> getIndexer(String index) {
         if (index != null) {
-            for (AbstractIndexer<?> foundIndexer : this.indexers) {
-                if (index.equals(foundIndexer.getIndex())) {
-                    return foundIndexer;
-                }
+            Map<String, AbstractIndexer<?>> indexerMap = this.indexerMap;
+            if (indexerMap == null) {
+                indexerMap = this.buildIndexerMap();
             }
+            // Unknown indexes (deleted indexers, etc) are not looked up again.
+            //     The map is rebuilt when the settings are saved or reloaded.
+            AbstractIndexer<?> foundIndexer = indexerMap.get(index);
+            // The index of an indexer can be changed in the settings page, before the settings are saved.
+            if (foundIndexer != null && !index.equals(foundIndexer.getIndex())) {
+                foundIndexer = this.buildIndexerMap().get(index);
+            }
+            return foundIndexer;
         }
         return null;
     }
 
+    private synchronized Map<String, AbstractIndexer<?>> buildIndexerMap() {
+        Map<String, AbstractIndexer<?>> indexerMap = new HashMap<>();
+        for (AbstractIndexer<?> indexer : this.indexers) {
+            // Keep the first one, like the list lookup did
+            indexerMap.putIfAbsent(indexer.getIndex(), indexer);
+        }
+        this.indexerMap = indexerMap;
+        return indexerMap;
+    }
+
     public void addIndexer(AbstractIndexer<?> indexer) {
         this.indexers.add(indexer);
+        this.indexerMap = null;
     }
 
     public AbstractIndexer<?> removeIndexer(String index) throws Exception {
@@ -200,7 +241,9 @@ public class SearchEngineConfig {
         if (indexer != null) {
             SearchEngineState searchEngineState = SearchEngineState.getInstance();
             searchEngineState.removeIndexerState(indexer.getIndex());
-            return this.indexers.remove(indexer);
+            boolean removed = this.indexers.remove(indexer);
+            this.indexerMap = null;
+            return removed;
         }
         return false;
     }
@@ -220,6 +263,37 @@ public class SearchEngineConfig {
         this.elasticSearchUrls.add(elasticSearchUrl);
     }
 
+    public List<HostLimit> getHostLimits() {
+        return this.hostLimits;
+    }
+
+    public void setHostLimits(List<HostLimit> hostLimits) {
+        this.hostLimits = hostLimits == null ? new ArrayList<>() : hostLimits;
+    }
+
+    /**
+     * Returns the limits for the host,
+     * or the default limits (host "*") if the host has no limits.
+     */
+    public HostLimit getHostLimit(String host) {
+        List<HostLimit> hostLimits = this.hostLimits;
+        if (hostLimits == null) {
+            return null;
+        }
+
+        HostLimit defaultHostLimit = null;
+        for (HostLimit hostLimit : hostLimits) {
+            if (hostLimit.getHost().equalsIgnoreCase(host)) {
+                return hostLimit;
+            }
+            if (HostLimit.DEFAULT_HOST.equals(hostLimit.getHost())) {
+                defaultHostLimit = hostLimit;
+            }
+        }
+
+        return defaultHostLimit;
+    }
+
     public String getImageCacheDirectory() {
         return this.imageCacheDirectory;
     }
@@ -228,6 +302,63 @@ public class SearchEngineConfig {
         return this.imageCacheDirectory + "/log";
     }
 
+    // Snapshots of the last harvest, used by indexers which harvest incrementally.
+    public String getSnapshotCacheDirectory() {
+        return this.imageCacheDirectory == null ? null : this.imageCacheDirectory + "/snapshot";
+    }
+
+    // Local copy of the base map used to create the AtlasMapper layer thumbnails.
+    public String getBaseMapCacheDirectory() {
+        return this.imageCacheDirectory == null ? null : this.imageCacheDirectory + "/basemap";
+    }
+
+    // Thumbnail tasks waiting to be processed, resumed when the application restarts.
+    public String getThumbnailQueueDirectory() {
+        return this.imageCacheDirectory == null ? null : this.imageCacheDirectory + "/thumbnail-queue";
+    }
+
+    public String getHttpCacheDirectory() {
+        return this.imageCacheDirectory == null ? null : this.imageCacheDirectory + "/http";
+    }
+
+    public long getHttpCacheMaxSize() {
+        return this.httpCacheMaxSize;
+    }
+
+    public void setHttpCacheMaxSize(Long httpCacheMaxSize) {
+        this.httpCacheMaxSize = httpCacheMaxSize == null ? DEFAULT_HTTP_CACHE_MAX_SIZE : httpCacheMaxSize;
+    }
+
+    public String getTextCacheDirectory() {
+        return this.imageCacheDirectory == null ? null : this.imageCacheDirectory + "/text";
+    }
+
+    public long getTextCacheMaxSize() {
+        return this.textCacheMaxSize;
+    }
+
+    public void setTextCacheMaxSize(Long textCacheMaxSize) {
+        this.textCacheMaxSize = textCacheMaxSize == null ? DEFAULT_TEXT_CACHE_MAX_SIZE : textCacheMaxSize;
+    }
+
+    public int getTextExtractionTimeout() {
+        return this.textExtractionTimeout;
+    }
+
+    public void setTextExtractionTimeout(Integer textExtractionTimeout) {
+        this.textExtractionTimeout = textExtractionTimeout == null || textExtractionTimeout <= 0 ?
+                DEFAULT_TEXT_EXTRACTION_TIMEOUT : textExtractionTimeout;
+    }
+
+    public int getTextExtractionMaxPages() {
+        return this.textExtractionMaxPages;
+    }
+
+    public void setTextExtractionMaxPages(Integer textExtractionMaxPages) {
+        this.textExtractionMaxPages = textExtractionMaxPages == null || textExtractionMaxPages <= 0 ?
+                DEFAULT_TEXT_EXTRACTION_MAX_PAGES : textExtractionMaxPages;
+    }
+
     public void setImageCacheDirectory(String imageCacheDirectory) {
         this.imageCacheDirectory = imageCacheDirectory;
     }
@@ -506,6 +637,13 @@ public class SearchEngineConfig {
             }
         }
 
+        JSONArray jsonHostLimits = new JSONArray();
+        if (this.hostLimits != null) {
+            for (HostLimit hostLimit : this.hostLimits) {
+                jsonHostLimits.put(hostLimit.toJSON());
+            }
+        }
+
         return new JSONObject()
                 .put("elasticSearchUrls", jsonElasticSearchUrls)
                 .put("elasticSearchNumberOfShards", this.getElasticSearchNumberOfShards())
@@ -515,8 +653,13 @@ public class SearchEngineConfig {
                 .put("imageCacheDirectory", this.imageCacheDirectory)
                 .put("thumbnailWidth", this.thumbnailWidth)
                 .put("thumbnailHeight", this.thumbnailHeight)
+                .put("httpCacheMaxSize", this.httpCacheMaxSize)
+                .put("textCacheMaxSize", this.textCacheMaxSize)
+                .put("textExtractionTimeout", this.textExtractionTimeout)
+                .put("textExtractionMaxPages", this.textExtractionMaxPages)
                 .put("lastThumbnailSettingChangeDate", this.lastThumbnailSettingChangeDate)
                 .put("searchEngineBaseUrl", this.searchEngineBaseUrl)
+                .put("hostLimits", jsonHostLimits)
                 .put("indexers", jsonIndexers);
     }
 
@@ -526,6 +669,10 @@ public class SearchEngineConfig {
         this.imageCacheDirectory = json.optString("imageCacheDirectory", null);
         this.thumbnailWidth = json.optInt("thumbnailWidth", DEFAULT_THUMBNAIL_WIDTH);
         this.thumbnailHeight = json.optInt("thumbnailHeight", DEFAULT_THUMBNAIL_HEIGHT);
+        this.httpCacheMaxSize = json.optLong("httpCacheMaxSize", DEFAULT_HTTP_CACHE_MAX_SIZE);
+        this.textCacheMaxSize = json.optLong("textCacheMaxSize", DEFAULT_TEXT_CACHE_MAX_SIZE);
+        this.textExtractionTimeout = json.optInt("textExtractionTimeout", DEFAULT_TEXT_EXTRACTION_TIMEOUT);
+        this.textExtractionMaxPages = json.optInt("textExtractionMaxPages", DEFAULT_TEXT_EXTRACTION_MAX_PAGES);
         this.lastThumbnailSettingChangeDate = json.optInt("lastThumbnailSettingChangeDate", -1);
         this.searchEngineBaseUrl = json.optString("searchEngineBaseUrl", null);
 
@@ -539,6 +686,18 @@ public class SearchEngineConfig {
             }
         }
 
+        JSONArray jsonHostLimits = json.optJSONArray("hostLimits");
+        if (jsonHostLimits != null) {
+            List<HostLimit> hostLimits = new ArrayList<>();
+            for (int i=0; i<jsonHostLimits.length(); i++) {
+                HostLimit hostLimit = HostLimit.fromJSON(jsonHostLimits.optJSONObject(i));
+                if (hostLimit != null) {
+                    hostLimits.add(hostLimit);
+                }
+            }
+            this.hostLimits = hostLimits;
+        }
+
         JSONArray jsonIndexers = json.optJSONArray("indexers");
         if (jsonIndexers != null) {
             for (int i=0; i<jsonIndexers.length(); i++) {
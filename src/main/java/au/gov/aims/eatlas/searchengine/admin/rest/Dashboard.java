@@ -18,6 +18,7 @@
  */
 package au.gov.aims.eatlas.searchengine.admin.rest;
 
+import au.gov.aims.eatlas.searchengine.TextExtractor;
 import au.gov.aims.eatlas.searchengine.admin.SearchEngineConfig;
 import au.gov.aims.eatlas.searchengine.admin.SearchEnginePrivateConfig;
 import au.gov.aims.eatlas.searchengine.admin.SearchEngineState;
@@ -26,6 +27,8 @@ import au.gov.aims.eatlas.searchengine.client.ElasticSearchStatus;
 import au.gov.aims.eatlas.searchengine.client.SearchClient;
 import au.gov.aims.eatlas.searchengine.client.SearchUtils;
 import au.gov.aims.eatlas.searchengine.index.AbstractIndexer;
+import au.gov.aims.eatlas.searchengine.index.ThumbnailCollector;
+import au.gov.aims.eatlas.searchengine.index.ThumbnailQueue;
 import au.gov.aims.eatlas.searchengine.logger.AbstractLogger;
 import au.gov.aims.eatlas.searchengine.logger.Level;
 import au.gov.aims.eatlas.searchengine.logger.SessionLogger;
@@ -126,6 +129,15 @@ public class Dashboard {
         }
         model.put("imageCacheDirectories", cacheDirectories);
 
+        // Text extraction stats, including the number of documents truncated by the extraction limits
+        model.put("textExtractor", TextExtractor.getInstance());
+
+        // Thumbnails waiting to be created
+        model.put("thumbnailQueue", ThumbnailQueue.getInstance());
+
+        // Unused thumbnails deleted
+        model.put("thumbnailCollector", ThumbnailCollector.getInstance());
+
         // Load the template: src/main/webapp/WEB-INF/jsp/dashboard.jsp
         return new Viewable("/dashboard", model);
     }
@@ -19,6 +19,7 @@
 package au.gov.aims.eatlas.searchengine.admin.rest;
 
 import au.gov.aims.eatlas.searchengine.HttpClient;
+import au.gov.aims.eatlas.searchengine.admin.HostLimit;
 import au.gov.aims.eatlas.searchengine.admin.SearchEngineConfig;
 import au.gov.aims.eatlas.searchengine.admin.SearchEnginePrivateConfig;
 import au.gov.aims.eatlas.searchengine.client.ESClient;
@@ -48,7 +49,9 @@ import jakarta.ws.rs.core.MultivaluedMap;
 import org.glassfish.jersey.server.mvc.Viewable;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Path("/settings")
@@ -169,6 +172,38 @@ public class SettingsPage {
         }
     }
 
+    // The host limit fields are repeated, one set of fields per host.
+    //     Read the raw values, to keep the fields aligned when some are left empty.
+    private List<HostLimit> getFormHostLimits(MultivaluedMap<String, String> form, AbstractLogger logger) {
+        List<String> hosts = form.get("hostLimitHost");
+        List<String> requestsPerSecondValues = form.get("hostLimitRequestsPerSecond");
+        List<String> maxInFlightValues = form.get("hostLimitMaxInFlight");
+
+        List<HostLimit> hostLimits = new ArrayList<>();
+        if (hosts != null) {
+            for (int i=0; i<hosts.size(); i++) {
+                String host = FormUtils.sanitiseString(hosts.get(i));
+                if (host != null) {
+                    String requestsPerSecondStr = requestsPerSecondValues == null || requestsPerSecondValues.size() <= i ?
+                            null : FormUtils.sanitiseString(requestsPerSecondValues.get(i));
+                    String maxInFlightStr = maxInFlightValues == null || maxInFlightValues.size() <= i ?
+                            null : FormUtils.sanitiseString(maxInFlightValues.get(i));
+
+                    try {
+                        hostLimits.add(new HostLimit(host,
+                                requestsPerSecondStr == null ? 0 : Double.parseDouble(requestsPerSecondStr),
+                                maxInFlightStr == null ? 0 : Integer.parseInt(maxInFlightStr)));
+                    } catch(NumberFormatException ex) {
+                        logger.addMessage(Level.WARNING,
+                                String.format("Invalid host limits for host: %s", host), ex);
+                    }
+                }
+            }
+        }
+
+        return hostLimits;
+    }
+
     private void save(MultivaluedMap<String, String> form, AbstractLogger logger) {
         SearchEngineConfig config = SearchEngineConfig.getInstance();
 
@@ -179,6 +214,11 @@ public class SettingsPage {
                 FormUtils.getFormIntegerValue(form, "thumbnailHeight"), logger);
         config.setGlobalThumbnailTTL(FormUtils.getFormLongValue(form, "globalThumbnailTTL"));
         config.setGlobalBrokenThumbnailTTL(FormUtils.getFormLongValue(form, "globalBrokenThumbnailTTL"));
+        config.setHttpCacheMaxSize(FormUtils.getFormLongValue(form, "httpCacheMaxSize"));
+        config.setTextCacheMaxSize(FormUtils.getFormLongValue(form, "textCacheMaxSize"));
+        config.setTextExtractionTimeout(FormUtils.getFormIntegerValue(form, "textExtractionTimeout"));
+        config.setTextExtractionMaxPages(FormUtils.getFormIntegerValue(form, "textExtractionMaxPages"));
+        config.setHostLimits(this.getFormHostLimits(form, logger));
         config.setElasticSearchUrls(FormUtils.getFormStringValues(form, "elasticSearchUrl"));
         config.setSearchEngineBaseUrl(FormUtils.getFormStringValue(form, "searchEngineBaseUrl"));
 
@@ -203,6 +243,7 @@ public class SettingsPage {
             indexer.setEnabled(FormUtils.getFormBooleanValue(form, index + "_enabled"));
             indexer.setThumbnailTTL(FormUtils.getFormLongValue(form, index + "_thumbnailTTL"));
             indexer.setBrokenThumbnailTTL(FormUtils.getFormLongValue(form, index + "_brokenThumbnailTTL"));
+            indexer.setMaxResponseSize(FormUtils.getFormLongValue(form, index + "_maxResponseSize"));
 
             if (indexer instanceof DrupalNodeIndexer) {
                 // DrupalNodeIndexer
@@ -270,6 +311,8 @@ public class SettingsPage {
                 geoNetworkCswIndexer.setGeoNetworkPublicUrl(FormUtils.getFormStringValue(form, index + "_geoNetworkPublicUrl"));
                 geoNetworkCswIndexer.setGeoNetworkVersion(FormUtils.getFormStringValue(form, index + "_geoNetworkVersion"));
                 geoNetworkCswIndexer.setGeoNetworkCategoriesFromString(FormUtils.getFormStringValue(form, index + "_geoNetworkCategories"));
+                geoNetworkCswIndexer.setMinRecordsPerPage(FormUtils.getFormIntegerValue(form, index + "_minRecordsPerPage"));
+                geoNetworkCswIndexer.setMaxRecordsPerPage(FormUtils.getFormIntegerValue(form, index + "_maxRecordsPerPage"));
 
             } else if (indexer instanceof AtlasMapperIndexer) {
                 // AtlasMapperIndexer
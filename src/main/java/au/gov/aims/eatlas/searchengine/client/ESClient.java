@@ -33,6 +33,10 @@ import co.elastic.clients.elasticsearch._types.mapping.TypeMapping;
 import co.elastic.clients.elasticsearch.cat.IndicesResponse;
 import co.elastic.clients.elasticsearch.cat.indices.IndicesRecord;
 import co.elastic.clients.elasticsearch.cluster.HealthResponse;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.ClosePointInTimeRequest;
+import co.elastic.clients.elasticsearch.core.ClosePointInTimeResponse;
 import co.elastic.clients.elasticsearch.core.CountRequest;
 import co.elastic.clients.elasticsearch.core.CountResponse;
 import co.elastic.clients.elasticsearch.core.DeleteByQueryRequest;
@@ -43,6 +47,8 @@ import co.elastic.clients.elasticsearch.core.GetRequest;
 import co.elastic.clients.elasticsearch.core.GetResponse;
 import co.elastic.clients.elasticsearch.core.IndexRequest;
 import co.elastic.clients.elasticsearch.core.IndexResponse;
+import co.elastic.clients.elasticsearch.core.OpenPointInTimeRequest;
+import co.elastic.clients.elasticsearch.core.OpenPointInTimeResponse;
 import co.elastic.clients.elasticsearch.core.SearchRequest;
 import co.elastic.clients.elasticsearch.core.SearchResponse;
 import co.elastic.clients.elasticsearch.indices.CreateIndexRequest;
@@ -304,6 +310,21 @@ public class ESClient implements SearchClient {
         return this.elasticsearchClient.deleteByQuery(deleteRequest);
     }
 
+    @Override
+    public BulkResponse bulk(BulkRequest bulkRequest) throws IOException {
+        return this.elasticsearchClient.bulk(bulkRequest);
+    }
+
+    @Override
+    public OpenPointInTimeResponse openPointInTime(OpenPointInTimeRequest openPointInTimeRequest) throws IOException {
+        return this.elasticsearchClient.openPointInTime(openPointInTimeRequest);
+    }
+
+    @Override
+    public ClosePointInTimeResponse closePointInTime(ClosePointInTimeRequest closePointInTimeRequest) throws IOException {
+        return this.elasticsearchClient.closePointInTime(closePointInTimeRequest);
+    }
+
     @Override
     public RefreshResponse refresh(String ... indices) throws IOException {
         return this.elasticsearchClient.indices().refresh(new RefreshRequest.Builder().index(List.of(indices)).build());
@@ -20,6 +20,10 @@ package au.gov.aims.eatlas.searchengine.client;
 
 import au.gov.aims.eatlas.searchengine.entity.Entity;
 import co.elastic.clients.elasticsearch._types.HealthStatus;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.ClosePointInTimeRequest;
+import co.elastic.clients.elasticsearch.core.ClosePointInTimeResponse;
 import co.elastic.clients.elasticsearch.core.CountRequest;
 import co.elastic.clients.elasticsearch.core.CountResponse;
 import co.elastic.clients.elasticsearch.core.DeleteByQueryRequest;
@@ -30,6 +34,8 @@ import co.elastic.clients.elasticsearch.core.GetRequest;
 import co.elastic.clients.elasticsearch.core.GetResponse;
 import co.elastic.clients.elasticsearch.core.IndexRequest;
 import co.elastic.clients.elasticsearch.core.IndexResponse;
+import co.elastic.clients.elasticsearch.core.OpenPointInTimeRequest;
+import co.elastic.clients.elasticsearch.core.OpenPointInTimeResponse;
 import co.elastic.clients.elasticsearch.core.SearchRequest;
 import co.elastic.clients.elasticsearch.core.SearchResponse;
 import co.elastic.clients.elasticsearch.indices.CreateIndexResponse;
@@ -63,6 +69,11 @@ public interface SearchClient extends AutoCloseable {
     CountResponse count(CountRequest countRequest) throws IOException;
     DeleteResponse delete(DeleteRequest deleteRequest) throws IOException;
     DeleteByQueryResponse deleteByQuery(DeleteByQueryRequest deleteRequest) throws IOException;
+    BulkResponse bulk(BulkRequest bulkRequest) throws IOException;
+
+    // Used to scan a whole index (with search_after)
+    OpenPointInTimeResponse openPointInTime(OpenPointInTimeRequest openPointInTimeRequest) throws IOException;
+    ClosePointInTimeResponse closePointInTime(ClosePointInTimeRequest closePointInTimeRequest) throws IOException;
 
     RefreshResponse refresh(String ... indices) throws IOException;
 
@@ -23,10 +23,12 @@ import au.gov.aims.eatlas.searchengine.logger.AbstractLogger;
 import au.gov.aims.eatlas.searchengine.index.AbstractIndexer;
 import au.gov.aims.eatlas.searchengine.logger.Level;
 import au.gov.aims.eatlas.searchengine.logger.Message;
+import com.fasterxml.jackson.core.JsonParser;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.locationtech.jts.io.ParseException;
 
+import java.io.IOException;
 import java.net.URL;
 import java.text.DecimalFormat;
 
@@ -373,6 +375,22 @@ public class AtlasMapperLayer extends Entity {
         return layer;
     }
 
+    public static AtlasMapperLayer load(JsonParser jsonParser, AbstractLogger logger) throws IOException {
+        AtlasMapperLayer layer = new AtlasMapperLayer();
+        layer.loadJSON(jsonParser, logger);
+
+        return layer;
+    }
+
+    @Override
+    protected boolean loadJSONField(String field, JsonParser jsonParser, AbstractLogger logger) throws IOException {
+        if ("datasource".equals(field)) {
+            this.dataSourceName = readString(jsonParser);
+            return true;
+        }
+        return super.loadJSONField(field, jsonParser, logger);
+    }
+
     @Override
     public JSONObject toJSON() {
         return super.toJSON()
@@ -18,10 +18,14 @@
  */
 package au.gov.aims.eatlas.searchengine.entity;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import org.json.JSONObject;
 import org.locationtech.jts.geom.Envelope;
 import org.locationtech.jts.geom.Geometry;
 
+import java.io.IOException;
+
 public class Bbox {
     private Double north;
     private Double east;
@@ -107,6 +111,30 @@ public class Bbox {
         }
     }
 
+    // The parser current token must be the START_OBJECT of the bbox.
+    protected void loadJSON(JsonParser jsonParser) throws IOException {
+        while (jsonParser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = jsonParser.currentName();
+            jsonParser.nextToken();
+            switch (field) {
+                case "north":
+                    this.setNorth(Entity.readDouble(jsonParser));
+                    break;
+                case "east":
+                    this.setEast(Entity.readDouble(jsonParser));
+                    break;
+                case "south":
+                    this.setSouth(Entity.readDouble(jsonParser));
+                    break;
+                case "west":
+                    this.setWest(Entity.readDouble(jsonParser));
+                    break;
+                default:
+                    jsonParser.skipChildren();
+            }
+        }
+    }
+
     @Override
     public String toString() {
         JSONObject json = this.toJSON();
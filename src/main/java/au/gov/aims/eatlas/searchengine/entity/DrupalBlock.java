@@ -3,8 +3,10 @@ package au.gov.aims.eatlas.searchengine.entity;
 import au.gov.aims.eatlas.searchengine.logger.AbstractLogger;
 import au.gov.aims.eatlas.searchengine.index.AbstractDrupalEntityIndexer;
 import au.gov.aims.eatlas.searchengine.logger.Level;
+import com.fasterxml.jackson.core.JsonParser;
 import org.json.JSONObject;
 
+import java.io.IOException;
 import java.net.URL;
 
 public class DrupalBlock extends AbstractDrupalEntity {
@@ -91,6 +93,25 @@ public class DrupalBlock extends AbstractDrupalEntity {
         return block;
     }
 
+    public static DrupalBlock load(JsonParser jsonParser, AbstractLogger logger) throws IOException {
+        DrupalBlock block = new DrupalBlock();
+        block.loadJSON(jsonParser, logger);
+
+        return block;
+    }
+
+    @Override
+    protected boolean loadJSONField(String field, JsonParser jsonParser, AbstractLogger logger) throws IOException {
+        if ("bid".equals(field)) {
+            String bidStr = readString(jsonParser);
+            if (bidStr != null && !bidStr.isEmpty()) {
+                this.bid = Integer.parseInt(bidStr);
+            }
+            return true;
+        }
+        return super.loadJSONField(field, jsonParser, logger);
+    }
+
     @Override
     public JSONObject toJSON() {
         return super.toJSON()
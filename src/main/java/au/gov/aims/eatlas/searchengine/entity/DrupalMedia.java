@@ -21,8 +21,10 @@ package au.gov.aims.eatlas.searchengine.entity;
 import au.gov.aims.eatlas.searchengine.logger.AbstractLogger;
 import au.gov.aims.eatlas.searchengine.index.AbstractDrupalEntityIndexer;
 import au.gov.aims.eatlas.searchengine.logger.Level;
+import com.fasterxml.jackson.core.JsonParser;
 import org.json.JSONObject;
 
+import java.io.IOException;
 import java.net.URL;
 
 public class DrupalMedia extends AbstractDrupalEntity {
@@ -100,6 +102,25 @@ public class DrupalMedia extends AbstractDrupalEntity {
         return media;
     }
 
+    public static DrupalMedia load(JsonParser jsonParser, AbstractLogger logger) throws IOException {
+        DrupalMedia media = new DrupalMedia();
+        media.loadJSON(jsonParser, logger);
+
+        return media;
+    }
+
+    @Override
+    protected boolean loadJSONField(String field, JsonParser jsonParser, AbstractLogger logger) throws IOException {
+        if ("mid".equals(field)) {
+            String midStr = readString(jsonParser);
+            if (midStr != null && !midStr.isEmpty()) {
+                this.mid = Integer.parseInt(midStr);
+            }
+            return true;
+        }
+        return super.loadJSONField(field, jsonParser, logger);
+    }
+
     @Override
     public JSONObject toJSON() {
         return super.toJSON()
@@ -21,8 +21,10 @@ package au.gov.aims.eatlas.searchengine.entity;
 import au.gov.aims.eatlas.searchengine.logger.AbstractLogger;
 import au.gov.aims.eatlas.searchengine.index.AbstractDrupalEntityIndexer;
 import au.gov.aims.eatlas.searchengine.logger.Level;
+import com.fasterxml.jackson.core.JsonParser;
 import org.json.JSONObject;
 
+import java.io.IOException;
 import java.net.URL;
 
 public class DrupalNode extends AbstractDrupalEntity {
@@ -107,6 +109,25 @@ public class DrupalNode extends AbstractDrupalEntity {
         return node;
     }
 
+    public static DrupalNode load(JsonParser jsonParser, AbstractLogger logger) throws IOException {
+        DrupalNode node = new DrupalNode();
+        node.loadJSON(jsonParser, logger);
+
+        return node;
+    }
+
+    @Override
+    protected boolean loadJSONField(String field, JsonParser jsonParser, AbstractLogger logger) throws IOException {
+        if ("nid".equals(field)) {
+            String nidStr = readString(jsonParser);
+            if (nidStr != null && !nidStr.isEmpty()) {
+                this.nid = Integer.parseInt(nidStr);
+            }
+            return true;
+        }
+        return super.loadJSONField(field, jsonParser, logger);
+    }
+
     @Override
     public JSONObject toJSON() {
         return super.toJSON()
@@ -19,20 +19,26 @@
 package au.gov.aims.eatlas.searchengine.entity;
 
 import au.gov.aims.eatlas.searchengine.HttpClient;
+import au.gov.aims.eatlas.searchengine.ThumbnailManifest;
 import au.gov.aims.eatlas.searchengine.admin.SearchEngineConfig;
 import au.gov.aims.eatlas.searchengine.logger.AbstractLogger;
+import au.gov.aims.eatlas.searchengine.index.ThumbnailTask;
 import au.gov.aims.eatlas.searchengine.index.WktUtils;
 import au.gov.aims.eatlas.searchengine.logger.Level;
 import au.gov.aims.eatlas.searchengine.rest.ImageCache;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateDeserializer;
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.apache.commons.text.StringEscapeUtils;
 import org.json.JSONObject;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.io.ParseException;
 
-import java.io.File;
+import java.io.IOException;
 import java.net.URL;
 import java.time.LocalDate;
 
@@ -41,6 +47,7 @@ import java.time.LocalDate;
  *   See: EntityDeserializer
  * The EntityDeserializer uses the SearchEngineConfig to find the proper indexer for the given index ID,
  *   then the EntityDeserializer uses the "load" method from the indexer to instantiate the Entity.
+ * The Entity is loaded directly from the JSON parser tokens (see loadJSON(JsonParser, AbstractLogger)).
  */
 
 @JsonDeserialize(using = EntityDeserializer.class)
@@ -83,6 +90,11 @@ public abstract class Entity {
     // Example: "en"
     private String langcode;
 
+    // Thumbnail to create once the entity is indexed (see ThumbnailQueue).
+    //     Not saved in the index.
+    @JsonIgnore
+    private ThumbnailTask thumbnailTask;
+
     public void setIndex(String index) {
         this.index = index;
     }
@@ -273,6 +285,20 @@ public abstract class Entity {
         this.langcode = langcode;
     }
 
+    @JsonIgnore
+    public ThumbnailTask getThumbnailTask() {
+        return this.thumbnailTask;
+    }
+
+    /**
+     * Queue the creation of the entity thumbnail.
+     * The task is sent to the ThumbnailQueue when the entity is indexed.
+     */
+    @JsonIgnore
+    public void setThumbnailTask(ThumbnailTask thumbnailTask) {
+        this.thumbnailTask = thumbnailTask;
+    }
+
     // Make sure thumbnailUrl is set before calling this.
     public boolean isThumbnailOutdated(Entity oldEntity, Long thumbnailTTL, Long brokenThumbnailTTL, AbstractLogger logger) {
         if (oldEntity == null) {
@@ -326,19 +352,14 @@ public abstract class Entity {
             }
         }
 
-        File thumbnailFile = ImageCache.getCachedFile(index, cachedThumbnailFilename, logger);
-        if (thumbnailFile == null) {
-            // Unlikely, but if the thumbnail folder is manually deleted,
-            // this is where it will be requested to re-download the thumbnail.
-            return true;
-        }
-
-        if (!thumbnailFile.exists()) {
-            // The thumbnail was manually deleted.
+        // NOTE: The thumbnail manifest is used, to avoid accessing the disk for every entity.
+        ThumbnailManifest.Entry thumbnailEntry = ImageCache.getCachedEntry(index, cachedThumbnailFilename, logger);
+        if (thumbnailEntry == null) {
+            // The thumbnail was deleted (or the thumbnail folder can not be created).
             return true;
         }
 
-        long thumbnailLastModified = thumbnailFile.lastModified();
+        long thumbnailLastModified = thumbnailEntry.getLastModified();
         long thumbnailAgeMs = now - thumbnailLastModified;
         long thumbnailAgeDays = thumbnailAgeMs / DAY_MS;
 
@@ -354,10 +375,10 @@ public abstract class Entity {
         if (oldEntity != null) {
             String oldCachedThumbnailFilename = oldEntity.getCachedThumbnailFilename();
             if (oldCachedThumbnailFilename != null) {
-                File cachedFile = ImageCache.getCachedFile(index, oldCachedThumbnailFilename, logger);
+                ThumbnailManifest.Entry cachedEntry = ImageCache.getCachedEntry(index, oldCachedThumbnailFilename, logger);
 
                 // Only set the thumbnail file if it still exists on disk.
-                if (cachedFile != null && cachedFile.exists() && cachedFile.canRead()) {
+                if (cachedEntry != null) {
                     cachedThumbnailFilename = oldEntity.getCachedThumbnailFilename();
                     thumbnailUrl = oldEntity.getThumbnailUrl();
                     thumbnailLastIndexed = oldEntity.getThumbnailLastIndexed();
@@ -374,15 +395,17 @@ public abstract class Entity {
         this.setThumbnailLastIndexed(thumbnailLastIndexed);
     }
 
-    public void deleteThumbnail(AbstractLogger logger) {
-        String index = this.getIndex();
-        String cachedThumbnailFilename = this.getCachedThumbnailFilename();
-        if (index != null && cachedThumbnailFilename != null) {
-            File cachedFile = ImageCache.getCachedFile(index, cachedThumbnailFilename, logger);
-            if (cachedFile != null && cachedFile.exists() && !cachedFile.delete()) {
-                logger.addMessage(Level.ERROR,
-                        String.format("Cached image can not be deleted: %s", cachedFile.toString()));
-            }
+    /**
+     * Keep the previous thumbnail while the new one is created by the ThumbnailQueue.
+     * Unlike useCachedThumbnail, the thumbnail URL is not reverted to the old one.
+     */
+    public void usePreviousThumbnail(Entity oldEntity, AbstractLogger logger) {
+        URL thumbnailUrl = this.getThumbnailUrl();
+        if (oldEntity == null) {
+            this.setCachedThumbnailFilename(null);
+        } else {
+            this.useCachedThumbnail(oldEntity, logger);
+            this.setThumbnailUrl(thumbnailUrl);
         }
     }
 
@@ -400,8 +423,7 @@ public abstract class Entity {
             .put("type", this.getClass().getSimpleName())
             .put("link", linkUrl == null ? null : linkUrl.toString())
             .put("title", this.getTitle())
-            // Encode HTML from the document, to allow the search to all highlights as HTML tags
-            .put("document", StringEscapeUtils.escapeHtml4(this.getDocument()))
+            .put("document", Entity.encodeDocument(this.getDocument()))
             .put("wkt", this.getWkt())
             .put("wktArea", this.getWktArea())
             .put("wktBbox", this.wktBbox == null ? null : this.wktBbox.toJSON())
@@ -416,8 +438,7 @@ public abstract class Entity {
             this.setId(json.optString("id", null));
             this.setIndex(json.optString("index", null));
             this.setTitle(json.optString("title", null));
-            // Decode HTML since we encoded it in the toJSON method
-            this.setDocument(StringEscapeUtils.unescapeHtml4(json.optString("document", null)));
+            this.setDocument(Entity.decodeDocument(json.optString("document", null)));
             this.setWkt(json.optString("wkt", null));
             if (json.has("wktArea")) {
                 this.setWktArea(json.optDouble("wktArea"));
@@ -473,6 +494,155 @@ public abstract class Entity {
         }
     }
 
+    /**
+     * Load the entity from the JSON parser, without creating an intermediate JSON object.
+     * The parser current token must be the START_OBJECT of the entity.
+     *     The parser is left on the entity END_OBJECT.
+     * Loads the same attributes as loadJSON(JSONObject, AbstractLogger).
+     */
+    protected void loadJSON(JsonParser jsonParser, AbstractLogger logger) throws IOException {
+        if (jsonParser.currentToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(jsonParser, String.format("Invalid entity. Expected %s, found %s",
+                    JsonToken.START_OBJECT, jsonParser.currentToken()));
+        }
+
+        while (jsonParser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = jsonParser.currentName();
+            jsonParser.nextToken();
+            if (!this.loadJSONField(field, jsonParser, logger)) {
+                // Unknown field (type, cachedThumbnailUrl, etc)
+                jsonParser.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * Load the value of a field. The parser is on the field value.
+     * Returns false if the field is not an attribute of the entity.
+     * Subclasses override this method to load their own attributes.
+     */
+    protected boolean loadJSONField(String field, JsonParser jsonParser, AbstractLogger logger) throws IOException {
+        switch (field) {
+            case "id":
+                this.setId(readString(jsonParser));
+                return true;
+            case "index":
+                this.setIndex(readString(jsonParser));
+                return true;
+            case "title":
+                this.setTitle(readString(jsonParser));
+                return true;
+            case "document":
+                this.setDocument(Entity.decodeDocument(readString(jsonParser)));
+                return true;
+            case "wkt":
+                this.setWkt(readString(jsonParser));
+                return true;
+            case "wktArea":
+                Double wktArea = readDouble(jsonParser);
+                if (wktArea != null) {
+                    this.setWktArea(wktArea);
+                }
+                return true;
+            case "wktBbox":
+                if (jsonParser.currentToken() == JsonToken.START_OBJECT) {
+                    this.wktBbox = new Bbox();
+                    this.wktBbox.loadJSON(jsonParser);
+                } else {
+                    jsonParser.skipChildren();
+                }
+                return true;
+            case "langcode":
+                this.setLangcode(readString(jsonParser));
+                return true;
+            case "cachedThumbnailFilename":
+                this.setCachedThumbnailFilename(readString(jsonParser));
+                return true;
+            case "lastIndexed":
+                String lastIndexedStr = readString(jsonParser);
+                if (lastIndexedStr != null) {
+                    this.setLastIndexed(Long.parseLong(lastIndexedStr));
+                }
+                return true;
+            case "lastModified":
+                String lastModifiedStr = readString(jsonParser);
+                if (lastModifiedStr != null) {
+                    this.setLastModified(Long.parseLong(lastModifiedStr));
+                }
+                return true;
+            case "publishedOn":
+                String publishedOnStr = readString(jsonParser);
+                if (publishedOnStr != null) {
+                    this.setPublishedOn(LocalDate.parse(publishedOnStr));
+                }
+                return true;
+            case "thumbnailLastIndexed":
+                String thumbnailLastIndexedStr = readString(jsonParser);
+                if (thumbnailLastIndexedStr != null) {
+                    this.setThumbnailLastIndexed(Long.parseLong(thumbnailLastIndexedStr));
+                }
+                return true;
+            case "link":
+                String linkStr = readString(jsonParser);
+                if (linkStr != null && !linkStr.isEmpty()) {
+                    try {
+                        this.setLink(new URL(linkStr));
+                    } catch(Exception ex) {
+                        logger.addMessage(Level.ERROR,
+                                String.format("Invalid index entity URL found: %s", linkStr), ex);
+                    }
+                }
+                return true;
+            case "thumbnailUrl":
+                String thumbnailUrlStr = readString(jsonParser);
+                if (thumbnailUrlStr != null && !thumbnailUrlStr.isEmpty()) {
+                    try {
+                        this.setThumbnailUrl(new URL(thumbnailUrlStr));
+                    } catch(Exception ex) {
+                        logger.addMessage(Level.ERROR,
+                                String.format("Invalid index entity thumbnail URL found: %s", thumbnailUrlStr), ex);
+                    }
+                }
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    // Returns the scalar value as a string (numbers included), or null.
+    //     Objects and arrays are skipped.
+    // Encode HTML from the document, to allow the search to all highlights as HTML tags.
+    // Also used for partial updates of the indexed document.
+    public static String encodeDocument(String document) {
+        return StringEscapeUtils.escapeHtml4(document);
+    }
+
+    // Decode HTML since we encoded it in the toJSON method
+    public static String decodeDocument(String encodedDocument) {
+        return StringEscapeUtils.unescapeHtml4(encodedDocument);
+    }
+
+    protected static String readString(JsonParser jsonParser) throws IOException {
+        JsonToken token = jsonParser.currentToken();
+        if (token == null || token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token.isStructStart()) {
+            jsonParser.skipChildren();
+            return null;
+        }
+        return jsonParser.getValueAsString();
+    }
+
+    protected static Double readDouble(JsonParser jsonParser) throws IOException {
+        JsonToken token = jsonParser.currentToken();
+        if (token != null && token.isNumeric()) {
+            return jsonParser.getDoubleValue();
+        }
+        String valueStr = readString(jsonParser);
+        return valueStr == null || valueStr.isEmpty() ? null : Double.valueOf(valueStr);
+    }
+
     @Override
     public String toString() {
         JSONObject json = this.toJSON();
@@ -20,18 +20,27 @@ package au.gov.aims.eatlas.searchengine.entity;
 
 import au.gov.aims.eatlas.searchengine.admin.SearchEngineConfig;
 import au.gov.aims.eatlas.searchengine.logger.ConsoleLogger;
-import au.gov.aims.eatlas.searchengine.logger.AbstractLogger;
 import au.gov.aims.eatlas.searchengine.index.AbstractIndexer;
 import com.fasterxml.jackson.core.JacksonException;
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.JsonParserSequence;
 import com.fasterxml.jackson.databind.DeserializationContext;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
-import org.json.JSONObject;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 
 import java.io.IOException;
 
+/**
+ * Load the search results (and the entities returned by the get requests) from the Elastic Search response.
+ * The entity is loaded directly from the parser tokens, using the "load" method of the indexer
+ *     of its index (see Entity.loadJSON(JsonParser, AbstractLogger)).
+ * The fields found before the "index" field are buffered, then replayed once the entity type is known.
+ *     Entities are indexed with the "index" field first, so usually only that field is buffered.
+ */
 public class EntityDeserializer extends StdDeserializer<Entity> {
+    private static final String INDEX_FIELD = "index";
+
     // The constructor is called by Jackson:
     //     at com.fasterxml.jackson.databind.util.ClassUtil.createInstance(ClassUtil.java:566)
     //     at com.fasterxml.jackson.databind.deser.DefaultDeserializationContext.deserializerInstance(DefaultDeserializationContext.java:234)
@@ -42,21 +51,46 @@ public class EntityDeserializer extends StdDeserializer<Entity> {
 
     @Override
     public Entity deserialize(JsonParser jsonParser, DeserializationContext deserializationContext) throws IOException, JacksonException {
-        JsonNode node = jsonParser.getCodec().readTree(jsonParser);
-        String index = node.get("index").asText();
+        // Jackson calls the deserializer with the parser on the START_OBJECT, or on the first FIELD_NAME.
+        JsonToken token = jsonParser.currentToken();
+        if (token == JsonToken.START_OBJECT) {
+            token = jsonParser.nextToken();
+        }
 
-        if (index != null) {
-            SearchEngineConfig config = SearchEngineConfig.getInstance();
+        TokenBuffer buffer = new TokenBuffer(jsonParser, deserializationContext);
+        buffer.writeStartObject();
+
+        String index = null;
+        boolean indexFound = false;
+        while (token == JsonToken.FIELD_NAME) {
+            String field = jsonParser.currentName();
+            jsonParser.nextToken();
+            buffer.writeFieldName(field);
+            buffer.copyCurrentStructure(jsonParser);
+            if (INDEX_FIELD.equals(field)) {
+                index = Entity.readString(jsonParser);
+                indexFound = true;
+                break;
+            }
+            token = jsonParser.nextToken();
+        }
 
-            AbstractLogger logger = ConsoleLogger.getInstance();
-            for (AbstractIndexer<?> indexer : config.getIndexers()) {
-                if (index.equals(indexer.getIndex())) {
-                    // The loader takes a JSONObject. Creates one from the parser.
-                    return indexer.load(new JSONObject(node.toString()), logger);
+        SearchEngineConfig config = SearchEngineConfig.getInstance();
+        AbstractIndexer<?> indexer = index == null || config == null ? null : config.getIndexer(index);
+        if (indexer == null) {
+            if (indexFound) {
+                // Skip the rest of the entity
+                while (jsonParser.nextToken() == JsonToken.FIELD_NAME) {
+                    jsonParser.nextToken();
+                    jsonParser.skipChildren();
                 }
             }
+            return null;
         }
 
-        return null;
+        // Replay the buffered fields, then continue with the rest of the entity.
+        JsonParser entityParser = JsonParserSequence.createFlattened(false, buffer.asParser(jsonParser), jsonParser);
+        entityParser.nextToken();
+        return indexer.load(entityParser, ConsoleLogger.getInstance());
     }
 }
@@ -20,8 +20,11 @@ package au.gov.aims.eatlas.searchengine.entity;
 
 import au.gov.aims.eatlas.searchengine.index.DrupalExternalLinkNodeIndexer;
 import au.gov.aims.eatlas.searchengine.logger.AbstractLogger;
+import com.fasterxml.jackson.core.JsonParser;
 import org.json.JSONObject;
 
+import java.io.IOException;
+
 /**
  * This class is the same as DrupalNode, but it shows as "ExternalLink" in the JSON search results.
  */
@@ -44,4 +47,11 @@ public class ExternalLink extends DrupalNode {
 
         return externalLink;
     }
+
+    public static ExternalLink load(JsonParser jsonParser, AbstractLogger logger) throws IOException {
+        ExternalLink externalLink = new ExternalLink();
+        externalLink.loadJSON(jsonParser, logger);
+
+        return externalLink;
+    }
 }
@@ -24,10 +24,13 @@ import au.gov.aims.eatlas.searchengine.entity.geoNetworkParser.GeoNetworkParserF
 import au.gov.aims.eatlas.searchengine.index.AbstractGeoNetworkIndexer;
 import au.gov.aims.eatlas.searchengine.logger.AbstractLogger;
 import au.gov.aims.eatlas.searchengine.logger.Level;
+import com.fasterxml.jackson.core.JsonParser;
 import org.json.JSONObject;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
+import java.io.IOException;
+
 public class GeoNetworkRecord extends Entity {
     private AbstractGeoNetworkIndexer<?> indexer;
     private String metadataSchema;
@@ -135,11 +138,16 @@ public class GeoNetworkRecord extends Entity {
     public String getDocument() {
         String document = super.getDocument();
         if (this.parentTitle != null && !this.parentTitle.isEmpty()) {
-            return document + AbstractParser.NL + AbstractParser.NL + "Parent: " + this.parentTitle;
+            return document + GeoNetworkRecord.getParentDocumentSuffix(this.parentTitle);
         }
         return document;
     }
 
+    // Also used to add the parent title to records which were indexed before their parent.
+    public static String getParentDocumentSuffix(String parentTitle) {
+        return AbstractParser.NL + AbstractParser.NL + "Parent: " + parentTitle;
+    }
+
     public static GeoNetworkRecord load(JSONObject json, AbstractLogger logger) {
         GeoNetworkRecord record = new GeoNetworkRecord();
         record.loadJSON(json, logger);
@@ -151,6 +159,33 @@ public class GeoNetworkRecord extends Entity {
         return record;
     }
 
+    public static GeoNetworkRecord load(JsonParser jsonParser, AbstractLogger logger) throws IOException {
+        GeoNetworkRecord record = new GeoNetworkRecord();
+        record.loadJSON(jsonParser, logger);
+
+        return record;
+    }
+
+    @Override
+    protected boolean loadJSONField(String field, JsonParser jsonParser, AbstractLogger logger) throws IOException {
+        switch (field) {
+            case "metadataSchema":
+                this.metadataSchema = readString(jsonParser);
+                return true;
+            case "geoNetworkVersion":
+                this.geoNetworkVersion = readString(jsonParser);
+                return true;
+            case "parentUUID":
+                this.parentUUID = readString(jsonParser);
+                return true;
+            case "parent":
+                this.parentTitle = readString(jsonParser);
+                return true;
+            default:
+                return super.loadJSONField(field, jsonParser, logger);
+        }
+    }
+
     @Override
     public JSONObject toJSON() {
         return super.toJSON()
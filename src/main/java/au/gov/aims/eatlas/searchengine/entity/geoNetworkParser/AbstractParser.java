@@ -23,6 +23,7 @@ import au.gov.aims.eatlas.searchengine.index.AbstractGeoNetworkIndexer;
 import au.gov.aims.eatlas.searchengine.logger.AbstractLogger;
 import au.gov.aims.eatlas.searchengine.entity.GeoNetworkRecord;
 import au.gov.aims.eatlas.searchengine.index.WktUtils;
+import au.gov.aims.eatlas.searchengine.index.XmlElementIndex;
 import au.gov.aims.eatlas.searchengine.logger.Level;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.LinearRing;
@@ -76,6 +77,14 @@ public abstract class AbstractParser {
 
     public abstract void parseRecord(AbstractGeoNetworkIndexer<?> indexer, GeoNetworkRecord record, Element rootElement, AbstractLogger logger);
 
+    // Index the elements of the record in one pass,
+    //     to avoid walking the whole document for each IndexUtils.getXMLChild call.
+    protected static void indexElements(Element rootElement) {
+        if (rootElement != null && XmlElementIndex.get(rootElement) == null) {
+            XmlElementIndex.index(rootElement.getOwnerDocument());
+        }
+    }
+
     public static void addResponsibleParty(ResponsibleParty responsibleParty, Map<String, List<ResponsibleParty>> responsiblePartyMap) {
         if (responsibleParty != null && responsiblePartyMap != null) {
             String role = responsibleParty.getRole();
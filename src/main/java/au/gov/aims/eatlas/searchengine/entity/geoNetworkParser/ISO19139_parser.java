@@ -45,6 +45,8 @@ import java.util.Map;
 
 public class ISO19139_parser extends AbstractParser {
     public void parseRecord(AbstractGeoNetworkIndexer<?> indexer, GeoNetworkRecord record, Element rootElement, AbstractLogger logger) {
+        AbstractParser.indexElements(rootElement);
+
         // UUID
         // NOTE: Get it from the XML document if not provided already
         if (record.getId() == null) {
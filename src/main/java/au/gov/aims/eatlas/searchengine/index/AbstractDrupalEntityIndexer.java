@@ -25,7 +25,6 @@ import au.gov.aims.eatlas.searchengine.entity.AbstractDrupalEntity;
 import au.gov.aims.eatlas.searchengine.entity.Entity;
 import au.gov.aims.eatlas.searchengine.logger.Level;
 import au.gov.aims.eatlas.searchengine.logger.Message;
-import au.gov.aims.eatlas.searchengine.rest.ImageCache;
 import co.elastic.clients.elasticsearch.core.IndexResponse;
 import org.apache.http.client.utils.URIBuilder;
 import org.joda.time.DateTime;
@@ -37,17 +36,17 @@ import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.io.ParseException;
 import org.locationtech.jts.io.geojson.GeoJsonReader;
 
-import java.io.File;
+import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
@@ -58,6 +57,15 @@ public abstract class AbstractDrupalEntityIndexer<E extends Entity> extends Abst
     //     Larger number = less request, more RAM
     private static final int INDEX_PAGE_SIZE = 50;
 
+    // Number of pages requested in advance during a full harvest.
+    //     Larger number = faster harvest, more RAM
+    private static final int PREFETCH_PAGE_COUNT = 3;
+
+    // Size of the first page requested during an incremental harvest.
+    //     Most of the time, only a few entities have changed since the last harvest.
+    //     The page size grows (up to INDEX_PAGE_SIZE) when more entities are found.
+    private static final int INCREMENTAL_FIRST_PAGE_SIZE = 5;
+
     private String drupalUrl;
     private String drupalPublicUrl;
     private String drupalVersion;
@@ -95,6 +103,10 @@ public abstract class AbstractDrupalEntityIndexer<E extends Entity> extends Abst
     public abstract E getIndexedDrupalEntity(SearchClient searchClient, String id, AbstractLogger logger);
     public abstract String getHarvestSort(boolean fullHarvest);
 
+    // Drupal internal ID attribute, used for keyset pagination.
+    //     Example: drupal_internal__nid for nodes, drupal_internal__mid for media.
+    public abstract String getDrupalInternalIdField();
+
     protected JSONObject getJsonBase() {
         return super.getJsonBase()
             .put("drupalUrl", this.drupalUrl)
@@ -130,20 +142,19 @@ public abstract class AbstractDrupalEntityIndexer<E extends Entity> extends Abst
             return null;
         }
 
-        JSONObject jsonResponse = this.getJsonResponse(entityUUID, uriBuilder, logger);
-        return this.harvestEntity(searchClient, jsonResponse, entityUUID, logger);
+        DrupalJsonApiReader.Document jsonResponse = this.getJsonResponse(entityUUID, uriBuilder, logger);
+        return this.harvestEntity(searchClient, jsonResponse == null ? null : jsonResponse.getEntity(), entityUUID, logger);
     }
 
-    protected E harvestEntity(SearchClient searchClient, JSONObject jsonResponse, String entityUUID, AbstractLogger logger) {
+    protected E harvestEntity(SearchClient searchClient, JSONObject jsonApiEntity, String entityUUID, AbstractLogger logger) {
         E drupalEntity = null;
-        if (jsonResponse != null) {
-            JSONObject jsonApiEntity = jsonResponse.optJSONObject("data");
+        if (jsonApiEntity != null) {
             List<String> includes = this.getIncludes(jsonApiEntity);
 
             if (includes == null || includes.isEmpty()) {
                 // No field needs to be included in the query.
                 // No need to send another query, just use the previous response. It contains all the information we need.
-                drupalEntity = this.harvestEntityWithIncludes(searchClient, jsonResponse, logger);
+                drupalEntity = this.harvestEntityWithIncludes(searchClient, jsonApiEntity, null, logger);
             } else {
                 // Now that we know what fields need to be included in the request,
                 // request the node again, with the includes.
@@ -152,8 +163,11 @@ public abstract class AbstractDrupalEntityIndexer<E extends Entity> extends Abst
                     return null;
                 }
 
-                JSONObject jsonResponseWithIncludes = this.getJsonResponse(entityUUID, uriWithIncludesBuilder, logger);
-                drupalEntity = this.harvestEntityWithIncludes(searchClient, jsonResponseWithIncludes, logger);
+                DrupalJsonApiReader.Document jsonResponseWithIncludes = this.getJsonResponse(entityUUID, uriWithIncludesBuilder, logger);
+                if (jsonResponseWithIncludes != null) {
+                    drupalEntity = this.harvestEntityWithIncludes(searchClient,
+                            jsonResponseWithIncludes.getEntity(), jsonResponseWithIncludes.getIncluded(), logger);
+                }
             }
         }
 
@@ -161,7 +175,7 @@ public abstract class AbstractDrupalEntityIndexer<E extends Entity> extends Abst
     }
 
 
-    protected JSONObject getJsonResponse(String entityUUID, URIBuilder uriBuilder, AbstractLogger logger) {
+    protected DrupalJsonApiReader.Document getJsonResponse(String entityUUID, URIBuilder uriBuilder, AbstractLogger logger) {
         HttpClient httpClient = this.getHttpClient();
         String url;
         try {
@@ -173,32 +187,42 @@ public abstract class AbstractDrupalEntityIndexer<E extends Entity> extends Abst
             return null;
         }
 
-        HttpClient.Response response = null;
-        try {
-            response = httpClient.getRequest(url, logger);
+        DrupalJsonApiReader.Document jsonResponse = null;
+        try (HttpClient.Response response = httpClient.getRequest(url, logger)) {
+            if (response != null) {
+                // The entity is requested with its includes. Keep all the fields.
+                jsonResponse = this.readJsonResponse(response, new DrupalJsonApiReader(null, null), logger);
+            }
         } catch(Exception ex) {
             logger.addMessage(Level.WARNING, String.format("Exception occurred while requesting the Drupal %s, type: %s, UUID: %s",
                     this.getDrupalEntityType(), this.getDrupalBundleId(), entityUUID), ex);
         }
 
-        if (response != null) {
-            JSONObject jsonResponse = response.jsonBody();
-            if (jsonResponse != null && !jsonResponse.isEmpty()) {
-                JSONArray jsonErrors = jsonResponse.optJSONArray("errors");
-                if (jsonErrors != null && !jsonErrors.isEmpty()) {
-                    this.handleDrupalApiErrors(jsonErrors, logger);
-                } else {
-                    return jsonResponse;
-                }
+        if (jsonResponse != null && !jsonResponse.isEmpty()) {
+            if (jsonResponse.hasErrors()) {
+                this.handleDrupalApiErrors(jsonResponse.getErrors(), logger);
+            } else {
+                return jsonResponse;
             }
         }
 
         return null;
     }
 
-    protected E harvestEntityWithIncludes(SearchClient searchClient, JSONObject jsonResponse, AbstractLogger logger) {
-        JSONObject jsonApiEntity = jsonResponse.optJSONObject("data");
-        JSONArray jsonIncludedArray = jsonResponse.optJSONArray("included");
+    private DrupalJsonApiReader.Document readJsonResponse(HttpClient.Response response, DrupalJsonApiReader reader, AbstractLogger logger) {
+        try (InputStream inputStream = response.bodyStream()) {
+            return reader.read(inputStream);
+        } catch(Exception ex) {
+            logger.addMessage(Level.WARNING, String.format("Exception occurred while parsing a Drupal JSON:API response for %s, type: %s",
+                    this.getDrupalEntityType(), this.getDrupalBundleId()), ex);
+            return null;
+        }
+    }
+
+    protected E harvestEntityWithIncludes(SearchClient searchClient, JSONObject jsonApiEntity, JSONArray jsonIncludedArray, AbstractLogger logger) {
+        if (jsonApiEntity == null) {
+            return null;
+        }
 
         Map<String, JSONObject> jsonIncluded = parseJsonIncluded(jsonIncludedArray);
 
@@ -243,14 +267,10 @@ public abstract class AbstractDrupalEntityIndexer<E extends Entity> extends Abst
 
     @Override
     protected void internalIndex(SearchClient searchClient, Long lastHarvested, AbstractLogger logger) {
-        HttpClient httpClient = this.getHttpClient();
         boolean fullHarvest = lastHarvested == null;
         long harvestStart = System.currentTimeMillis();
 
-        Set<String> usedThumbnails = null;
         if (fullHarvest) {
-            usedThumbnails = Collections.synchronizedSet(new HashSet<String>());
-
             // There is no easy way to know how many entities needs indexing.
             // Use the total number of entities we have in the index, by looking at the last indexed count in the state.
             IndexerState state = this.getState();
@@ -261,96 +281,102 @@ public abstract class AbstractDrupalEntityIndexer<E extends Entity> extends Abst
             this.setTotal(total);
         }
 
-        ThreadPoolExecutor threadPool = (ThreadPoolExecutor) Executors.newFixedThreadPool(THREAD_POOL_SIZE);
+        // Bounded work queue. When the queue is full, the paging thread index the entity itself,
+        //     which prevent it from loading every pages of the website in memory.
+        ThreadPoolExecutor threadPool = new ThreadPoolExecutor(
+                THREAD_POOL_SIZE, THREAD_POOL_SIZE,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(INDEX_PAGE_SIZE * PREFETCH_PAGE_COUNT),
+                new ThreadPoolExecutor.CallerRunsPolicy());
 
         long totalFound = 0;
         int entityFound, page = 0;
-        boolean stop = false;
         boolean crashed = false;
-        String sort = this.getHarvestSort(fullHarvest);
 
-        URIBuilder uriBuilder = this.buildDrupalApiPageUrl(page, sort, logger);
-        String url = null;
-        try {
-            url = uriBuilder.build().toURL().toString();
-        } catch(Exception ex) {
-            // Should not happen
-            logger.addMessage(Level.ERROR,
-                    String.format("Invalid Drupal URL. Exception occurred while building a URL starting with: %s", this.getDrupalApiUrlBase()), ex);
+        // Full harvest: Keyset pagination, ordered by Drupal internal ID.
+        //     Offset pagination gets slower as the offset gets larger, and skip or
+        //     duplicate entities when entities are added or deleted during the harvest.
+        // Incremental harvest: Drupal filters out entities that were not modified
+        //     since the last harvest.
+        // NOTE: Drupal last modified date (aka changed date) are rounded to second,
+        //     and can be a bit off. Use a 10s margin for safety.
+        Long changedSince = fullHarvest ? null : lastHarvested - 10000;
+        int pageSize = fullHarvest ? INDEX_PAGE_SIZE : INCREMENTAL_FIRST_PAGE_SIZE;
+        URIBuilder uriBuilder = fullHarvest ?
+                this.buildDrupalApiKeysetPageUrl(null, logger) :
+                this.buildDrupalApiPageUrl(0, pageSize, this.getHarvestSort(false), changedSince, logger);
+        String url = this.buildUrl(uriBuilder, logger);
+        if (url == null) {
             return;
         }
 
+        // Full harvest: Request the next pages in a separate thread, while the entities
+        //     of the current page are been indexed.
+        DrupalPagePrefetcherThread prefetcherThread = null;
+        if (fullHarvest) {
+            prefetcherThread = new DrupalPagePrefetcherThread(url, logger);
+            prefetcherThread.start();
+        }
+
         do {
             entityFound = 0;
-            HttpClient.Response response = null;
-            try {
-                response = httpClient.getRequest(url, logger);
-            } catch(Exception ex) {
-                if (!crashed) {
-                    logger.addMessage(Level.WARNING, String.format("Exception occurred while requesting a page of Drupal %s, type: %s",
-                            this.getDrupalEntityType(), this.getDrupalBundleId()), ex);
-                }
-                crashed = true;
+
+            // Pause while the host is unavailable.
+            //     The prefetcher thread pauses before requesting its pages.
+            DrupalPage drupalPage;
+            if (prefetcherThread == null) {
+                drupalPage = this.waitForHost(url, logger) ?
+                        this.requestDrupalPage(url, fullHarvest, logger) :
+                        DrupalPage.crashed();
+            } else {
+                drupalPage = prefetcherThread.nextPage();
             }
-            JSONObject jsonResponse = response == null ? null : response.jsonBody();
-            if (jsonResponse != null && !jsonResponse.isEmpty()) {
-                JSONArray jsonErrors = jsonResponse.optJSONArray("errors");
-                if (jsonErrors != null && !jsonErrors.isEmpty()) {
-                    this.handleDrupalApiErrors(jsonErrors, logger);
-                    crashed = true;
-                } else {
-                    JSONArray jsonEntities = jsonResponse.optJSONArray("data");
 
-                    entityFound = jsonEntities == null ? 0 : jsonEntities.length();
-                    totalFound += entityFound;
-                    if (fullHarvest) {
-                        if (this.getTotal() != null && this.getTotal() < totalFound) {
-                            this.setTotal(totalFound);
-                        }
-                    } else {
+            if (drupalPage == null) {
+                url = null;
+            } else if (drupalPage.isCrashed()) {
+                crashed = true;
+            } else {
+                JSONArray jsonEntities = drupalPage.getEntities();
+
+                entityFound = jsonEntities == null ? 0 : jsonEntities.length();
+                totalFound += entityFound;
+                if (fullHarvest) {
+                    if (this.getTotal() != null && this.getTotal() < totalFound) {
                         this.setTotal(totalFound);
                     }
+                } else {
+                    this.setTotal(totalFound);
+                }
 
-                    for (int i=0; i<entityFound; i++) {
-                        JSONObject jsonApiEntity = jsonEntities.optJSONObject(i);
-
-                        // Stop the harvest as soon as we find a Drupal node with a last modified date older
-                        //     than the last harvest.
-                        //     The nodes are ordered by modified dates.
-                        // NOTE: Drupal last modified date (aka changed date) are rounded to second,
-                        //     and can be a bit off. Use a 10s margin for safety.
-                        Long lastModified = AbstractDrupalEntityIndexer.parseLastModified(jsonApiEntity);
-                        if (!fullHarvest &&
-                                lastHarvested != null && lastModified != null &&
-                                lastModified < lastHarvested + 10000) {
-
-                            stop = true;
-                            break;
-                        }
+                for (int i=0; i<entityFound; i++) {
+                    JSONObject jsonApiEntity = jsonEntities.optJSONObject(i);
 
-                        Thread thread = new DrupalEntityIndexerThread(
-                                searchClient, logger, jsonApiEntity, usedThumbnails,
-                                page+1, i+1, entityFound);
+                    Thread thread = new DrupalEntityIndexerThread(
+                            searchClient, logger, jsonApiEntity,
+                            page+1, i+1, entityFound);
 
-                        threadPool.execute(thread);
-                    }
+                    threadPool.execute(thread);
                 }
 
-                // Get the URL of the next page
-                // NOTE: Use links/next/href. If not present, end as been reached
-                JSONObject linksJson = jsonResponse.optJSONObject("links");
-                JSONObject nextJson = linksJson == null ? null : linksJson.optJSONObject("next");
-                url = nextJson == null ? null : nextJson.optString("href", null);
-            } else {
-                stop = true;
+                url = drupalPage.getNextUrl();
+                if (!fullHarvest && url != null) {
+                    // Drupal found more modified entities than expected. Request larger pages.
+                    pageSize = Math.min(pageSize * 4, INDEX_PAGE_SIZE);
+                    url = this.buildUrl(this.buildDrupalApiPageUrl(
+                            (int)totalFound, pageSize, this.getHarvestSort(false), changedSince, logger), logger);
+                }
             }
             page++;
 
         // while:
-        //     !stop: Stop explicitly set to true, because we found an entity that was not modified since last harvest.
         //     !crashed: An exception occurred or an error message was sent by Drupal.
-        //     url != null: No next URL found in the JSON response.
-        } while(!stop && !crashed && url != null);
+        //     url != null: No next page.
+        } while(!crashed && url != null);
+
+        if (prefetcherThread != null) {
+            prefetcherThread.cancel();
+        }
 
         threadPool.shutdown();
         try {
@@ -361,12 +387,139 @@ public abstract class AbstractDrupalEntityIndexer<E extends Entity> extends Abst
         }
 
         // Only cleanup when we are doing a full harvest
-        if (!crashed && fullHarvest) {
-            this.cleanUp(searchClient, harvestStart, usedThumbnails, String.format("Drupal %s type %s",
+        if (!crashed && fullHarvest && this.isHostStable(this.getDrupalUrl(), harvestStart, logger)) {
+            this.cleanUp(searchClient, harvestStart, String.format("Drupal %s type %s",
                     this.getDrupalEntityType(), this.getDrupalBundleId()), logger);
         }
     }
 
+    private String buildUrl(URIBuilder uriBuilder, AbstractLogger logger) {
+        if (uriBuilder == null) {
+            return null;
+        }
+        try {
+            return uriBuilder.build().toURL().toString();
+        } catch(Exception ex) {
+            // Should not happen
+            logger.addMessage(Level.ERROR,
+                    String.format("Invalid Drupal URL. Exception occurred while building a URL starting with: %s", this.getDrupalApiUrlBase()), ex);
+        }
+        return null;
+    }
+
+    /**
+     * Request a page of Drupal entities and find the URL of the next page.
+     * @param url The URL of the page.
+     * @param keyset True to build the next page URL using keyset pagination,
+     *     false to use the "next" link provided by Drupal.
+     * @param logger The logger.
+     * @return The page, or null if the response is empty.
+     */
+    protected DrupalPage requestDrupalPage(String url, boolean keyset, AbstractLogger logger) {
+        HttpClient httpClient = this.getHttpClient();
+        HttpClient.Response response = null;
+        try {
+            response = httpClient.getRequest(url, logger);
+        } catch(Exception ex) {
+            logger.addMessage(Level.WARNING, String.format("Exception occurred while requesting a page of Drupal %s, type: %s",
+                    this.getDrupalEntityType(), this.getDrupalBundleId()), ex);
+            return DrupalPage.crashed();
+        }
+
+        if (response == null) {
+            return null;
+        }
+
+        // Stream the page, entity by entity, keeping only the fields used by the indexer.
+        DrupalJsonApiReader.Document jsonResponse;
+        try (HttpClient.Response closeableResponse = response) {
+            jsonResponse = this.readJsonResponse(closeableResponse, this.getPageReader(), logger);
+        }
+        if (jsonResponse == null) {
+            return DrupalPage.crashed();
+        }
+        if (jsonResponse.isEmpty()) {
+            return null;
+        }
+
+        if (jsonResponse.hasErrors()) {
+            this.handleDrupalApiErrors(jsonResponse.getErrors(), logger);
+            return DrupalPage.crashed();
+        }
+
+        JSONArray jsonEntities = jsonResponse.getData();
+
+        // Get the URL of the next page
+        // NOTE: Drupal only add links/next/href when there is more entities to harvest.
+        //     If not present, end as been reached.
+        String nextUrl = jsonResponse.getNextUrl();
+
+        if (keyset && nextUrl != null) {
+            // Ignore the offset provided by Drupal.
+            // Request the entities with an ID larger than the largest ID found in this page.
+            Long lastId = this.getLargestDrupalInternalId(jsonEntities);
+            nextUrl = lastId == null ? null : this.buildUrl(this.buildDrupalApiKeysetPageUrl(lastId, logger), logger);
+        }
+
+        return new DrupalPage(jsonEntities, nextUrl);
+    }
+
+    private DrupalJsonApiReader getPageReader() {
+        return new DrupalJsonApiReader(this.getUsedAttributes(), this.getUsedRelationships());
+    }
+
+    /**
+     * Entity attributes used by the indexer.
+     * The other attributes are discarded while reading pages of entities.
+     * Override in subclasses to add the attributes used by the entity.
+     */
+    protected Set<String> getUsedAttributes() {
+        Set<String> attributes = new HashSet<>();
+        attributes.add(this.getDrupalInternalIdField());
+        attributes.add("changed");
+        attributes.add("langcode");
+        attributes.add("path");
+        attributes.addAll(AbstractDrupalEntityIndexer.splitIndexedFields(this.getDrupalIndexedFields()));
+        if (this.getDrupalGeoJSONField() != null) {
+            attributes.add(this.getDrupalGeoJSONField());
+        }
+        return attributes;
+    }
+
+    /**
+     * Entity relationships used by the indexer (preview image and paragraphs).
+     * The other relationships are discarded while reading pages of entities.
+     */
+    protected Set<String> getUsedRelationships() {
+        Set<String> relationships = new HashSet<>();
+        if (this.getDrupalPreviewImageField() != null) {
+            relationships.add(this.getDrupalPreviewImageField());
+        }
+        relationships.addAll(AbstractDrupalEntityIndexer.splitIndexedFields(this.getDrupalIndexedFields()));
+        return relationships;
+    }
+
+    private Long getLargestDrupalInternalId(JSONArray jsonEntities) {
+        if (jsonEntities == null) {
+            return null;
+        }
+
+        String idField = this.getDrupalInternalIdField();
+        Long largestId = null;
+        for (int i=0; i<jsonEntities.length(); i++) {
+            JSONObject jsonApiEntity = jsonEntities.optJSONObject(i);
+            JSONObject jsonAttributes = jsonApiEntity == null ? null : jsonApiEntity.optJSONObject("attributes");
+            if (jsonAttributes != null && jsonAttributes.has(idField)) {
+                long id = jsonAttributes.optLong(idField);
+                if (largestId == null || id > largestId) {
+                    largestId = id;
+                }
+            }
+        }
+
+        return largestId;
+    }
+
     public String getDrupalApiUrlBase() {
         return HttpClient.combineUrls(
                 this.getDrupalUrl(),
@@ -397,13 +550,18 @@ public abstract class AbstractDrupalEntityIndexer<E extends Entity> extends Abst
     //   For nodes:
     //     To get all: drupal_internal__nid
     //     To get latest: -changed,drupal_internal__nid
-    public URIBuilder buildDrupalApiPageUrl(int page, String sort, AbstractLogger logger) {
+    // changedSince
+    //   Timestamp, in milliseconds. Only return entities modified on or after that date.
+    //   Ignored when null.
+    public URIBuilder buildDrupalApiPageUrl(int offset, int limit, String sort, Long changedSince, AbstractLogger logger) {
         // Ordered by lastModified (changed).
-        // If the parameter lastHarvested is set, harvest entities (nodes)
-        //     until we found an entity that was last modified before the lastHarvested parameter.
+        // If the parameter changedSince is set, Drupal only returns the entities (nodes)
+        //     that were modified since that date. Drupal expects a timestamp in seconds.
         // Example:
         //     "http://localhost:9090/jsonapi/node/article?include=field_image&sort=-changed&page[limit]=100&page[offset]=0&filter[status]=1&filter[field_prepress]=0"
         //     "http://localhost:9090/jsonapi/media/image?include=thumbnail&sort=-changed&page[limit]=100&page[offset]=0&filter[status]=1&filter[field_private_media_page]=0"
+        //     "http://localhost:9090/jsonapi/node/article?sort=-changed&page[limit]=5&page[offset]=0&filter[status]=1
+        //         &filter[changed-since][condition][path]=changed&filter[changed-since][condition][operator]=>=&filter[changed-since][condition][value]=1715000000"
         // Filter out unpublished entities (only useful when logged in): filter[status]=1
         String urlBase = this.getDrupalApiUrlBase();
         URIBuilder uriBuilder;
@@ -416,11 +574,47 @@ public abstract class AbstractDrupalEntityIndexer<E extends Entity> extends Abst
         }
 
         if (sort != null) {
-            uriBuilder.setParameter("sort", "-changed");
+            uriBuilder.setParameter("sort", sort);
         }
+        uriBuilder.setParameter("page[limit]", String.format("%d", limit));
+        uriBuilder.setParameter("page[offset]", String.format("%d", offset));
+        uriBuilder.setParameter("filter[status]", "1");
+        if (changedSince != null) {
+            uriBuilder.setParameter("filter[changed-since][condition][path]", "changed");
+            uriBuilder.setParameter("filter[changed-since][condition][operator]", ">=");
+            uriBuilder.setParameter("filter[changed-since][condition][value]", String.format("%d", changedSince / 1000));
+        }
+
+        return uriBuilder;
+    }
+
+    // Keyset pagination, used with full harvest.
+    //     Entities are ordered by Drupal internal ID (nid, mid, etc).
+    //     The next page is requested using a filter on the largest ID of the previous page,
+    //     which Drupal can resolve using the primary key index, regardless of the page number.
+    // Example:
+    //     "http://localhost:9090/jsonapi/node/article?sort=drupal_internal__nid&page[limit]=50&filter[status]=1
+    //         &filter[keyset][condition][path]=drupal_internal__nid&filter[keyset][condition][operator]=>&filter[keyset][condition][value]=1234"
+    public URIBuilder buildDrupalApiKeysetPageUrl(Long lastId, AbstractLogger logger) {
+        String urlBase = this.getDrupalApiUrlBase();
+        URIBuilder uriBuilder;
+        try {
+            uriBuilder = new URIBuilder(urlBase);
+        } catch(URISyntaxException ex) {
+            logger.addMessage(Level.ERROR,
+                    String.format("Invalid Drupal URL. Exception occurred while building the URL: %s", urlBase), ex);
+            return null;
+        }
+
+        String idField = this.getDrupalInternalIdField();
+        uriBuilder.setParameter("sort", idField);
         uriBuilder.setParameter("page[limit]", String.format("%d", INDEX_PAGE_SIZE));
-        uriBuilder.setParameter("page[offset]", String.format("%d", page * INDEX_PAGE_SIZE));
         uriBuilder.setParameter("filter[status]", "1");
+        if (lastId != null) {
+            uriBuilder.setParameter("filter[keyset][condition][path]", idField);
+            uriBuilder.setParameter("filter[keyset][condition][operator]", ">");
+            uriBuilder.setParameter("filter[keyset][condition][value]", String.format("%d", lastId));
+        }
 
         return uriBuilder;
     }
@@ -780,7 +974,6 @@ public abstract class AbstractDrupalEntityIndexer<E extends Entity> extends Abst
     }
 
     public void updateThumbnail(SearchClient searchClient, JSONObject jsonApiEntity, Map<String, JSONObject> jsonIncluded, E drupalEntity, AbstractLogger logger) {
-        HttpClient httpClient = this.getHttpClient();
         URL baseUrl = AbstractDrupalEntity.getDrupalBaseUrl(jsonApiEntity, logger);
         URL basePublicUrl = AbstractDrupalEntity.getDrupalPublicBaseUrl(this, jsonApiEntity, logger);
         String previewImageFieldType = AbstractDrupalEntityIndexer.getPreviewImageType(jsonApiEntity, this.getDrupalPreviewImageField());
@@ -815,19 +1008,10 @@ public abstract class AbstractDrupalEntityIndexer<E extends Entity> extends Abst
                     // Create the thumbnail if it's missing or outdated
                     E oldEntity = this.getIndexedDrupalEntity(searchClient, drupalEntity.getId(), logger);
                     if (drupalEntity.isThumbnailOutdated(oldEntity, this.getSafeThumbnailTTL(), this.getSafeBrokenThumbnailTTL(), logger)) {
-                        try {
-                            File cachedThumbnailFile = ImageCache.cache(httpClient, thumbnailUrl, this.getIndex(), drupalEntity.getId(), logger);
-                            if (cachedThumbnailFile != null) {
-                                drupalEntity.setCachedThumbnailFilename(cachedThumbnailFile.getName());
-                            }
-                        } catch(Exception ex) {
-                            logger.addMessage(Level.WARNING,
-                                    String.format("Exception occurred while creating a thumbnail for Drupal %s type %s, id: %s",
-                                            AbstractDrupalEntityIndexer.this.getDrupalEntityType(),
-                                            AbstractDrupalEntityIndexer.this.getDrupalBundleId(),
-                                            drupalEntity.getId()), ex);
-                        }
-                        drupalEntity.setThumbnailLastIndexed(System.currentTimeMillis());
+                        // Index the entity with its previous thumbnail, the new one is created by the ThumbnailQueue.
+                        drupalEntity.usePreviousThumbnail(oldEntity, logger);
+                        drupalEntity.setThumbnailTask(new ThumbnailTask(this.getIndex(), drupalEntity.getId(),
+                                thumbnailUrl == null ? null : thumbnailUrl.toString(), null));
                     } else {
                         drupalEntity.useCachedThumbnail(oldEntity, logger);
                     }
@@ -884,7 +1068,6 @@ public abstract class AbstractDrupalEntityIndexer<E extends Entity> extends Abst
         private final SearchClient searchClient;
         private final AbstractLogger logger;
         private final JSONObject jsonApiEntity;
-        private final Set<String> usedThumbnails;
         private final int page;
         private final int current;
         private final int pageTotal;
@@ -894,13 +1077,11 @@ public abstract class AbstractDrupalEntityIndexer<E extends Entity> extends Abst
                 SearchClient searchClient,
                 AbstractLogger logger,
                 JSONObject jsonApiEntity,
-                Set<String> usedThumbnails,
                 int page, int current, int pageTotal
         ) {
             this.searchClient = searchClient;
             this.logger = logger;
             this.jsonApiEntity = jsonApiEntity;
-            this.usedThumbnails = usedThumbnails;
             this.page = page;
             this.current = current;
             this.pageTotal = pageTotal;
@@ -920,23 +1101,13 @@ public abstract class AbstractDrupalEntityIndexer<E extends Entity> extends Abst
 
         @Override
         public void run() {
-            JSONObject jsonResponse = new JSONObject()
-                    .put("data", this.jsonApiEntity);
-
             String entityUUID = this.jsonApiEntity == null ? null : this.jsonApiEntity.optString("id", null);
 
             this.drupalEntity = AbstractDrupalEntityIndexer.this.harvestEntity(
-                    this.searchClient, jsonResponse, entityUUID, this.logger);
+                    this.searchClient, this.jsonApiEntity, entityUUID, this.logger);
 
 
             if (this.drupalEntity != null) {
-                if (this.usedThumbnails != null) {
-                    String thumbnailFilename = this.drupalEntity.getCachedThumbnailFilename();
-                    if (thumbnailFilename != null) {
-                        this.usedThumbnails.add(thumbnailFilename);
-                    }
-                }
-
                 try {
                     IndexResponse indexResponse = AbstractDrupalEntityIndexer.this.indexEntity(this.searchClient, this.drupalEntity, this.logger);
 
@@ -960,4 +1131,106 @@ public abstract class AbstractDrupalEntityIndexer<E extends Entity> extends Abst
             AbstractDrupalEntityIndexer.this.incrementCompleted();
         }
     }
+
+    protected static class DrupalPage {
+        private final JSONArray entities;
+        private final String nextUrl;
+        private final boolean crashed;
+
+        public DrupalPage(JSONArray entities, String nextUrl) {
+            this(entities, nextUrl, false);
+        }
+
+        private DrupalPage(JSONArray entities, String nextUrl, boolean crashed) {
+            this.entities = entities;
+            this.nextUrl = nextUrl;
+            this.crashed = crashed;
+        }
+
+        public static DrupalPage crashed() {
+            return new DrupalPage(null, null, true);
+        }
+
+        public JSONArray getEntities() {
+            return this.entities;
+        }
+
+        public String getNextUrl() {
+            return this.nextUrl;
+        }
+
+        public boolean isCrashed() {
+            return this.crashed;
+        }
+    }
+
+    // Request pages of entities ahead of the indexation.
+    // The queue is bounded, so the thread wait when it's PREFETCH_PAGE_COUNT pages ahead.
+    public class DrupalPagePrefetcherThread extends Thread {
+        // Put in the queue when there is no more pages.
+        private final DrupalPage endOfPages = new DrupalPage(null, null);
+
+        private final BlockingQueue<DrupalPage> pageQueue;
+        private final String firstUrl;
+        private final AbstractLogger logger;
+        private volatile boolean cancelled;
+
+        public DrupalPagePrefetcherThread(String firstUrl, AbstractLogger logger) {
+            this.pageQueue = new ArrayBlockingQueue<>(PREFETCH_PAGE_COUNT);
+            this.firstUrl = firstUrl;
+            this.logger = logger;
+            this.cancelled = false;
+            this.setDaemon(true);
+        }
+
+        // Returns null when there is no more pages.
+        public DrupalPage nextPage() {
+            try {
+                DrupalPage page = this.pageQueue.take();
+                return page == this.endOfPages ? null : page;
+            } catch(InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return DrupalPage.crashed();
+            }
+        }
+
+        public void cancel() {
+            this.cancelled = true;
+            this.interrupt();
+        }
+
+        @Override
+        public void run() {
+            String url = this.firstUrl;
+            // Always end with a last page, otherwise nextPage() would wait forever.
+            DrupalPage lastPage = DrupalPage.crashed();
+            try {
+                while (url != null && !this.cancelled) {
+                    // Pause while the host is unavailable. The page request would fail and stop the harvest.
+                    DrupalPage page = AbstractDrupalEntityIndexer.this.waitForHost(url, this.logger) ?
+                            AbstractDrupalEntityIndexer.this.requestDrupalPage(url, true, this.logger) :
+                            DrupalPage.crashed();
+                    if (page == null) {
+                        break;
+                    }
+                    this.pageQueue.put(page);
+                    url = page.getNextUrl();
+                }
+                lastPage = this.endOfPages;
+            } catch(InterruptedException ex) {
+                // Cancelled
+                return;
+            } catch(Throwable ex) {
+                this.logger.addMessage(Level.ERROR, String.format("Exception occurred while requesting a page of Drupal %s, type: %s",
+                        AbstractDrupalEntityIndexer.this.getDrupalEntityType(),
+                        AbstractDrupalEntityIndexer.this.getDrupalBundleId()), ex);
+            }
+
+            try {
+                this.pageQueue.put(lastPage);
+            } catch(InterruptedException ex) {
+                // Cancelled
+            }
+        }
+    }
 }
@@ -18,6 +18,7 @@
  */
 package au.gov.aims.eatlas.searchengine.index;
 
+import au.gov.aims.eatlas.searchengine.CircuitBreaker;
 import au.gov.aims.eatlas.searchengine.HttpClient;
 import au.gov.aims.eatlas.searchengine.admin.SearchEngineConfig;
 import au.gov.aims.eatlas.searchengine.admin.SearchEngineState;
@@ -28,7 +29,6 @@ import au.gov.aims.eatlas.searchengine.logger.FileLogger;
 import au.gov.aims.eatlas.searchengine.logger.Level;
 import au.gov.aims.eatlas.searchengine.logger.Message;
 import au.gov.aims.eatlas.searchengine.logger.ConsoleLogger;
-import au.gov.aims.eatlas.searchengine.rest.ImageCache;
 import co.elastic.clients.elasticsearch._types.Conflicts;
 import co.elastic.clients.elasticsearch._types.ElasticsearchException;
 import co.elastic.clients.elasticsearch._types.Result;
@@ -45,6 +45,7 @@ import co.elastic.clients.elasticsearch.core.GetRequest;
 import co.elastic.clients.elasticsearch.core.GetResponse;
 import co.elastic.clients.elasticsearch.core.IndexRequest;
 import co.elastic.clients.elasticsearch.core.IndexResponse;
+import com.fasterxml.jackson.core.JsonParser;
 import org.json.JSONObject;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.io.ParseException;
@@ -52,19 +53,22 @@ import org.locationtech.jts.io.WKTReader;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Set;
 
 public abstract class AbstractIndexer<E extends Entity> {
     public static final String WHOLE_WORLD_WKT = "BBOX (-180, 180, 90, -90)";
     // WKT used when the indexed document does not have a defined WKT.
     public static final String DEFAULT_WKT = WHOLE_WORLD_WKT;
 
+    // Maximum time a harvest can be paused, waiting for a host to come back online.
+    private static final long MAX_HOST_PAUSE = 10 * 60 * 1000; // 10 minutes, in milliseconds
+
     private HttpClient httpClient;
     private boolean enabled;
     private String index;
     private String indexName;
     private Long thumbnailTTL; // TTL, in days
     private Long brokenThumbnailTTL; // TTL, in days
+    private Long maxResponseSize; // In MB, null for unlimited
 
     // Variable related to running threads
     private IndexerThread indexerThread;
@@ -108,6 +112,8 @@ public abstract class AbstractIndexer<E extends Entity> {
     protected abstract void internalIndex(SearchClient searchClient, Long lastIndexed, AbstractLogger logger);
     protected abstract E harvestEntity(SearchClient searchClient, String id, AbstractLogger logger);
     public abstract E load(JSONObject json, AbstractLogger logger);
+    // Used by the EntityDeserializer to load search results. See Entity.loadJSON(JsonParser, AbstractLogger).
+    public abstract E load(JsonParser jsonParser, AbstractLogger logger) throws IOException;
     public abstract JSONObject toJSON();
 
     public AbstractLogger getFileLogger() {
@@ -196,7 +202,8 @@ public abstract class AbstractIndexer<E extends Entity> {
             .put("index", this.index)
             .put("indexName", this.indexName)
             .put("thumbnailTTL", this.thumbnailTTL)
-            .put("brokenThumbnailTTL", this.brokenThumbnailTTL);
+            .put("brokenThumbnailTTL", this.brokenThumbnailTTL)
+            .put("maxResponseSize", this.maxResponseSize);
     }
 
     public static AbstractIndexer<?> fromJSON(HttpClient httpClient, JSONObject json, SearchEngineConfig config, AbstractLogger logger) {
@@ -274,6 +281,12 @@ public abstract class AbstractIndexer<E extends Entity> {
         }
         indexer.brokenThumbnailTTL = brokenThumbnailTTL;
 
+        Long maxResponseSize = null;
+        if (json.has("maxResponseSize")) {
+            maxResponseSize = json.optLong("maxResponseSize", -1);
+        }
+        indexer.maxResponseSize = maxResponseSize;
+
         String logCacheDirStr = config.getLogCacheDirectory();
         indexer.initFileLogger(logCacheDirStr);
 
@@ -330,6 +343,22 @@ public abstract class AbstractIndexer<E extends Entity> {
         this.brokenThumbnailTTL = brokenThumbnailTTL;
     }
 
+    public Long getMaxResponseSize() {
+        return this.maxResponseSize;
+    }
+
+    /**
+     * Returns the maximum size of the responses downloaded by the indexer, in bytes,
+     * or null when the size is unlimited.
+     */
+    public Long getSafeMaxResponseSize() {
+        return (this.maxResponseSize == null || this.maxResponseSize <= 0) ? null : this.maxResponseSize * 1024 * 1024;
+    }
+
+    public void setMaxResponseSize(Long maxResponseSize) {
+        this.maxResponseSize = maxResponseSize;
+    }
+
     public IndexResponse reindex(SearchClient searchClient, String id, AbstractLogger logger) throws IOException {
         IndexResponse indexResponse = null;
 
@@ -352,6 +381,7 @@ public abstract class AbstractIndexer<E extends Entity> {
     }
     public IndexResponse indexEntity(SearchClient searchClient, E entity, boolean incrementIndexedCount, AbstractLogger logger) throws IOException {
         entity.setLastIndexed(System.currentTimeMillis());
+        ThumbnailTask thumbnailTask = entity.getThumbnailTask();
 
         IndexResponse indexResponse = null;
 
@@ -383,6 +413,12 @@ public abstract class AbstractIndexer<E extends Entity> {
             }
         }
 
+        // The thumbnail is set in the indexed document once it's created.
+        if (thumbnailTask != null) {
+            ThumbnailQueue.getInstance().enqueue(searchClient, thumbnailTask, logger);
+            entity.setThumbnailTask(null);
+        }
+
         if (incrementIndexedCount) {
             this.incrementIndexed();
         }
@@ -462,8 +498,57 @@ public abstract class AbstractIndexer<E extends Entity> {
         return indexResponse;
     }
 
+    /**
+     * Pause the harvest while the host is unavailable
+     * (too many requests failed recently, see HttpClient.getCircuitBreaker).
+     * @return false if the host is still unavailable after MAX_HOST_PAUSE.
+     *     The harvest should be stopped.
+     */
+    protected boolean waitForHost(String url, AbstractLogger logger) {
+        CircuitBreaker circuitBreaker = this.getHttpClient().getCircuitBreaker(url);
+        if (!circuitBreaker.isOpen()) {
+            return true;
+        }
+
+        logger.addMessage(Level.WARNING, String.format("Host %s is unavailable. Harvest of index %s paused.",
+                circuitBreaker.getHost(), this.getIndex()));
+
+        long pauseEnd = System.currentTimeMillis() + MAX_HOST_PAUSE;
+        while (circuitBreaker.isOpen()) {
+            long remainingPause = pauseEnd - System.currentTimeMillis();
+            if (remainingPause <= 0) {
+                logger.addMessage(Level.ERROR, String.format("Host %s is still unavailable. Harvest of index %s stopped.",
+                        circuitBreaker.getHost(), this.getIndex()));
+                return false;
+            }
+            try {
+                Thread.sleep(Math.max(1, Math.min(remainingPause, circuitBreaker.getRemainingOpenTime())));
+            } catch(InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        logger.addMessage(Level.INFO, String.format("Harvest of index %s resumed.", this.getIndex()));
+        return true;
+    }
+
+    /**
+     * Returns false if the host was unavailable at some point since the beginning of the harvest.
+     * Some entities may not have been re-indexed, they should not be deleted by the clean up.
+     */
+    protected boolean isHostStable(String url, long harvestStart, AbstractLogger logger) {
+        CircuitBreaker circuitBreaker = this.getHttpClient().getCircuitBreaker(url);
+        if (circuitBreaker.wasOpenedSince(harvestStart)) {
+            logger.addMessage(Level.WARNING, String.format("Host %s was unavailable during the harvest of index %s. Old entries were not cleaned up.",
+                    circuitBreaker.getHost(), this.getIndex()));
+            return false;
+        }
+        return true;
+    }
+
     // Only called with complete reindex
-    public void cleanUp(SearchClient searchClient, long lastIndexed, Set<String> usedThumbnails, String entityDisplayName, AbstractLogger logger) {
+    public void cleanUp(SearchClient searchClient, long lastIndexed, String entityDisplayName, AbstractLogger logger) {
         long deletedIndexedItems = this.deleteOldIndexedItems(searchClient, lastIndexed, logger);
         if (deletedIndexedItems > 0) {
             logger.addMessage(Level.INFO,
@@ -473,9 +558,8 @@ public abstract class AbstractIndexer<E extends Entity> {
 
         // Refresh ElasticSearch indexes, to be sure the
         // search engine won't return deleted records.
-        // NOTE: This need to be done before deleting thumbnails
-        //     otherwise the search engine could return old records
-        //     which refers to thumbnails that doesn't exist any more.
+        // NOTE: This need to be done before collecting unused thumbnails
+        //     otherwise the thumbnail collector would not see the deleted records.
         try {
             searchClient.refresh(this.index);
         } catch(Exception ex) {
@@ -483,55 +567,12 @@ public abstract class AbstractIndexer<E extends Entity> {
                     String.format("Exception occurred while refreshing the search index: %s", this.index), ex);
         }
 
-        /*
-        try {
-            usedThumbnails = this.getUsedThumbnails(searchClient);
-        } catch(Exception ex) {
-            logger.addMessage(Level.ERROR,
-                    "Error occurred while requesting the thumbnails from the index.",
-                    ex);
-        }
-        */
-
-        long deletedThumbnails = this.deleteOldThumbnails(usedThumbnails, logger);
-        if (deletedThumbnails > 0) {
-            logger.addMessage(Level.INFO,
-                    String.format("Deleted %d cached thumbnail for %s",
-                    deletedThumbnails, entityDisplayName));
-        }
-    }
-
-    /*
-    // TODO Implement a more reliable way to get used thumbnails
-    //    Get them from the index directly.
-    private Set<String> getUsedThumbnails(SearchClient searchClient) throws IOException {
-
-        MatchAllQuery matchAllQuery = new MatchAllQuery.Builder().build();
-
-        // Create the SourceFilter to specify which fields to include
-        SourceFilter sourceFilter = new SourceFilter.Builder()
-            .includes("cachedThumbnailFilename")  // Specify the "link" field to be included
-            .build();
-
-        // Create the SourceConfig using the builder
-        SourceConfig sourceConfig = new SourceConfig.Builder()
-            .filter(sourceFilter)  // Set the source filter with includes
-            .build();
-
-        SearchRequest searchRequest = new SearchRequest.Builder()
-            .index(this.index)
-            .query(new Query.Builder().matchAll(matchAllQuery).build())
-            .size(10000) // Adjust the size as needed
-            .source(sourceConfig)
-            .build();
-
-        SearchResponse<Entity> searchResponse = searchClient.search(searchRequest);
-
-        // TODO Test - It took several hours to get that out of ChatGPT
+        // Unused thumbnails are deleted in the background,
+        // once the harvest is over and the index is up to date.
+        ThumbnailCollector.getInstance().schedule(searchClient, this, logger);
     }
-    */
 
-    private boolean deleteIndexedDocument(SearchClient searchClient, String documentId, AbstractLogger logger) {
+    protected boolean deleteIndexedDocument(SearchClient searchClient, String documentId, AbstractLogger logger) {
         DeleteRequest deleteRequest = new DeleteRequest.Builder()
             .index(this.index)
             .id(documentId)
@@ -570,44 +611,6 @@ public abstract class AbstractIndexer<E extends Entity> {
         return deleted == null ? 0L : deleted;
     }
 
-    private long deleteOldThumbnails(Set<String> usedThumbnails, AbstractLogger logger) {
-        File cacheDirectory = ImageCache.getCacheDirectory(this.getIndex(), logger);
-
-        // Loop through each thumbnail files and delete the ones that are unused
-        if (cacheDirectory != null && cacheDirectory.isDirectory()) {
-            return this.deleteOldThumbnailsRecursive(cacheDirectory, usedThumbnails, logger);
-        }
-
-        return 0;
-    }
-    private long deleteOldThumbnailsRecursive(File dir, Set<String> usedThumbnails, AbstractLogger logger) {
-        long deleted = 0;
-        File[] files = dir.listFiles();
-        if (files != null) {
-            for (File file : files) {
-                if (file.isDirectory()) {
-                    deleted += deleteOldThumbnailsRecursive(file, usedThumbnails, logger);
-                } else if (file.isFile()) {
-                    String thumbnailName = file.getName();
-                    if (!usedThumbnails.contains(thumbnailName)) {
-                        // TODO: Resolve the deleted thumbnail bug
-                        /*
-                        if (file.delete()) {
-                            deleted++;
-                        } else {
-                            logger.addMessage(Level.ERROR,
-                                    String.format("Can't delete old thumbnail: %s",
-                                    file.toString()));
-                        }
-                        */
-                    }
-                }
-            }
-        }
-
-        return deleted;
-    }
-
     public E get(SearchClient searchClient, Class<E> entityClass, String id) throws IOException {
         return AbstractIndexer.get(searchClient, entityClass, this.index, id);
     }
@@ -0,0 +1,89 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine.index;
+
+/**
+ * Page size which adapts to the observed response time and response size.
+ * The page size grows (at most doubling) while the pages come back fast and small,
+ * and shrinks as soon as a page gets slower or larger than the targets.
+ * The page size always stays within [minPageSize, maxPageSize].
+ */
+public class AdaptivePageSize {
+    public static final long DEFAULT_TARGET_RESPONSE_TIME = 10000; // In milliseconds
+    public static final long DEFAULT_TARGET_RESPONSE_SIZE = 10L * 1024 * 1024; // In bytes
+
+    private final int minPageSize;
+    private final int maxPageSize;
+    private final long targetResponseTime;
+    private final long targetResponseSize;
+
+    private int pageSize;
+
+    public AdaptivePageSize(int minPageSize, int maxPageSize) {
+        this(minPageSize, maxPageSize, DEFAULT_TARGET_RESPONSE_TIME, DEFAULT_TARGET_RESPONSE_SIZE);
+    }
+
+    public AdaptivePageSize(int minPageSize, int maxPageSize, long targetResponseTime, long targetResponseSize) {
+        this.minPageSize = Math.max(1, minPageSize);
+        this.maxPageSize = Math.max(this.minPageSize, maxPageSize);
+        this.targetResponseTime = targetResponseTime;
+        this.targetResponseSize = targetResponseSize;
+
+        // Start small, the first page tells us how expensive a record is.
+        this.pageSize = this.minPageSize;
+    }
+
+    public int getMinPageSize() {
+        return this.minPageSize;
+    }
+
+    public int getMaxPageSize() {
+        return this.maxPageSize;
+    }
+
+    public synchronized int getPageSize() {
+        return this.pageSize;
+    }
+
+    /**
+     * Adjust the page size using the stats of the last page received.
+     * @param records Number of records requested for that page.
+     * @param responseTime Time it took to receive the page, in milliseconds.
+     * @param responseSize Size of the response body, in bytes.
+     * @return The page size to use for the next request.
+     */
+    public synchronized int update(int records, long responseTime, long responseSize) {
+        if (records <= 0) {
+            return this.pageSize;
+        }
+
+        double timePerRecord = Math.max(1, responseTime) / (double)records;
+        double sizePerRecord = Math.max(1, responseSize) / (double)records;
+
+        long target = (long)Math.min(
+                this.targetResponseTime / timePerRecord,
+                this.targetResponseSize / sizePerRecord);
+
+        // Grow slowly, shrink immediately.
+        long nextPageSize = Math.min(target, this.pageSize * 2L);
+
+        this.pageSize = (int)Math.max(this.minPageSize, Math.min(this.maxPageSize, nextPageSize));
+        return this.pageSize;
+    }
+}
@@ -24,19 +24,22 @@ import au.gov.aims.eatlas.searchengine.logger.AbstractLogger;
 import au.gov.aims.eatlas.searchengine.client.SearchClient;
 import au.gov.aims.eatlas.searchengine.entity.AtlasMapperLayer;
 import au.gov.aims.eatlas.searchengine.logger.Level;
-import au.gov.aims.eatlas.searchengine.rest.ImageCache;
 import co.elastic.clients.elasticsearch.core.IndexResponse;
+import com.fasterxml.jackson.core.JsonParser;
 import jakarta.ws.rs.core.MultivaluedMap;
 import org.glassfish.jersey.uri.UriComponent;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URL;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Executors;
@@ -44,9 +47,9 @@ import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 public class AtlasMapperIndexer extends AbstractIndexer<AtlasMapperLayer> {
-    // Be kind on GeoServer, do not suffocate it...
-    private static final int THREAD_POOL_SIZE = 2;
-    private static final int REQUEST_DELAY_MS = 500; // Delay between requests, in milliseconds
+    // NOTE: The requests sent to GeoServer are throttled by the HttpClient.
+    //     Set the host limits in the settings to be kind on fragile servers.
+    private static final int THREAD_POOL_SIZE = 4;
 
     private static final int THUMBNAIL_REQUEST_TIMEOUT = 10000; // 10 seconds
     private static final float THUMBNAIL_MARGIN = 0.25f; // Margin, in percentage
@@ -103,6 +106,11 @@ public class AtlasMapperIndexer extends AbstractIndexer<AtlasMapperLayer> {
         return AtlasMapperLayer.load(json, logger);
     }
 
+    @Override
+    public AtlasMapperLayer load(JsonParser jsonParser, AbstractLogger logger) throws IOException {
+        return AtlasMapperLayer.load(jsonParser, logger);
+    }
+
     @Override
     protected AtlasMapperLayer harvestEntity(SearchClient searchClient, String layerId, AbstractLogger logger) {
         HttpClient httpClient = this.getHttpClient();
@@ -115,7 +123,7 @@ public class AtlasMapperIndexer extends AbstractIndexer<AtlasMapperLayer> {
 
         HttpClient.Response mainResponse;
         try {
-            mainResponse = httpClient.getRequest(mainUrlStr, logger);
+            mainResponse = httpClient.getCachedRequest(mainUrlStr, this.getSafeMaxResponseSize(), logger);
         } catch(Exception ex) {
             logger.addMessage(Level.ERROR, String.format("Exception occurred while downloading the AtlasMapper configuration file: %s",
                     mainUrlStr), ex);
@@ -125,7 +133,10 @@ public class AtlasMapperIndexer extends AbstractIndexer<AtlasMapperLayer> {
             return null;
         }
 
-        JSONObject jsonMainConfig = mainResponse.jsonBody();
+        JSONObject jsonMainConfig;
+        try (HttpClient.Response response = mainResponse) {
+            jsonMainConfig = response.jsonBody();
+        }
 
         // Example: /atlasmapper/public/layersInfo.jsp
         String layerInfoServiceUrl = jsonMainConfig.optString("layerInfoServiceUrl", null);
@@ -150,11 +161,13 @@ public class AtlasMapperIndexer extends AbstractIndexer<AtlasMapperLayer> {
             }
 
             if (layerInfoResponse != null) {
-                JSONObject jsonLayerResponse = layerInfoResponse.jsonBody();
-                if (jsonLayerResponse != null) {
-                    JSONObject jsonLayerData = jsonLayerResponse.optJSONObject("data");
-                    if (jsonLayerData != null) {
-                        jsonLayer = jsonLayerData.optJSONObject(layerId);
+                try (HttpClient.Response response = layerInfoResponse) {
+                    JSONObject jsonLayerResponse = response.jsonBody();
+                    if (jsonLayerResponse != null) {
+                        JSONObject jsonLayerData = jsonLayerResponse.optJSONObject("data");
+                        if (jsonLayerData != null) {
+                            jsonLayer = jsonLayerData.optJSONObject(layerId);
+                        }
                     }
                 }
             }
@@ -168,7 +181,7 @@ public class AtlasMapperIndexer extends AbstractIndexer<AtlasMapperLayer> {
 
             HttpClient.Response layersResponse;
             try {
-                layersResponse = httpClient.getRequest(layersUrlStr, logger);
+                layersResponse = httpClient.getCachedRequest(layersUrlStr, this.getSafeMaxResponseSize(), logger);
             } catch(Exception ex) {
                 logger.addMessage(Level.ERROR, String.format("Exception occurred while downloading the AtlasMapper configuration file: %s",
                         layersUrlStr), ex);
@@ -176,8 +189,10 @@ public class AtlasMapperIndexer extends AbstractIndexer<AtlasMapperLayer> {
             }
 
             if (layersResponse != null) {
-                JSONObject jsonLayers = layersResponse.jsonBody();
-                jsonLayer = jsonLayers.optJSONObject(layerId);
+                try (HttpClient.Response response = layersResponse) {
+                    JSONObject jsonLayers = response.jsonBody();
+                    jsonLayer = jsonLayers.optJSONObject(layerId);
+                }
             }
         }
 
@@ -186,9 +201,8 @@ public class AtlasMapperIndexer extends AbstractIndexer<AtlasMapperLayer> {
                 jsonLayer, jsonMainConfig, logger);
 
         // Always update the thumbnail, when indexing a single layer
-        AtlasMapperIndexer.updateThumbnail(
-                httpClient, layerId, this.getIndex(), jsonLayer,
-                this.baseLayerUrl, jsonMainConfig, layerEntity, 120000, logger);
+        AtlasMapperLayer oldLayer = this.safeGet(searchClient, AtlasMapperLayer.class, layerId, logger);
+        this.updateThumbnail(layerId, jsonLayer, this.baseLayerUrl, jsonMainConfig, layerEntity, oldLayer, 120000, logger);
 
         return layerEntity;
     }
@@ -214,7 +228,7 @@ public class AtlasMapperIndexer extends AbstractIndexer<AtlasMapperLayer> {
 
         HttpClient.Response mainResponse;
         try {
-            mainResponse = httpClient.getRequest(mainUrlStr, logger);
+            mainResponse = httpClient.getCachedRequest(mainUrlStr, this.getSafeMaxResponseSize(), logger);
         } catch(Exception ex) {
             logger.addMessage(Level.ERROR, String.format("Exception occurred while downloading the AtlasMapper configuration file: %s",
                     mainUrlStr), ex);
@@ -224,7 +238,12 @@ public class AtlasMapperIndexer extends AbstractIndexer<AtlasMapperLayer> {
         if (mainResponse == null) {
             return;
         }
-        Long mainLastModified = mainResponse.lastModified();
+        Long mainLastModified;
+        JSONObject jsonMainConfig;
+        try (HttpClient.Response response = mainResponse) {
+            mainLastModified = response.lastModified();
+            jsonMainConfig = response.jsonBody();
+        }
 
         // Get the list of layers
         // "https://maps.eatlas.org.au/config/layers.json"
@@ -234,7 +253,7 @@ public class AtlasMapperIndexer extends AbstractIndexer<AtlasMapperLayer> {
 
         HttpClient.Response layersResponse;
         try {
-            layersResponse = httpClient.getRequest(layersUrlStr, logger);
+            layersResponse = httpClient.getCachedRequest(layersUrlStr, this.getSafeMaxResponseSize(), logger);
         } catch(Exception ex) {
             logger.addMessage(Level.ERROR, String.format("Exception occurred while downloading the AtlasMapper configuration file: %s",
                     layersUrlStr), ex);
@@ -244,37 +263,57 @@ public class AtlasMapperIndexer extends AbstractIndexer<AtlasMapperLayer> {
         if (layersResponse == null) {
             return;
         }
-        Long layersLastModified = layersResponse.lastModified();
 
+        // The layers file can be large. The response is closed as soon as it is parsed, to delete its temporary file.
         boolean refreshThumbnails = true;
-        if (lastHarvested != null) {
-            // If a file have no last modified in the header,
-            // we can't tell if the index is outdated. Let's assume it is.
-            if (mainLastModified != null && layersLastModified != null) {
-                boolean indexOutDated = false;
-                if (mainLastModified > lastHarvested - 10000) {
-                    indexOutDated = true;
-                }
-                if (layersLastModified > lastHarvested - 10000) {
-                    indexOutDated = true;
-                }
+        JSONObject jsonLayersConfig;
+        try (HttpClient.Response response = layersResponse) {
+            Long layersLastModified = response.lastModified();
+
+            if (lastHarvested != null) {
+                // NOTE: A "304 Not Modified" response doesn't mean the files are unchanged since
+                //     the last harvest. The HTTP cache entries are also refreshed by single layer
+                //     re-indexation and by harvests which didn't complete. The snapshot is used instead.
+
+                // If a file have no last modified in the header,
+                // we can't tell if the index is outdated. Let's assume it is.
+                if (mainLastModified != null && layersLastModified != null) {
+                    boolean indexOutDated = false;
+                    if (mainLastModified > lastHarvested - 10000) {
+                        indexOutDated = true;
+                    }
+                    if (layersLastModified > lastHarvested - 10000) {
+                        indexOutDated = true;
+                    }
 
-                // The index is more recent than both files.
-                // We can skip the harvest.
-                if (!indexOutDated) {
-                    return;
+                    // The index is more recent than both files.
+                    // We can skip the harvest.
+                    if (!indexOutDated) {
+                        return;
+                    }
                 }
+
+                // The atlas mapper files were changed.
+                // Re-harvest the layers, but do not attempt to re-generate the thumbnails.
+                refreshThumbnails = false;
             }
 
-            // The atlas mapper files were changed.
-            // Re-harvest the layers, but do not attempt to re-generate the thumbnails.
-            refreshThumbnails = false;
+            jsonLayersConfig = response.jsonBody();
         }
 
-        JSONObject jsonMainConfig = mainResponse.jsonBody();
-        JSONObject jsonLayersConfig = layersResponse.jsonBody();
+        // AtlasMapper layers have no modification date.
+        //     Compare the hash of each layer with the snapshot of the last harvest,
+        //     to only re-index the layers which were added or changed.
+        HarvestSnapshot previousSnapshot = null;
+        if (lastHarvested != null) {
+            previousSnapshot = HarvestSnapshot.load(this.getSnapshotFile(), logger);
+        }
 
-        this.indexLayers(searchClient, jsonMainConfig, jsonLayersConfig, refreshThumbnails, logger);
+        if (previousSnapshot == null) {
+            this.indexLayers(searchClient, jsonMainConfig, jsonLayersConfig, refreshThumbnails, logger);
+        } else {
+            this.indexChangedLayers(searchClient, jsonMainConfig, jsonLayersConfig, previousSnapshot, logger);
+        }
     }
 
     public void indexLayers(
@@ -286,17 +325,82 @@ public class AtlasMapperIndexer extends AbstractIndexer<AtlasMapperLayer> {
 
         long harvestStart = System.currentTimeMillis();
 
-        Set<String> usedThumbnails = Collections.synchronizedSet(new HashSet<String>());
-        this.setTotal((long)jsonLayersConfig.length());
+        HarvestSnapshot snapshot = this.createSnapshot(jsonMainConfig, jsonLayersConfig);
+        Set<String> failedLayerIds = Collections.synchronizedSet(new HashSet<String>());
+
+        boolean completed = this.indexLayers(searchClient, jsonMainConfig, jsonLayersConfig,
+                jsonLayersConfig.keySet(), refreshThumbnails, failedLayerIds, logger);
+
+        // Delete old layers, and unused thumbnails
+        this.cleanUp(searchClient, harvestStart, "AtlasMapper layer", logger);
+
+        if (completed) {
+            this.saveSnapshot(snapshot, failedLayerIds, logger);
+        }
+    }
+
+    // Only index the layers which have changed since the previous snapshot,
+    //     and delete the layers which are not in the AtlasMapper anymore.
+    private void indexChangedLayers(
+            SearchClient searchClient,
+            JSONObject jsonMainConfig,
+            JSONObject jsonLayersConfig,
+            HarvestSnapshot previousSnapshot,
+            AbstractLogger logger) {
+
+        HarvestSnapshot snapshot = this.createSnapshot(jsonMainConfig, jsonLayersConfig);
+        List<String> changedLayerIds = snapshot.getChangedIds(previousSnapshot);
+        Set<String> removedLayerIds = snapshot.getRemovedIds(previousSnapshot);
+
+        logger.addMessage(Level.INFO, String.format("%d AtlasMapper layers changed, %d removed, %d unchanged",
+                changedLayerIds.size(), removedLayerIds.size(),
+                snapshot.size() - changedLayerIds.size()));
+
+        Set<String> failedLayerIds = Collections.synchronizedSet(new HashSet<String>());
+
+        boolean completed = this.indexLayers(searchClient, jsonMainConfig, jsonLayersConfig,
+                changedLayerIds, false, failedLayerIds, logger);
+
+        for (String removedLayerId : removedLayerIds) {
+            if (this.deleteIndexedDocument(searchClient, removedLayerId, logger)) {
+                logger.addMessage(Level.INFO, String.format("Deleted AtlasMapper layer ID: %s", removedLayerId));
+            }
+        }
+
+        if (!removedLayerIds.isEmpty()) {
+            try {
+                searchClient.refresh(this.getIndex());
+            } catch(Exception ex) {
+                logger.addMessage(Level.WARNING,
+                        String.format("Exception occurred while refreshing the search index: %s", this.getIndex()), ex);
+            }
+        }
+
+        if (completed) {
+            this.saveSnapshot(snapshot, failedLayerIds, logger);
+        }
+    }
+
+    // Returns false if the indexation was interrupted.
+    private boolean indexLayers(
+            SearchClient searchClient,
+            JSONObject jsonMainConfig,
+            JSONObject jsonLayersConfig,
+            Collection<String> layerIds,
+            boolean refreshThumbnails,
+            Set<String> failedLayerIds,
+            AbstractLogger logger) {
+
+        this.setTotal((long)layerIds.size());
         int current = 0;
 
         ThreadPoolExecutor threadPool = (ThreadPoolExecutor) Executors.newFixedThreadPool(THREAD_POOL_SIZE);
-        for (String atlasMapperLayerId : jsonLayersConfig.keySet()) {
+        for (String atlasMapperLayerId : layerIds) {
             current++;
 
             Thread thread = new AtlasMapperIndexerThread(
                     searchClient, logger, atlasMapperLayerId, jsonMainConfig, jsonLayersConfig,
-                    this.getBaseLayerUrl(), usedThumbnails, refreshThumbnails, current);
+                    this.getBaseLayerUrl(), failedLayerIds, refreshThumbnails, current);
 
             threadPool.execute(thread);
         }
@@ -307,10 +411,55 @@ public class AtlasMapperIndexer extends AbstractIndexer<AtlasMapperLayer> {
             threadPool.awaitTermination(20, TimeUnit.HOURS);
         } catch(InterruptedException ex) {
             logger.addMessage(Level.ERROR, "The AtlasMapper layers indexation was interrupted", ex);
+            return false;
+        }
+
+        return true;
+    }
+
+    // Hash of each layer, including the parts of the main config used to index the layer.
+    private HarvestSnapshot createSnapshot(JSONObject jsonMainConfig, JSONObject jsonLayersConfig) {
+        String baseLayer = AtlasMapperLayer.getBaseLayer(jsonMainConfig);
+
+        HarvestSnapshot snapshot = new HarvestSnapshot();
+        for (String atlasMapperLayerId : jsonLayersConfig.keySet()) {
+            JSONObject jsonLayer = jsonLayersConfig.optJSONObject(atlasMapperLayerId);
+            JSONObject dataSource = AtlasMapperLayer.getDataSourceConfig(jsonLayer, jsonMainConfig);
+            snapshot.put(atlasMapperLayerId, HarvestSnapshot.hash(
+                    jsonLayer, dataSource, baseLayer, this.atlasMapperClientUrl, this.baseLayerUrl));
         }
 
-        // Delete old thumbnails older than the TTL (1 month old)
-        this.cleanUp(searchClient, harvestStart, usedThumbnails, "AtlasMapper layer", logger);
+        return snapshot;
+    }
+
+    // Layers which could not be indexed are left out of the snapshot, they will be re-indexed next time.
+    private void saveSnapshot(HarvestSnapshot snapshot, Set<String> failedLayerIds, AbstractLogger logger) {
+        File snapshotFile = this.getSnapshotFile();
+        if (snapshotFile == null) {
+            return;
+        }
+
+        for (String failedLayerId : failedLayerIds) {
+            snapshot.remove(failedLayerId);
+        }
+
+        try {
+            snapshot.save(snapshotFile);
+        } catch(Exception ex) {
+            logger.addMessage(Level.WARNING, String.format("Exception occurred while saving the AtlasMapper harvest snapshot: %s",
+                    snapshotFile), ex);
+            // An outdated snapshot would hide changes. Next harvest will re-index everything.
+            HarvestSnapshot.delete(snapshotFile);
+        }
+    }
+
+    private File getSnapshotFile() {
+        SearchEngineConfig config = SearchEngineConfig.getInstance();
+        String snapshotCacheDirectory = config == null ? null : config.getSnapshotCacheDirectory();
+        if (snapshotCacheDirectory == null) {
+            return null;
+        }
+        return new File(snapshotCacheDirectory, this.getIndex() + ".json");
     }
 
     public String getAtlasMapperClientUrl() {
@@ -422,39 +571,34 @@ public class AtlasMapperIndexer extends AbstractIndexer<AtlasMapperLayer> {
             serviceUri.getPath() + "?" + querySb.toString());
     }
 
-    public static void updateThumbnail(
-            HttpClient httpClient,
-            String layerId, String index,
+    // Index the layer with its previous thumbnail, the new one is created by the ThumbnailQueue.
+    private void updateThumbnail(
+            String layerId,
             JSONObject jsonLayer,
             String baseLayerUrl,
             JSONObject jsonMainConfig,
             AtlasMapperLayer layerEntity,
+            AtlasMapperLayer oldLayer,
             Integer timeout,
             AbstractLogger logger) {
 
+        layerEntity.usePreviousThumbnail(oldLayer, logger);
         try {
-            File cachedThumbnailFile = AtlasMapperIndexer.createLayerThumbnail(
-                    httpClient, layerId, index, jsonLayer, baseLayerUrl, jsonMainConfig, timeout, logger);
-
-            if (cachedThumbnailFile != null) {
-                layerEntity.setCachedThumbnailFilename(cachedThumbnailFile.getName());
-            }
+            layerEntity.setThumbnailTask(AtlasMapperIndexer.createThumbnailTask(
+                    layerId, this.getIndex(), jsonLayer, baseLayerUrl, jsonMainConfig, timeout));
         } catch(Exception ex) {
             logger.addMessage(Level.WARNING,
                     String.format("Exception occurred while creating a thumbnail image for AtlasMapper layer: %s",
                     layerEntity.getId()), ex);
         }
-        layerEntity.setThumbnailLastIndexed(System.currentTimeMillis());
     }
 
-    private static File createLayerThumbnail(
-            HttpClient httpClient,
+    private static ThumbnailTask createThumbnailTask(
             String layerId, String index,
             JSONObject jsonLayer,
             String baseLayerUrlStr,
             JSONObject jsonMainConfig,
-            Integer timeout,
-            AbstractLogger logger) throws Exception {
+            Integer timeout) throws Exception {
 
         if (layerId == null || jsonMainConfig == null) {
             return null;
@@ -476,24 +620,20 @@ public class AtlasMapperIndexer extends AbstractIndexer<AtlasMapperLayer> {
 
         // Get URL of the layer
         URL layerUrl = AtlasMapperIndexer.getLayerUrl(dataSource, jsonLayer, bboxInfo);
-
-        boolean isBaseLayer = jsonLayer.optBoolean("isBaseLayer", false);
-
-        URL baseLayerUrl = null;
-        if (baseLayerUrlStr != null && bboxInfo != null && !isBaseLayer) {
-            // Get URL of the base layer
-            baseLayerUrl = new URL(baseLayerUrlStr.replace("{BBOX}", bboxInfo.getBbox())
-                .replace("{WIDTH}", bboxInfo.getWidth())
-                .replace("{HEIGHT}", bboxInfo.getHeight()));
+        if (layerUrl == null) {
+            return null;
         }
 
-        // If layer is a base layer (or can't find a WMS base layer), simply call cache with the layer URL.
-        if (baseLayerUrl == null) {
-            return ImageCache.cache(httpClient, layerUrl, timeout, index, layerId, logger);
+        // If layer is a base layer (or can't find a WMS base layer), simply cache the layer image.
+        boolean isBaseLayer = jsonLayer.optBoolean("isBaseLayer", false);
+        if (baseLayerUrlStr == null || bboxInfo == null || isBaseLayer) {
+            return new ThumbnailTask(index, layerId, layerUrl.toString(), timeout);
         }
 
         // Combine layers and cache them.
-        return ImageCache.cacheLayer(httpClient, baseLayerUrl, layerUrl, timeout, index, layerId, logger);
+        return ThumbnailTask.layer(index, layerId, layerUrl.toString(), timeout,
+                baseLayerUrlStr, bboxInfo.west, bboxInfo.south, bboxInfo.east, bboxInfo.north,
+                bboxInfo.widthPx, bboxInfo.heightPx);
     }
 
     private static class BboxInfo {
@@ -501,6 +641,13 @@ public class AtlasMapperIndexer extends AbstractIndexer<AtlasMapperLayer> {
         private String width;
         private String height;
 
+        private double west;
+        private double south;
+        private double east;
+        private double north;
+        private int widthPx;
+        private int heightPx;
+
         public static BboxInfo parse(JSONArray bbox) {
             SearchEngineConfig config = SearchEngineConfig.getInstance();
             int minThumbnailWidth = config.getThumbnailWidth();
@@ -586,6 +733,12 @@ public class AtlasMapperIndexer extends AbstractIndexer<AtlasMapperLayer> {
             bboxInfo.width = "" + width;
             bboxInfo.height = "" + height;
             bboxInfo.bbox = String.format("%.12f,%.12f,%.12f,%.12f", west, south, east, north);
+            bboxInfo.west = west;
+            bboxInfo.south = south;
+            bboxInfo.east = east;
+            bboxInfo.north = north;
+            bboxInfo.widthPx = width;
+            bboxInfo.heightPx = height;
 
             return bboxInfo;
         }
@@ -610,7 +763,7 @@ public class AtlasMapperIndexer extends AbstractIndexer<AtlasMapperLayer> {
         private final JSONObject jsonMainConfig;
         private final JSONObject jsonLayersConfig;
         private final String baseLayerUrl;
-        private final Set<String> usedThumbnails;
+        private final Set<String> failedLayerIds;
         private final boolean refreshThumbnails;
         private final int current;
 
@@ -621,7 +774,7 @@ public class AtlasMapperIndexer extends AbstractIndexer<AtlasMapperLayer> {
                 JSONObject jsonMainConfig,
                 JSONObject jsonLayersConfig,
                 String baseLayerUrl,
-                Set<String> usedThumbnails,
+                Set<String> failedLayerIds,
                 boolean refreshThumbnails,
                 int current
         ) {
@@ -631,14 +784,13 @@ public class AtlasMapperIndexer extends AbstractIndexer<AtlasMapperLayer> {
             this.jsonMainConfig = jsonMainConfig;
             this.jsonLayersConfig = jsonLayersConfig;
             this.baseLayerUrl = baseLayerUrl;
-            this.usedThumbnails = usedThumbnails;
+            this.failedLayerIds = failedLayerIds;
             this.refreshThumbnails = refreshThumbnails;
             this.current = current;
         }
 
         @Override
         public void run() {
-            HttpClient httpClient = AtlasMapperIndexer.this.getHttpClient();
             JSONObject jsonLayer = this.jsonLayersConfig.optJSONObject(this.atlasMapperLayerId);
 
             AtlasMapperLayer layerEntity = new AtlasMapperLayer(
@@ -661,20 +813,13 @@ public class AtlasMapperIndexer extends AbstractIndexer<AtlasMapperLayer> {
 
             boolean thumbnailNeedsUpdate = newLayer || (outdatedThumbnail && this.refreshThumbnails);
             if (thumbnailNeedsUpdate) {
-                AtlasMapperIndexer.updateThumbnail(
-                        httpClient, this.atlasMapperLayerId, AtlasMapperIndexer.this.getIndex(),
-                        jsonLayer, this.baseLayerUrl, this.jsonMainConfig,
-                        layerEntity, THUMBNAIL_REQUEST_TIMEOUT, this.logger);
+                AtlasMapperIndexer.this.updateThumbnail(
+                        this.atlasMapperLayerId, jsonLayer, this.baseLayerUrl, this.jsonMainConfig,
+                        layerEntity, oldLayer, THUMBNAIL_REQUEST_TIMEOUT, this.logger);
             } else {
                 layerEntity.useCachedThumbnail(oldLayer, this.logger);
             }
 
-            // Keep a list of used thumbnails, so we can delete unused ones at the end of the indexation.
-            String thumbnailFilename = layerEntity.getCachedThumbnailFilename();
-            if (thumbnailFilename != null) {
-                this.usedThumbnails.add(thumbnailFilename);
-            }
-
             try {
                 IndexResponse indexResponse = AtlasMapperIndexer.this.indexEntity(this.searchClient, layerEntity, this.logger);
 
@@ -683,18 +828,12 @@ public class AtlasMapperIndexer extends AbstractIndexer<AtlasMapperLayer> {
                         this.atlasMapperLayerId,
                         indexResponse.result()));
             } catch(Exception ex) {
+                this.failedLayerIds.add(this.atlasMapperLayerId);
                 this.logger.addMessage(Level.WARNING,
                         String.format("Exception occurred while indexing an AtlasMapper layer: %s", this.atlasMapperLayerId), ex);
             }
 
             AtlasMapperIndexer.this.incrementCompleted();
-
-            try {
-                // Wait a little before sending the next request, to be gentle on GeoServer
-                Thread.sleep(AtlasMapperIndexer.REQUEST_DELAY_MS);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }
         }
     }
 }
@@ -0,0 +1,198 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine.index;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.Namespace;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * StAX reader for CSW GetRecords responses.
+ * The response is streamed. Each metadata record (mdb:MD_Metadata) is extracted
+ *     as a standalone XML fragment, which can be parsed in a worker thread.
+ *     Only one record is held in memory at the time.
+ * The namespaces declared on the ancestors of a record are copied to the
+ *     fragment root element, so the fragment is a valid XML document.
+ */
+public class CswRecordReader implements Closeable {
+    private static final String RECORD_ELEMENT = "MD_Metadata";
+    private static final String SEARCH_RESULTS_ELEMENT = "SearchResults";
+
+    private static final XMLInputFactory INPUT_FACTORY = XMLInputFactory.newFactory();
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newFactory();
+    private static final XMLEventFactory EVENT_FACTORY = XMLEventFactory.newFactory();
+    static {
+        // Disable the loading of external entities, for security reasons
+        INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        INPUT_FACTORY.setProperty(XMLInputFactory.IS_COALESCING, true);
+    }
+
+    private final XMLEventReader eventReader;
+
+    // Namespaces declared by the ancestors of the current element
+    private final Deque<List<Namespace>> namespaceStack;
+
+    private Integer numberOfRecordsMatched;
+    private Integer nextRecord;
+
+    public CswRecordReader(InputStream inputStream) throws XMLStreamException {
+        this.eventReader = INPUT_FACTORY.createXMLEventReader(inputStream);
+        this.namespaceStack = new ArrayDeque<>();
+    }
+
+    /**
+     * Returns the next metadata record, as a UTF-8 encoded XML document,
+     * or null when the end of the response is reached.
+     */
+    public byte[] nextRecord() throws XMLStreamException {
+        while (this.eventReader.hasNext()) {
+            XMLEvent event = this.eventReader.nextEvent();
+            if (event.isStartElement()) {
+                StartElement startElement = event.asStartElement();
+                String localName = startElement.getName().getLocalPart();
+                if (RECORD_ELEMENT.equals(localName)) {
+                    return this.readRecord(startElement);
+                }
+
+                this.namespaceStack.push(CswRecordReader.getNamespaces(startElement));
+                if (SEARCH_RESULTS_ELEMENT.equals(localName)) {
+                    this.numberOfRecordsMatched = CswRecordReader.parseIntAttribute(startElement, "numberOfRecordsMatched");
+                    this.nextRecord = CswRecordReader.parseIntAttribute(startElement, "nextRecord");
+                }
+            } else if (event.isEndElement()) {
+                this.namespaceStack.poll();
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Value of the csw:SearchResults attribute "numberOfRecordsMatched".
+     * Available after the first call to nextRecord.
+     */
+    public Integer getNumberOfRecordsMatched() {
+        return this.numberOfRecordsMatched;
+    }
+
+    /**
+     * Value of the csw:SearchResults attribute "nextRecord".
+     * Available after the first call to nextRecord.
+     */
+    public Integer getNextRecord() {
+        return this.nextRecord;
+    }
+
+    private byte[] readRecord(StartElement recordStartElement) throws XMLStreamException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(16 * 1024);
+        XMLEventWriter eventWriter = OUTPUT_FACTORY.createXMLEventWriter(outputStream, "UTF-8");
+        try {
+            eventWriter.add(EVENT_FACTORY.createStartDocument("UTF-8", "1.0"));
+            eventWriter.add(this.inheritNamespaces(recordStartElement));
+
+            int depth = 1;
+            while (depth > 0 && this.eventReader.hasNext()) {
+                XMLEvent event = this.eventReader.nextEvent();
+                if (event.isStartElement()) {
+                    depth++;
+                } else if (event.isEndElement()) {
+                    depth--;
+                }
+                eventWriter.add(event);
+            }
+
+            eventWriter.add(EVENT_FACTORY.createEndDocument());
+            eventWriter.flush();
+        } finally {
+            eventWriter.close();
+        }
+
+        return outputStream.toByteArray();
+    }
+
+    // Add the namespaces declared by the ancestors to the record element
+    private StartElement inheritNamespaces(StartElement startElement) {
+        Map<String, Namespace> namespaces = new LinkedHashMap<>();
+        // Iterate from the root element to the closest ancestor, so the closest declaration wins
+        Iterator<List<Namespace>> ancestorsIterator = this.namespaceStack.descendingIterator();
+        while (ancestorsIterator.hasNext()) {
+            for (Namespace namespace : ancestorsIterator.next()) {
+                namespaces.put(namespace.getPrefix(), namespace);
+            }
+        }
+        for (Namespace namespace : CswRecordReader.getNamespaces(startElement)) {
+            namespaces.put(namespace.getPrefix(), namespace);
+        }
+
+        QName name = startElement.getName();
+        return EVENT_FACTORY.createStartElement(
+                name.getPrefix(), name.getNamespaceURI(), name.getLocalPart(),
+                startElement.getAttributes(), namespaces.values().iterator());
+    }
+
+    private static List<Namespace> getNamespaces(StartElement startElement) {
+        List<Namespace> namespaces = new ArrayList<>();
+        Iterator<Namespace> namespaceIterator = startElement.getNamespaces();
+        while (namespaceIterator.hasNext()) {
+            namespaces.add(namespaceIterator.next());
+        }
+        return namespaces;
+    }
+
+    private static Integer parseIntAttribute(StartElement startElement, String attributeName) {
+        Attribute attribute = startElement.getAttributeByName(new QName(attributeName));
+        String value = attribute == null ? null : attribute.getValue();
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch(NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            this.eventReader.close();
+        } catch(XMLStreamException ex) {
+            // Nothing to do
+        }
+    }
+}
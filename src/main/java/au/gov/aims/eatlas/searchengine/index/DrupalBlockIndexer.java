@@ -4,10 +4,13 @@ import au.gov.aims.eatlas.searchengine.HttpClient;
 import au.gov.aims.eatlas.searchengine.logger.AbstractLogger;
 import au.gov.aims.eatlas.searchengine.client.SearchClient;
 import au.gov.aims.eatlas.searchengine.entity.DrupalBlock;
+import com.fasterxml.jackson.core.JsonParser;
 import org.json.JSONObject;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class DrupalBlockIndexer extends AbstractDrupalEntityIndexer<DrupalBlock> {
 
@@ -58,6 +61,23 @@ public class DrupalBlockIndexer extends AbstractDrupalEntityIndexer<DrupalBlock>
         return DrupalBlock.load(json, logger);
     }
 
+    @Override
+    public DrupalBlock load(JsonParser jsonParser, AbstractLogger logger) throws IOException {
+        return DrupalBlock.load(jsonParser, logger);
+    }
+
+    @Override
+    public String getDrupalInternalIdField() {
+        return "drupal_internal__id";
+    }
+
+    @Override
+    protected Set<String> getUsedAttributes() {
+        Set<String> attributes = super.getUsedAttributes();
+        attributes.add("info");
+        return attributes;
+    }
+
     @Override
     public String getHarvestSort(boolean fullHarvest) {
         return fullHarvest ? "drupal_internal__id" : "-changed,drupal_internal__id";
@@ -23,10 +23,13 @@ import au.gov.aims.eatlas.searchengine.logger.AbstractLogger;
 import au.gov.aims.eatlas.searchengine.client.SearchClient;
 import au.gov.aims.eatlas.searchengine.entity.ExternalLink;
 import au.gov.aims.eatlas.searchengine.logger.Level;
+import com.fasterxml.jackson.core.JsonParser;
 import org.json.JSONObject;
 
+import java.io.IOException;
 import java.net.URL;
 import java.util.Map;
+import java.util.Set;
 
 public class DrupalExternalLinkNodeIndexer extends AbstractDrupalEntityIndexer<ExternalLink> {
     private String drupalExternalUrlField;
@@ -85,6 +88,29 @@ public class DrupalExternalLinkNodeIndexer extends AbstractDrupalEntityIndexer<E
         return ExternalLink.load(json, logger);
     }
 
+    @Override
+    public ExternalLink load(JsonParser jsonParser, AbstractLogger logger) throws IOException {
+        return ExternalLink.load(jsonParser, logger);
+    }
+
+    @Override
+    public String getDrupalInternalIdField() {
+        return "drupal_internal__nid";
+    }
+
+    @Override
+    protected Set<String> getUsedAttributes() {
+        Set<String> attributes = super.getUsedAttributes();
+        attributes.add("title");
+        if (this.drupalExternalUrlField != null) {
+            attributes.add(this.drupalExternalUrlField);
+        }
+        if (this.drupalContentOverwriteField != null) {
+            attributes.add(this.drupalContentOverwriteField);
+        }
+        return attributes;
+    }
+
     @Override
     public String getHarvestSort(boolean fullHarvest) {
         return fullHarvest ? "drupal_internal__nid" : "-changed,drupal_internal__nid";
@@ -125,9 +151,9 @@ public class DrupalExternalLinkNodeIndexer extends AbstractDrupalEntityIndexer<E
                 } else {
 
                     // Download the text content of the URL
+                    // The extracted text is cached. Documents which have not changed are not parsed again.
                     try {
-                        HttpClient.Response response = httpClient.getRequest(externalLinkStr, logger);
-                        content = response.extractText();
+                        content = httpClient.getTextContent(externalLinkStr, this.getSafeMaxResponseSize(), logger);
                     } catch (Exception ex) {
                         logger.addMessage(Level.WARNING, String.format("Exception occurred while harvesting URL for Drupal node external link %s, id: %s. URL %s",
                                 this.getDrupalBundleId(),
@@ -0,0 +1,239 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine.index;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Set;
+
+/**
+ * Streaming reader for Drupal JSON:API responses.
+ * The response is read token by token, using Jackson streaming API.
+ * Entities found in "data" are read one at the time, and only
+ *     the attributes and relationships used by the indexer are kept.
+ *     The other fields are skipped without been parsed into objects.
+ * The entities are returned as org.json objects, used by the Drupal indexers.
+ */
+public class DrupalJsonApiReader {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    // Null to keep everything
+    private final Set<String> attributes;
+    private final Set<String> relationships;
+
+    public DrupalJsonApiReader(Set<String> attributes, Set<String> relationships) {
+        this.attributes = attributes;
+        this.relationships = relationships;
+    }
+
+    public Document read(InputStream inputStream) throws IOException {
+        Document document = new Document();
+        try (JsonParser parser = JSON_FACTORY.createParser(inputStream)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                // Empty response
+                return document;
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.currentName();
+                JsonToken token = parser.nextToken();
+
+                switch (fieldName) {
+                    case "data":
+                        if (token == JsonToken.START_ARRAY) {
+                            document.data = new JSONArray();
+                            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                                document.data.put(this.readEntity(parser));
+                            }
+                        } else if (token == JsonToken.START_OBJECT) {
+                            document.data = new JSONArray().put(this.readEntity(parser));
+                        } else {
+                            parser.skipChildren();
+                        }
+                        break;
+
+                    case "included":
+                        // Included entities (images, paragraphs, etc) are kept whole
+                        Object included = DrupalJsonApiReader.readValue(parser);
+                        document.included = included instanceof JSONArray ? (JSONArray)included : null;
+                        break;
+
+                    case "errors":
+                        Object errors = DrupalJsonApiReader.readValue(parser);
+                        document.errors = errors instanceof JSONArray ? (JSONArray)errors : null;
+                        break;
+
+                    case "links":
+                        document.nextUrl = DrupalJsonApiReader.readNextUrl(parser);
+                        break;
+
+                    default:
+                        // jsonapi, meta, etc
+                        parser.skipChildren();
+                }
+            }
+        }
+
+        return document;
+    }
+
+    // The parser is on the START_OBJECT token of the entity.
+    private JSONObject readEntity(JsonParser parser) throws IOException {
+        JSONObject jsonEntity = new JSONObject();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.currentName();
+            parser.nextToken();
+
+            switch (fieldName) {
+                case "id":
+                case "type":
+                    jsonEntity.put(fieldName, DrupalJsonApiReader.readValue(parser));
+                    break;
+
+                case "attributes":
+                    jsonEntity.put(fieldName, DrupalJsonApiReader.readFilteredObject(parser, this.attributes));
+                    break;
+
+                case "relationships":
+                    jsonEntity.put(fieldName, DrupalJsonApiReader.readFilteredObject(parser, this.relationships));
+                    break;
+
+                case "links":
+                    // Used to find the Drupal base URL (links.self.href)
+                    jsonEntity.put(fieldName, DrupalJsonApiReader.readFilteredObject(parser, Set.of("self")));
+                    break;
+
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return jsonEntity;
+    }
+
+    // links.next.href
+    private static String readNextUrl(JsonParser parser) throws IOException {
+        Object links = DrupalJsonApiReader.readFilteredObject(parser, Set.of("next"));
+        JSONObject jsonLinks = links instanceof JSONObject ? (JSONObject)links : null;
+        JSONObject nextJson = jsonLinks == null ? null : jsonLinks.optJSONObject("next");
+        return nextJson == null ? null : nextJson.optString("href", null);
+    }
+
+    // Read an object, keeping only the listed properties.
+    private static Object readFilteredObject(JsonParser parser, Set<String> keep) throws IOException {
+        if (keep == null || parser.currentToken() != JsonToken.START_OBJECT) {
+            return DrupalJsonApiReader.readValue(parser);
+        }
+
+        JSONObject jsonObject = new JSONObject();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.currentName();
+            parser.nextToken();
+            if (keep.contains(fieldName)) {
+                jsonObject.put(fieldName, DrupalJsonApiReader.readValue(parser));
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return jsonObject;
+    }
+
+    // Read the value at the current token.
+    private static Object readValue(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == null) {
+            return JSONObject.NULL;
+        }
+
+        switch (token) {
+            case START_OBJECT:
+                JSONObject jsonObject = new JSONObject();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String fieldName = parser.currentName();
+                    parser.nextToken();
+                    jsonObject.put(fieldName, DrupalJsonApiReader.readValue(parser));
+                }
+                return jsonObject;
+
+            case START_ARRAY:
+                JSONArray jsonArray = new JSONArray();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    jsonArray.put(DrupalJsonApiReader.readValue(parser));
+                }
+                return jsonArray;
+
+            case VALUE_STRING:
+                return parser.getText();
+
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getNumberValue();
+
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+
+            default:
+                return JSONObject.NULL;
+        }
+    }
+
+    public static class Document {
+        private JSONArray data;
+        private JSONArray included;
+        private JSONArray errors;
+        private String nextUrl;
+
+        public JSONArray getData() {
+            return this.data;
+        }
+
+        // Returns the entity, when the response is for a single entity.
+        public JSONObject getEntity() {
+            return this.data == null ? null : this.data.optJSONObject(0);
+        }
+
+        public JSONArray getIncluded() {
+            return this.included;
+        }
+
+        public JSONArray getErrors() {
+            return this.errors;
+        }
+
+        public boolean hasErrors() {
+            return this.errors != null && !this.errors.isEmpty();
+        }
+
+        public String getNextUrl() {
+            return this.nextUrl;
+        }
+
+        public boolean isEmpty() {
+            return this.data == null && this.errors == null;
+        }
+    }
+}
@@ -22,10 +22,13 @@ import au.gov.aims.eatlas.searchengine.HttpClient;
 import au.gov.aims.eatlas.searchengine.logger.AbstractLogger;
 import au.gov.aims.eatlas.searchengine.client.SearchClient;
 import au.gov.aims.eatlas.searchengine.entity.DrupalMedia;
+import com.fasterxml.jackson.core.JsonParser;
 import org.json.JSONObject;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class DrupalMediaIndexer extends AbstractDrupalEntityIndexer<DrupalMedia> {
     private static final String DEFAULT_PREVIEW_IMAGE_FIELD = "thumbnail";
@@ -82,6 +85,20 @@ public class DrupalMediaIndexer extends AbstractDrupalEntityIndexer<DrupalMedia>
             .put("drupalTitleField", this.drupalTitleField);
     }
 
+    @Override
+    public String getDrupalInternalIdField() {
+        return "drupal_internal__mid";
+    }
+
+    @Override
+    protected Set<String> getUsedAttributes() {
+        Set<String> attributes = super.getUsedAttributes();
+        if (this.getDrupalTitleField() != null) {
+            attributes.add(this.getDrupalTitleField());
+        }
+        return attributes;
+    }
+
     @Override
     public String getHarvestSort(boolean fullHarvest) {
         return fullHarvest ? "drupal_internal__mid" : "-changed,drupal_internal__mid";
@@ -92,6 +109,11 @@ public class DrupalMediaIndexer extends AbstractDrupalEntityIndexer<DrupalMedia>
         return DrupalMedia.load(json, logger);
     }
 
+    @Override
+    public DrupalMedia load(JsonParser jsonParser, AbstractLogger logger) throws IOException {
+        return DrupalMedia.load(jsonParser, logger);
+    }
+
     @Override
     public boolean supportsIndexLatest() {
         return true;
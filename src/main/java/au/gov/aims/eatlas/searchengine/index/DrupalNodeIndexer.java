@@ -22,10 +22,13 @@ import au.gov.aims.eatlas.searchengine.HttpClient;
 import au.gov.aims.eatlas.searchengine.logger.AbstractLogger;
 import au.gov.aims.eatlas.searchengine.client.SearchClient;
 import au.gov.aims.eatlas.searchengine.entity.DrupalNode;
+import com.fasterxml.jackson.core.JsonParser;
 import org.json.JSONObject;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class DrupalNodeIndexer extends AbstractDrupalEntityIndexer<DrupalNode> {
 
@@ -76,6 +79,23 @@ public class DrupalNodeIndexer extends AbstractDrupalEntityIndexer<DrupalNode> {
         return DrupalNode.load(json, logger);
     }
 
+    @Override
+    public DrupalNode load(JsonParser jsonParser, AbstractLogger logger) throws IOException {
+        return DrupalNode.load(jsonParser, logger);
+    }
+
+    @Override
+    public String getDrupalInternalIdField() {
+        return "drupal_internal__nid";
+    }
+
+    @Override
+    protected Set<String> getUsedAttributes() {
+        Set<String> attributes = super.getUsedAttributes();
+        attributes.add("title");
+        return attributes;
+    }
+
     @Override
     public String getHarvestSort(boolean fullHarvest) {
         return fullHarvest ? "drupal_internal__nid" : "-changed,drupal_internal__nid";
@@ -25,8 +25,8 @@ import au.gov.aims.eatlas.searchengine.entity.GeoNetworkRecord;
 import au.gov.aims.eatlas.searchengine.entity.geoNetworkParser.AbstractParser;
 import au.gov.aims.eatlas.searchengine.entity.geoNetworkParser.ISO19115_3_2018_parser;
 import au.gov.aims.eatlas.searchengine.logger.Level;
-import au.gov.aims.eatlas.searchengine.rest.ImageCache;
 import co.elastic.clients.elasticsearch.core.IndexResponse;
+import com.fasterxml.jackson.core.JsonParser;
 import org.apache.commons.text.StringEscapeUtils;
 import org.apache.http.client.utils.URIBuilder;
 import org.apache.logging.log4j.Logger;
@@ -38,18 +38,19 @@ import org.w3c.dom.Element;
 
 import javax.xml.parsers.DocumentBuilder;
 import java.io.ByteArrayInputStream;
-import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.net.URL;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.StringJoiner;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
@@ -58,8 +59,18 @@ public class GeoNetworkCswIndexer extends AbstractGeoNetworkIndexer<GeoNetworkRe
     private static final Logger LOGGER = LogManager.getLogger(GeoNetworkCswIndexer.class.getName());
     private static final int THREAD_POOL_SIZE = 10;
 
+    public static final int DEFAULT_MIN_RECORDS_PER_PAGE = 10;
+    public static final int DEFAULT_MAX_RECORDS_PER_PAGE = 100;
+
+    // The parser is stateless, it can be shared between threads.
+    private static final AbstractParser METADATA_RECORD_PARSER = new ISO19115_3_2018_parser();
+
     private List<String> geoNetworkCategories;
 
+    // Bounds of the adaptive CSW page size. Null for default.
+    private Integer minRecordsPerPage;
+    private Integer maxRecordsPerPage;
+
     /**
      * index: eatlas_metadata
      * geoNetworkUrl: https://eatlas-geonetwork/geonetwork
@@ -88,17 +99,28 @@ public class GeoNetworkCswIndexer extends AbstractGeoNetworkIndexer<GeoNetworkRe
             }
         }
 
-        return new GeoNetworkCswIndexer(
+        GeoNetworkCswIndexer indexer = new GeoNetworkCswIndexer(
             httpClient, index, indexName,
             json.optString("geoNetworkUrl", null),
             json.optString("geoNetworkPublicUrl", null),
             json.optString("geoNetworkVersion", null),
             categories.isEmpty() ? null : categories);
+
+        if (json.has("minRecordsPerPage")) {
+            indexer.setMinRecordsPerPage(json.optInt("minRecordsPerPage", DEFAULT_MIN_RECORDS_PER_PAGE));
+        }
+        if (json.has("maxRecordsPerPage")) {
+            indexer.setMaxRecordsPerPage(json.optInt("maxRecordsPerPage", DEFAULT_MAX_RECORDS_PER_PAGE));
+        }
+
+        return indexer;
     }
 
     public JSONObject toJSON() {
         return this.getJsonBase()
-            .put("geoNetworkCategories", this.geoNetworkCategories);
+            .put("geoNetworkCategories", this.geoNetworkCategories)
+            .put("minRecordsPerPage", this.minRecordsPerPage)
+            .put("maxRecordsPerPage", this.maxRecordsPerPage);
     }
 
     @Override
@@ -106,6 +128,11 @@ public class GeoNetworkCswIndexer extends AbstractGeoNetworkIndexer<GeoNetworkRe
         return GeoNetworkRecord.load(json, logger);
     }
 
+    @Override
+    public GeoNetworkRecord load(JsonParser jsonParser, AbstractLogger logger) throws IOException {
+        return GeoNetworkRecord.load(jsonParser, logger);
+    }
+
     @Override
     protected GeoNetworkRecord harvestEntity(SearchClient searchClient, String id, AbstractLogger logger) {
         HttpClient httpClient = this.getHttpClient();
@@ -142,68 +169,24 @@ public class GeoNetworkCswIndexer extends AbstractGeoNetworkIndexer<GeoNetworkRe
         andFilters.addAll(getCategoriesFilters());
         String recordFilterQuery = this.andFiltersToString(andFilters);
 
-        String outputSchema = "http://standards.iso.org/iso/19115/-3/mdb/2.0"; // iso19115-3.2018
-        String xmlQuery = String.format("<?xml version=\"1.0\"?>\n" +
-            "<GetRecords xmlns=\"http://www.opengis.net/cat/csw/2.0.2\" " +
-                    "xmlns:ogc=\"http://www.opengis.net/ogc\" " +
-                    "xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" " +
-                    "service=\"CSW\" " +
-                    "version=\"2.0.2\" " +
-                    "resultType=\"results\" " +
-                    "startPosition=\"1\" " +
-                    "maxRecords=\"1\" " +
-                    "outputSchema=\"%s\" " +
-                    "xsi:schemaLocation=\"http://www.opengis.net/cat/csw/2.0.2 http://schemas.opengis.net/csw/2.0.2/CSW-discovery.xsd\">" +
-                "<Query typeNames=\"mdb:MD_Metadata\">" +
-                    "<ElementSetName>full</ElementSetName>" +
-                    "%s" +
-                "</Query>" +
-            "</GetRecords>",
-            StringEscapeUtils.escapeXml10(outputSchema),
-            recordFilterQuery);
-
-        // JDOM tutorial:
-        //     https://www.tutorialspoint.com/java_xml/java_dom_parse_document.htm
-        DocumentBuilder xmlParser;
-        try {
-            xmlParser = IndexUtils.getNewXMLParser();
-        } catch(Exception ex) {
-            // Should not happen
-            logger.addMessage(Level.ERROR, String.format("Exception occurred while creating XML document builder for index: %s",
-                    this.getIndex()), ex);
-            return null;
-        }
-
-        try {
-            HttpClient.Response response = httpClient.postXmlRequest(url, xmlQuery, logger);
+        String xmlQuery = this.getRecordsQuery(1, 1, recordFilterQuery, "");
 
+        try (HttpClient.Response response = httpClient.postXmlRequest(url, xmlQuery, logger)) {
             int statusCode = response == null ? -1 : response.statusCode();
-            String responseStr = response == null ? null : response.body();
 
             if (statusCode < 200 || statusCode >= 400) {
                 logger.addMessage(Level.ERROR, String.format("Unexpected status code returned from GeoNetwork: %d%nResponse: %s",
-                        statusCode, responseStr));
-
-            } else if (responseStr != null && !responseStr.isEmpty()) {
-                try (ByteArrayInputStream input = new ByteArrayInputStream(
-                    responseStr.getBytes(StandardCharsets.UTF_8))) {
-
-                    AbstractParser metadataRecordParser = new ISO19115_3_2018_parser();
-
-                    Document document = xmlParser.parse(input);
-
-                    // Fix the document, if needed
-                    document.getDocumentElement().normalize();
-
-                    Element root = document.getDocumentElement();
-
-                    Element searchResultsElement = IndexUtils.getXMLChild(root, "csw:SearchResults");
+                        statusCode, response == null ? null : response.body()));
 
-                    // Loop through mdb:MD_Metadata, parse them with ISO19115_3_2018_parser
-                    Element metadataElement = IndexUtils.getXMLChild(searchResultsElement, "mdb:MD_Metadata");
+            } else if (response.bodySize() > 0) {
+                byte[] recordXml;
+                try (InputStream inputStream = response.bodyStream();
+                        CswRecordReader recordReader = new CswRecordReader(inputStream)) {
+                    recordXml = recordReader.nextRecord();
+                }
 
-                    GeoNetworkRecord geoNetworkRecord = new GeoNetworkRecord(this, null, "iso19115-3.2018", this.getGeoNetworkVersion());
-                    metadataRecordParser.parseRecord(this, geoNetworkRecord, metadataElement, logger);
+                GeoNetworkRecord geoNetworkRecord = this.parseRecord(recordXml, logger);
+                if (geoNetworkRecord != null) {
                     this.updateThumbnail(searchClient, geoNetworkRecord, logger);
 
                     IndexResponse indexResponse = GeoNetworkCswIndexer.this.indexEntity(searchClient, geoNetworkRecord, logger);
@@ -223,6 +206,33 @@ public class GeoNetworkCswIndexer extends AbstractGeoNetworkIndexer<GeoNetworkRe
         return null;
     }
 
+    /**
+     * Parse a metadata record fragment extracted by the CswRecordReader.
+     * Thread safe, called by the indexer threads.
+     */
+    protected GeoNetworkRecord parseRecord(byte[] recordXml, AbstractLogger logger) throws Exception {
+        if (recordXml == null) {
+            return null;
+        }
+
+        // JDOM tutorial:
+        //     https://www.tutorialspoint.com/java_xml/java_dom_parse_document.htm
+        DocumentBuilder xmlParser = IndexUtils.getXMLParser();
+
+        Document document;
+        try (ByteArrayInputStream input = new ByteArrayInputStream(recordXml)) {
+            document = xmlParser.parse(input);
+        }
+
+        // Fix the document, if needed
+        document.getDocumentElement().normalize();
+        Element metadataElement = document.getDocumentElement();
+
+        GeoNetworkRecord geoNetworkRecord = new GeoNetworkRecord(this, null, "iso19115-3.2018", this.getGeoNetworkVersion());
+        METADATA_RECORD_PARSER.parseRecord(this, geoNetworkRecord, metadataElement, logger);
+        return geoNetworkRecord;
+    }
+
     public void updateThumbnail(SearchClient searchClient, GeoNetworkRecord geoNetworkRecord, AbstractLogger logger) {
         URL thumbnailUrl = geoNetworkRecord.getThumbnailUrl();
         if (thumbnailUrl != null) {
@@ -231,19 +241,9 @@ public class GeoNetworkCswIndexer extends AbstractGeoNetworkIndexer<GeoNetworkRe
                 geoNetworkRecord.isThumbnailOutdated(oldRecord, this.getSafeThumbnailTTL(), this.getSafeBrokenThumbnailTTL(), logger);
 
             if (thumbnailOutdated) {
-                HttpClient httpClient = this.getHttpClient();
-
-                try {
-                    File cachedThumbnailFile = ImageCache.cache(httpClient, thumbnailUrl, this.getIndex(), geoNetworkRecord.getId(), logger);
-                    if (cachedThumbnailFile != null) {
-                        geoNetworkRecord.setCachedThumbnailFilename(cachedThumbnailFile.getName());
-                    }
-                } catch(Exception ex) {
-                    logger.addMessage(Level.WARNING,
-                            String.format("Exception occurred while creating a thumbnail for GeoNetwork record id: %s",
-                                    geoNetworkRecord.getId()), ex);
-                }
-                geoNetworkRecord.setThumbnailLastIndexed(System.currentTimeMillis());
+                // Index the record with its previous thumbnail, the new one is created by the ThumbnailQueue.
+                geoNetworkRecord.usePreviousThumbnail(oldRecord, logger);
+                geoNetworkRecord.setThumbnailTask(new ThumbnailTask(this.getIndex(), geoNetworkRecord.getId(), thumbnailUrl.toString(), null));
             } else {
                 geoNetworkRecord.useCachedThumbnail(oldRecord, logger);
             }
@@ -261,11 +261,6 @@ public class GeoNetworkCswIndexer extends AbstractGeoNetworkIndexer<GeoNetworkRe
 
         boolean fullHarvest = lastHarvested == null;
 
-        Set<String> usedThumbnails = null;
-        if (fullHarvest) {
-            usedThumbnails = Collections.synchronizedSet(new HashSet<String>());
-        }
-
         // GeoNetwork's CSW API URL
         // The request is provided as XML data in a POST request.
         String urlBase = HttpClient.combineUrls(
@@ -313,122 +308,111 @@ public class GeoNetworkCswIndexer extends AbstractGeoNetworkIndexer<GeoNetworkRe
         andFilters.addAll(getCategoriesFilters());
         String recordFilterQuery = this.andFiltersToString(andFilters);
 
-        String outputSchema = "http://standards.iso.org/iso/19115/-3/mdb/2.0"; // iso19115-3.2018
-        int startPosition = 1;
         int recordCounter = 0;
-        int recordsPerPage = 10;
-
         int numberOfRecordsMatched = 0;
         boolean crashed = false;
-        boolean empty = false;
 
-        // JDOM tutorial:
-        //     https://www.tutorialspoint.com/java_xml/java_dom_parse_document.htm
-        DocumentBuilder xmlParser;
-        try {
-            xmlParser = IndexUtils.getNewXMLParser();
-        } catch(Exception ex) {
-            // Should not happen
-            logger.addMessage(Level.ERROR, String.format("Exception occurred while creating XML document builder for index: %s",
-                    this.getIndex()), ex);
-            return;
-        }
+        // The page size adapts to GeoNetwork's response time and response size.
+        AdaptivePageSize pageSize = new AdaptivePageSize(
+                this.getSafeMinRecordsPerPage(), this.getSafeMaxRecordsPerPage());
 
-        // List of metadata records which needs its parent title to be set
-        List<String> orphanMetadataRecordList = Collections.synchronizedList(new ArrayList<>());
-        ThreadPoolExecutor threadPool = (ThreadPoolExecutor) Executors.newFixedThreadPool(THREAD_POOL_SIZE);
-        AbstractParser metadataRecordParser = new ISO19115_3_2018_parser();
+        // Keep track of the records title, to set the records parent title
+        ParentTitleResolver parentTitleResolver = new ParentTitleResolver();
+
+        // Bounded work queue. When the queue is full, the paging thread parse and index the record itself,
+        //     which limits the number of record fragments held in memory.
+        ThreadPoolExecutor threadPool = new ThreadPoolExecutor(
+                THREAD_POOL_SIZE, THREAD_POOL_SIZE,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(THREAD_POOL_SIZE * 2),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+
+        // Single thread used to download the next page of records
+        //     while the current page is being parsed.
+        ExecutorService pageRequestExecutor = Executors.newSingleThreadExecutor();
 
         long harvestStart = System.currentTimeMillis();
-        do {
-            String xmlQuery = String.format("<?xml version=\"1.0\"?>\n" +
-                "<GetRecords xmlns=\"http://www.opengis.net/cat/csw/2.0.2\" " +
-                        "xmlns:ogc=\"http://www.opengis.net/ogc\" " +
-                        "xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" " +
-                        "service=\"CSW\" " +
-                        "version=\"2.0.2\" " +
-                        "resultType=\"results\" " +
-                        "startPosition=\"%d\" " +
-                        "maxRecords=\"%d\" " +
-                        "outputSchema=\"%s\" " +
-                        "xsi:schemaLocation=\"http://www.opengis.net/cat/csw/2.0.2 http://schemas.opengis.net/csw/2.0.2/CSW-discovery.xsd\">" +
-                    "<Query typeNames=\"mdb:MD_Metadata\">" +
-                        "<ElementSetName>full</ElementSetName>" +
-                        "%s" +
-                        "%s" +
-                    "</Query>" +
-                "</GetRecords>",
-                startPosition,
-                recordsPerPage,
-                StringEscapeUtils.escapeXml10(outputSchema),
-                recordFilterQuery,
-                recordSortQuery);
-
-            HttpClient.Response response = null;
+        Future<CswPage> nextPage = null;
+        if (this.waitForHost(url, logger)) {
+            nextPage = this.requestPage(pageRequestExecutor, url, 1, pageSize.getPageSize(),
+                    recordFilterQuery, recordSortQuery, logger);
+        } else {
+            crashed = true;
+        }
+
+        while (nextPage != null) {
+            CswPage page;
             try {
-                response = httpClient.postXmlRequest(url, xmlQuery, logger);
+                page = nextPage.get();
             } catch(Exception ex) {
-                if (!crashed) {
-                    logger.addMessage(Level.ERROR, String.format("Exception occurred while harvesting GeoNetwork record list: %s",
-                            url), ex);
-                }
+                logger.addMessage(Level.ERROR, String.format("Exception occurred while harvesting GeoNetwork record list: %s",
+                        url), ex);
                 crashed = true;
+                break;
             }
+            nextPage = null;
 
-            int statusCode = response == null ? -1 : response.statusCode();
-            String responseStr = response == null ? null : response.body();
+            try (HttpClient.Response response = page.getResponse()) {
+                int statusCode = response == null ? -1 : response.statusCode();
 
-            if (statusCode < 200 || statusCode >= 400) {
-                logger.addMessage(Level.ERROR, String.format("Unexpected status code returned from GeoNetwork: %d%nResponse: %s",
-                        statusCode, responseStr));
-                crashed = true;
-            } else if (responseStr != null && !responseStr.isEmpty()) {
-                try (ByteArrayInputStream input = new ByteArrayInputStream(
-                    responseStr.getBytes(StandardCharsets.UTF_8))) {
+                if (statusCode < 200 || statusCode >= 400) {
+                    logger.addMessage(Level.ERROR, String.format("Unexpected status code returned from GeoNetwork: %d%nResponse: %s",
+                            statusCode, response == null ? null : response.body()));
+                    crashed = true;
+                    break;
+                }
 
-                    Document document = xmlParser.parse(input);
+                int nextPageSize = pageSize.update(page.getMaxRecords(), page.getResponseTime(), response.bodySize());
+                if (response.bodySize() <= 0) {
+                    break;
+                }
 
-                    // Fix the document, if needed
-                    document.getDocumentElement().normalize();
+                // Stream the response, one metadata record at the time.
+                // The records are parsed and indexed by the thread pool.
+                try (InputStream inputStream = response.bodyStream();
+                        CswRecordReader recordReader = new CswRecordReader(inputStream)) {
 
-                    Element root = document.getDocumentElement();
+                    // NOTE: csw:SearchResults is read before the first record
+                    byte[] recordXml = recordReader.nextRecord();
 
-                    Element searchResultsElement = IndexUtils.getXMLChild(root, "csw:SearchResults");
-                    String numberOfRecordsMatchedStr = IndexUtils.parseAttribute(searchResultsElement, "numberOfRecordsMatched");
-                    numberOfRecordsMatched = numberOfRecordsMatchedStr == null ? -1 : Integer.parseInt(numberOfRecordsMatchedStr);
+                    Integer recordsMatched = recordReader.getNumberOfRecordsMatched();
+                    numberOfRecordsMatched = recordsMatched == null ? -1 : recordsMatched;
                     this.setTotal((long)numberOfRecordsMatched);
 
-                    // Loop through mdb:MD_Metadata, parse them with ISO19115_3_2018_parser
-                    List<Element> metadataElements = IndexUtils.getXMLChildren(searchResultsElement, "mdb:MD_Metadata");
-                    for (Element metadataElement : metadataElements) {
+                    // Request the next page right away, it gets downloaded while this page is parsed.
+                    Integer nextRecord = recordReader.getNextRecord();
+                    if (recordXml != null && nextRecord != null && nextRecord > 0 && nextRecord <= numberOfRecordsMatched) {
+                        if (this.waitForHost(url, logger)) {
+                            nextPage = this.requestPage(pageRequestExecutor, url, nextRecord, nextPageSize,
+                                    recordFilterQuery, recordSortQuery, logger);
+                        } else {
+                            crashed = true;
+                        }
+                    }
+
+                    while (recordXml != null) {
                         recordCounter++;
-                        GeoNetworkRecord geoNetworkRecord = new GeoNetworkRecord(this, null, "iso19115-3.2018", this.getGeoNetworkVersion());
-                        metadataRecordParser.parseRecord(this, geoNetworkRecord, metadataElement, logger);
-
-                        // Index records in thread.
-                        // NOTE: The record parsing can't be threaded with the CSW API
-                        //   since the information for the next page is in the XML response
-                        //   and the response also contains the full metadata records (not just the record UUID).
-                        //   It needs to be parsed sequentially.
                         GeoNetworkCswIndexerThread thread = new GeoNetworkCswIndexerThread(
-                                searchClient, logger, geoNetworkRecord,
-                                orphanMetadataRecordList, usedThumbnails, recordCounter);
+                                searchClient, logger, recordXml,
+                                parentTitleResolver, recordCounter);
 
                         threadPool.execute(thread);
-                    }
 
-                    // Prepare for next page of result
-                    String nextRecordStr = IndexUtils.parseAttribute(searchResultsElement, "nextRecord");
-                    startPosition = nextRecordStr == null ? -1 : Integer.parseInt(nextRecordStr);
-                } catch (Exception ex) {
-                    logger.addMessage(Level.ERROR, String.format("Exception occurred while parsing the GeoNetwork record list: %s",
-                            url), ex);
-                    crashed = true;
+                        recordXml = recordReader.nextRecord();
+                    }
+                }
+            } catch (Exception ex) {
+                logger.addMessage(Level.ERROR, String.format("Exception occurred while parsing the GeoNetwork record list: %s",
+                        url), ex);
+                crashed = true;
+                if (nextPage != null) {
+                    GeoNetworkCswIndexer.discardPage(nextPage);
+                    nextPage = null;
                 }
             }
+        }
 
-        } while(!crashed && !empty && startPosition > 0 && startPosition <= numberOfRecordsMatched);
-
+        pageRequestExecutor.shutdownNow();
         threadPool.shutdown();
         try {
             threadPool.awaitTermination(1, TimeUnit.HOURS);
@@ -436,42 +420,78 @@ public class GeoNetworkCswIndexer extends AbstractGeoNetworkIndexer<GeoNetworkRe
             logger.addMessage(Level.ERROR, "The GeoNetwork indexation was interrupted", ex);
         }
 
-        // Refresh the index to be sure to find parent records, if they are new
-        try {
-            searchClient.refresh(this.getIndex());
-        } catch(Exception ex) {
-            logger.addMessage(Level.ERROR, String.format("Exception occurred while refreshing the search index: %s", this.getIndex()), ex);
-        }
-
         // We have added all the records.
-        // Let's fix the records parent title.
-        for (String recordUUID : orphanMetadataRecordList) {
-            GeoNetworkRecord geoNetworkRecord = this.safeGet(searchClient, GeoNetworkRecord.class, recordUUID, logger);
-            if (geoNetworkRecord != null) {
-                String parentRecordUUID = geoNetworkRecord.getParentUUID();
-                GeoNetworkRecord parentRecord = this.safeGet(searchClient, GeoNetworkRecord.class, parentRecordUUID, logger);
+        // Let's set the parent title of the records which were indexed before their parent.
+        // NOTE: Parents which were not part of this harvest are loaded from the index.
+        parentTitleResolver.updateOrphans(searchClient, this.getIndex(), parentUUID -> {
+            GeoNetworkRecord parentRecord = this.safeGet(searchClient, GeoNetworkRecord.class, parentUUID, logger);
+            return parentRecord == null ? null : parentRecord.getTitle();
+        }, logger);
 
-                if (parentRecord != null) {
-                    geoNetworkRecord.setParentTitle(parentRecord.getTitle());
+        // Only cleanup when we are doing a full harvest
+        if (!crashed && fullHarvest && this.isHostStable(url, harvestStart, logger)) {
+            this.cleanUp(searchClient, harvestStart, "GeoNetwork metadata record", logger);
+        }
+    }
 
-                    try {
-                        IndexResponse indexResponse = this.indexEntity(searchClient, geoNetworkRecord, false, logger);
+    /**
+     * Send the GetRecords request for a page of records, using the page request executor.
+     * The request runs in the background, while the indexer parses the current page.
+     */
+    private Future<CswPage> requestPage(
+            ExecutorService pageRequestExecutor, String url,
+            int startPosition, int maxRecords,
+            String recordFilterQuery, String recordSortQuery,
+            AbstractLogger logger) {
+
+        String xmlQuery = this.getRecordsQuery(startPosition, maxRecords, recordFilterQuery, recordSortQuery);
+        return pageRequestExecutor.submit(() -> {
+            long requestStart = System.currentTimeMillis();
+            HttpClient.Response response = this.getHttpClient().postXmlRequest(url, xmlQuery, logger);
+            return new CswPage(maxRecords, response, System.currentTimeMillis() - requestStart);
+        });
+    }
 
-                        logger.addMessage(Level.INFO, String.format("Reindexing GeoNetwork metadata record: %s with parent title: %s, status: %s",
-                                geoNetworkRecord.getId(),
-                                geoNetworkRecord.getParentTitle(),
-                                indexResponse.result()));
-                    } catch(Exception ex) {
-                        logger.addMessage(Level.WARNING, String.format("Exception occurred while reindexing a GeoNetwork record: %s", recordUUID), ex);
-                    }
-                }
+    // Cancel the request of a page which will not be parsed.
+    //     Cancelling has no effect when the page was already downloaded, close its response.
+    private static void discardPage(Future<CswPage> page) {
+        if (page.cancel(true)) {
+            return;
+        }
+        try {
+            CswPage cswPage = page.get();
+            if (cswPage.getResponse() != null) {
+                cswPage.getResponse().close();
             }
+        } catch(Exception ex) {
+            // The request failed. There is no response to close.
         }
+    }
 
-        // Only cleanup when we are doing a full harvest
-        if (!crashed && fullHarvest) {
-            this.cleanUp(searchClient, harvestStart, usedThumbnails, "GeoNetwork metadata record", logger);
-        }
+    private String getRecordsQuery(int startPosition, int maxRecords, String recordFilterQuery, String recordSortQuery) {
+        String outputSchema = "http://standards.iso.org/iso/19115/-3/mdb/2.0"; // iso19115-3.2018
+        return String.format("<?xml version=\"1.0\"?>\n" +
+            "<GetRecords xmlns=\"http://www.opengis.net/cat/csw/2.0.2\" " +
+                    "xmlns:ogc=\"http://www.opengis.net/ogc\" " +
+                    "xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" " +
+                    "service=\"CSW\" " +
+                    "version=\"2.0.2\" " +
+                    "resultType=\"results\" " +
+                    "startPosition=\"%d\" " +
+                    "maxRecords=\"%d\" " +
+                    "outputSchema=\"%s\" " +
+                    "xsi:schemaLocation=\"http://www.opengis.net/cat/csw/2.0.2 http://schemas.opengis.net/csw/2.0.2/CSW-discovery.xsd\">" +
+                "<Query typeNames=\"mdb:MD_Metadata\">" +
+                    "<ElementSetName>full</ElementSetName>" +
+                    "%s" +
+                    "%s" +
+                "</Query>" +
+            "</GetRecords>",
+            startPosition,
+            maxRecords,
+            StringEscapeUtils.escapeXml10(outputSchema),
+            recordFilterQuery,
+            recordSortQuery);
     }
 
     private List<String> getCategoriesFilters() {
@@ -566,59 +586,104 @@ public class GeoNetworkCswIndexer extends AbstractGeoNetworkIndexer<GeoNetworkRe
         }
     }
 
+    public Integer getMinRecordsPerPage() {
+        return this.minRecordsPerPage;
+    }
+
+    public int getSafeMinRecordsPerPage() {
+        return (this.minRecordsPerPage == null || this.minRecordsPerPage <= 0) ?
+                DEFAULT_MIN_RECORDS_PER_PAGE : this.minRecordsPerPage;
+    }
+
+    public void setMinRecordsPerPage(Integer minRecordsPerPage) {
+        this.minRecordsPerPage = minRecordsPerPage;
+    }
+
+    public Integer getMaxRecordsPerPage() {
+        return this.maxRecordsPerPage;
+    }
+
+    public int getSafeMaxRecordsPerPage() {
+        int maxRecords = (this.maxRecordsPerPage == null || this.maxRecordsPerPage <= 0) ?
+                DEFAULT_MAX_RECORDS_PER_PAGE : this.maxRecordsPerPage;
+        return Math.max(maxRecords, this.getSafeMinRecordsPerPage());
+    }
+
+    public void setMaxRecordsPerPage(Integer maxRecordsPerPage) {
+        this.maxRecordsPerPage = maxRecordsPerPage;
+    }
+
+    private static class CswPage {
+        private final int maxRecords;
+        private final HttpClient.Response response;
+        private final long responseTime; // In milliseconds
+
+        public CswPage(int maxRecords, HttpClient.Response response, long responseTime) {
+            this.maxRecords = maxRecords;
+            this.response = response;
+            this.responseTime = responseTime;
+        }
+
+        public int getMaxRecords() {
+            return this.maxRecords;
+        }
+
+        public HttpClient.Response getResponse() {
+            return this.response;
+        }
+
+        public long getResponseTime() {
+            return this.responseTime;
+        }
+    }
+
     public class GeoNetworkCswIndexerThread extends Thread {
         private final SearchClient searchClient;
         private final AbstractLogger logger;
-        private final GeoNetworkRecord geoNetworkRecord;
-        private final List<String> orphanMetadataRecordList;
-        private final Set<String> usedThumbnails;
+        private final byte[] recordXml;
+        private final ParentTitleResolver parentTitleResolver;
         private final long current;
 
         public GeoNetworkCswIndexerThread(
                 SearchClient searchClient,
                 AbstractLogger logger,
-                GeoNetworkRecord geoNetworkRecord,
-                List<String> orphanMetadataRecordList,
-                Set<String> usedThumbnails,
+                byte[] recordXml,
+                ParentTitleResolver parentTitleResolver,
                 long current
         ) {
             this.searchClient = searchClient;
             this.logger = logger;
-            this.geoNetworkRecord = geoNetworkRecord;
-            this.orphanMetadataRecordList = orphanMetadataRecordList;
-            this.usedThumbnails = usedThumbnails;
+            this.recordXml = recordXml;
+            this.parentTitleResolver = parentTitleResolver;
             this.current = current;
         }
 
         @Override
         public void run() {
-            if (this.geoNetworkRecord != null) {
-                // If the record have a parent UUID,
-                // keep it's UUID in a list, so we can come back to it later to set its parent title.
-                String parentUUID = this.geoNetworkRecord.getParentUUID();
-                if (parentUUID != null && !parentUUID.isEmpty()) {
-                    this.orphanMetadataRecordList.add(this.geoNetworkRecord.getId());
-                }
+            GeoNetworkRecord geoNetworkRecord = null;
+            try {
+                geoNetworkRecord = GeoNetworkCswIndexer.this.parseRecord(this.recordXml, this.logger);
+            } catch(Exception ex) {
+                this.logger.addMessage(Level.ERROR, String.format("Exception occurred while parsing GeoNetwork record number: %d", this.current), ex);
+            }
+
+            if (geoNetworkRecord != null) {
+                // Set the record parent title, if its parent was already harvested.
+                // Otherwise, its parent title will be set at the end of the harvest.
+                this.parentTitleResolver.resolve(geoNetworkRecord);
 
                 GeoNetworkCswIndexer.this.updateThumbnail(
-                        this.searchClient, this.geoNetworkRecord, this.logger);
+                        this.searchClient, geoNetworkRecord, this.logger);
 
                 try {
-                    IndexResponse indexResponse = GeoNetworkCswIndexer.this.indexEntity(this.searchClient, this.geoNetworkRecord, this.logger);
+                    IndexResponse indexResponse = GeoNetworkCswIndexer.this.indexEntity(this.searchClient, geoNetworkRecord, this.logger);
 
                     this.logger.addMessage(Level.INFO, String.format("[%d/%d] Indexing GeoNetwork metadata record: %s, index response status: %s",
                             this.current, GeoNetworkCswIndexer.this.getTotal(),
-                            this.geoNetworkRecord.getId(),
+                            geoNetworkRecord.getId(),
                             indexResponse.result()));
                 } catch(Exception ex) {
-                    this.logger.addMessage(Level.ERROR, String.format("Exception occurred while indexing a GeoNetwork record: %s", this.geoNetworkRecord.getId()), ex);
-                }
-
-                if (this.usedThumbnails != null) {
-                    String thumbnailFilename = this.geoNetworkRecord.getCachedThumbnailFilename();
-                    if (thumbnailFilename != null) {
-                        this.usedThumbnails.add(thumbnailFilename);
-                    }
+                    this.logger.addMessage(Level.ERROR, String.format("Exception occurred while indexing a GeoNetwork record: %s", geoNetworkRecord.getId()), ex);
                 }
             }
 
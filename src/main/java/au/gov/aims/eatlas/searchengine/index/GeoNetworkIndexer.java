@@ -23,25 +23,31 @@ import au.gov.aims.eatlas.searchengine.logger.AbstractLogger;
 import au.gov.aims.eatlas.searchengine.client.SearchClient;
 import au.gov.aims.eatlas.searchengine.entity.GeoNetworkRecord;
 import au.gov.aims.eatlas.searchengine.logger.Level;
-import au.gov.aims.eatlas.searchengine.rest.ImageCache;
 import co.elastic.clients.elasticsearch.core.IndexResponse;
+import com.fasterxml.jackson.core.JsonParser;
 import org.joda.time.DateTime;
 import org.joda.time.format.DateTimeFormat;
+import org.apache.commons.text.StringEscapeUtils;
 import org.apache.http.client.utils.URIBuilder;
 import org.json.JSONObject;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
 
 import javax.xml.parsers.DocumentBuilder;
 import java.io.ByteArrayInputStream;
-import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -49,6 +55,8 @@ import java.util.concurrent.TimeUnit;
 
 public class GeoNetworkIndexer extends AbstractGeoNetworkIndexer<GeoNetworkRecord> {
     private static final int THREAD_POOL_SIZE = 10;
+    // Number of metadata records downloaded with each CSW GetRecordById request
+    private static final int BATCH_SIZE = 50;
 
     /**
      * index: eatlas_metadata
@@ -80,6 +88,11 @@ public class GeoNetworkIndexer extends AbstractGeoNetworkIndexer<GeoNetworkRecor
         return GeoNetworkRecord.load(json, logger);
     }
 
+    @Override
+    public GeoNetworkRecord load(JsonParser jsonParser, AbstractLogger logger) throws IOException {
+        return GeoNetworkRecord.load(jsonParser, logger);
+    }
+
     @Override
     protected GeoNetworkRecord harvestEntity(SearchClient searchClient, String id, AbstractLogger logger) {
         // Find the metadata schema from the record from the index.
@@ -111,10 +124,10 @@ public class GeoNetworkIndexer extends AbstractGeoNetworkIndexer<GeoNetworkRecor
             return null;
         }
 
-        HttpClient.Response response = null;
-        try {
-            //LOGGER.info(String.format("Harvesting metadata record UUID: %s from: %s", metadataRecordUUID, url));
-            response = httpClient.getRequest(url, logger);
+        String responseStr;
+        //LOGGER.info(String.format("Harvesting metadata record UUID: %s from: %s", metadataRecordUUID, url));
+        try (HttpClient.Response response = httpClient.getRequest(url, logger)) {
+            responseStr = response == null ? null : response.body();
         } catch (Exception ex) {
             logger.addMessage(Level.ERROR, String.format("Exception occurred while harvesting the metadata record UUID: %s%nUrl: %s",
                     metadataRecordUUID, url), ex);
@@ -122,13 +135,12 @@ public class GeoNetworkIndexer extends AbstractGeoNetworkIndexer<GeoNetworkRecor
             return null;
         }
 
-        String responseStr = response == null ? null : response.body();
         if (responseStr != null && !responseStr.isEmpty()) {
             try (ByteArrayInputStream input = new ByteArrayInputStream(responseStr.getBytes(StandardCharsets.UTF_8))) {
 
                 DocumentBuilder xmlParser;
                 try {
-                    xmlParser = IndexUtils.getNewXMLParser();
+                    xmlParser = IndexUtils.getXMLParser();
                 } catch(Exception ex) {
                     // Should not happen
                     logger.addMessage(Level.ERROR, String.format("Exception occurred while creating XML document parser for index: %s",
@@ -137,33 +149,10 @@ public class GeoNetworkIndexer extends AbstractGeoNetworkIndexer<GeoNetworkRecor
                 }
 
                 Document document = xmlParser.parse(input);
-                GeoNetworkRecord geoNetworkRecord = new GeoNetworkRecord(this, metadataRecordUUID, metadataSchema, this.getGeoNetworkVersion());
-                geoNetworkRecord.parseRecord(document, logger);
-
-                if (geoNetworkRecord.getId() != null) {
-                    URL thumbnailUrl = geoNetworkRecord.getThumbnailUrl();
-                    geoNetworkRecord.setThumbnailUrl(thumbnailUrl);
-
-                    // Create the thumbnail if it's missing or outdated
-                    GeoNetworkRecord oldRecord = this.safeGet(searchClient, GeoNetworkRecord.class, geoNetworkRecord.getId(), logger);
-                    if (geoNetworkRecord.isThumbnailOutdated(oldRecord, this.getSafeThumbnailTTL(), this.getSafeBrokenThumbnailTTL(), logger)) {
-                        try {
-                            File cachedThumbnailFile = ImageCache.cache(httpClient, thumbnailUrl, this.getIndex(), geoNetworkRecord.getId(), logger);
-                            if (cachedThumbnailFile != null) {
-                                geoNetworkRecord.setCachedThumbnailFilename(cachedThumbnailFile.getName());
-                            }
-                        } catch(Exception ex) {
-                            logger.addMessage(Level.WARNING, String.format("Exception occurred while creating a thumbnail for metadata record UUID: %s",
-                                    metadataRecordUUID), ex);
-                        }
-                        geoNetworkRecord.setThumbnailLastIndexed(System.currentTimeMillis());
-                    } else {
-                        geoNetworkRecord.useCachedThumbnail(oldRecord, logger);
-                    }
-
+                GeoNetworkRecord geoNetworkRecord = this.parseRecord(metadataRecordUUID, metadataSchema, document, logger);
+                if (geoNetworkRecord != null) {
+                    this.updateThumbnail(searchClient, geoNetworkRecord, logger);
                     return geoNetworkRecord;
-                } else {
-                    logger.addMessage(Level.ERROR, String.format("Invalid metadata record UUID: %s", metadataRecordUUID));
                 }
             } catch(Exception ex) {
                 logger.addMessage(Level.ERROR, String.format("Exception occurred while harvesting metadata record UUID: %s - %s", metadataRecordUUID, url), ex);
@@ -173,6 +162,113 @@ public class GeoNetworkIndexer extends AbstractGeoNetworkIndexer<GeoNetworkRecor
         return null;
     }
 
+    /**
+     * Download a batch of metadata records, using a single CSW GetRecordById request.
+     * The records are returned in their own schema (outputSchema="own"),
+     *     and parsed using the metadata schema found in the xml.search response.
+     * Records missing from the response are omitted from the returned map.
+     * The caller is expected to harvest them individually.
+     * @return Map of metadata record UUID -> parsed record (without thumbnail).
+     */
+    private Map<String, GeoNetworkRecord> harvestEntities(List<String> metadataRecordUUIDs, String metadataSchema, AbstractLogger logger) {
+        Map<String, GeoNetworkRecord> geoNetworkRecords = new HashMap<>();
+        HttpClient httpClient = this.getHttpClient();
+
+        String url = HttpClient.combineUrls(
+                this.getGeoNetworkUrl(),
+                "srv/eng/csw");
+
+        StringBuilder idsBuilder = new StringBuilder();
+        for (String metadataRecordUUID : metadataRecordUUIDs) {
+            idsBuilder.append(String.format("<Id>%s</Id>", StringEscapeUtils.escapeXml10(metadataRecordUUID)));
+        }
+        String xmlQuery = String.format("<?xml version=\"1.0\"?>\n" +
+            "<GetRecordById xmlns=\"http://www.opengis.net/cat/csw/2.0.2\" " +
+                    "service=\"CSW\" " +
+                    "version=\"2.0.2\" " +
+                    "outputSchema=\"own\">" +
+                "%s" +
+                "<ElementSetName>full</ElementSetName>" +
+            "</GetRecordById>",
+            idsBuilder);
+
+        HttpClient.Response postResponse;
+        try {
+            postResponse = httpClient.postXmlRequest(url, xmlQuery, logger);
+        } catch(Exception ex) {
+            logger.addMessage(Level.WARNING, String.format("Exception occurred while harvesting a batch of %d metadata records: %s",
+                    metadataRecordUUIDs.size(), url), ex);
+            return geoNetworkRecords;
+        }
+
+        try (HttpClient.Response response = postResponse) {
+            int statusCode = response == null ? -1 : response.statusCode();
+            if (statusCode < 200 || statusCode >= 400 || response.bodySize() <= 0) {
+                logger.addMessage(Level.INFO, String.format("GeoNetwork CSW GetRecordById request failed with status code: %d. " +
+                        "Harvesting the %d metadata records one at the time.",
+                        statusCode, metadataRecordUUIDs.size()));
+                return geoNetworkRecords;
+            }
+
+            Set<String> requestedUUIDs = new HashSet<>(metadataRecordUUIDs);
+            try (InputStream input = response.bodyStream()) {
+                DocumentBuilder xmlParser = IndexUtils.getXMLParser();
+                Document document = xmlParser.parse(input);
+                Element root = document.getDocumentElement();
+
+                NodeList recordNodes = root.getChildNodes();
+                for (int i = 0; i < recordNodes.getLength(); i++) {
+                    Node recordNode = recordNodes.item(i);
+                    if (recordNode instanceof Element) {
+                        // Move the record into its own document, as if it was downloaded with xml.metadata.get
+                        Document recordDocument = xmlParser.newDocument();
+                        recordDocument.appendChild(recordDocument.importNode(recordNode, true));
+
+                        // The UUID is unknown, the parser gets it from the record.
+                        GeoNetworkRecord geoNetworkRecord = this.parseRecord(null, metadataSchema, recordDocument, logger);
+                        if (geoNetworkRecord != null && requestedUUIDs.contains(geoNetworkRecord.getId())) {
+                            geoNetworkRecords.put(geoNetworkRecord.getId(), geoNetworkRecord);
+                        }
+                    }
+                }
+            } catch(Exception ex) {
+                logger.addMessage(Level.WARNING, String.format("Exception occurred while parsing a batch of %d metadata records: %s",
+                        metadataRecordUUIDs.size(), url), ex);
+            }
+        }
+
+        return geoNetworkRecords;
+    }
+
+    private GeoNetworkRecord parseRecord(String metadataRecordUUID, String metadataSchema, Document document, AbstractLogger logger) {
+        GeoNetworkRecord geoNetworkRecord = new GeoNetworkRecord(this, metadataRecordUUID, metadataSchema, this.getGeoNetworkVersion());
+        geoNetworkRecord.parseRecord(document, logger);
+
+        if (geoNetworkRecord.getId() == null) {
+            logger.addMessage(Level.ERROR, String.format("Invalid metadata record UUID: %s", metadataRecordUUID));
+            return null;
+        }
+
+        URL thumbnailUrl = geoNetworkRecord.getThumbnailUrl();
+        geoNetworkRecord.setThumbnailUrl(thumbnailUrl);
+        return geoNetworkRecord;
+    }
+
+    // Create the thumbnail if it's missing or outdated
+    private void updateThumbnail(SearchClient searchClient, GeoNetworkRecord geoNetworkRecord, AbstractLogger logger) {
+        URL thumbnailUrl = geoNetworkRecord.getThumbnailUrl();
+
+        GeoNetworkRecord oldRecord = this.safeGet(searchClient, GeoNetworkRecord.class, geoNetworkRecord.getId(), logger);
+        if (geoNetworkRecord.isThumbnailOutdated(oldRecord, this.getSafeThumbnailTTL(), this.getSafeBrokenThumbnailTTL(), logger)) {
+            // Index the record with its previous thumbnail, the new one is created by the ThumbnailQueue.
+            geoNetworkRecord.usePreviousThumbnail(oldRecord, logger);
+            geoNetworkRecord.setThumbnailTask(new ThumbnailTask(this.getIndex(), geoNetworkRecord.getId(),
+                    thumbnailUrl == null ? null : thumbnailUrl.toString(), null));
+        } else {
+            geoNetworkRecord.useCachedThumbnail(oldRecord, logger);
+        }
+    }
+
     @Override
     public boolean supportsIndexLatest() {
         return true;
@@ -194,11 +290,6 @@ public class GeoNetworkIndexer extends AbstractGeoNetworkIndexer<GeoNetworkRecor
         }
         boolean fullHarvest = lastHarvestedISODateStr == null;
 
-        Set<String> usedThumbnails = null;
-        if (fullHarvest) {
-            usedThumbnails = Collections.synchronizedSet(new HashSet<String>());
-        }
-
         // GeoNetwork export API URL
         // If we have a "lastHarvested" parameter, request metadata records modified since that date (with a small buffer)
         // Otherwise, request everything.
@@ -220,10 +311,13 @@ public class GeoNetworkIndexer extends AbstractGeoNetworkIndexer<GeoNetworkRecor
             uriBuilder.setParameter("dateFrom", lastHarvestedISODateStr);
         }
 
-        // List of metadata records which needs its parent title to be set
-        List<String> orphanMetadataRecordList = Collections.synchronizedList(new ArrayList<>());
+        // Keep track of the records title, to set the records parent title
+        ParentTitleResolver parentTitleResolver = new ParentTitleResolver();
         ThreadPoolExecutor threadPool = (ThreadPoolExecutor) Executors.newFixedThreadPool(THREAD_POOL_SIZE);
 
+        // Metadata schema -> records waiting to be downloaded (UUID -> position in the list)
+        Map<String, Map<String, Long>> batches = new HashMap<>();
+
         long from = 1;
 
         boolean hasMore = false;
@@ -248,9 +342,14 @@ public class GeoNetworkIndexer extends AbstractGeoNetworkIndexer<GeoNetworkRecor
                 return;
             }
 
-            HttpClient.Response response = null;
-            try {
-                response = httpClient.getRequest(url, logger);
+            if (!this.waitForHost(url, logger)) {
+                crashed = true;
+                break;
+            }
+
+            String responseStr = null;
+            try (HttpClient.Response response = httpClient.getRequest(url, logger)) {
+                responseStr = response == null ? null : response.body();
             } catch(Exception ex) {
                 if (!crashed) {
                     logger.addMessage(Level.ERROR, String.format("Exception occurred while harvesting GeoNetwork record list: %s",
@@ -259,7 +358,6 @@ public class GeoNetworkIndexer extends AbstractGeoNetworkIndexer<GeoNetworkRecor
                 crashed = true;
             }
 
-            String responseStr = response == null ? null : response.body();
             if (responseStr != null && !responseStr.isEmpty()) {
 
                 try (ByteArrayInputStream input = new ByteArrayInputStream(
@@ -267,7 +365,7 @@ public class GeoNetworkIndexer extends AbstractGeoNetworkIndexer<GeoNetworkRecor
 
                     DocumentBuilder xmlParser;
                     try {
-                        xmlParser = IndexUtils.getNewXMLParser();
+                        xmlParser = IndexUtils.getXMLParser();
                     } catch(Exception ex) {
                         // Should not happen
                         logger.addMessage(Level.ERROR, String.format("Exception occurred while creating XML document parser for index: %s",
@@ -309,11 +407,15 @@ public class GeoNetworkIndexer extends AbstractGeoNetworkIndexer<GeoNetworkRecor
                                 String metadataRecordUUID = IndexUtils.parseText(metadataRecordUUIDElement);
                                 String metadataSchema = IndexUtils.parseText(metadataSchemaElement);
 
-                                GeoNetworkIndexerThread thread = new GeoNetworkIndexerThread(
-                                        searchClient, logger, metadataRecordUUID, metadataSchema,
-                                        orphanMetadataRecordList, usedThumbnails, from);
-
-                                threadPool.execute(thread);
+                                // Records are downloaded in batches of records sharing the same schema
+                                Map<String, Long> batch = batches.computeIfAbsent(metadataSchema, schema -> new LinkedHashMap<>());
+                                batch.put(metadataRecordUUID, from);
+                                if (batch.size() >= BATCH_SIZE) {
+                                    batches.remove(metadataSchema);
+                                    threadPool.execute(new GeoNetworkIndexerThread(
+                                            searchClient, logger, batch, metadataSchema,
+                                            parentTitleResolver));
+                                }
                             }
 
                             from++;
@@ -329,6 +431,13 @@ public class GeoNetworkIndexer extends AbstractGeoNetworkIndexer<GeoNetworkRecor
             }
         } while(hasMore && !empty && !crashed);
 
+        // Download the last incomplete batches
+        for (Map.Entry<String, Map<String, Long>> batchEntry : batches.entrySet()) {
+            threadPool.execute(new GeoNetworkIndexerThread(
+                    searchClient, logger, batchEntry.getValue(), batchEntry.getKey(),
+                    parentTitleResolver));
+        }
+
         threadPool.shutdown();
         try {
             threadPool.awaitTermination(1, TimeUnit.HOURS);
@@ -336,41 +445,17 @@ public class GeoNetworkIndexer extends AbstractGeoNetworkIndexer<GeoNetworkRecor
             logger.addMessage(Level.ERROR, "The GeoNetwork indexation was interrupted", ex);
         }
 
-        // Refresh the index to be sure to find parent records, if they are new
-        try {
-            searchClient.refresh(this.getIndex());
-        } catch(Exception ex) {
-            logger.addMessage(Level.ERROR, String.format("Exception occurred while refreshing the search index: %s", this.getIndex()), ex);
-        }
-
         // We have added all the records.
-        // Let's fix the records parent title.
-        for (String recordUUID : orphanMetadataRecordList) {
-            GeoNetworkRecord geoNetworkRecord = this.safeGet(searchClient, GeoNetworkRecord.class, recordUUID, logger);
-            if (geoNetworkRecord != null) {
-                String parentRecordUUID = geoNetworkRecord.getParentUUID();
-                GeoNetworkRecord parentRecord = this.safeGet(searchClient, GeoNetworkRecord.class, parentRecordUUID, logger);
-
-                if (parentRecord != null) {
-                    geoNetworkRecord.setParentTitle(parentRecord.getTitle());
-
-                    try {
-                        IndexResponse indexResponse = this.indexEntity(searchClient, geoNetworkRecord, false, logger);
-
-                        logger.addMessage(Level.INFO, String.format("Reindexing GeoNetwork metadata record: %s with parent title: %s, status: %s",
-                                geoNetworkRecord.getId(),
-                                geoNetworkRecord.getParentTitle(),
-                                indexResponse.result()));
-                    } catch(Exception ex) {
-                        logger.addMessage(Level.WARNING, String.format("Exception occurred while reindexing a GeoNetwork record: %s", recordUUID), ex);
-                    }
-                }
-            }
-        }
+        // Let's set the parent title of the records which were indexed before their parent.
+        // NOTE: Parents which were not part of this harvest are loaded from the index.
+        parentTitleResolver.updateOrphans(searchClient, this.getIndex(), parentUUID -> {
+            GeoNetworkRecord parentRecord = this.safeGet(searchClient, GeoNetworkRecord.class, parentUUID, logger);
+            return parentRecord == null ? null : parentRecord.getTitle();
+        }, logger);
 
         // Only cleanup when we are doing a full harvest
-        if (!crashed && fullHarvest) {
-            this.cleanUp(searchClient, harvestStart, usedThumbnails, "GeoNetwork metadata record", logger);
+        if (!crashed && fullHarvest && this.isHostStable(urlBase, harvestStart, logger)) {
+            this.cleanUp(searchClient, harvestStart, "GeoNetwork metadata record", logger);
         }
     }
 
@@ -378,63 +463,69 @@ public class GeoNetworkIndexer extends AbstractGeoNetworkIndexer<GeoNetworkRecor
     public class GeoNetworkIndexerThread extends Thread {
         private final SearchClient searchClient;
         private final AbstractLogger logger;
-        private final String metadataRecordUUID;
+        private final Map<String, Long> metadataRecordBatch;
         private final String metadataSchema;
-        private final List<String> orphanMetadataRecordList;
-        private final Set<String> usedThumbnails;
-        private final long current;
+        private final ParentTitleResolver parentTitleResolver;
 
+        /**
+         * @param metadataRecordBatch Map of metadata record UUID -> position in the record list.
+         *     All the records must have the same metadata schema.
+         */
         public GeoNetworkIndexerThread(
                 SearchClient searchClient,
                 AbstractLogger logger,
-                String metadataRecordUUID,
+                Map<String, Long> metadataRecordBatch,
                 String metadataSchema,
-                List<String> orphanMetadataRecordList,
-                Set<String> usedThumbnails,
-                long current
+                ParentTitleResolver parentTitleResolver
         ) {
             this.searchClient = searchClient;
             this.logger = logger;
-            this.metadataRecordUUID = metadataRecordUUID;
+            this.metadataRecordBatch = metadataRecordBatch;
             this.metadataSchema = metadataSchema;
-            this.orphanMetadataRecordList = orphanMetadataRecordList;
-            this.usedThumbnails = usedThumbnails;
-            this.current = current;
+            this.parentTitleResolver = parentTitleResolver;
         }
 
         @Override
         public void run() {
-            GeoNetworkRecord geoNetworkRecord = GeoNetworkIndexer.this.harvestEntity(
-                    this.searchClient, this.metadataRecordUUID, this.metadataSchema, this.logger);
-
-            if (geoNetworkRecord != null) {
-                // If the record have a parent UUID,
-                // keep it's UUID in a list, so we can come back to it later to set its parent title.
-                String parentUUID = geoNetworkRecord.getParentUUID();
-                if (parentUUID != null && !parentUUID.isEmpty()) {
-                    this.orphanMetadataRecordList.add(this.metadataRecordUUID);
-                }
+            Map<String, GeoNetworkRecord> harvestedRecords = GeoNetworkIndexer.this.harvestEntities(
+                    new ArrayList<>(this.metadataRecordBatch.keySet()), this.metadataSchema, this.logger);
 
-                try {
-                    IndexResponse indexResponse = GeoNetworkIndexer.this.indexEntity(this.searchClient, geoNetworkRecord, this.logger);
+            for (Map.Entry<String, Long> metadataRecordEntry : this.metadataRecordBatch.entrySet()) {
+                String metadataRecordUUID = metadataRecordEntry.getKey();
+                long current = metadataRecordEntry.getValue();
 
-                    this.logger.addMessage(Level.INFO, String.format("[%d/%d] Indexing GeoNetwork metadata record: %s, index response status: %s",
-                            this.current, GeoNetworkIndexer.this.getTotal(),
-                            this.metadataRecordUUID,
-                            indexResponse.result()));
-                } catch(Exception ex) {
-                    this.logger.addMessage(Level.WARNING, String.format("Exception occurred while indexing a GeoNetwork record: %s", this.metadataRecordUUID), ex);
+                GeoNetworkRecord geoNetworkRecord = harvestedRecords.get(metadataRecordUUID);
+                if (geoNetworkRecord != null) {
+                    GeoNetworkIndexer.this.updateThumbnail(this.searchClient, geoNetworkRecord, this.logger);
+                } else {
+                    // The record was not returned by the batch request. Download it on its own.
+                    geoNetworkRecord = GeoNetworkIndexer.this.harvestEntity(
+                            this.searchClient, metadataRecordUUID, this.metadataSchema, this.logger);
                 }
 
-                if (this.usedThumbnails != null) {
-                    String thumbnailFilename = geoNetworkRecord.getCachedThumbnailFilename();
-                    if (thumbnailFilename != null) {
-                        this.usedThumbnails.add(thumbnailFilename);
-                    }
+                if (geoNetworkRecord != null) {
+                    this.indexRecord(geoNetworkRecord, current);
                 }
+
+                GeoNetworkIndexer.this.incrementCompleted();
             }
+        }
+
+        private void indexRecord(GeoNetworkRecord geoNetworkRecord, long current) {
+            // Set the record parent title, if its parent was already harvested.
+            // Otherwise, its parent title will be set at the end of the harvest.
+            this.parentTitleResolver.resolve(geoNetworkRecord);
 
-            GeoNetworkIndexer.this.incrementCompleted();
+            try {
+                IndexResponse indexResponse = GeoNetworkIndexer.this.indexEntity(this.searchClient, geoNetworkRecord, this.logger);
+
+                this.logger.addMessage(Level.INFO, String.format("[%d/%d] Indexing GeoNetwork metadata record: %s, index response status: %s",
+                        current, GeoNetworkIndexer.this.getTotal(),
+                        geoNetworkRecord.getId(),
+                        indexResponse.result()));
+            } catch(Exception ex) {
+                this.logger.addMessage(Level.WARNING, String.format("Exception occurred while indexing a GeoNetwork record: %s", geoNetworkRecord.getId()), ex);
+            }
         }
     }
 }
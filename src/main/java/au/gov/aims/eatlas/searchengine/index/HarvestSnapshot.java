@@ -0,0 +1,191 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine.index;
+
+import au.gov.aims.eatlas.searchengine.logger.AbstractLogger;
+import au.gov.aims.eatlas.searchengine.logger.Level;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hash of every harvested entity (ID -> hash), saved at the end of a successful harvest.
+ * Used to harvest incrementally, when the source does not provide modification dates:
+ *     only the entities which were added or changed since the last snapshot are re-indexed,
+ *     and the entities which are not in the source anymore are deleted.
+ */
+public class HarvestSnapshot {
+    private final Map<String, String> hashes;
+
+    public HarvestSnapshot() {
+        this.hashes = new ConcurrentHashMap<>();
+    }
+
+    public void put(String id, String hash) {
+        this.hashes.put(id, hash);
+    }
+
+    public String getHash(String id) {
+        return this.hashes.get(id);
+    }
+
+    public void remove(String id) {
+        this.hashes.remove(id);
+    }
+
+    public Set<String> getIds() {
+        return Collections.unmodifiableSet(this.hashes.keySet());
+    }
+
+    public int size() {
+        return this.hashes.size();
+    }
+
+    /**
+     * Returns the IDs which are new, or which have a different hash than in the previous snapshot.
+     */
+    public List<String> getChangedIds(HarvestSnapshot previousSnapshot) {
+        List<String> changedIds = new ArrayList<>();
+        for (Map.Entry<String, String> hash : this.hashes.entrySet()) {
+            if (previousSnapshot == null || !hash.getValue().equals(previousSnapshot.getHash(hash.getKey()))) {
+                changedIds.add(hash.getKey());
+            }
+        }
+        return changedIds;
+    }
+
+    /**
+     * Returns the IDs found in the previous snapshot, which are not in this snapshot anymore.
+     */
+    public Set<String> getRemovedIds(HarvestSnapshot previousSnapshot) {
+        Set<String> removedIds = new HashSet<>();
+        if (previousSnapshot != null) {
+            for (String id : previousSnapshot.getIds()) {
+                if (!this.hashes.containsKey(id)) {
+                    removedIds.add(id);
+                }
+            }
+        }
+        return removedIds;
+    }
+
+    /**
+     * Hash the values (JSON objects, JSON arrays, strings, numbers, etc).
+     * JSON object keys are sorted, so the hash does not depend on the order of the keys.
+     * NOTE: The hash is only used to detect changes, it doesn't need to be cryptographically secure.
+     */
+    public static String hash(Object ... values) {
+        StringBuilder sb = new StringBuilder();
+        for (Object value : values) {
+            HarvestSnapshot.appendCanonical(sb, value);
+            sb.append('\n');
+        }
+        return DigestUtils.md5Hex(sb.toString());
+    }
+
+    private static void appendCanonical(StringBuilder sb, Object value) {
+        if (value == null || JSONObject.NULL.equals(value)) {
+            sb.append("null");
+        } else if (value instanceof JSONObject) {
+            JSONObject jsonObject = (JSONObject) value;
+            sb.append('{');
+            boolean first = true;
+            for (String key : new TreeSet<>(jsonObject.keySet())) {
+                if (!first) {
+                    sb.append(',');
+                }
+                first = false;
+                sb.append(JSONObject.quote(key)).append(':');
+                HarvestSnapshot.appendCanonical(sb, jsonObject.opt(key));
+            }
+            sb.append('}');
+        } else if (value instanceof JSONArray) {
+            JSONArray jsonArray = (JSONArray) value;
+            sb.append('[');
+            for (int i=0; i<jsonArray.length(); i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                HarvestSnapshot.appendCanonical(sb, jsonArray.opt(i));
+            }
+            sb.append(']');
+        } else if (value instanceof String) {
+            sb.append(JSONObject.quote((String) value));
+        } else {
+            sb.append(JSONObject.valueToString(value));
+        }
+    }
+
+    /**
+     * Load the snapshot file.
+     * Returns null if the file does not exist or can not be read.
+     */
+    public static HarvestSnapshot load(File snapshotFile, AbstractLogger logger) {
+        if (snapshotFile == null || !snapshotFile.isFile()) {
+            return null;
+        }
+
+        try {
+            JSONObject json = new JSONObject(FileUtils.readFileToString(snapshotFile, StandardCharsets.UTF_8));
+            JSONObject jsonHashes = json.optJSONObject("hashes");
+            if (jsonHashes == null) {
+                return null;
+            }
+
+            HarvestSnapshot snapshot = new HarvestSnapshot();
+            for (String id : jsonHashes.keySet()) {
+                snapshot.put(id, jsonHashes.getString(id));
+            }
+            return snapshot;
+        } catch(Exception ex) {
+            logger.addMessage(Level.WARNING, String.format("Invalid harvest snapshot file: %s", snapshotFile), ex);
+            return null;
+        }
+    }
+
+    public void save(File snapshotFile) throws IOException {
+        JSONObject json = new JSONObject()
+                .put("hashes", new JSONObject(this.hashes));
+
+        // Write in a temporary file first, to never leave a partially written snapshot.
+        FileUtils.forceMkdirParent(snapshotFile);
+        File tmpFile = new File(snapshotFile.getParentFile(), snapshotFile.getName() + ".tmp");
+        FileUtils.writeStringToFile(tmpFile, json.toString(), StandardCharsets.UTF_8);
+        Files.move(tmpFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public static void delete(File snapshotFile) {
+        FileUtils.deleteQuietly(snapshotFile);
+    }
+}
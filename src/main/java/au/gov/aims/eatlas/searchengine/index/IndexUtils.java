@@ -35,6 +35,7 @@ import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -45,6 +46,8 @@ public class IndexUtils {
     // JDOM tutorial:
     //     https://www.tutorialspoint.com/java_xml/java_dom_parse_document.htm
     private static final DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+    // DocumentBuilder are not thread safe, but they can be reused. Keep one per thread.
+    private static final ThreadLocal<DocumentBuilder> threadXMLParser = new ThreadLocal<>();
     static {
         // Disable the loading of external entities, for security reasons
         IndexUtils.setDocumentBuilderFactoryFeature(
@@ -117,6 +120,22 @@ public class IndexUtils {
         }
     }
 
+    /**
+     * Returns the XML parser of the current thread, reset and ready to parse a new document.
+     * The parser is created with the same factory (and security settings) as getNewXMLParser,
+     *     but only once per thread. It must not be passed to other threads.
+     */
+    public static DocumentBuilder getXMLParser() throws ParserConfigurationException {
+        DocumentBuilder xmlParser = IndexUtils.threadXMLParser.get();
+        if (xmlParser == null) {
+            xmlParser = IndexUtils.getNewXMLParser();
+            IndexUtils.threadXMLParser.set(xmlParser);
+        } else {
+            xmlParser.reset();
+        }
+        return xmlParser;
+    }
+
     // Get the first children that match one of the tag name provided
     public static Element getXMLChild(Node parent, String ... tagNames) {
         List<Element> children = getXMLChildren(parent, tagNames);
@@ -127,7 +146,7 @@ public class IndexUtils {
         return null;
     }
 
-    // Get all the children of the first matching tag name provided
+    // Get all the children (descendants) of the first matching tag name provided
     // NOTE: The multiple tagNames is used to support "gmd" and "mcd" records at the same time.
     //     Example: getXMLChildren(parent, "gmd:MD_DataIdentification", "mcp:MD_DataIdentification")
     public static List<Element> getXMLChildren(Node parent, String ... tagNames) {
@@ -139,6 +158,19 @@ public class IndexUtils {
         }
 
         Element parentElement = (Element) parent;
+
+        // Use the document element index, if the document was indexed (see XmlElementIndex).
+        XmlElementIndex elementIndex = XmlElementIndex.get(parentElement);
+        if (elementIndex != null && elementIndex.contains(parentElement)) {
+            for (String tagName : tagNames) {
+                List<Element> descendants = elementIndex.getDescendants(parentElement, tagName);
+                if (!descendants.isEmpty()) {
+                    return Collections.unmodifiableList(descendants);
+                }
+            }
+            return children;
+        }
+
         for (String tagName : tagNames) {
             NodeList nameList = parentElement.getElementsByTagName(tagName);
             if (nameList != null) {
@@ -0,0 +1,185 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine.index;
+
+import au.gov.aims.eatlas.searchengine.client.SearchClient;
+import au.gov.aims.eatlas.searchengine.entity.Entity;
+import au.gov.aims.eatlas.searchengine.entity.GeoNetworkRecord;
+import au.gov.aims.eatlas.searchengine.logger.AbstractLogger;
+import au.gov.aims.eatlas.searchengine.logger.Level;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.json.JsonData;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Resolve the parent title of GeoNetwork metadata records during a harvest.
+ * The title of every harvested record is kept in memory (UUID -> title).
+ * When a record is harvested after its parent, its parent title is set before it gets indexed.
+ * The other records are updated at the end of the harvest, using bulk partial updates.
+ */
+public class ParentTitleResolver {
+    private static final int BULK_SIZE = 500;
+
+    // Set the parent title and append it to the indexed document, like GeoNetworkRecord.getDocument() does.
+    private static final String UPDATE_SCRIPT =
+            "ctx._source.parent = params.parent; " +
+            "if (ctx._source.document != null) { ctx._source.document += params.documentSuffix; }";
+
+    // Record UUID -> record title
+    private final Map<String, String> titles;
+    // Record UUID -> parent UUID, for records indexed before their parent
+    private final Map<String, String> orphans;
+
+    public ParentTitleResolver() {
+        this.titles = new ConcurrentHashMap<>();
+        this.orphans = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Called by the indexer threads, before the record is indexed.
+     * Keep track of the record title, and set its parent title if the parent was already harvested.
+     */
+    public void resolve(GeoNetworkRecord geoNetworkRecord) {
+        String recordUUID = geoNetworkRecord.getId();
+        if (recordUUID == null) {
+            return;
+        }
+
+        String title = geoNetworkRecord.getTitle();
+        if (title != null && !title.isEmpty()) {
+            this.titles.put(recordUUID, title);
+        }
+
+        String parentUUID = geoNetworkRecord.getParentUUID();
+        if (parentUUID != null && !parentUUID.isEmpty()) {
+            String parentTitle = this.titles.get(parentUUID);
+            if (parentTitle != null) {
+                geoNetworkRecord.setParentTitle(parentTitle);
+            } else {
+                this.orphans.put(recordUUID, parentUUID);
+            }
+        }
+    }
+
+    /**
+     * Returns the parent title of the records which were indexed before their parent.
+     * Parents which were not part of the harvest (incremental harvest) are looked up
+     *     using the parentTitleLookup function. Each parent is looked up only once.
+     * @return Map of record UUID -> parent title. Records with unknown parent are omitted.
+     */
+    public Map<String, String> getParentTitles(Function<String, String> parentTitleLookup) {
+        Map<String, String> parentTitles = new LinkedHashMap<>();
+        Map<String, String> lookedUpTitles = new HashMap<>();
+
+        for (Map.Entry<String, String> orphan : this.orphans.entrySet()) {
+            String parentUUID = orphan.getValue();
+            String parentTitle = this.titles.get(parentUUID);
+            if (parentTitle == null && parentTitleLookup != null) {
+                parentTitle = lookedUpTitles.computeIfAbsent(parentUUID, uuid -> {
+                    String lookedUpTitle = parentTitleLookup.apply(uuid);
+                    return lookedUpTitle == null ? "" : lookedUpTitle;
+                });
+            }
+
+            if (parentTitle != null && !parentTitle.isEmpty()) {
+                parentTitles.put(orphan.getKey(), parentTitle);
+            }
+        }
+
+        return parentTitles;
+    }
+
+    /**
+     * Set the parent title of the records which were indexed before their parent,
+     *     using batches of partial updates. The records do not need to be
+     *     searchable (no index refresh needed), the updates are applied
+     *     to the latest version of the documents.
+     * @return The number of records updated.
+     */
+    public int updateOrphans(SearchClient searchClient, String index, Function<String, String> parentTitleLookup, AbstractLogger logger) {
+        Map<String, String> parentTitles = this.getParentTitles(parentTitleLookup);
+
+        int updated = 0;
+        List<BulkOperation> operations = new ArrayList<>();
+        for (Map.Entry<String, String> parentTitleEntry : parentTitles.entrySet()) {
+            String recordUUID = parentTitleEntry.getKey();
+            String parentTitle = parentTitleEntry.getValue();
+            // The indexed document is HTML encoded, see Entity.toJSON
+            String documentSuffix = Entity.encodeDocument(
+                    GeoNetworkRecord.getParentDocumentSuffix(parentTitle));
+
+            operations.add(BulkOperation.of(operation -> operation
+                .update(update -> update
+                    .index(index)
+                    .id(recordUUID)
+                    .retryOnConflict(3)
+                    .action(action -> action
+                        .script(script -> script
+                            .source(UPDATE_SCRIPT)
+                            .params("parent", JsonData.of(parentTitle))
+                            .params("documentSuffix", JsonData.of(documentSuffix)))))));
+
+            if (operations.size() >= BULK_SIZE) {
+                updated += this.sendBulkRequest(searchClient, operations, logger);
+                operations.clear();
+            }
+        }
+        if (!operations.isEmpty()) {
+            updated += this.sendBulkRequest(searchClient, operations, logger);
+        }
+
+        if (updated > 0) {
+            logger.addMessage(Level.INFO, String.format("Set the parent title of %d GeoNetwork metadata records", updated));
+        }
+
+        return updated;
+    }
+
+    private int sendBulkRequest(SearchClient searchClient, List<BulkOperation> operations, AbstractLogger logger) {
+        BulkResponse bulkResponse;
+        try {
+            bulkResponse = searchClient.bulk(new BulkRequest.Builder().operations(operations).build());
+        } catch(Exception ex) {
+            logger.addMessage(Level.WARNING, String.format("Exception occurred while setting the parent title of %d GeoNetwork records",
+                    operations.size()), ex);
+            return 0;
+        }
+
+        int updated = 0;
+        for (BulkResponseItem item : bulkResponse.items()) {
+            if (item.error() == null) {
+                updated++;
+            } else {
+                logger.addMessage(Level.WARNING, String.format("Exception occurred while setting the parent title of GeoNetwork record: %s. %s",
+                        item.id(), item.error().reason()));
+            }
+        }
+        return updated;
+    }
+}
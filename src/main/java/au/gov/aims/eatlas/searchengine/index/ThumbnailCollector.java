@@ -0,0 +1,357 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine.index;
+
+import au.gov.aims.eatlas.searchengine.HotImageCache;
+import au.gov.aims.eatlas.searchengine.ThumbnailManifest;
+import au.gov.aims.eatlas.searchengine.admin.SearchEngineConfig;
+import au.gov.aims.eatlas.searchengine.client.SearchClient;
+import au.gov.aims.eatlas.searchengine.entity.Entity;
+import au.gov.aims.eatlas.searchengine.logger.AbstractLogger;
+import au.gov.aims.eatlas.searchengine.logger.ConsoleLogger;
+import au.gov.aims.eatlas.searchengine.logger.Level;
+import au.gov.aims.eatlas.searchengine.rest.ImageCache;
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch.core.ClosePointInTimeRequest;
+import co.elastic.clients.elasticsearch.core.OpenPointInTimeRequest;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.json.JsonData;
+import jakarta.json.JsonArray;
+import jakarta.json.JsonString;
+import jakarta.json.JsonValue;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delete the cached thumbnails which are not referenced by any indexed document.
+ * Thumbnails are shared between documents (they are stored by content hash),
+ *     so they can only be deleted once no document refers to them.
+ * The live set is built from the index itself (cachedThumbnailFilename),
+ *     using a point in time scan. If the scan fails, nothing is deleted.
+ * Files newer than the grace period are never deleted. It covers the
+ *     thumbnails created by the ThumbnailQueue which are not yet set in the index.
+ * Files are deleted in small time-boxed batches, to avoid hogging the disk.
+ *     The files left over when the run time limit is reached are deleted on the next run.
+ */
+public class ThumbnailCollector {
+    private static final String THUMBNAIL_FIELD = "cachedThumbnailFilename";
+
+    public static final long DEFAULT_GRACE_PERIOD = TimeUnit.DAYS.toMillis(2);
+    public static final long COLLECT_INTERVAL = TimeUnit.DAYS.toMillis(1);
+    // Wait for the indexer to finish, when it's running
+    private static final long RETRY_DELAY = TimeUnit.MINUTES.toMillis(5);
+
+    private static final int PAGE_SIZE = 1000;
+    private static final String POINT_IN_TIME_KEEP_ALIVE = "1m";
+
+    private static final int BATCH_SIZE = 100;
+    private static final long BATCH_TIME_LIMIT = 1000; // ms
+    private static final long BATCH_PAUSE = 200; // ms
+    private static final long RUN_TIME_LIMIT = TimeUnit.MINUTES.toMillis(2);
+
+    private static ThumbnailCollector instance;
+
+    private final long gracePeriod;
+    private final ScheduledThreadPoolExecutor executor;
+    // Indexes with a collection scheduled, to avoid running it several times in a row.
+    private final Set<String> scheduledIndexes;
+
+    private final AtomicLong deletedCount = new AtomicLong();
+    private final AtomicLong reclaimedBytes = new AtomicLong();
+    private volatile Long lastCollected;
+
+    public ThumbnailCollector(long gracePeriod) {
+        this.gracePeriod = gracePeriod;
+        this.scheduledIndexes = ConcurrentHashMap.newKeySet();
+
+        // Single thread, the collection is not a race.
+        this.executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+            thread.setName("ThumbnailCollector");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static synchronized ThumbnailCollector getInstance() {
+        if (instance == null) {
+            instance = new ThumbnailCollector(DEFAULT_GRACE_PERIOD);
+        }
+        return instance;
+    }
+
+    public long getGracePeriod() {
+        return this.gracePeriod;
+    }
+
+    public long getDeletedCount() {
+        return this.deletedCount.get();
+    }
+
+    public long getReclaimedBytes() {
+        return this.reclaimedBytes.get();
+    }
+
+    public String getReclaimedSize() {
+        return FileUtils.byteCountToDisplaySize(this.reclaimedBytes.get());
+    }
+
+    public Date getLastCollectedDate() {
+        Long lastCollected = this.lastCollected;
+        return lastCollected == null ? null : new Date(lastCollected);
+    }
+
+    /**
+     * Collect the unused thumbnails of every index, periodically.
+     * Called when the application starts.
+     */
+    public void start(SearchClient searchClient) {
+        this.executor.scheduleWithFixedDelay(() -> {
+            SearchEngineConfig config = SearchEngineConfig.getInstance();
+            if (config != null) {
+                for (AbstractIndexer<?> indexer : config.getIndexers()) {
+                    this.schedule(searchClient, indexer, ConsoleLogger.getInstance());
+                }
+            }
+        }, COLLECT_INTERVAL, COLLECT_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Collect the unused thumbnails of the index, in the background.
+     * Called at the end of a complete harvest.
+     */
+    public void schedule(SearchClient searchClient, AbstractIndexer<?> indexer, AbstractLogger logger) {
+        this.schedule(searchClient, indexer, logger, 0);
+    }
+
+    private void schedule(SearchClient searchClient, AbstractIndexer<?> indexer, AbstractLogger logger, long delay) {
+        if (indexer == null || !this.scheduledIndexes.add(indexer.getIndex())) {
+            // Already scheduled
+            return;
+        }
+
+        this.executor.schedule(() -> {
+            this.scheduledIndexes.remove(indexer.getIndex());
+            if (indexer.isRunning()) {
+                // The index is being modified. Try again later.
+                this.schedule(searchClient, indexer, logger, RETRY_DELAY);
+            } else {
+                this.collect(searchClient, indexer, logger);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    public void collect(SearchClient searchClient, AbstractIndexer<?> indexer, AbstractLogger logger) {
+        String index = indexer.getIndex();
+
+        Set<String> liveThumbnails;
+        try {
+            if (!searchClient.indexExists(index)) {
+                return;
+            }
+            liveThumbnails = ThumbnailCollector.getLiveThumbnails(searchClient, index);
+        } catch(Exception ex) {
+            // The live set is incomplete. Deleting files would break thumbnails.
+            logger.addMessage(Level.WARNING,
+                    String.format("Exception occurred while listing the thumbnails of index: %s", index), ex);
+            return;
+        }
+
+        File cacheDirectory = ImageCache.getCacheDirectory(index, logger);
+        if (cacheDirectory == null) {
+            return;
+        }
+
+        Result result = this.deleteUnused(cacheDirectory, liveThumbnails,
+                System.currentTimeMillis() - this.gracePeriod, RUN_TIME_LIMIT, logger);
+        this.lastCollected = System.currentTimeMillis();
+
+        if (result.getDeletedCount() > 0) {
+            logger.addMessage(Level.INFO, String.format("Deleted %d unused thumbnails for index %s (%s)",
+                    result.getDeletedCount(), index, FileUtils.byteCountToDisplaySize(result.getReclaimedBytes())));
+        }
+        if (!result.isComplete()) {
+            logger.addMessage(Level.INFO, String.format("The unused thumbnails of index %s were not all deleted. The rest will be deleted on the next run.",
+                    index));
+        }
+    }
+
+    /**
+     * Returns the name of every thumbnail referenced in the index.
+     * The documents are scanned using a point in time, without loading their source.
+     */
+    public static Set<String> getLiveThumbnails(SearchClient searchClient, String index) throws IOException {
+        Set<String> liveThumbnails = new HashSet<>();
+
+        OpenPointInTimeRequest openRequest = new OpenPointInTimeRequest.Builder()
+                .index(index)
+                .keepAlive(keepAlive -> keepAlive.time(POINT_IN_TIME_KEEP_ALIVE))
+                .build();
+        String pointInTimeId = searchClient.openPointInTime(openRequest).id();
+
+        try {
+            List<FieldValue> searchAfter = null;
+            while (true) {
+                String pitId = pointInTimeId;
+                SearchRequest.Builder searchRequestBuilder = new SearchRequest.Builder()
+                        .pit(pit -> pit.id(pitId).keepAlive(keepAlive -> keepAlive.time(POINT_IN_TIME_KEEP_ALIVE)))
+                        .query(query -> query.exists(exists -> exists.field(THUMBNAIL_FIELD)))
+                        .source(source -> source.fetch(false))
+                        .fields(field -> field.field(THUMBNAIL_FIELD))
+                        .sort(sort -> sort.field(field -> field.field("_shard_doc")))
+                        .trackTotalHits(trackHits -> trackHits.enabled(false))
+                        .size(PAGE_SIZE);
+                if (searchAfter != null) {
+                    searchRequestBuilder.searchAfter(searchAfter);
+                }
+
+                SearchResponse<Entity> response = searchClient.search(searchRequestBuilder.build());
+                if (response.pitId() != null) {
+                    pointInTimeId = response.pitId();
+                }
+
+                List<Hit<Entity>> hits = response.hits().hits();
+                for (Hit<Entity> hit : hits) {
+                    ThumbnailCollector.addFieldValues(liveThumbnails, hit.fields().get(THUMBNAIL_FIELD));
+                }
+
+                if (hits.size() < PAGE_SIZE) {
+                    break;
+                }
+                searchAfter = hits.get(hits.size() - 1).sort();
+            }
+        } finally {
+            String pitId = pointInTimeId;
+            searchClient.closePointInTime(new ClosePointInTimeRequest.Builder().id(pitId).build());
+        }
+
+        return liveThumbnails;
+    }
+
+    private static void addFieldValues(Set<String> values, JsonData fieldData) {
+        if (fieldData == null) {
+            return;
+        }
+        JsonValue jsonValue = fieldData.toJson();
+        if (jsonValue instanceof JsonArray) {
+            for (JsonValue item : (JsonArray)jsonValue) {
+                if (item instanceof JsonString) {
+                    values.add(((JsonString)item).getString());
+                }
+            }
+        } else if (jsonValue instanceof JsonString) {
+            values.add(((JsonString)jsonValue).getString());
+        }
+    }
+
+    /**
+     * Delete the files of the cache directory (recursively) which are not in the live set
+     * and have not been modified since the given date.
+     * Stops when the time limit is reached.
+     */
+    public Result deleteUnused(File cacheDirectory, Set<String> liveThumbnails, long olderThan, long timeLimit, AbstractLogger logger) {
+        long deadline = System.currentTimeMillis() + timeLimit;
+        Result result = new Result();
+
+        Deque<File> directories = new ArrayDeque<>();
+        directories.push(cacheDirectory);
+        while (!directories.isEmpty()) {
+            File[] files = directories.pop().listFiles();
+            if (files == null) {
+                continue;
+            }
+
+            long batchStart = System.currentTimeMillis();
+            int batchCount = 0;
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    directories.push(file);
+                    continue;
+                }
+                if (!file.isFile() || liveThumbnails.contains(file.getName()) || file.lastModified() >= olderThan) {
+                    continue;
+                }
+
+                if (batchCount >= BATCH_SIZE || System.currentTimeMillis() - batchStart > BATCH_TIME_LIMIT) {
+                    if (System.currentTimeMillis() >= deadline) {
+                        result.complete = false;
+                        return result;
+                    }
+                    try {
+                        Thread.sleep(BATCH_PAUSE);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        result.complete = false;
+                        return result;
+                    }
+                    batchStart = System.currentTimeMillis();
+                    batchCount = 0;
+                }
+
+                long size = file.length();
+                if (file.delete()) {
+                    batchCount++;
+                    ThumbnailManifest.fileDeleted(cacheDirectory, file.getName());
+                    HotImageCache.getInstance().remove(file);
+                    result.deletedCount++;
+                    result.reclaimedBytes += size;
+                    this.deletedCount.incrementAndGet();
+                    this.reclaimedBytes.addAndGet(size);
+                } else {
+                    logger.addMessage(Level.ERROR, String.format("Can't delete unused thumbnail: %s", file));
+                }
+            }
+        }
+
+        return result;
+    }
+
+    public static class Result {
+        private long deletedCount = 0;
+        private long reclaimedBytes = 0;
+        private boolean complete = true;
+
+        public long getDeletedCount() {
+            return this.deletedCount;
+        }
+
+        public long getReclaimedBytes() {
+            return this.reclaimedBytes;
+        }
+
+        public boolean isComplete() {
+            return this.complete;
+        }
+    }
+}
@@ -0,0 +1,341 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine.index;
+
+import au.gov.aims.eatlas.searchengine.HttpClient;
+import au.gov.aims.eatlas.searchengine.admin.SearchEngineConfig;
+import au.gov.aims.eatlas.searchengine.client.SearchClient;
+import au.gov.aims.eatlas.searchengine.logger.AbstractLogger;
+import au.gov.aims.eatlas.searchengine.logger.ConsoleLogger;
+import au.gov.aims.eatlas.searchengine.logger.Level;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.json.JsonData;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Queue of thumbnails to create, decoupled from the document indexation.
+ * Entities are indexed right away, using their previous thumbnail (if any).
+ * The thumbnails are created by the queue threads, then set in the indexed
+ *     documents using partial updates (cachedThumbnailFilename and thumbnailLastIndexed).
+ * The queue is durable: each task is saved in the queue directory until it's done,
+ *     and pending tasks are resumed when the application starts.
+ * There is at most one task per entity. Queuing a task for an entity which
+ *     already has a pending task replaces it.
+ */
+public class ThumbnailQueue {
+    private static final Logger LOGGER = LogManager.getLogger(ThumbnailQueue.class.getName());
+
+    // NOTE: The requests are throttled by the HttpClient, per host.
+    private static final int THREAD_POOL_SIZE = 4;
+    private static final String TASK_EXTENSION = ".json";
+
+    private static final String UPDATE_SCRIPT =
+            "if (params.cachedThumbnailFilename == null) { ctx._source.remove('cachedThumbnailFilename'); } " +
+            "else { ctx._source.cachedThumbnailFilename = params.cachedThumbnailFilename; } " +
+            "ctx._source.thumbnailLastIndexed = params.thumbnailLastIndexed;";
+
+    private static ThumbnailQueue instance;
+
+    private final File queueDirectory;
+    private final ThreadPoolExecutor threadPool;
+    // Task key -> latest task queued for the entity
+    private final Map<String, QueuedTask> pendingTasks;
+
+    private final AtomicLong completedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+
+    public ThumbnailQueue(File queueDirectory) {
+        this(queueDirectory, THREAD_POOL_SIZE);
+    }
+
+    public ThumbnailQueue(File queueDirectory, int threadPoolSize) {
+        this.queueDirectory = queueDirectory;
+        this.pendingTasks = new ConcurrentHashMap<>();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.threadPool = new ThreadPoolExecutor(
+                threadPoolSize, threadPoolSize,
+                0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                runnable -> {
+                    Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+                    thread.setName("ThumbnailQueue-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    public static synchronized ThumbnailQueue getInstance() {
+        if (instance == null) {
+            SearchEngineConfig config = SearchEngineConfig.getInstance();
+            String queueDirectory = config == null ? null : config.getThumbnailQueueDirectory();
+            instance = new ThumbnailQueue(queueDirectory == null ? null : new File(queueDirectory));
+        }
+        return instance;
+    }
+
+    public File getQueueDirectory() {
+        return this.queueDirectory;
+    }
+
+    public int getPendingCount() {
+        return this.pendingTasks.size();
+    }
+
+    public long getCompletedCount() {
+        return this.completedCount.get();
+    }
+
+    public long getFailedCount() {
+        return this.failedCount.get();
+    }
+
+    /**
+     * Queue the thumbnail task. Must be called after the entity is indexed,
+     *     the document is updated when the thumbnail is ready.
+     */
+    public void enqueue(SearchClient searchClient, ThumbnailTask task, AbstractLogger logger) {
+        if (task == null || task.getIndex() == null || task.getId() == null) {
+            return;
+        }
+
+        String key = ThumbnailQueue.getKey(task);
+        QueuedTask queuedTask = new QueuedTask(searchClient, task, logger);
+
+        synchronized (this) {
+            this.saveTask(key, task);
+            if (this.pendingTasks.put(key, queuedTask) != null) {
+                // A thread is already scheduled for this entity. It will run the latest task.
+                return;
+            }
+        }
+
+        this.threadPool.execute(new ThumbnailThread(key));
+    }
+
+    /**
+     * Queue the tasks saved in the queue directory.
+     * Called when the application starts, to resume the tasks which were pending when it stopped.
+     */
+    public int resume(SearchClient searchClient, AbstractLogger logger) {
+        if (this.queueDirectory == null) {
+            return 0;
+        }
+        File[] taskFiles = this.queueDirectory.listFiles((dir, name) -> name.endsWith(TASK_EXTENSION));
+        if (taskFiles == null) {
+            return 0;
+        }
+
+        int resumed = 0;
+        for (File taskFile : taskFiles) {
+            try {
+                ThumbnailTask task = ThumbnailTask.fromJSON(new JSONObject(FileUtils.readFileToString(taskFile, StandardCharsets.UTF_8)));
+                if (task != null) {
+                    this.enqueue(searchClient, task, logger);
+                    resumed++;
+                }
+                // The task is saved again when queued. Delete the file if it was saved under a different name.
+                if (task == null || !taskFile.getName().equals(ThumbnailQueue.getKey(task) + TASK_EXTENSION)) {
+                    FileUtils.deleteQuietly(taskFile);
+                }
+            } catch(Exception ex) {
+                logger.addMessage(Level.WARNING, String.format("Invalid thumbnail task: %s", taskFile), ex);
+                FileUtils.deleteQuietly(taskFile);
+            }
+        }
+
+        if (resumed > 0) {
+            logger.addMessage(Level.INFO, String.format("Resumed %d pending thumbnail tasks", resumed));
+        }
+        return resumed;
+    }
+
+    /**
+     * Wait for the pending tasks to complete.
+     * @return true if the queue is empty, false if the timeout was reached.
+     */
+    public boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + unit.toMillis(timeout);
+        while (!this.pendingTasks.isEmpty() || this.threadPool.getActiveCount() > 0) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(50);
+        }
+        return true;
+    }
+
+    private void runTask(String key) {
+        QueuedTask queuedTask;
+        synchronized (this) {
+            queuedTask = this.pendingTasks.remove(key);
+        }
+        if (queuedTask == null) {
+            return;
+        }
+
+        ThumbnailTask task = queuedTask.task;
+        AbstractLogger logger = queuedTask.logger;
+
+        HttpClient httpClient = HttpClient.getInstance();
+        SearchEngineConfig config = SearchEngineConfig.getInstance();
+        if (config != null) {
+            AbstractIndexer<?> indexer = config.getIndexer(task.getIndex());
+            if (indexer == null) {
+                // The indexer was deleted. Nothing to update.
+                this.deleteTask(key);
+                return;
+            }
+            httpClient = indexer.getHttpClient();
+        }
+
+        String cachedThumbnailFilename = null;
+        try {
+            File cachedThumbnailFile = task.createThumbnail(httpClient, logger);
+            if (cachedThumbnailFile != null) {
+                cachedThumbnailFilename = cachedThumbnailFile.getName();
+            }
+        } catch(Exception ex) {
+            logger.addMessage(Level.WARNING, String.format("Exception occurred while creating a thumbnail for %s, id: %s",
+                    task.getIndex(), task.getId()), ex);
+        }
+
+        if (this.updateDocument(queuedTask.searchClient, task, cachedThumbnailFilename, logger)) {
+            this.completedCount.incrementAndGet();
+        } else {
+            this.failedCount.incrementAndGet();
+        }
+
+        this.deleteTask(key);
+    }
+
+    // Set the thumbnail in the indexed document, using a partial update.
+    private boolean updateDocument(SearchClient searchClient, ThumbnailTask task, String cachedThumbnailFilename, AbstractLogger logger) {
+        Map<String, JsonData> params = new HashMap<>();
+        params.put("thumbnailLastIndexed", JsonData.of(System.currentTimeMillis()));
+        if (cachedThumbnailFilename != null) {
+            params.put("cachedThumbnailFilename", JsonData.of(cachedThumbnailFilename));
+        }
+
+        BulkOperation operation = BulkOperation.of(op -> op
+            .update(update -> update
+                .index(task.getIndex())
+                .id(task.getId())
+                .retryOnConflict(3)
+                .action(action -> action
+                    .script(script -> script
+                        .source(UPDATE_SCRIPT)
+                        .params(params)))));
+
+        try {
+            BulkResponse bulkResponse = searchClient.bulk(new BulkRequest.Builder().operations(operation).build());
+            for (BulkResponseItem item : bulkResponse.items()) {
+                if (item.error() != null) {
+                    // The document may have been deleted since the task was queued.
+                    logger.addMessage(Level.WARNING, String.format("Can not set the thumbnail of %s, id: %s. Reason: %s",
+                            task.getIndex(), task.getId(), item.error().reason()));
+                    return false;
+                }
+            }
+        } catch(Exception ex) {
+            logger.addMessage(Level.WARNING, String.format("Exception occurred while setting the thumbnail of %s, id: %s",
+                    task.getIndex(), task.getId()), ex);
+            return false;
+        }
+
+        return true;
+    }
+
+    private synchronized void saveTask(String key, ThumbnailTask task) {
+        if (this.queueDirectory == null) {
+            return;
+        }
+
+        // Write in a temporary file first, to never leave a partially written task.
+        File taskFile = new File(this.queueDirectory, key + TASK_EXTENSION);
+        File tmpFile = new File(this.queueDirectory, key + ".tmp");
+        try {
+            FileUtils.forceMkdir(this.queueDirectory);
+            FileUtils.writeStringToFile(tmpFile, task.toJSON().toString(), StandardCharsets.UTF_8);
+            Files.move(tmpFile.toPath(), taskFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch(IOException ex) {
+            // The task is still queued in memory. It will just not be resumed after a restart.
+            LOGGER.warn(String.format("Can not save the thumbnail task: %s", taskFile), ex);
+        }
+    }
+
+    // Delete the task file, unless a new task was queued for the same entity while this one was running.
+    private synchronized void deleteTask(String key) {
+        if (this.queueDirectory == null || this.pendingTasks.containsKey(key)) {
+            return;
+        }
+        FileUtils.deleteQuietly(new File(this.queueDirectory, key + TASK_EXTENSION));
+    }
+
+    private static String getKey(ThumbnailTask task) {
+        return DigestUtils.sha256Hex(task.getIndex() + "/" + task.getId());
+    }
+
+    private static class QueuedTask {
+        private final SearchClient searchClient;
+        private final ThumbnailTask task;
+        private final AbstractLogger logger;
+
+        public QueuedTask(SearchClient searchClient, ThumbnailTask task, AbstractLogger logger) {
+            this.searchClient = searchClient;
+            this.task = task;
+            this.logger = logger == null ? ConsoleLogger.getInstance() : logger;
+        }
+    }
+
+    public class ThumbnailThread extends Thread {
+        private final String key;
+
+        public ThumbnailThread(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public void run() {
+            ThumbnailQueue.this.runTask(this.key);
+        }
+    }
+}
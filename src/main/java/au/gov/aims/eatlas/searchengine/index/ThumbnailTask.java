@@ -0,0 +1,159 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine.index;
+
+import au.gov.aims.eatlas.searchengine.BaseMapCache;
+import au.gov.aims.eatlas.searchengine.HttpClient;
+import au.gov.aims.eatlas.searchengine.logger.AbstractLogger;
+import au.gov.aims.eatlas.searchengine.rest.ImageCache;
+import org.json.JSONObject;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.net.URL;
+
+/**
+ * Thumbnail to create for an indexed entity (see {@link ThumbnailQueue}).
+ * Tasks only contain serialisable values, so they can be saved on disk and resumed after a restart.
+ */
+public class ThumbnailTask {
+    private final String index;
+    private final String id;
+    private final String imageUrl;
+    private final Integer timeout;
+
+    // AtlasMapper layers: The layer image is drawn over the base layer.
+    //     baseLayerUrl is a template, containing {BBOX}, {WIDTH} and {HEIGHT}.
+    private String baseLayerUrl;
+    private Double west;
+    private Double south;
+    private Double east;
+    private Double north;
+    private Integer width;
+    private Integer height;
+
+    public ThumbnailTask(String index, String id, String imageUrl, Integer timeout) {
+        this.index = index;
+        this.id = id;
+        this.imageUrl = imageUrl;
+        this.timeout = timeout;
+    }
+
+    public static ThumbnailTask layer(String index, String id, String layerUrl, Integer timeout,
+            String baseLayerUrl, double west, double south, double east, double north, int width, int height) {
+
+        ThumbnailTask task = new ThumbnailTask(index, id, layerUrl, timeout);
+        task.baseLayerUrl = baseLayerUrl;
+        task.west = west;
+        task.south = south;
+        task.east = east;
+        task.north = north;
+        task.width = width;
+        task.height = height;
+        return task;
+    }
+
+    public String getIndex() {
+        return this.index;
+    }
+
+    public String getId() {
+        return this.id;
+    }
+
+    public String getImageUrl() {
+        return this.imageUrl;
+    }
+
+    public String getBaseLayerUrl() {
+        return this.baseLayerUrl;
+    }
+
+    /**
+     * Download the image, resize it and save it in the image cache.
+     * Returns the cached thumbnail file, or null if the thumbnail could not be created.
+     */
+    public File createThumbnail(HttpClient httpClient, AbstractLogger logger) throws Exception {
+        if (this.imageUrl == null) {
+            return null;
+        }
+        URL url = new URL(this.imageUrl);
+
+        if (this.baseLayerUrl == null || this.west == null || this.south == null ||
+                this.east == null || this.north == null || this.width == null || this.height == null) {
+            return ImageCache.cache(httpClient, url, this.timeout, this.index, logger);
+        }
+
+        // Crop the base layer image from the local copy of the base map.
+        //     Falls back to requesting the base layer image if the base map tiles can't be requested.
+        BaseMapCache baseMapCache = BaseMapCache.getInstance(this.baseLayerUrl);
+        if (baseMapCache != null) {
+            BufferedImage baseLayerImage = baseMapCache.getImage(httpClient,
+                    this.west, this.south, this.east, this.north,
+                    this.width, this.height, this.timeout, logger);
+            if (baseLayerImage != null) {
+                return ImageCache.cacheLayer(httpClient, baseLayerImage, url, this.timeout, this.index, logger);
+            }
+        }
+
+        URL baseLayerImageUrl = new URL(this.baseLayerUrl
+                .replace("{BBOX}", String.format("%.12f,%.12f,%.12f,%.12f", this.west, this.south, this.east, this.north))
+                .replace("{WIDTH}", "" + this.width)
+                .replace("{HEIGHT}", "" + this.height));
+
+        return ImageCache.cacheLayer(httpClient, baseLayerImageUrl, url, this.timeout, this.index, logger);
+    }
+
+    public JSONObject toJSON() {
+        return new JSONObject()
+            .put("index", this.index)
+            .put("id", this.id)
+            .put("imageUrl", this.imageUrl)
+            .put("timeout", this.timeout)
+            .put("baseLayerUrl", this.baseLayerUrl)
+            .put("west", this.west)
+            .put("south", this.south)
+            .put("east", this.east)
+            .put("north", this.north)
+            .put("width", this.width)
+            .put("height", this.height);
+    }
+
+    public static ThumbnailTask fromJSON(JSONObject json) {
+        if (json == null || json.isEmpty()) {
+            return null;
+        }
+
+        ThumbnailTask task = new ThumbnailTask(
+            json.optString("index", null),
+            json.optString("id", null),
+            json.optString("imageUrl", null),
+            json.has("timeout") ? json.optInt("timeout") : null);
+
+        task.baseLayerUrl = json.optString("baseLayerUrl", null);
+        task.west = json.has("west") ? json.optDouble("west") : null;
+        task.south = json.has("south") ? json.optDouble("south") : null;
+        task.east = json.has("east") ? json.optDouble("east") : null;
+        task.north = json.has("north") ? json.optDouble("north") : null;
+        task.width = json.has("width") ? json.optInt("width") : null;
+        task.height = json.has("height") ? json.optInt("height") : null;
+
+        return task;
+    }
+}
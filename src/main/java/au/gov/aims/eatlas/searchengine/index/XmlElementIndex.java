@@ -0,0 +1,165 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine.index;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of the elements of an XML document, built in a single pass.
+ * Used by IndexUtils.getXMLChildren to find elements by tag name without
+ *     walking the whole sub-tree (Element.getElementsByTagName) on every call.
+ *
+ * Each element is numbered in document order (pre-order), and remembers
+ *     the number of its last descendant. The descendants of an element are
+ *     the elements numbered between the two, which can be found in the list of
+ *     elements with a given tag name using a binary search.
+ *
+ * The index is attached to the document (user data).
+ * It must be built after the document is fully loaded (and normalised),
+ *     the index is not updated when the document is modified.
+ */
+public class XmlElementIndex {
+    private static final String USER_DATA_KEY = XmlElementIndex.class.getName();
+
+    // Tag name -> elements, in document order
+    private final Map<String, List<Element>> elementsByTagName;
+    // Element -> [position, position of last descendant]
+    private final Map<Element, int[]> positions;
+
+    private XmlElementIndex(Element rootElement) {
+        this.elementsByTagName = new HashMap<>();
+        this.positions = new IdentityHashMap<>();
+        this.add(rootElement, 0);
+    }
+
+    /**
+     * Build the element index of the document and attach it to the document.
+     */
+    public static XmlElementIndex index(Document document) {
+        if (document == null || document.getDocumentElement() == null) {
+            return null;
+        }
+
+        XmlElementIndex elementIndex = new XmlElementIndex(document.getDocumentElement());
+        document.setUserData(USER_DATA_KEY, elementIndex, null);
+        return elementIndex;
+    }
+
+    /**
+     * Returns the element index attached to the node's document,
+     *     or null if the document was not indexed.
+     */
+    public static XmlElementIndex get(Node node) {
+        if (node == null) {
+            return null;
+        }
+        Document document = node instanceof Document ? (Document)node : node.getOwnerDocument();
+        if (document == null) {
+            return null;
+        }
+        Object elementIndex = document.getUserData(USER_DATA_KEY);
+        return elementIndex instanceof XmlElementIndex ? (XmlElementIndex)elementIndex : null;
+    }
+
+    // Returns the position of the next element
+    private int add(Element element, int position) {
+        int[] elementPositions = new int[] { position, position };
+        this.positions.put(element, elementPositions);
+        this.elementsByTagName.computeIfAbsent(element.getTagName(), tagName -> new ArrayList<>()).add(element);
+
+        int nextPosition = position + 1;
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child instanceof Element) {
+                nextPosition = this.add((Element)child, nextPosition);
+            }
+        }
+
+        elementPositions[1] = nextPosition - 1;
+        return nextPosition;
+    }
+
+    public boolean contains(Element element) {
+        return this.positions.containsKey(element);
+    }
+
+    /**
+     * Returns the descendants of the parent element which have the given tag name, in document order.
+     * Same as parent.getElementsByTagName(tagName).
+     * Returns null if the parent element is not part of the index.
+     */
+    public List<Element> getDescendants(Element parent, String tagName) {
+        int[] parentPositions = this.positions.get(parent);
+        if (parentPositions == null) {
+            return null;
+        }
+
+        List<Element> elements = this.elementsByTagName.get(tagName);
+        if (elements == null) {
+            return Collections.emptyList();
+        }
+
+        // Descendants are the elements numbered from parent + 1 to parent's last descendant.
+        int from = this.firstPositionIndex(elements, parentPositions[0] + 1);
+        int to = this.firstPositionIndex(elements, parentPositions[1] + 1);
+        return elements.subList(from, to);
+    }
+
+    /**
+     * Returns the direct children of the parent element which have the given tag name, in document order.
+     * Returns null if the parent element is not part of the index.
+     */
+    public List<Element> getChildren(Element parent, String tagName) {
+        List<Element> descendants = this.getDescendants(parent, tagName);
+        if (descendants == null || descendants.isEmpty()) {
+            return descendants;
+        }
+
+        List<Element> children = new ArrayList<>();
+        for (Element descendant : descendants) {
+            if (descendant.getParentNode() == parent) {
+                children.add(descendant);
+            }
+        }
+        return children;
+    }
+
+    // Binary search. Index of the first element which position is greater or equal to the given position.
+    private int firstPositionIndex(List<Element> elements, int position) {
+        int low = 0;
+        int high = elements.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (this.positions.get(elements.get(middle))[0] < position) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
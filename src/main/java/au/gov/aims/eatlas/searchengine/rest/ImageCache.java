@@ -18,8 +18,10 @@
  */
 package au.gov.aims.eatlas.searchengine.rest;
 
+import au.gov.aims.eatlas.searchengine.HotImageCache;
 import au.gov.aims.eatlas.searchengine.HttpClient;
 import au.gov.aims.eatlas.searchengine.ImageResizer;
+import au.gov.aims.eatlas.searchengine.ThumbnailManifest;
 import au.gov.aims.eatlas.searchengine.admin.SearchEngineConfig;
 import au.gov.aims.eatlas.searchengine.logger.AbstractLogger;
 import au.gov.aims.eatlas.searchengine.logger.Level;
@@ -31,11 +33,16 @@ import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.CacheControl;
 import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.FilenameUtils;
 import org.apache.http.entity.ContentType;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
@@ -46,11 +53,22 @@ import java.awt.Color;
 import java.awt.Composite;
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 
 /**
  * Class used to cache preview images, thumbnails, etc.
@@ -64,6 +82,19 @@ public class ImageCache {
     private static final float BASE_LAYER_ALPHA = 0.4f;
     private static final String DEFAULT_IMAGE_CACHE_DIR = "/tmp/eatlas-search-engine-cache";
     private static File imageCacheDir = null;
+    // Index -> cache directory, to check the directory only once
+    private static final Map<String, File> indexCacheDirs = new ConcurrentHashMap<>();
+
+    private static final String THUMBNAIL_EXTENSION = "jpg";
+    private static final int SHARD_LENGTH = 2;
+    private static final Pattern CONTENT_ADDRESS_PATTERN = Pattern.compile("[0-9a-f]{64}\\." + THUMBNAIL_EXTENSION);
+
+    // Thumbnails are revalidated (using ETag or Last-Modified) after a day.
+    private static final CacheControl IMAGE_CACHE_CONTROL;
+    static {
+        IMAGE_CACHE_CONTROL = new CacheControl();
+        IMAGE_CACHE_CONTROL.setMaxAge(24 * 60 * 60);
+    }
 
     // /img/v1/{index}/{filename}
     // Example:
@@ -73,6 +104,7 @@ public class ImageCache {
     @Produces(MediaType.APPLICATION_JSON)
     public Response getCachedImage(
             @Context HttpServletRequest httpRequest,
+            @Context Request request,
             @PathParam("index") String index,
             @PathParam("filename") String filename
     ) {
@@ -84,36 +116,111 @@ public class ImageCache {
             logger.addMessage(Level.WARNING, String.format("Cached image not found: %s/%s", index, filename));
             return Response.status(Response.Status.NOT_FOUND).build();
         }
-        if (!cachedFile.canRead()) {
-            logger.addMessage(Level.WARNING, String.format("Cached image not found: %s", cachedFile.toString()));
-            return Response.status(Response.Status.NOT_FOUND).build();
+
+        // Hot thumbnails are served from memory, without accessing the file system.
+        HotImageCache hotImageCache = HotImageCache.getInstance();
+        HotImageCache.Entry hotEntry = hotImageCache.get(cachedFile);
+        long lastModified;
+        long size;
+        if (hotEntry != null) {
+            lastModified = hotEntry.getLastModified();
+            size = hotEntry.getSize();
+        } else {
+            // NOTE: lastModified returns 0 if the file doesn't exist.
+            lastModified = cachedFile.lastModified();
+            size = cachedFile.length();
+            if (lastModified == 0 || !cachedFile.isFile() || !cachedFile.canRead()) {
+                hotImageCache.remove(cachedFile);
+                ThumbnailManifest.fileDeleted(getCacheDirectory(index, logger), filename);
+                logger.addMessage(Level.WARNING, String.format("Cached image not found: %s", cachedFile.toString()));
+                return Response.status(Response.Status.NOT_FOUND).build();
+            }
+        }
+
+        // Let the browser reuse the image it already has.
+        EntityTag entityTag = new EntityTag(Long.toHexString(lastModified) + "-" + Long.toHexString(size));
+        Date lastModifiedDate = new Date(lastModified);
+        Response.ResponseBuilder notModifiedResponse = request.evaluatePreconditions(lastModifiedDate, entityTag);
+        if (notModifiedResponse != null) {
+            return notModifiedResponse.cacheControl(IMAGE_CACHE_CONTROL).build();
         }
 
         try {
-            byte[] responseBytes = FileUtils.readFileToByteArray(cachedFile);
+            // The other thumbnails are loaded in the hot cache, or streamed from disk when too large.
+            if (hotEntry == null) {
+                hotEntry = hotImageCache.load(cachedFile, lastModified, size);
+            }
+            StreamingOutput responseStream;
+            if (hotEntry == null) {
+                responseStream = output -> ImageCache.transferFile(cachedFile, output);
+            } else {
+                ByteBuffer cachedContent = hotEntry.getContent();
+                responseStream = output -> Channels.newChannel(output).write(cachedContent);
+            }
 
-            // Return the JSON array with an OK status.
             ContentType contentType = HttpClient.getContentType(filename);
-            return Response.ok(responseBytes, contentType.toString()).build();
+            return Response.ok(responseStream, contentType.toString())
+                    .tag(entityTag)
+                    .lastModified(lastModifiedDate)
+                    .cacheControl(IMAGE_CACHE_CONTROL)
+                    .header(HttpHeaders.CONTENT_LENGTH, size)
+                    .build();
         } catch(Exception ex) {
             logger.addMessage(Level.ERROR, String.format("Server error: %s", ex.getMessage()), ex);
             return Response.serverError().entity(String.format("Server error: %s", ex.getMessage())).build();
         }
     }
 
+    // Copy the file to the response using FileChannel.transferTo, without loading it in the heap.
+    private static void transferFile(File file, OutputStream output) throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            WritableByteChannel outputChannel = Channels.newChannel(output);
+            long position = 0;
+            long size = fileChannel.size();
+            while (position < size) {
+                position += fileChannel.transferTo(position, size - position, outputChannel);
+            }
+        }
+    }
+
     public static File getCachedFile(String index, String filename, AbstractLogger logger) {
         File cacheDir = getCacheDirectory(index, logger);
         if (cacheDir == null) {
             return null;
         }
 
+        // Thumbnails are saved in a sub directory named after the first characters of their content hash.
+        //     Thumbnails created before the content-addressed store are in the index directory.
+        if (isContentAddress(filename)) {
+            return new File(new File(cacheDir, filename.substring(0, SHARD_LENGTH)), filename);
+        }
         return new File(cacheDir, filename);
     }
 
+    /**
+     * Returns the size and last modified date of the cached thumbnail,
+     *     or null if it doesn't exist. The file system is not accessed.
+     */
+    public static ThumbnailManifest.Entry getCachedEntry(String index, String filename, AbstractLogger logger) {
+        File cacheDir = getCacheDirectory(index, logger);
+        if (cacheDir == null) {
+            return null;
+        }
+        return ThumbnailManifest.getInstance(cacheDir).get(filename);
+    }
+
+    public static boolean isContentAddress(String filename) {
+        return filename != null && CONTENT_ADDRESS_PATTERN.matcher(filename).matches();
+    }
+
     public static File getCacheDirectory(String index, AbstractLogger logger) {
         if (index == null || index.isEmpty()) {
             return null;
         }
+        File cachedIndexCacheDir = indexCacheDirs.get(index);
+        if (cachedIndexCacheDir != null) {
+            return cachedIndexCacheDir;
+        }
         String safeIndex = safeString(index);
 
         if (imageCacheDir == null) {
@@ -140,14 +247,15 @@ public class ImageCache {
             logger.addMessage(Level.ERROR, String.format("The thumbnail cache directory %s exists but is not readable.", indexCacheDir));
             return null;
         }
+        indexCacheDirs.put(index, indexCacheDir);
         return indexCacheDir;
     }
 
-    public static File cache(HttpClient httpClient, URL imageUrl, String index, String filenamePrefix, AbstractLogger logger) throws IOException, InterruptedException {
-        return cache(httpClient, imageUrl, null, index, filenamePrefix, logger);
+    public static File cache(HttpClient httpClient, URL imageUrl, String index, AbstractLogger logger) throws IOException, InterruptedException {
+        return cache(httpClient, imageUrl, null, index, logger);
     }
 
-    public static File cache(HttpClient httpClient, URL imageUrl, Integer timeout, String index, String filenamePrefix, AbstractLogger logger) throws IOException, InterruptedException {
+    public static File cache(HttpClient httpClient, URL imageUrl, Integer timeout, String index, AbstractLogger logger) throws IOException, InterruptedException {
         if (imageUrl == null || index == null) {
             return null;
         }
@@ -162,77 +270,68 @@ public class ImageCache {
         }
 
         String urlStr = imageUrl.toString();
-        HttpClient.Response imageResponse = httpClient.getRequest(urlStr, timeout, logger);
-        if (imageResponse == null) {
-            return null;
-        }
-        int statusCode = imageResponse.statusCode();
-        if (statusCode < 200 || statusCode >= 300) {
-            logger.addMessage(Level.WARNING, String.format("Invalid image URL: %s status code: %d", urlStr, statusCode));
-            return null;
-        }
 
-        byte[] imageBytes = imageResponse.bodyAsBytes();
-        if (imageBytes == null || imageBytes.length <= 0) {
-            return null;
-        }
+        // Decode the image close to the thumbnail size (see ImageResizer.readImage)
+        SearchEngineConfig config = SearchEngineConfig.getInstance();
+        int width = config.getThumbnailWidth();
+        int height = config.getThumbnailHeight();
 
         BufferedImage originalImage = null;
-        try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(imageBytes)) {
-            originalImage = ImageIO.read(byteArrayInputStream);
-        } catch(Exception ex) {
-            logger.addMessage(Level.ERROR, String.format("Exception occurred while loading the image URL: %s", urlStr), ex);
+        try (HttpClient.Response imageResponse = httpClient.getRequest(urlStr, timeout, logger)) {
+            if (imageResponse == null) {
+                return null;
+            }
+            int statusCode = imageResponse.statusCode();
+            if (statusCode < 200 || statusCode >= 300) {
+                logger.addMessage(Level.WARNING, String.format("Invalid image URL: %s status code: %d", urlStr, statusCode));
+                return null;
+            }
+
+            if (imageResponse.bodySize() <= 0) {
+                return null;
+            }
+
+            try (InputStream inputStream = imageResponse.bodyStream()) {
+                originalImage = ImageResizer.readImage(inputStream, width, height);
+            } catch(Exception ex) {
+                logger.addMessage(Level.ERROR, String.format("Exception occurred while loading the image URL: %s", urlStr), ex);
+                return null;
+            }
+        }
+        if (originalImage == null) {
+            logger.addMessage(Level.WARNING, String.format("Unsupported image format: %s", urlStr));
             return null;
         }
 
         // Resize the preview image
-        SearchEngineConfig config = SearchEngineConfig.getInstance();
-        int width = config.getThumbnailWidth();
-        int height = config.getThumbnailHeight();
         BufferedImage resizedImage = ImageResizer.resizeCropImage(originalImage, width, height);
         byte[] resizedImageBytes = ImageResizer.getImageData(resizedImage);
 
-        String extension = imageResponse.getFileExtension();
-        if (extension == null) {
-            extension = "bin";
-        }
-        File cacheFile = getUniqueFile(cacheDir, imageUrl, filenamePrefix, extension);
-
         // Cache image to disk
+        File cacheFile = store(cacheDir, resizedImageBytes);
         LOGGER.debug(String.format("Caching preview image %s to %s", urlStr, cacheFile));
         logger.addMessage(Level.INFO, String.format("Caching preview image: %s", cacheFile.getName()));
-        FileUtils.writeByteArrayToFile(cacheFile, resizedImageBytes);
 
         return cacheFile;
     }
 
-    public static File cacheLayer(HttpClient httpClient, URL baseLayerImageUrl, URL layerImageUrl, String index, String filenamePrefix, AbstractLogger logger) throws IOException, InterruptedException {
-        return cacheLayer(httpClient, baseLayerImageUrl, layerImageUrl, null, index, filenamePrefix, logger);
+    public static File cacheLayer(HttpClient httpClient, URL baseLayerImageUrl, URL layerImageUrl, String index, AbstractLogger logger) throws IOException, InterruptedException {
+        return cacheLayer(httpClient, baseLayerImageUrl, layerImageUrl, null, index, logger);
     }
 
-    public static File cacheLayer(HttpClient httpClient, URL baseLayerImageUrl, URL layerImageUrl, Integer timeout, String index, String filenamePrefix, AbstractLogger logger) throws IOException, InterruptedException {
+    public static File cacheLayer(HttpClient httpClient, URL baseLayerImageUrl, URL layerImageUrl, Integer timeout, String index, AbstractLogger logger) throws IOException, InterruptedException {
         if (layerImageUrl == null || index == null) {
             return null;
         }
 
-        File cacheDir = getCacheDirectory(index, logger);
+        File cacheDir = getWritableCacheDirectory(index, logger);
         if (cacheDir == null) {
             return null;
         }
-        if (!cacheDir.canWrite()) {
-            logger.addMessage(Level.ERROR, String.format("The thumbnail cache directory %s exists but is not writable.", cacheDir.toString()));
-            return null;
-        }
 
         // Get layer image (using JSoup to benefit from the retry feature)
-        String layerUrlStr = layerImageUrl.toString();
-        HttpClient.Response layerImageResponse = httpClient.getRequest(layerUrlStr, timeout, logger);
-        if (layerImageResponse == null) {
-            return null;
-        }
-        int layerStatusCode = layerImageResponse.statusCode();
-        if (layerStatusCode < 200 || layerStatusCode >= 300) {
-            logger.addMessage(Level.WARNING, String.format("Invalid layer URL: %s status code: %d", layerUrlStr, layerStatusCode));
+        BufferedImage layerImage = getLayerImage(httpClient, layerImageUrl, timeout, logger);
+        if (layerImage == null) {
             return null;
         }
 
@@ -240,22 +339,77 @@ public class ImageCache {
         BufferedImage baseLayerImage = null;
         if (baseLayerImageUrl != null) {
             String baseLayerUrlStr = baseLayerImageUrl.toString();
-            HttpClient.Response baseLayerImageResponse = httpClient.getRequest(baseLayerUrlStr, timeout, logger);
-            if (baseLayerImageResponse == null) {
-                return null;
+            try (HttpClient.Response baseLayerImageResponse = httpClient.getRequest(baseLayerUrlStr, timeout, logger)) {
+                if (baseLayerImageResponse == null) {
+                    return null;
+                }
+
+                int baseLayerStatusCode = baseLayerImageResponse.statusCode();
+                if (baseLayerStatusCode < 200 || baseLayerStatusCode >= 300) {
+                    logger.addMessage(Level.WARNING, String.format("Invalid base layer URL: %s status code: %d", baseLayerUrlStr, baseLayerStatusCode));
+                    return null;
+                }
+
+                baseLayerImage = createImageFromResponse(baseLayerImageResponse);
             }
+        }
+
+        return cacheLayer(baseLayerImage, layerImage, layerImageUrl, cacheDir, logger);
+    }
+
+    /**
+     * Same as {@link #cacheLayer(HttpClient, URL, URL, Integer, String, AbstractLogger)},
+     * using a base layer image which was already loaded (see {@link au.gov.aims.eatlas.searchengine.BaseMapCache}).
+     * Only the layer image is requested.
+     */
+    public static File cacheLayer(HttpClient httpClient, BufferedImage baseLayerImage, URL layerImageUrl, Integer timeout, String index, AbstractLogger logger) throws IOException, InterruptedException {
+        if (layerImageUrl == null || index == null) {
+            return null;
+        }
+
+        File cacheDir = getWritableCacheDirectory(index, logger);
+        if (cacheDir == null) {
+            return null;
+        }
+
+        BufferedImage layerImage = getLayerImage(httpClient, layerImageUrl, timeout, logger);
+        if (layerImage == null) {
+            return null;
+        }
+
+        return cacheLayer(baseLayerImage, layerImage, layerImageUrl, cacheDir, logger);
+    }
+
+    private static File getWritableCacheDirectory(String index, AbstractLogger logger) {
+        File cacheDir = getCacheDirectory(index, logger);
+        if (cacheDir == null) {
+            return null;
+        }
+        if (!cacheDir.canWrite()) {
+            logger.addMessage(Level.ERROR, String.format("The thumbnail cache directory %s exists but is not writable.", cacheDir.toString()));
+            return null;
+        }
+        return cacheDir;
+    }
 
-            int baseLayerStatusCode = baseLayerImageResponse.statusCode();
-            if (baseLayerStatusCode < 200 || baseLayerStatusCode >= 300) {
-                logger.addMessage(Level.WARNING, String.format("Invalid base layer URL: %s status code: %d", baseLayerUrlStr, baseLayerStatusCode));
+    private static BufferedImage getLayerImage(HttpClient httpClient, URL layerImageUrl, Integer timeout, AbstractLogger logger) throws IOException, InterruptedException {
+        String layerUrlStr = layerImageUrl.toString();
+        try (HttpClient.Response layerImageResponse = httpClient.getRequest(layerUrlStr, timeout, logger)) {
+            if (layerImageResponse == null) {
+                return null;
+            }
+            int layerStatusCode = layerImageResponse.statusCode();
+            if (layerStatusCode < 200 || layerStatusCode >= 300) {
+                logger.addMessage(Level.WARNING, String.format("Invalid layer URL: %s status code: %d", layerUrlStr, layerStatusCode));
                 return null;
             }
 
-            baseLayerImage = createImageFromResponse(baseLayerImageResponse);
+            return createImageFromResponse(layerImageResponse);
         }
+    }
 
-        BufferedImage layerImage = createImageFromResponse(layerImageResponse);
-
+    // Draw the layer over the base layer, resize the image and save it in the cache directory.
+    private static File cacheLayer(BufferedImage baseLayerImage, BufferedImage layerImage, URL layerImageUrl, File cacheDir, AbstractLogger logger) throws IOException {
         BufferedImage combined = layerImage;
         if (baseLayerImage != null) {
             combined = new BufferedImage(baseLayerImage.getWidth(), baseLayerImage.getHeight(), BufferedImage.TYPE_INT_RGB);
@@ -282,12 +436,9 @@ public class ImageCache {
         BufferedImage resizedImage = ImageResizer.resizeCropImage(combined, width, height);
 
         // Saved image to disk
-        String extension = "jpg";
-        File cacheFile = getUniqueFile(cacheDir, layerImageUrl, filenamePrefix, extension);
-
+        File cacheFile = store(cacheDir, ImageResizer.getImageData(resizedImage));
         LOGGER.debug(String.format("Caching layer preview image %s to %s", layerImageUrl, cacheFile));
         logger.addMessage(Level.INFO, String.format("Caching preview image: %s", cacheFile.getName()));
-        ImageIO.write(resizedImage, "jpg", cacheFile);
 
         return cacheFile;
     }
@@ -298,23 +449,45 @@ public class ImageCache {
         }
     }
 
-    private static File getUniqueFile(File cacheDir, URL imageUrl, String filenamePrefix, String extension) throws IOException {
-        String filename = filenamePrefix;
-
-        // Extract filename from URL
-        if (filename == null || filename.isEmpty()) {
-            filename = FilenameUtils.getBaseName(imageUrl.getPath());
+    /**
+     * Save the thumbnail under the hash of its content (content address), in a sharded sub directory:
+     *     <index>/<first 2 characters of the hash>/<SHA-256 hash>.jpg
+     * Identical thumbnails, from different entities or from a thumbnail refresh, share the same file.
+     * The file last modified date is updated when the thumbnail already exists,
+     *     since it's used to find out when thumbnails are outdated.
+     * Thumbnails are always encoded as JPEG (see ImageResizer.getImageData).
+     * The thumbnail manifest of the cache directory is updated.
+     */
+    public static File store(File cacheDir, byte[] imageBytes) throws IOException {
+        String filename = DigestUtils.sha256Hex(imageBytes) + "." + THUMBNAIL_EXTENSION;
+        File shardDir = new File(cacheDir, filename.substring(0, SHARD_LENGTH));
+        File cacheFile = new File(shardDir, filename);
+        ThumbnailManifest manifest = ThumbnailManifest.getInstance(cacheDir);
+
+        ThumbnailManifest.Entry entry = manifest.get(filename);
+        if (entry != null && entry.getSize() == imageBytes.length) {
+            long now = System.currentTimeMillis();
+            if (cacheFile.setLastModified(now)) {
+                manifest.put(filename, imageBytes.length, now);
+                return cacheFile;
+            }
+            // The file was deleted, write it again.
         }
 
-        // Fallback
-        if (filename == null || filename.isEmpty()) {
-            filename = "unnamed";
+        // Write in a temporary file first, so a partially written thumbnail is never served.
+        FileUtils.forceMkdir(shardDir);
+        File tmpFile = File.createTempFile(".tmp_", "." + THUMBNAIL_EXTENSION, shardDir);
+        try {
+            FileUtils.writeByteArrayToFile(tmpFile, imageBytes);
+            Files.move(tmpFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            // The hot cache serves the metadata of the replaced file.
+            HotImageCache.getInstance().remove(cacheFile);
+        } finally {
+            FileUtils.deleteQuietly(tmpFile);
         }
+        manifest.put(filename, imageBytes.length, cacheFile.lastModified());
 
-        // NOTE: File.createTempFile can be used to create unique file anywhere.
-        //     The file is created in "/tmp/" if the 3rd argument is not supplied.
-        //     In this case, the file created is actually not temporary.
-        return File.createTempFile(safeString(filename) + "_", "." + extension, cacheDir);
+        return cacheFile;
     }
 
     public static String safeString(String urlPath) {
@@ -132,6 +132,36 @@
                     </li>
                 </ul>
             </div>
+
+            <%-- Text extracted from external link documents, since the application started --%>
+            <h3>Text extraction</h3>
+            <div class="file-status">
+                <ul>
+                    <li><span class="label">Documents</span> ${it.textExtractor.extractedCount}</li>
+                    <li><span class="label">PDF pages</span> ${it.textExtractor.pageCount}</li>
+                    <li><span class="label" title="Documents truncated by the page limit">Page limit</span> <span class="${it.textExtractor.pageLimitCount > 0 ? "status-yellow" : "ok"}">${it.textExtractor.pageLimitCount}</span></li>
+                    <li><span class="label" title="Documents truncated by the time limit">Time limit</span> <span class="${it.textExtractor.timeLimitCount > 0 ? "status-yellow" : "ok"}">${it.textExtractor.timeLimitCount}</span></li>
+                    <li><span class="label">Failed</span> <span class="${it.textExtractor.failedCount > 0 ? "error" : "ok"}">${it.textExtractor.failedCount}</span></li>
+                </ul>
+            </div>
+
+            <h3>Thumbnail queue</h3>
+            <div class="file-status">
+                <ul>
+                    <li><span class="label">Pending</span> ${it.thumbnailQueue.pendingCount}</li>
+                    <li><span class="label">Completed</span> ${it.thumbnailQueue.completedCount}</li>
+                    <li><span class="label">Failed</span> <span class="${it.thumbnailQueue.failedCount > 0 ? "error" : "ok"}">${it.thumbnailQueue.failedCount}</span></li>
+                </ul>
+            </div>
+
+            <h3>Thumbnail cleanup</h3>
+            <div class="file-status">
+                <ul>
+                    <li><span class="label">Deleted</span> ${it.thumbnailCollector.deletedCount}</li>
+                    <li><span class="label">Reclaimed</span> ${it.thumbnailCollector.reclaimedSize}</li>
+                    <li><span class="label">Last run</span> <fmt:formatDate value="${it.thumbnailCollector.lastCollectedDate}" pattern="dd/MM/yyyy HH:mm:ss"/></li>
+                </ul>
+            </div>
         </div>
 
         <div class="box">
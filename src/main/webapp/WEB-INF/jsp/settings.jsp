@@ -137,6 +137,110 @@
                 <div class="desc"><strong>Default</strong>: <code>0</code> days</div>
             </div>
 
+            <div class="field">
+                <label for="httpCacheMaxSize">
+                    <span class="label">HTTP cache size (in MB)</span>
+                    <input type="number"
+                        id="httpCacheMaxSize"
+                        name="httpCacheMaxSize"
+                        data-lpignore="true"
+                        min="0"
+                        value="<c:out value="${it.config.httpCacheMaxSize}" />" />
+                </label>
+                <div class="desc">Maximum disk space used to cache downloaded files, such as the AtlasMapper configuration files. The cache is saved in the thumbnail cache directory. Set to <code>0</code> to disable the cache.</div>
+                <div class="desc"><strong>Default</strong>: <code>500</code> MB</div>
+            </div>
+
+            <div class="field">
+                <label for="textCacheMaxSize">
+                    <span class="label">Text cache size (in MB)</span>
+                    <input type="number"
+                        id="textCacheMaxSize"
+                        name="textCacheMaxSize"
+                        data-lpignore="true"
+                        min="0"
+                        value="<c:out value="${it.config.textCacheMaxSize}" />" />
+                </label>
+                <div class="desc">Maximum disk space used to cache the text extracted from external links (web pages, PDF documents, etc). Documents which have not changed since the last harvest are not parsed again. The cache is saved in the thumbnail cache directory. Set to <code>0</code> to disable the cache.</div>
+                <div class="desc"><strong>Default</strong>: <code>100</code> MB</div>
+            </div>
+
+            <div class="field">
+                <label for="textExtractionTimeout">
+                    <span class="label">Text extraction time limit (in seconds)</span>
+                    <input type="number"
+                        id="textExtractionTimeout"
+                        name="textExtractionTimeout"
+                        data-lpignore="true"
+                        min="1"
+                        value="<c:out value="${it.config.textExtractionTimeout}" />" />
+                </label>
+                <div class="desc">Maximum time spent extracting the text of an external link document. When the limit is reached, the text extracted so far is indexed.</div>
+                <div class="desc"><strong>Default</strong>: <code>60</code> seconds</div>
+            </div>
+
+            <div class="field">
+                <label for="textExtractionMaxPages">
+                    <span class="label">Text extraction page limit</span>
+                    <input type="number"
+                        id="textExtractionMaxPages"
+                        name="textExtractionMaxPages"
+                        data-lpignore="true"
+                        min="1"
+                        value="<c:out value="${it.config.textExtractionMaxPages}" />" />
+                </label>
+                <div class="desc">Maximum number of pages extracted from an external link PDF document. Only the first pages of larger documents are indexed.</div>
+                <div class="desc"><strong>Default</strong>: <code>300</code> pages</div>
+            </div>
+
+            <div class="field">
+                <span class="label">Host limits</span>
+                <c:forEach items="${it.config.hostLimits}" var="hostLimit">
+                    <div class="field-group">
+                        <label>
+                            <span class="label">Host</span>
+                            <input type="text"
+                                name="hostLimitHost"
+                                data-lpignore="true"
+                                value="<c:out value="${hostLimit.host}" />" />
+                        </label>
+                        <label>
+                            <span class="label">Requests per second</span>
+                            <input type="number"
+                                name="hostLimitRequestsPerSecond"
+                                data-lpignore="true"
+                                min="0" step="any"
+                                value="<c:out value="${hostLimit.requestsPerSecond}" />" />
+                        </label>
+                        <label>
+                            <span class="label">Simultaneous requests</span>
+                            <input type="number"
+                                name="hostLimitMaxInFlight"
+                                data-lpignore="true"
+                                min="0"
+                                value="<c:out value="${hostLimit.maxInFlight}" />" />
+                        </label>
+                    </div>
+                </c:forEach>
+                <!-- To add a host -->
+                <div class="field-group">
+                    <label>
+                        <span class="label">Host</span>
+                        <input type="text" name="hostLimitHost" data-lpignore="true" value="" />
+                    </label>
+                    <label>
+                        <span class="label">Requests per second</span>
+                        <input type="number" name="hostLimitRequestsPerSecond" data-lpignore="true" min="0" step="any" value="" />
+                    </label>
+                    <label>
+                        <span class="label">Simultaneous requests</span>
+                        <input type="number" name="hostLimitMaxInFlight" data-lpignore="true" min="0" value="" />
+                    </label>
+                </div>
+                <div class="desc">Limits the requests sent to a host by all the indexers. Use <code>0</code> for no limit on requests per second, or for the default number of simultaneous requests (<code>10</code>). Use the host <code>*</code> to set the limits of hosts which are not listed. Clear the host to delete a row.</div>
+                <div class="desc"><strong>Example</strong>: <code>maps.eatlas.org.au</code>, <code>2</code> requests per second, <code>2</code> simultaneous requests</div>
+            </div>
+
             <div class="field">
                 <label for="reindexToken">
                     <span class="label">Reindex token</span>
@@ -287,6 +391,20 @@
                                 <div class="desc"><strong>Default</strong>: Default broken thumbnail TTL, defined above</div>
                             </div>
 
+                            <div class="field">
+                                <label for="${indexer.index}_maxResponseSize">
+                                    <span class="label">Maximum response size (in MB)</span>
+                                    <input type="number"
+                                        id="${indexer.index}_maxResponseSize"
+                                        name="${indexer.index}_maxResponseSize"
+                                        data-lpignore="true"
+                                        min="0"
+                                        value="<c:out value="${indexer.maxResponseSize}" default="" />" />
+                                </label>
+                                <div class="desc">Maximum size of documents downloaded by the indexer. Larger documents are skipped. Set to 0 for unlimited.</div>
+                                <div class="desc"><strong>Default</strong>: Unlimited</div>
+                            </div>
+
                             <!--
                                 Output the forms for each index type.
                                 Switch to the right one using JS when the dropdown value changes.
@@ -840,6 +958,34 @@
                                             <div class="desc"><strong>Example</strong>: <code>eatlas, nwatlas, !demo, !test</code></div>
                                             <div class="desc"><strong>NOTE</strong>: Due to a bug in GeoNetwork's CSW API, the space character in the <em>Non Custodian</em> category is interpreted as 2 category: <em>Non</em> and <em>Custodian</em>. To select all <em>Non Custodian</em> records, set categories to <code>Non, Custodian</code>. To select all <em>Custodian</em> records, set categories to <code>!Non, Custodian</code>.</div>
                                         </div>
+
+                                        <div class="field">
+                                            <label for="${indexer.index}_minRecordsPerPage">
+                                                <span class="label">Minimum records per page</span>
+                                                <input type="number"
+                                                    id="${indexer.index}_minRecordsPerPage"
+                                                    name="${indexer.index}_minRecordsPerPage"
+                                                    data-lpignore="true"
+                                                    min="1"
+                                                    value="<c:out value="${indexer.minRecordsPerPage}" default="" />" />
+                                            </label>
+                                            <div class="desc">Number of metadata records requested in the first CSW page. The page size adapts to GeoNetwork's response time and response size, but never goes below this value.</div>
+                                            <div class="desc"><strong>Default</strong>: 10</div>
+                                        </div>
+
+                                        <div class="field">
+                                            <label for="${indexer.index}_maxRecordsPerPage">
+                                                <span class="label">Maximum records per page</span>
+                                                <input type="number"
+                                                    id="${indexer.index}_maxRecordsPerPage"
+                                                    name="${indexer.index}_maxRecordsPerPage"
+                                                    data-lpignore="true"
+                                                    min="1"
+                                                    value="<c:out value="${indexer.maxRecordsPerPage}" default="" />" />
+                                            </label>
+                                            <div class="desc">Maximum number of metadata records requested in a CSW page.</div>
+                                            <div class="desc"><strong>Default</strong>: 100</div>
+                                        </div>
                                     </div>
                                 </c:when>
 
@@ -0,0 +1,146 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine;
+
+import au.gov.aims.eatlas.searchengine.logger.AbstractLogger;
+import au.gov.aims.eatlas.searchengine.logger.ConsoleLogger;
+import org.apache.http.entity.ContentType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BaseMapCacheTest {
+
+    @Test
+    public void testGetLevel() {
+        // The whole world, in a 512 x 256 image: 2 tiles of 256 x 256 pixels
+        Assertions.assertEquals(0, BaseMapCache.getLevel(360.0 / 512, 180.0 / 256), "Wrong level for the whole world");
+        // Half the resolution of level 1
+        Assertions.assertEquals(1, BaseMapCache.getLevel(360.0 / 1000, 180.0 / 500), "Wrong level");
+        // Higher resolution than the highest level
+        Assertions.assertEquals(BaseMapCache.MAX_LEVEL, BaseMapCache.getLevel(0.000001, 0.000001), "The level should not exceed the max level");
+    }
+
+    @Test
+    public void testGetImageFromCachedTiles(@TempDir File cacheDirectory) throws IOException {
+        // Level 0: West hemisphere is red, East hemisphere is blue.
+        this.createTile(cacheDirectory, 0, 0, 0, Color.RED);
+        this.createTile(cacheDirectory, 0, 1, 0, Color.BLUE);
+
+        // The tiles are on disk, the HTTP client is not used.
+        BaseMapCache baseMapCache = new BaseMapCache(cacheDirectory, "https://domain.com/wms?BBOX={BBOX}&WIDTH={WIDTH}&HEIGHT={HEIGHT}");
+
+        BufferedImage world = baseMapCache.getImage(null, -180, -90, 180, 90, 512, 256, null, ConsoleLogger.getInstance());
+        Assertions.assertNotNull(world, "The world image could not be created");
+        Assertions.assertEquals(512, world.getWidth(), "Wrong image width");
+        Assertions.assertEquals(256, world.getHeight(), "Wrong image height");
+        Assertions.assertEquals(Color.RED.getRGB(), world.getRGB(10, 128), "The West hemisphere should be red");
+        Assertions.assertEquals(Color.BLUE.getRGB(), world.getRGB(500, 128), "The East hemisphere should be blue");
+
+        // Crop around the Greenwich meridian
+        BufferedImage crop = baseMapCache.getImage(null, -10, -5, 10, 5, 20, 10, null, ConsoleLogger.getInstance());
+        Assertions.assertNotNull(crop, "The cropped image could not be created");
+        Assertions.assertEquals(Color.RED.getRGB(), crop.getRGB(2, 5), "The West part should be red");
+        Assertions.assertEquals(Color.BLUE.getRGB(), crop.getRGB(17, 5), "The East part should be blue");
+    }
+
+    @Test
+    public void testMissingTile(@TempDir File cacheDirectory) {
+        // The tile is not cached and the tile request fail: no image.
+        BaseMapCache baseMapCache = new BaseMapCache(cacheDirectory, "https://domain.com/wms?BBOX={BBOX}&WIDTH={WIDTH}&HEIGHT={HEIGHT}");
+        BufferedImage image = baseMapCache.getImage(MockHttpClient.getInstance(), -10, -5, 10, 5, 20, 10, null, ConsoleLogger.getInstance());
+        Assertions.assertNull(image, "The image should be null when a tile can not be requested");
+    }
+
+    @Test
+    public void testConcurrentTileRequests(@TempDir File cacheDirectory) throws Exception {
+        byte[] tileBytes = this.createTileBytes(Color.RED);
+        AtomicInteger requestCount = new AtomicInteger(0);
+        MockHttpClient httpClient = new MockHttpClient() {
+            @Override
+            public Response getRequest(String url, AbstractLogger logger) throws InterruptedException {
+                requestCount.incrementAndGet();
+                // Slow server, to let the other threads wait for the tile
+                Thread.sleep(100);
+                return new Response(200, tileBytes, ContentType.IMAGE_PNG, new HashMap<>(), null);
+            }
+        };
+        BaseMapCache baseMapCache = new BaseMapCache(cacheDirectory, "https://domain.com/wms?BBOX={BBOX}&WIDTH={WIDTH}&HEIGHT={HEIGHT}");
+
+        // The whole world, at level 0: 2 tiles
+        List<Future<BufferedImage>> images = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int i=0; i<8; i++) {
+                images.add(executor.submit(() ->
+                        baseMapCache.getImage(httpClient, -180, -90, 180, 90, 512, 256, null, ConsoleLogger.getInstance())));
+            }
+            for (Future<BufferedImage> image : images) {
+                Assertions.assertNotNull(image.get(), "The world image could not be created");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assertions.assertEquals(2, requestCount.get(), "Each tile should be requested once");
+        File[] tileFiles = new File(cacheDirectory, "0").listFiles();
+        Assertions.assertNotNull(tileFiles, "The tiles were not saved");
+        for (File tileDirectory : tileFiles) {
+            String[] filenames = tileDirectory.list();
+            Assertions.assertArrayEquals(new String[]{ "0.tile" }, filenames,
+                    String.format("Unexpected files in the tile directory %s", tileDirectory));
+        }
+    }
+
+    private void createTile(File cacheDirectory, int level, int tileX, int tileY, Color color) throws IOException {
+        File tileFile = new File(cacheDirectory, level + "/" + tileX + "/" + tileY + ".tile");
+        tileFile.getParentFile().mkdirs();
+        ImageIO.write(this.createTileImage(color), "png", tileFile);
+    }
+
+    private byte[] createTileBytes(Color color) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ImageIO.write(this.createTileImage(color), "png", outputStream);
+        return outputStream.toByteArray();
+    }
+
+    private BufferedImage createTileImage(Color color) {
+        BufferedImage tile = new BufferedImage(BaseMapCache.TILE_SIZE, BaseMapCache.TILE_SIZE, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = tile.createGraphics();
+        graphics.setColor(color);
+        graphics.fillRect(0, 0, tile.getWidth(), tile.getHeight());
+        graphics.dispose();
+        return tile;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class CircuitBreakerTest {
+
+    @Test
+    public void testOpenAfterConsecutiveFailures() {
+        long start = System.currentTimeMillis();
+        CircuitBreaker circuitBreaker = new CircuitBreaker("domain.com");
+
+        for (int i=0; i<4; i++) {
+            circuitBreaker.recordFailure();
+        }
+        Assertions.assertTrue(circuitBreaker.allowRequest(), "The circuit opened before reaching the failure threshold");
+
+        circuitBreaker.recordFailure();
+        Assertions.assertFalse(circuitBreaker.allowRequest(), "The circuit did not open after 5 consecutive failures");
+        Assertions.assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState(), "Wrong circuit state");
+        Assertions.assertTrue(circuitBreaker.getRemainingOpenTime() > 0, "The open circuit has no remaining open time");
+        Assertions.assertTrue(circuitBreaker.wasOpenedSince(start), "The circuit breaker did not record when it was opened");
+    }
+
+    @Test
+    public void testSuccessResetFailures() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker("domain.com");
+
+        for (int i=0; i<4; i++) {
+            circuitBreaker.recordFailure();
+        }
+        circuitBreaker.recordSuccess();
+        for (int i=0; i<4; i++) {
+            circuitBreaker.recordFailure();
+        }
+
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState(), "Failures which are not consecutive opened the circuit");
+        Assertions.assertFalse(circuitBreaker.wasOpenedSince(0), "The circuit breaker was never opened");
+    }
+
+    @Test
+    public void testSingleHalfOpenProbe() throws InterruptedException {
+        CircuitBreaker circuitBreaker = new CircuitBreaker("domain.com", 100);
+
+        for (int i=0; i<5; i++) {
+            circuitBreaker.recordFailure();
+        }
+        Assertions.assertFalse(circuitBreaker.allowRequest(), "The circuit did not open after 5 consecutive failures");
+
+        Thread.sleep(200);
+        Assertions.assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState(), "Wrong circuit state");
+        Assertions.assertTrue(circuitBreaker.allowRequest(), "The half-open circuit did not allow the probe request");
+        Assertions.assertFalse(circuitBreaker.allowRequest(), "The half-open circuit allowed a second request while the probe was in flight");
+
+        circuitBreaker.recordSuccess();
+        Assertions.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState(), "The successful probe did not close the circuit");
+        Assertions.assertTrue(circuitBreaker.allowRequest(), "The closed circuit did not allow the request");
+        Assertions.assertTrue(circuitBreaker.allowRequest(), "The closed circuit did not allow the request");
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine;
+
+import au.gov.aims.eatlas.searchengine.admin.HostLimit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class HostGovernorTest {
+
+    @Test
+    public void testRequestsPerSecond() {
+        HostGovernor hostGovernor = new HostGovernor(new HostLimit("domain.com", 2, 0), 10);
+
+        // The bucket holds 2 tokens
+        for (int i=0; i<2; i++) {
+            Assertions.assertEquals(0, hostGovernor.tryAcquire(), "The request was throttled before the bucket was empty");
+            hostGovernor.release();
+        }
+
+        // The next request needs to wait for about 0.5 second
+        long waitTime = hostGovernor.tryAcquire();
+        Assertions.assertTrue(waitTime > 0 && waitTime <= 500, String.format("Wrong wait time: %d ms", waitTime));
+    }
+
+    @Test
+    public void testMaxInFlight() {
+        HostGovernor hostGovernor = new HostGovernor(new HostLimit("domain.com", 0, 2), 10);
+
+        Assertions.assertEquals(0, hostGovernor.tryAcquire(), "The first request was throttled");
+        Assertions.assertEquals(0, hostGovernor.tryAcquire(), "The second request was throttled");
+        Assertions.assertTrue(hostGovernor.tryAcquire() > 0, "Simultaneous requests were not limited");
+
+        // The response of a request is received
+        hostGovernor.release();
+        Assertions.assertEquals(0, hostGovernor.tryAcquire(), "The released permit was not re-used");
+    }
+
+    @Test
+    public void testNoLimit() {
+        HostGovernor hostGovernor = new HostGovernor(null, 10);
+
+        for (int i=0; i<100; i++) {
+            Assertions.assertEquals(0, hostGovernor.tryAcquire(), "Requests were throttled");
+            hostGovernor.release();
+        }
+
+        // The default maximum number of simultaneous requests still applies
+        for (int i=0; i<10; i++) {
+            Assertions.assertEquals(0, hostGovernor.tryAcquire(), "Simultaneous requests were limited below the default maximum");
+        }
+        Assertions.assertTrue(hostGovernor.tryAcquire() > 0, "Simultaneous requests were not limited to the default maximum");
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class HotImageCacheTest {
+
+    @Test
+    public void testCachedContent(@TempDir File cacheDirectory) throws Exception {
+        HotImageCache hotImageCache = new HotImageCache(1024, 100);
+        File file = this.createFile(cacheDirectory, "thumbnail.jpg", "0123456789");
+        long lastModified = file.lastModified();
+
+        Assertions.assertNull(hotImageCache.get(file), "The file should not be cached yet");
+        Assertions.assertEquals("0123456789", this.getContent(hotImageCache.load(file, lastModified, file.length())), "Wrong content");
+
+        // Cache hits are served from memory, without accessing the file
+        Assertions.assertTrue(file.delete(), "The file could not be deleted");
+        HotImageCache.Entry entry = hotImageCache.get(file);
+        Assertions.assertNotNull(entry, "The file was not cached");
+        Assertions.assertEquals("0123456789", this.getContent(entry), "Wrong cached content");
+        Assertions.assertEquals(lastModified, entry.getLastModified(), "Wrong cached last modified date");
+        Assertions.assertEquals(10, entry.getSize(), "Wrong cached size");
+
+        Assertions.assertEquals(1, hotImageCache.getMissCount(), "Wrong number of cache miss");
+        Assertions.assertEquals(1, hotImageCache.getHitCount(), "Wrong number of cache hit");
+        Assertions.assertEquals(10, hotImageCache.getTotalSize(), "Wrong cache size");
+
+        // Deleted files are removed from the cache
+        hotImageCache.remove(file);
+        Assertions.assertNull(hotImageCache.get(file), "The removed file was returned");
+        Assertions.assertEquals(0, hotImageCache.getTotalSize(), "Wrong cache size after remove");
+    }
+
+    @Test
+    public void testLargeFile(@TempDir File cacheDirectory) throws Exception {
+        HotImageCache hotImageCache = new HotImageCache(1024, 5);
+        File file = this.createFile(cacheDirectory, "large.jpg", "0123456789");
+
+        Assertions.assertNull(hotImageCache.load(file, file.lastModified(), file.length()), "Large files should not be cached");
+        Assertions.assertNull(hotImageCache.get(file), "Large files should not be cached");
+        Assertions.assertEquals(0, hotImageCache.getTotalSize(), "Wrong cache size");
+    }
+
+    private File createFile(File directory, String filename, String content) throws Exception {
+        File file = new File(directory, filename);
+        FileUtils.writeStringToFile(file, content, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private String getContent(HotImageCache.Entry entry) {
+        Assertions.assertNotNull(entry, "The file was not cached");
+        ByteBuffer content = entry.getContent();
+        byte[] bytes = new byte[content.remaining()];
+        content.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine;
+
+import au.gov.aims.eatlas.searchengine.logger.ConsoleLogger;
+import org.apache.http.entity.ContentType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+
+public class HttpCacheTest {
+
+    @Test
+    public void testCachedResponse(@TempDir File cacheDirectory) {
+        HttpCache httpCache = new HttpCache(cacheDirectory, 1024);
+        String url = "https://domain.com/config/main.json";
+
+        httpCache.put(url, this.createResponse("{\"clientId\": \"eatlas\"}", "\"abc\""), ConsoleLogger.getInstance());
+
+        HttpCache.Entry entry = httpCache.get(url);
+        Assertions.assertNotNull(entry, "The response was not cached");
+        Assertions.assertEquals("\"abc\"", entry.getEtag(), "Wrong ETag");
+
+        HttpClient.Response cachedResponse = httpCache.getResponse(entry);
+        Assertions.assertNotNull(cachedResponse, "The cached response could not be loaded");
+        Assertions.assertTrue(cachedResponse.isNotModified(), "The cached response is not flagged as not modified");
+        Assertions.assertEquals("eatlas", cachedResponse.jsonBody().optString("clientId"), "Wrong cached response body");
+
+        // The cache is persistent
+        HttpCache reloadedHttpCache = new HttpCache(cacheDirectory, 1024);
+        Assertions.assertNotNull(reloadedHttpCache.get(url), "The cache entry was not reloaded from disk");
+    }
+
+    @Test
+    public void testNoValidator(@TempDir File cacheDirectory) {
+        HttpCache httpCache = new HttpCache(cacheDirectory, 1024);
+        String url = "https://domain.com/config/main.json";
+
+        httpCache.put(url, this.createResponse("{}", null), ConsoleLogger.getInstance());
+        Assertions.assertNull(httpCache.get(url), "A response without ETag or Last-Modified should not be cached");
+    }
+
+    @Test
+    public void testEvictedFilesDeleted(@TempDir File cacheDirectory) {
+        HttpCache httpCache = new HttpCache(cacheDirectory, 10);
+        String url1 = "https://domain.com/1.txt";
+        String url2 = "https://domain.com/2.txt";
+
+        httpCache.put(url1, this.createResponse("0123456789", "\"1\""), ConsoleLogger.getInstance());
+        httpCache.put(url2, this.createResponse("0123456789", "\"2\""), ConsoleLogger.getInstance());
+
+        Assertions.assertNull(httpCache.get(url1), "The least recently used entry was not evicted");
+        Assertions.assertEquals(1, cacheDirectory.listFiles((dir, name) -> name.endsWith(".body")).length,
+                "The body file of the evicted entry was not deleted");
+        Assertions.assertEquals(1, cacheDirectory.listFiles((dir, name) -> name.endsWith(".json")).length,
+                "The metadata file of the evicted entry was not deleted");
+    }
+
+    private HttpClient.Response createResponse(String body, String etag) {
+        return MockHttpClient.createResponse(body, ContentType.APPLICATION_JSON, etag, null);
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine;
+
+import au.gov.aims.eatlas.searchengine.logger.ConsoleLogger;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class HttpClientTest {
+
+    @Test
+    public void testServerErrorsOpenCircuitBreaker() throws Exception {
+        AtomicInteger requestCount = new AtomicInteger(0);
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            requestCount.incrementAndGet();
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+        });
+        server.start();
+
+        try {
+            HttpClient httpClient = new HttpClient(10);
+            String url = String.format("http://localhost:%d/record", server.getAddress().getPort());
+
+            // Each request is sent twice (see HttpClient.REQUEST_RETRY)
+            for (int i=0; i<2; i++) {
+                try (HttpClient.Response response = httpClient.getRequest(url, ConsoleLogger.getInstance())) {
+                    Assertions.assertEquals(503, response.statusCode(), "Wrong status code");
+                }
+            }
+            Assertions.assertEquals(4, requestCount.get(), "The server errors were not re-tried");
+            Assertions.assertFalse(httpClient.getCircuitBreaker(url).isOpen(), "The circuit opened before reaching the failure threshold");
+
+            // The 5th server error opens the circuit. The retry fails without reaching the server.
+            Assertions.assertThrows(HostUnavailableException.class, () -> httpClient.getRequest(url, ConsoleLogger.getInstance()),
+                    "The request was sent to a host with an open circuit");
+            Assertions.assertEquals(5, requestCount.get(), "Wrong number of requests sent to the server");
+            Assertions.assertTrue(httpClient.getCircuitBreaker(url).isOpen(), "Repeated server errors did not open the circuit");
+        } finally {
+            server.stop(0);
+        }
+    }
+}
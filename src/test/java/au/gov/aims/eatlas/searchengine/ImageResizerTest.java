@@ -0,0 +1,207 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ImageResizerTest {
+    private static final String[] TEST_IMAGES = {
+        "atlasmapperFiles/preview/preview_baselayer.jpg",
+        "atlasmapperFiles/preview/preview_Hammond-PASS.png",
+        "atlasmapperFiles/preview/preview_Saibai-Boundary.png",
+        "metadataRecords/previews/preview.jpg",
+        "metadataRecords/previews/preview.png"
+    };
+
+    private static final int THUMBNAIL_WIDTH = 200;
+    private static final int THUMBNAIL_HEIGHT = 150;
+
+    @Test
+    public void testResizeCropImage() throws Exception {
+        for (byte[] imageBytes : getTestImages()) {
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(imageBytes));
+            BufferedImage thumbnail = ImageResizer.resizeCropImage(image, THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT);
+
+            Assertions.assertEquals(THUMBNAIL_WIDTH, thumbnail.getWidth(), "Wrong thumbnail width");
+            Assertions.assertEquals(THUMBNAIL_HEIGHT, thumbnail.getHeight(), "Wrong thumbnail height");
+        }
+    }
+
+    @Test
+    public void testReadImageSubsampling() throws Exception {
+        Assertions.assertEquals(1, ImageResizer.getSubsampling(300, 200, THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT), "Small images should not be subsampled");
+        Assertions.assertEquals(6, ImageResizer.getSubsampling(3000, 2000, THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT), "Wrong subsampling");
+
+        BufferedImage image = ImageResizer.readImage(new ByteArrayInputStream(createLargeImage()), THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT);
+        Assertions.assertNotNull(image, "The image could not be decoded");
+        // 3000 x 2000 image, decoded with a subsampling of 6.
+        //     The decoded image is still at least twice as large as the thumbnail.
+        Assertions.assertEquals(500, image.getWidth(), "Wrong decoded image width");
+        Assertions.assertEquals(334, image.getHeight(), "Wrong decoded image height");
+
+        BufferedImage thumbnail = ImageResizer.resizeCropImage(image, THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT);
+        byte[] thumbnailBytes = ImageResizer.getImageData(thumbnail);
+        BufferedImage decodedThumbnail = ImageIO.read(new ByteArrayInputStream(thumbnailBytes));
+        Assertions.assertEquals(THUMBNAIL_WIDTH, decodedThumbnail.getWidth(), "Wrong encoded thumbnail width");
+        Assertions.assertEquals(THUMBNAIL_HEIGHT, decodedThumbnail.getHeight(), "Wrong encoded thumbnail height");
+    }
+
+    /**
+     * Compare the previous thumbnail pipeline (ImageIO.read, Image.getScaledInstance, ImageIO.write)
+     * with the ImageResizer pipeline (subsampled decoding, multi-step scaling, reused JPEG writer).
+     * Disabled by default, it's a benchmark, not a test. Run it manually.
+     */
+    @Test
+    @Disabled
+    public void benchmarkResize() throws Exception {
+        int iterations = 20;
+
+        List<byte[]> testImages = getTestImages();
+        List<byte[]> largeImages = new ArrayList<>();
+        largeImages.add(createLargeImage());
+
+        // Warm up
+        this.runLegacy(testImages, 5);
+        this.runResizer(testImages, 5);
+        this.runLegacy(largeImages, 2);
+        this.runResizer(largeImages, 2);
+
+        long start = System.nanoTime();
+        this.runLegacy(testImages, iterations);
+        long legacyTestImages = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        this.runResizer(testImages, iterations);
+        long resizerTestImages = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        this.runLegacy(largeImages, iterations);
+        long legacyLargeImages = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        this.runResizer(largeImages, iterations);
+        long resizerLargeImages = System.nanoTime() - start;
+
+        System.out.printf("Test images (%d images, %d iterations)%n", testImages.size(), iterations);
+        System.out.printf("    getScaledInstance: %d ms%n", legacyTestImages / 1000000);
+        System.out.printf("    ImageResizer: %d ms%n", resizerTestImages / 1000000);
+        System.out.printf("    Speedup: %.1fx%n", (double)legacyTestImages / resizerTestImages);
+        System.out.printf("3000 x 2000 JPEG (%d iterations)%n", iterations);
+        System.out.printf("    getScaledInstance: %d ms%n", legacyLargeImages / 1000000);
+        System.out.printf("    ImageResizer: %d ms%n", resizerLargeImages / 1000000);
+        System.out.printf("    Speedup: %.1fx%n", (double)legacyLargeImages / resizerLargeImages);
+    }
+
+    private long runLegacy(List<byte[]> images, int iterations) throws Exception {
+        long size = 0;
+        for (int i = 0; i < iterations; i++) {
+            for (byte[] imageBytes : images) {
+                BufferedImage image = ImageIO.read(new ByteArrayInputStream(imageBytes));
+                BufferedImage thumbnail = legacyResizeCropImage(image, THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT);
+                ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                ImageIO.write(thumbnail, "jpg", baos);
+                size += baos.size();
+            }
+        }
+        return size;
+    }
+
+    private long runResizer(List<byte[]> images, int iterations) throws Exception {
+        long size = 0;
+        for (int i = 0; i < iterations; i++) {
+            for (byte[] imageBytes : images) {
+                BufferedImage image = ImageResizer.readImage(new ByteArrayInputStream(imageBytes), THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT);
+                BufferedImage thumbnail = ImageResizer.resizeCropImage(image, THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT);
+                size += ImageResizer.getImageData(thumbnail).length;
+            }
+        }
+        return size;
+    }
+
+    // Previous implementation of ImageResizer.resizeCropImage, used as the benchmark baseline.
+    private static BufferedImage legacyResizeCropImage(BufferedImage originalImage, int targetWidth, int targetHeight) {
+        int originalWidth = originalImage.getWidth();
+        int originalHeight = originalImage.getHeight();
+
+        double scale = Math.max(
+            (double) targetWidth / originalWidth,
+            (double) targetHeight / originalHeight
+        );
+
+        int scaledWidth = (int) (scale * originalWidth);
+        int scaledHeight = (int) (scale * originalHeight);
+
+        Image tmp = originalImage.getScaledInstance(scaledWidth, scaledHeight, Image.SCALE_SMOOTH);
+        BufferedImage resizedImage = new BufferedImage(scaledWidth, scaledHeight, BufferedImage.TYPE_INT_RGB);
+
+        Graphics2D g2d = resizedImage.createGraphics();
+        g2d.drawImage(tmp, 0, 0, null);
+        g2d.dispose();
+
+        int x = (scaledWidth - targetWidth) / 2;
+        int y = (scaledHeight - targetHeight) / 2;
+
+        return resizedImage.getSubimage(x, y,
+            Math.min(targetWidth, scaledWidth),
+            Math.min(targetHeight, scaledHeight));
+    }
+
+    private static List<byte[]> getTestImages() throws Exception {
+        ClassLoader classLoader = ImageResizerTest.class.getClassLoader();
+        List<byte[]> images = new ArrayList<>();
+        for (String testImage : TEST_IMAGES) {
+            try (InputStream inputStream = classLoader.getResourceAsStream(testImage)) {
+                Assertions.assertNotNull(inputStream, String.format("Missing test image: %s", testImage));
+                images.add(inputStream.readAllBytes());
+            }
+        }
+        return images;
+    }
+
+    // Photo sized image, similar to the Drupal preview images.
+    private static byte[] createLargeImage() throws Exception {
+        BufferedImage image = new BufferedImage(3000, 2000, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setPaint(new GradientPaint(0, 0, Color.BLUE, 3000, 2000, Color.ORANGE));
+        g2d.fillRect(0, 0, 3000, 2000);
+        g2d.setColor(Color.WHITE);
+        for (int i = 0; i < 100; i++) {
+            g2d.drawOval(i * 30, i * 20, 200, 150);
+        }
+        g2d.dispose();
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", baos);
+        return baos.toByteArray();
+    }
+}
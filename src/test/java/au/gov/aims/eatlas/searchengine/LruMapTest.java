@@ -0,0 +1,63 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class LruMapTest {
+
+    @Test
+    public void testLeastRecentlyUsedEviction() {
+        List<String> evictedKeys = new ArrayList<>();
+        LruMap<String, Long> lruMap = new LruMap<>(20, Long::longValue, (key, size) -> evictedKeys.add(key));
+
+        lruMap.put("1", 10L);
+        lruMap.put("2", 10L);
+
+        // Access 1, to make 2 the least recently used
+        Assertions.assertNotNull(lruMap.get("1"));
+
+        lruMap.put("3", 10L);
+
+        Assertions.assertNotNull(lruMap.get("1"), "The recently used entry was evicted");
+        Assertions.assertNull(lruMap.get("2"), "The least recently used entry was not evicted");
+        Assertions.assertNotNull(lruMap.get("3"), "The new entry was evicted");
+        Assertions.assertEquals(List.of("2"), evictedKeys, "The eviction listener was not called for the evicted entry");
+        Assertions.assertEquals(20, lruMap.getTotalSize(), "Wrong total size");
+    }
+
+    @Test
+    public void testReplaceAndRemove() {
+        List<String> evictedKeys = new ArrayList<>();
+        LruMap<String, Long> lruMap = new LruMap<>(20, Long::longValue, (key, size) -> evictedKeys.add(key));
+
+        lruMap.put("1", 10L);
+        Assertions.assertEquals(10L, lruMap.put("1", 5L), "The replaced value was not returned");
+        Assertions.assertEquals(5, lruMap.getTotalSize(), "The size of the replaced value was not removed");
+
+        Assertions.assertEquals(5L, lruMap.remove("1"), "The removed value was not returned");
+        Assertions.assertEquals(0, lruMap.getTotalSize(), "The size of the removed value was not removed");
+        Assertions.assertEquals(0, lruMap.size(), "The value was not removed");
+        Assertions.assertTrue(evictedKeys.isEmpty(), "The eviction listener was called for replaced or removed values");
+    }
+}
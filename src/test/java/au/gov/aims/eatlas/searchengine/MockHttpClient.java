@@ -57,6 +57,26 @@ public class MockHttpClient extends HttpClient {
         return this.getResourceResponse(this.requestMap.get(urlRequest));
     }
 
+    @Override
+    public Response getRequest(String url, Integer timeout, Long maxBodySize, AbstractLogger logger) throws IOException, InterruptedException {
+        return this.getRequest(url, logger);
+    }
+
+    @Override
+    public Response getConditionalRequest(String url, Map<String, String> headers, Long maxBodySize, AbstractLogger logger) throws IOException, InterruptedException {
+        return this.getRequest(url, logger);
+    }
+
+    @Override
+    public Response getCachedRequest(String url, AbstractLogger logger) throws IOException, InterruptedException {
+        return this.getRequest(url, logger);
+    }
+
+    @Override
+    public Response getCachedRequest(String url, Long maxBodySize, AbstractLogger logger) throws IOException, InterruptedException {
+        return this.getRequest(url, logger);
+    }
+
     @Override
     public Response postXmlRequest(String url, String requestBody, AbstractLogger logger) throws IOException, InterruptedException {
         MockHttpRequest urlRequest = new MockHttpRequest(url, requestBody);
@@ -104,6 +124,23 @@ public class MockHttpClient extends HttpClient {
         }
     }
 
+    // Response with optional validators (ETag, Last-Modified), used to test the caches.
+    public static Response createResponse(String body, ContentType contentType, String etag, String lastModified) {
+        Map<String, String> headers = new HashMap<>();
+        if (etag != null) {
+            headers.put("ETag", etag);
+        }
+        if (lastModified != null) {
+            headers.put("Last-Modified", lastModified);
+        }
+        return new Response(
+                200,
+                body.getBytes(StandardCharsets.UTF_8),
+                contentType,
+                headers,
+                null);
+    }
+
     private Response notFound(String errorMessage) {
         return new Response(404, errorMessage.getBytes(StandardCharsets.UTF_8), null, null, null);
     }
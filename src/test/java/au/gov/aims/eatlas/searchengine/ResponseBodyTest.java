@@ -0,0 +1,85 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class ResponseBodyTest {
+
+    @Test
+    public void testSmallBodyInMemory() throws Exception {
+        byte[] content = "{\"title\": \"Coral reefs\"}".getBytes(StandardCharsets.UTF_8);
+        try (ResponseBody body = ResponseBody.read(new ByteArrayInputStream(content), null)) {
+            Assertions.assertFalse(body.isOnDisk(), "A small body should be kept in memory");
+            Assertions.assertEquals(content.length, body.getSize(), "Wrong body size");
+            Assertions.assertArrayEquals(content, body.getBytes(), "Wrong body content");
+        }
+    }
+
+    @Test
+    public void testLargeBodySpilledToDisk() throws Exception {
+        byte[] content = this.createContent(ResponseBody.MEMORY_THRESHOLD * 3 + 17);
+        File tmpFile;
+        try (ResponseBody body = ResponseBody.read(new ByteArrayInputStream(content), null)) {
+            Assertions.assertTrue(body.isOnDisk(), "A large body should be saved to a temporary file");
+            Assertions.assertEquals(content.length, body.getSize(), "Wrong body size");
+
+            tmpFile = body.getFile();
+            Assertions.assertTrue(tmpFile.isFile(), "The temporary file does not exist");
+
+            try (InputStream inputStream = body.getInputStream()) {
+                Assertions.assertArrayEquals(content, inputStream.readAllBytes(), "Wrong streamed body content");
+            }
+
+            ByteBuffer buffer = body.getByteBuffer();
+            Assertions.assertEquals(content.length, buffer.remaining(), "Wrong memory mapped body size");
+            Assertions.assertEquals(content[content.length - 1], buffer.get(content.length - 1), "Wrong memory mapped body content");
+        }
+
+        Assertions.assertFalse(tmpFile.exists(), "The temporary file was not deleted when the body was closed");
+    }
+
+    @Test
+    public void testMaxSize() {
+        byte[] content = this.createContent(ResponseBody.MEMORY_THRESHOLD * 2);
+
+        Assertions.assertThrows(ResponseTooLargeException.class,
+                () -> ResponseBody.read(new ByteArrayInputStream(content), 1024L),
+                "The max size was not enforced on an in memory body");
+
+        Assertions.assertThrows(ResponseTooLargeException.class,
+                () -> ResponseBody.read(new ByteArrayInputStream(content), ResponseBody.MEMORY_THRESHOLD + 1024L),
+                "The max size was not enforced on a body saved to disk");
+    }
+
+    private byte[] createContent(int size) {
+        byte[] content = new byte[size];
+        for (int i = 0; i < size; i++) {
+            content[i] = (byte)(i % 251);
+        }
+        return content;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine;
+
+import au.gov.aims.eatlas.searchengine.logger.ConsoleLogger;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.http.entity.ContentType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+
+public class TextCacheTest {
+
+    @Test
+    public void testCachedText(@TempDir File cacheDirectory) {
+        TextCache textCache = new TextCache(cacheDirectory, 1024);
+        String url = "https://domain.com/report.pdf";
+        String bodyHash = DigestUtils.sha256Hex("PDF content");
+
+        textCache.put(url, this.createResponse("\"abc\"", "Wed, 21 Oct 2015 07:28:00 GMT"), bodyHash, "Report text", ConsoleLogger.getInstance());
+
+        TextCache.Entry entry = textCache.get(url);
+        Assertions.assertNotNull(entry, "The text was not cached");
+        Assertions.assertEquals(bodyHash, entry.getBodyHash(), "Wrong body hash");
+        Assertions.assertEquals("\"abc\"", entry.getConditionalHeaders().get("If-None-Match"), "Wrong If-None-Match header");
+        Assertions.assertEquals("Wed, 21 Oct 2015 07:28:00 GMT", entry.getConditionalHeaders().get("If-Modified-Since"), "Wrong If-Modified-Since header");
+        Assertions.assertEquals("Report text", textCache.getText(entry.getBodyHash()), "Wrong cached text");
+
+        // The cache is persistent
+        TextCache reloadedTextCache = new TextCache(cacheDirectory, 1024);
+        TextCache.Entry reloadedEntry = reloadedTextCache.get(url);
+        Assertions.assertNotNull(reloadedEntry, "The cache entry was not reloaded from disk");
+        Assertions.assertEquals("Report text", reloadedTextCache.getText(reloadedEntry.getBodyHash()), "Wrong reloaded text");
+    }
+
+    @Test
+    public void testContentAddressedText(@TempDir File cacheDirectory) {
+        TextCache textCache = new TextCache(cacheDirectory, 1024);
+        String url1 = "https://domain.com/report.pdf";
+        String url2 = "https://mirror.domain.com/report.pdf";
+        String bodyHash = DigestUtils.sha256Hex("PDF content");
+
+        // Responses without validators can still be matched by body hash
+        textCache.put(url1, this.createResponse(null, null), bodyHash, "Report text", ConsoleLogger.getInstance());
+        Assertions.assertEquals("Report text", textCache.getText(bodyHash), "The text is not addressed by body hash");
+
+        textCache.put(url2, this.createResponse(null, null), bodyHash, "Report text", ConsoleLogger.getInstance());
+        Assertions.assertEquals(1, cacheDirectory.listFiles((dir, name) -> name.endsWith(".txt")).length,
+                "Identical documents should share the same text file");
+
+        // The text is still used by url2
+        textCache.remove(url1);
+        Assertions.assertNull(textCache.get(url1), "The entry was not removed");
+        Assertions.assertEquals("Report text", textCache.getText(bodyHash), "Text still in use was deleted");
+
+        textCache.remove(url2);
+        Assertions.assertNull(textCache.getText(bodyHash), "Unused text was not deleted");
+    }
+
+    @Test
+    public void testSharedTextEviction(@TempDir File cacheDirectory) {
+        TextCache textCache = new TextCache(cacheDirectory, 20);
+        String url1 = "https://domain.com/1.html";
+        String url2 = "https://mirror.domain.com/1.html";
+        String url3 = "https://domain.com/3.html";
+        String url4 = "https://domain.com/4.html";
+        String sharedBodyHash = DigestUtils.sha256Hex("1");
+
+        textCache.put(url1, this.createResponse("\"1\"", null), sharedBodyHash, "0123456789", ConsoleLogger.getInstance());
+        textCache.put(url2, this.createResponse("\"1\"", null), sharedBodyHash, "0123456789", ConsoleLogger.getInstance());
+        Assertions.assertEquals(10, textCache.getTotalSize(), "The shared text should be counted once");
+
+        textCache.put(url3, this.createResponse("\"3\"", null), DigestUtils.sha256Hex("3"), "0123456789", ConsoleLogger.getInstance());
+        textCache.put(url4, this.createResponse("\"4\"", null), DigestUtils.sha256Hex("4"), "0123456789", ConsoleLogger.getInstance());
+
+        // The shared text was the least recently used. Both URLs using it are evicted.
+        Assertions.assertNull(textCache.get(url1), "The entry using the evicted text was not evicted");
+        Assertions.assertNull(textCache.get(url2), "The entry using the evicted text was not evicted");
+        Assertions.assertNull(textCache.getText(sharedBodyHash), "The evicted text file was not deleted");
+        Assertions.assertEquals(2, cacheDirectory.listFiles((dir, name) -> name.endsWith(".json")).length,
+                "The metadata files of the evicted entries were not deleted");
+        Assertions.assertNotNull(textCache.get(url3), "The recently used entry was evicted");
+        Assertions.assertNotNull(textCache.get(url4), "The new entry was evicted");
+        Assertions.assertEquals(20, textCache.getTotalSize(), "Wrong cache size");
+    }
+
+    private HttpClient.Response createResponse(String etag, String lastModified) {
+        return MockHttpClient.createResponse("body", ContentType.TEXT_HTML, etag, lastModified);
+    }
+}
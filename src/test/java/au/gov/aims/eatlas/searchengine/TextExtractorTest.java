@@ -0,0 +1,96 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine;
+
+import org.apache.http.entity.ContentType;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+public class TextExtractorTest {
+
+    @Test
+    public void testExtractPDF() throws Exception {
+        HttpClient.Response response = this.createResponse(this.createPDF(3), ContentType.create("application/pdf"));
+
+        TextExtractor.Result result = TextExtractor.getInstance().extract(response, 60, 10);
+        Assertions.assertFalse(result.isTruncated(), "The document should not be truncated");
+        Assertions.assertEquals(3, result.getPages(), "Wrong number of extracted pages");
+        Assertions.assertTrue(result.getText().contains("Page 1"), "Missing text from page 1");
+        Assertions.assertTrue(result.getText().contains("Page 3"), "Missing text from page 3");
+    }
+
+    @Test
+    public void testPageLimit() throws Exception {
+        HttpClient.Response response = this.createResponse(this.createPDF(5), ContentType.create("application/pdf"));
+
+        long pageLimitCount = TextExtractor.getInstance().getPageLimitCount();
+        TextExtractor.Result result = TextExtractor.getInstance().extract(response, 60, 2);
+        Assertions.assertEquals(TextExtractor.Limit.PAGES, result.getLimit(), "The document should be truncated by the page limit");
+        Assertions.assertEquals(2, result.getPages(), "Wrong number of extracted pages");
+        Assertions.assertTrue(result.getText().contains("Page 2"), "Missing text from page 2");
+        Assertions.assertFalse(result.getText().contains("Page 3"), "Page 3 is over the page limit");
+        Assertions.assertEquals(pageLimitCount + 1, TextExtractor.getInstance().getPageLimitCount(), "The truncated document was not counted");
+    }
+
+    @Test
+    public void testExtractHTML() throws Exception {
+        String html = "<html><head><title>Title</title></head><body><p>Coral <b>reef</b></p></body></html>";
+        HttpClient.Response response = this.createResponse(html.getBytes(StandardCharsets.UTF_8), ContentType.create("text/html", StandardCharsets.UTF_8));
+
+        TextExtractor.Result result = TextExtractor.getInstance().extract(response, 60, 10);
+        Assertions.assertFalse(result.isTruncated(), "The document should not be truncated");
+        Assertions.assertEquals("Coral reef", result.getText(), "Wrong HTML text content");
+    }
+
+    private HttpClient.Response createResponse(byte[] body, ContentType contentType) {
+        return new HttpClient.Response(200, body, contentType, new HashMap<>(), null);
+    }
+
+    private byte[] createPDF(int pages) throws IOException {
+        try (PDDocument document = new PDDocument();
+                ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
+
+            PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+            for (int i = 1; i <= pages; i++) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
+                    contentStream.beginText();
+                    contentStream.setFont(font, 12);
+                    contentStream.newLineAtOffset(100, 700);
+                    contentStream.showText("Page " + i);
+                    contentStream.endText();
+                }
+            }
+
+            document.save(outputStream);
+            return outputStream.toByteArray();
+        }
+    }
+}
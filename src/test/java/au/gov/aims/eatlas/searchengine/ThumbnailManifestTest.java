@@ -0,0 +1,74 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine;
+
+import au.gov.aims.eatlas.searchengine.rest.ImageCache;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+public class ThumbnailManifestTest {
+
+    @Test
+    public void testLoad(@TempDir File cacheDirectory) throws Exception {
+        File thumbnailFile = new File(new File(cacheDirectory, "80"), "80f61f96184524ba54db767ed49487392430ad26bf5cf2ef689905f3400325d7.jpg");
+        FileUtils.writeStringToFile(thumbnailFile, "thumbnail", StandardCharsets.UTF_8);
+        thumbnailFile.setLastModified(1700000000000L);
+        FileUtils.writeStringToFile(new File(cacheDirectory, "legacy_thumbnail.jpg"), "legacy", StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(new File(cacheDirectory, "80"), ".tmp_123.jpg"), "partial", StandardCharsets.UTF_8);
+
+        ThumbnailManifest manifest = new ThumbnailManifest(cacheDirectory);
+        Assertions.assertEquals(2, manifest.size(), "Wrong number of thumbnails in the manifest");
+
+        ThumbnailManifest.Entry entry = manifest.get(thumbnailFile.getName());
+        Assertions.assertNotNull(entry, "The thumbnail in the shard directory is missing");
+        Assertions.assertEquals(9, entry.getSize(), "Wrong thumbnail size");
+        Assertions.assertEquals(thumbnailFile.lastModified(), entry.getLastModified(), "Wrong thumbnail last modified date");
+
+        Assertions.assertNotNull(manifest.get("legacy_thumbnail.jpg"), "The legacy thumbnail is missing");
+        Assertions.assertNull(manifest.get(".tmp_123.jpg"), "Temporary files should not be in the manifest");
+    }
+
+    @Test
+    public void testUpdatedByImageCache(@TempDir File cacheDirectory) throws Exception {
+        ThumbnailManifest manifest = ThumbnailManifest.getInstance(cacheDirectory);
+        Assertions.assertEquals(0, manifest.size(), "The manifest should be empty");
+
+        byte[] imageBytes = "thumbnail".getBytes(StandardCharsets.UTF_8);
+        File cacheFile = ImageCache.store(cacheDirectory, imageBytes);
+        ThumbnailManifest.Entry entry = manifest.get(cacheFile.getName());
+        Assertions.assertNotNull(entry, "The stored thumbnail is missing from the manifest");
+        Assertions.assertEquals(imageBytes.length, entry.getSize(), "Wrong thumbnail size");
+        Assertions.assertEquals(cacheFile.lastModified(), entry.getLastModified(), "Wrong thumbnail last modified date");
+
+        ThumbnailManifest.fileDeleted(cacheDirectory, cacheFile.getName());
+        Assertions.assertNull(manifest.get(cacheFile.getName()), "The deleted thumbnail is still in the manifest");
+
+        // The file was deleted without updating the manifest. It's written again.
+        FileUtils.forceDelete(cacheFile);
+        manifest.put(cacheFile.getName(), imageBytes.length, 0);
+        File restoredFile = ImageCache.store(cacheDirectory, imageBytes);
+        Assertions.assertTrue(restoredFile.isFile(), "The deleted thumbnail was not written again");
+        Assertions.assertEquals(restoredFile.lastModified(), manifest.get(cacheFile.getName()).getLastModified(), "Wrong thumbnail last modified date");
+    }
+}
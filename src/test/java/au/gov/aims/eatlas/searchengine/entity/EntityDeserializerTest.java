@@ -0,0 +1,190 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine.entity;
+
+import au.gov.aims.eatlas.searchengine.MockHttpClient;
+import au.gov.aims.eatlas.searchengine.admin.SearchEngineConfig;
+import au.gov.aims.eatlas.searchengine.index.ThumbnailTask;
+import au.gov.aims.eatlas.searchengine.logger.AbstractLogger;
+import au.gov.aims.eatlas.searchengine.logger.ConsoleLogger;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.net.URL;
+
+public class EntityDeserializerTest {
+    private static ObjectMapper mapper;
+
+    @BeforeAll
+    public static void setup() throws Exception {
+        URL resourceUrl = EntityDeserializerTest.class.getClassLoader().getResource("config/eatlas_search_engine.json");
+        if (resourceUrl == null) {
+            throw new FileNotFoundException("Could not find the Search Engine config file for tests");
+        }
+        File configFile = new File(resourceUrl.getFile());
+        SearchEngineConfig.createInstance(MockHttpClient.getInstance(), configFile, "eatlas_search_engine_devel.json", ConsoleLogger.getInstance());
+
+        // Same as the ESClient mapper
+        mapper = new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+    }
+
+    @Test
+    public void testDrupalNode() throws Exception {
+        JSONObject json = this.createEntityJSON("articles")
+            .put("nid", 123);
+
+        this.assertRoundTrip(DrupalNode.load(json, ConsoleLogger.getInstance()), json);
+    }
+
+    @Test
+    public void testExternalLink() throws Exception {
+        JSONObject json = this.createEntityJSON("links")
+            .put("nid", 456);
+
+        Entity entity = this.assertRoundTrip(ExternalLink.load(json, ConsoleLogger.getInstance()), json);
+        Assertions.assertEquals(456, ((ExternalLink)entity).getNid(), "Wrong external link node ID");
+    }
+
+    @Test
+    public void testDrupalMedia() throws Exception {
+        JSONObject json = this.createEntityJSON("images")
+            .put("mid", 789);
+
+        this.assertRoundTrip(DrupalMedia.load(json, ConsoleLogger.getInstance()), json);
+    }
+
+    @Test
+    public void testDrupalBlock() throws Exception {
+        JSONObject json = this.createEntityJSON("blocks")
+            .put("bid", 12);
+
+        this.assertRoundTrip(DrupalBlock.load(json, ConsoleLogger.getInstance()), json);
+    }
+
+    @Test
+    public void testAtlasMapperLayer() throws Exception {
+        JSONObject json = this.createEntityJSON("atlasmapper")
+            .put("datasource", "eAtlas");
+
+        Entity entity = this.assertRoundTrip(AtlasMapperLayer.load(json, ConsoleLogger.getInstance()), json);
+        Assertions.assertEquals("eAtlas", ((AtlasMapperLayer)entity).getDataSourceName(), "Wrong data source name");
+    }
+
+    @Test
+    public void testGeoNetworkRecord() throws Exception {
+        JSONObject json = this.createEntityJSON("csw_metadata_records_all")
+            .put("metadataSchema", "iso19115-3.2018")
+            .put("geoNetworkVersion", "4.2")
+            .put("parentUUID", "00000000-0000-0000-0000-000000000000")
+            .put("parent", "Parent record");
+
+        Entity entity = this.assertRoundTrip(GeoNetworkRecord.load(json, ConsoleLogger.getInstance()), json);
+        Assertions.assertEquals("Parent record", ((GeoNetworkRecord)entity).getParentTitle(), "Wrong parent title");
+    }
+
+    @Test
+    public void testFieldsBeforeIndex() throws Exception {
+        // The index is the last field. The entity type is only known at the end.
+        String json = "{\"title\": \"Coral reef\", \"nid\": 42, \"wktBbox\": {\"north\": -10.5, \"east\": 153.75, \"south\": -24.25, \"west\": 142.5}, " +
+                "\"unknown\": [1, {\"a\": 2}], \"index\": \"articles\"}";
+
+        Entity entity = mapper.readValue(json, Entity.class);
+        Assertions.assertTrue(entity instanceof DrupalNode, "Wrong entity type");
+        Assertions.assertEquals("articles", entity.getIndex(), "Wrong index");
+        Assertions.assertEquals("Coral reef", entity.getTitle(), "Wrong title");
+        Assertions.assertEquals(42, ((DrupalNode)entity).getNid(), "Wrong node ID");
+        Assertions.assertEquals(-10.5, entity.getWktBbox().getNorth(), "Wrong bbox north");
+        Assertions.assertEquals(142.5, entity.getWktBbox().getWest(), "Wrong bbox west");
+    }
+
+    @Test
+    public void testUnknownIndex() throws Exception {
+        String json = "[{\"index\": \"unknown\", \"title\": \"Unknown\", \"wktBbox\": {\"north\": 1}}, {\"index\": \"articles\", \"nid\": 1}]";
+
+        Entity[] entities = mapper.readValue(json, Entity[].class);
+        Assertions.assertEquals(2, entities.length, "Wrong number of entities");
+        Assertions.assertNull(entities[0], "Entities from unknown indexes should be ignored");
+        Assertions.assertTrue(entities[1] instanceof DrupalNode, "The entity after the unknown entity was not loaded");
+    }
+
+    @Test
+    public void testJacksonRoundTrip() throws Exception {
+        // Entities are sent to Elastic Search using Jackson.
+        JSONObject json = this.createEntityJSON("articles")
+            .put("nid", 123)
+            .put("document", "Plain text document");
+        DrupalNode node = DrupalNode.load(json, ConsoleLogger.getInstance());
+        node.setThumbnailTask(new ThumbnailTask("articles", "123", "https://domain.com/image.jpg", null));
+
+        String serialisedNode = mapper.writeValueAsString(node);
+        Assertions.assertTrue(serialisedNode.startsWith("{\"index\":"), "The index should be the first field");
+        Assertions.assertFalse(serialisedNode.contains("thumbnailTask"), "The thumbnail task should not be sent to the index");
+
+        Entity entity = mapper.readValue(serialisedNode, Entity.class);
+        Assertions.assertTrue(entity instanceof DrupalNode, "Wrong entity type");
+        Assertions.assertTrue(node.toJSON().similar(entity.toJSON()),
+                String.format("The entity changed after a round trip.%nExpected: %s%nActual: %s", node.toJSON(), entity.toJSON()));
+    }
+
+    // Loads the entity JSON with the EntityDeserializer, and compare with the entity loaded from a JSONObject.
+    //     The entity is compared using toJSON, which outputs all its attributes.
+    private Entity assertRoundTrip(Entity expected, JSONObject json) throws Exception {
+        Entity entity = mapper.readValue(json.toString(), Entity.class);
+
+        Assertions.assertNotNull(entity, "The entity could not be loaded");
+        Assertions.assertEquals(expected.getClass(), entity.getClass(), "Wrong entity type");
+        Assertions.assertTrue(expected.toJSON().similar(entity.toJSON()),
+                String.format("The entity changed after deserialisation.%nExpected: %s%nActual: %s", expected.toJSON(), entity.toJSON()));
+
+        return entity;
+    }
+
+    private JSONObject createEntityJSON(String index) {
+        AbstractLogger logger = ConsoleLogger.getInstance();
+        return new JSONObject()
+            .put("id", "entity-1")
+            .put("index", index)
+            .put("type", "ignored")
+            .put("title", "Coral reef")
+            .put("document", "Reef &amp; lagoon")
+            .put("wkt", "POLYGON ((142.5 -24.25, 153.75 -24.25, 153.75 -10.5, 142.5 -10.5, 142.5 -24.25))")
+            .put("wktArea", 154.6875)
+            .put("wktBbox", new JSONObject()
+                .put("north", -10.5)
+                .put("east", 153.75)
+                .put("south", -24.25)
+                .put("west", 142.5)
+                .put("area", 154.6875))
+            .put("langcode", "en")
+            .put("cachedThumbnailFilename", "80f61f96184524ba54db767ed49487392430ad26bf5cf2ef689905f3400325d7.jpg")
+            .put("lastIndexed", 1700000000000L)
+            .put("lastModified", 1690000000000L)
+            .put("publishedOn", "2023-11-14")
+            .put("thumbnailLastIndexed", 1700000000001L)
+            .put("link", "https://eatlas.org.au/node/123")
+            .put("thumbnailUrl", "https://eatlas.org.au/thumbnail.jpg");
+    }
+}
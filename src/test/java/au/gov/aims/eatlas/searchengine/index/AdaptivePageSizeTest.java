@@ -0,0 +1,54 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine.index;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class AdaptivePageSizeTest {
+
+    @Test
+    public void testGrowWhenFast() {
+        AdaptivePageSize pageSize = new AdaptivePageSize(10, 100, 10000, 10 * 1024 * 1024);
+        Assertions.assertEquals(10, pageSize.getPageSize(), "Wrong initial page size");
+
+        // 10 records in 100ms, 100kB: the page size doubles
+        Assertions.assertEquals(20, pageSize.update(10, 100, 100 * 1024), "The page size did not grow");
+        Assertions.assertEquals(40, pageSize.update(20, 200, 200 * 1024), "The page size did not grow");
+        Assertions.assertEquals(80, pageSize.update(40, 400, 400 * 1024), "The page size did not grow");
+        Assertions.assertEquals(100, pageSize.update(80, 800, 800 * 1024), "The page size exceeded the maximum");
+    }
+
+    @Test
+    public void testShrinkWhenSlowOrLarge() {
+        AdaptivePageSize pageSize = new AdaptivePageSize(10, 100, 10000, 10 * 1024 * 1024);
+        pageSize.update(10, 100, 1024);
+        pageSize.update(20, 200, 2048);
+        Assertions.assertEquals(40, pageSize.getPageSize(), "Wrong page size");
+
+        // 40 records in 20 seconds: 0.5 second per record, 20 records fits in the target time
+        Assertions.assertEquals(20, pageSize.update(40, 20000, 4096), "The page size did not shrink with slow responses");
+
+        // 20 records, 20MB: 1MB per record, 10 records fits in the target size
+        Assertions.assertEquals(10, pageSize.update(20, 100, 20 * 1024 * 1024), "The page size did not shrink with large responses");
+
+        // Very slow response: the page size never goes below the minimum
+        Assertions.assertEquals(10, pageSize.update(10, 600000, 1024), "The page size went below the minimum");
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine.index;
+
+import au.gov.aims.eatlas.searchengine.entity.GeoNetworkRecord;
+import au.gov.aims.eatlas.searchengine.entity.geoNetworkParser.ISO19115_3_2018_parser;
+import au.gov.aims.eatlas.searchengine.logger.AbstractLogger;
+import au.gov.aims.eatlas.searchengine.logger.ConsoleLogger;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+public class CswRecordReaderTest {
+    private static final String CSW_RESPONSE = "cswMetadataRecords/responses/geonetwork-csw-records_page1.xml";
+
+    @Test
+    public void testSplitRecords() throws Exception {
+        AbstractLogger logger = ConsoleLogger.getInstance();
+        GeoNetworkCswIndexer indexer = new GeoNetworkCswIndexer(null, "csw-test", "csw-test",
+                "https://domain.com/geonetwork", "https://domain.com/geonetwork", "4.2.10", null);
+
+        List<String> streamedRecordIds = new ArrayList<>();
+        try (InputStream inputStream = this.getResource(CSW_RESPONSE);
+                CswRecordReader recordReader = new CswRecordReader(inputStream)) {
+
+            byte[] recordXml;
+            while ((recordXml = recordReader.nextRecord()) != null) {
+                GeoNetworkRecord geoNetworkRecord = indexer.parseRecord(recordXml, logger);
+                Assertions.assertNotNull(geoNetworkRecord, "The record fragment could not be parsed");
+                streamedRecordIds.add(geoNetworkRecord.getId());
+            }
+
+            Assertions.assertEquals(30, recordReader.getNumberOfRecordsMatched(), "Wrong numberOfRecordsMatched");
+            Assertions.assertEquals(11, recordReader.getNextRecord(), "Wrong nextRecord");
+        }
+
+        // Compare with the records parsed from the full DOM document
+        List<String> domRecordIds = new ArrayList<>();
+        try (InputStream inputStream = this.getResource(CSW_RESPONSE)) {
+            Document document = IndexUtils.getNewXMLParser().parse(inputStream);
+            Element searchResultsElement = IndexUtils.getXMLChild(document.getDocumentElement(), "csw:SearchResults");
+            for (Element metadataElement : IndexUtils.getXMLChildren(searchResultsElement, "mdb:MD_Metadata")) {
+                GeoNetworkRecord geoNetworkRecord = new GeoNetworkRecord(indexer, null, "iso19115-3.2018", "4.2.10");
+                new ISO19115_3_2018_parser().parseRecord(indexer, geoNetworkRecord, metadataElement, logger);
+                domRecordIds.add(geoNetworkRecord.getId());
+            }
+        }
+
+        Assertions.assertEquals(10, streamedRecordIds.size(), "Wrong number of records");
+        Assertions.assertEquals(domRecordIds, streamedRecordIds, "The streamed records do not match the DOM records");
+    }
+
+    private InputStream getResource(String resourcePath) {
+        return CswRecordReaderTest.class.getClassLoader().getResourceAsStream(resourcePath);
+    }
+}
@@ -23,7 +23,7 @@ public class DrupalBlockIndexerTest extends IndexerTestBase {
         try (MockSearchClient searchClient = this.createMockSearchClient()) {
             MockHttpClient mockHttpClient = this.getMockHttpClient();
 
-            mockHttpClient.addGetUrl("https://domain.com/jsonapi/block_content/basic?sort=-changed&page%5Blimit%5D=50&page%5Boffset%5D=0&filter%5Bstatus%5D=1", "drupalBlockFiles/jsonapi/block_content/basic.json");
+            mockHttpClient.addGetUrl("https://domain.com/jsonapi/block_content/basic?sort=drupal_internal__id&page%5Blimit%5D=50&filter%5Bstatus%5D=1", "drupalBlockFiles/jsonapi/block_content/basic.json");
 
             Assertions.assertEquals(HealthStatus.Green, searchClient.getHealthStatus(), "The Elastic Search engine health status is not Green before starting the test.");
 
@@ -23,7 +23,7 @@ public class DrupalExternalLinkNodeIndexerTest extends IndexerTestBase {
         try (MockSearchClient searchClient = this.createMockSearchClient()) {
             MockHttpClient mockHttpClient = this.getMockHttpClient();
 
-            mockHttpClient.addGetUrl("https://domain.com/jsonapi/node/external_link?sort=-changed&page%5Blimit%5D=50&page%5Boffset%5D=0&filter%5Bstatus%5D=1", "drupalLinkFiles/jsonapi/node/external_link.json");
+            mockHttpClient.addGetUrl("https://domain.com/jsonapi/node/external_link?sort=drupal_internal__nid&page%5Blimit%5D=50&filter%5Bstatus%5D=1", "drupalLinkFiles/jsonapi/node/external_link.json");
 
             Assertions.assertEquals(HealthStatus.Green, searchClient.getHealthStatus(), "The Elastic Search engine health status is not Green before starting the test.");
 
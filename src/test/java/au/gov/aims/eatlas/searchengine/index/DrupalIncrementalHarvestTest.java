@@ -0,0 +1,144 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine.index;
+
+import au.gov.aims.eatlas.searchengine.HttpClient;
+import au.gov.aims.eatlas.searchengine.MockHttpClient;
+import au.gov.aims.eatlas.searchengine.client.SearchClient;
+import au.gov.aims.eatlas.searchengine.entity.DrupalNode;
+import au.gov.aims.eatlas.searchengine.logger.AbstractLogger;
+import au.gov.aims.eatlas.searchengine.logger.ConsoleLogger;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.utils.URLEncodedUtils;
+import org.apache.http.entity.ContentType;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class DrupalIncrementalHarvestTest {
+    // Number of entities modified since the last harvest
+    private static final int MODIFIED_ENTITY_COUNT = 30;
+
+    @Test
+    public void testIncrementalHarvestPages() throws Exception {
+        AbstractLogger logger = ConsoleLogger.getInstance();
+        List<String> requestedUrls = Collections.synchronizedList(new ArrayList<>());
+
+        // Serve the pages of modified entities, according to the requested offset and limit.
+        MockHttpClient mockHttpClient = new MockHttpClient() {
+            @Override
+            public Response getRequest(String url, AbstractLogger logger) {
+                requestedUrls.add(url);
+                Map<String, String> parameters = getParameters(url);
+                int offset = Integer.parseInt(parameters.get("page[offset]"));
+                int limit = Integer.parseInt(parameters.get("page[limit]"));
+                return createPageResponse(offset, limit);
+            }
+        };
+
+        // Record the harvested entities, without indexing them.
+        Set<String> harvestedIds = ConcurrentHashMap.newKeySet();
+        DrupalNodeIndexer drupalNodeIndexer = new DrupalNodeIndexer(
+                mockHttpClient, "articles", "Articles",
+                "https://domain.com", "https://domain.com", "10",
+                "article", "field_image", "body", "field_geojson") {
+            @Override
+            protected DrupalNode harvestEntity(SearchClient searchClient, JSONObject jsonApiEntity, String entityUUID, AbstractLogger logger) {
+                harvestedIds.add(entityUUID);
+                return null;
+            }
+        };
+
+        long lastHarvested = 1715000000000L;
+        drupalNodeIndexer.internalIndex(null, lastHarvested, logger);
+
+        Assertions.assertEquals(MODIFIED_ENTITY_COUNT, harvestedIds.size(), "Wrong number of harvested entities");
+
+        // The page size grows from 5 to 20, then 50. The pages are requested using offsets.
+        Assertions.assertEquals(3, requestedUrls.size(), String.format("Wrong number of requested pages: %s", requestedUrls));
+        int[][] expectedPages = { {0, 5}, {5, 20}, {25, 50} };
+        for (int i=0; i<expectedPages.length; i++) {
+            Map<String, String> parameters = getParameters(requestedUrls.get(i));
+
+            Assertions.assertEquals(String.valueOf(expectedPages[i][0]), parameters.get("page[offset]"),
+                    String.format("Wrong offset for page %d", i+1));
+            Assertions.assertEquals(String.valueOf(expectedPages[i][1]), parameters.get("page[limit]"),
+                    String.format("Wrong limit for page %d", i+1));
+            Assertions.assertEquals("-changed,drupal_internal__nid", parameters.get("sort"),
+                    String.format("Wrong sort for page %d", i+1));
+
+            // Entities changed since the last harvest, with a 10 seconds margin, in seconds.
+            Assertions.assertEquals("changed", parameters.get("filter[changed-since][condition][path]"),
+                    String.format("Wrong changed-since filter path for page %d", i+1));
+            Assertions.assertEquals(">=", parameters.get("filter[changed-since][condition][operator]"),
+                    String.format("Wrong changed-since filter operator for page %d", i+1));
+            Assertions.assertEquals("1714999990", parameters.get("filter[changed-since][condition][value]"),
+                    String.format("Wrong changed-since filter value for page %d", i+1));
+        }
+    }
+
+    private static Map<String, String> getParameters(String url) {
+        Map<String, String> parameters = new HashMap<>();
+        for (NameValuePair parameter : URLEncodedUtils.parse(URI.create(url), StandardCharsets.UTF_8)) {
+            parameters.put(parameter.getName(), parameter.getValue());
+        }
+        return parameters;
+    }
+
+    private static HttpClient.Response createPageResponse(int offset, int limit) {
+        JSONArray jsonEntities = new JSONArray();
+        int end = Math.min(offset + limit, MODIFIED_ENTITY_COUNT);
+        for (int i=offset; i<end; i++) {
+            jsonEntities.put(new JSONObject()
+                .put("type", "node--article")
+                .put("id", String.format("article-%d", i))
+                .put("attributes", new JSONObject()
+                    .put("drupal_internal__nid", i)
+                    .put("title", String.format("Article %d", i))));
+        }
+
+        JSONObject jsonPage = new JSONObject()
+            .put("data", jsonEntities);
+
+        // Drupal only returns a "next" link when there is more entities.
+        if (end < MODIFIED_ENTITY_COUNT) {
+            jsonPage.put("links", new JSONObject()
+                .put("next", new JSONObject()
+                    .put("href", String.format("https://domain.com/jsonapi/node/article?page%%5Boffset%%5D=%d&page%%5Blimit%%5D=%d", end, limit))));
+        }
+
+        return new HttpClient.Response(
+                200,
+                jsonPage.toString().getBytes(StandardCharsets.UTF_8),
+                ContentType.APPLICATION_JSON,
+                null,
+                null);
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine.index;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+public class DrupalJsonApiReaderTest {
+
+    @Test
+    public void testReadFilteredPage() throws Exception {
+        DrupalJsonApiReader reader = new DrupalJsonApiReader(
+                Set.of("drupal_internal__nid", "title", "changed"),
+                Set.of("field_preview"));
+
+        DrupalJsonApiReader.Document document;
+        try (InputStream inputStream = DrupalJsonApiReaderTest.class.getClassLoader()
+                .getResourceAsStream("drupalArticleFiles/jsonapi/node/article.json")) {
+            document = reader.read(inputStream);
+        }
+
+        Assertions.assertFalse(document.hasErrors(), "Unexpected errors");
+        Assertions.assertNull(document.getNextUrl(), "The last page should not have a next URL");
+
+        JSONArray jsonEntities = document.getData();
+        Assertions.assertNotNull(jsonEntities, "The page entities were not read");
+        Assertions.assertFalse(jsonEntities.isEmpty(), "The page entities were not read");
+
+        JSONObject jsonEntity = jsonEntities.getJSONObject(0);
+        Assertions.assertNotNull(jsonEntity.optString("id", null), "The entity UUID was not read");
+        Assertions.assertEquals("node--article", jsonEntity.optString("type", null), "Wrong entity type");
+
+        JSONObject jsonAttributes = jsonEntity.getJSONObject("attributes");
+        Assertions.assertEquals(Set.of("drupal_internal__nid", "title", "changed"), jsonAttributes.keySet(), "Wrong attributes kept");
+        Assertions.assertTrue(jsonAttributes.optLong("drupal_internal__nid", -1) > 0, "Wrong internal ID");
+
+        JSONObject jsonRelationships = jsonEntity.getJSONObject("relationships");
+        Assertions.assertEquals(Set.of("field_preview"), jsonRelationships.keySet(), "Wrong relationships kept");
+
+        Assertions.assertNotNull(jsonEntity.getJSONObject("links").optJSONObject("self"), "The entity self link was not kept");
+    }
+
+    @Test
+    public void testReadEntityAndErrors() throws Exception {
+        String json = "{" +
+                "\"jsonapi\": {\"version\": \"1.0\"}," +
+                "\"data\": {\"type\": \"node--article\", \"id\": \"abc\", \"attributes\": {\"title\": \"Reef\", \"status\": true, \"field_geojson\": null}}," +
+                "\"included\": [{\"type\": \"paragraph--text\", \"id\": \"def\"}]," +
+                "\"links\": {\"next\": {\"href\": \"https://domain.com/jsonapi/node/article?page%5Boffset%5D=50\"}}" +
+                "}";
+
+        DrupalJsonApiReader.Document document = new DrupalJsonApiReader(null, null).read(
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+        JSONObject jsonEntity = document.getEntity();
+        Assertions.assertNotNull(jsonEntity, "The entity was not read");
+        Assertions.assertEquals("Reef", jsonEntity.getJSONObject("attributes").optString("title", null), "Wrong title");
+        Assertions.assertTrue(jsonEntity.getJSONObject("attributes").optBoolean("status"), "Wrong status");
+        Assertions.assertNull(jsonEntity.getJSONObject("attributes").optString("field_geojson", null), "Null attribute should be null");
+        Assertions.assertEquals(1, document.getIncluded().length(), "Wrong number of included entities");
+        Assertions.assertEquals("https://domain.com/jsonapi/node/article?page%5Boffset%5D=50", document.getNextUrl(), "Wrong next URL");
+
+        String errorJson = "{\"errors\": [{\"title\": \"Forbidden\", \"detail\": \"Access denied\"}]}";
+        DrupalJsonApiReader.Document errorDocument = new DrupalJsonApiReader(null, null).read(
+                new ByteArrayInputStream(errorJson.getBytes(StandardCharsets.UTF_8)));
+        Assertions.assertTrue(errorDocument.hasErrors(), "The errors were not read");
+        Assertions.assertEquals("Forbidden", errorDocument.getErrors().getJSONObject(0).optString("title"), "Wrong error title");
+    }
+}
@@ -23,7 +23,7 @@ public class DrupalMediaIndexerTest extends IndexerTestBase {
         try (MockSearchClient searchClient = this.createMockSearchClient()) {
             MockHttpClient mockHttpClient = this.getMockHttpClient();
 
-            mockHttpClient.addGetUrl("https://domain.com/jsonapi/media/image?sort=-changed&page%5Blimit%5D=50&page%5Boffset%5D=0&filter%5Bstatus%5D=1", "drupalImageFiles/jsonapi/media/image.json");
+            mockHttpClient.addGetUrl("https://domain.com/jsonapi/media/image?sort=drupal_internal__mid&page%5Blimit%5D=50&filter%5Bstatus%5D=1", "drupalImageFiles/jsonapi/media/image.json");
 
             mockHttpClient.addGetUrl("https://domain.com/jsonapi/media/image/7b99cf2d-1539-413f-8e97-fc3e91610367?include=thumbnail&filter%5Bstatus%5D=1", "drupalImageFiles/jsonapi/media/image/7b99cf2d-1539-413f-8e97-fc3e91610367.json");
             mockHttpClient.addGetUrl("https://domain.com/jsonapi/media/image/47ce7ed4-bb0b-4dcb-9f3a-8b9c41917dd4?include=thumbnail&filter%5Bstatus%5D=1", "drupalImageFiles/jsonapi/media/image/47ce7ed4-bb0b-4dcb-9f3a-8b9c41917dd4.json");
@@ -23,7 +23,7 @@ public class DrupalNodeIndexerTest extends IndexerTestBase {
         try (MockSearchClient searchClient = this.createMockSearchClient()) {
             MockHttpClient mockHttpClient = this.getMockHttpClient();
 
-            mockHttpClient.addGetUrl("https://domain.com/jsonapi/node/article?sort=-changed&page%5Blimit%5D=50&page%5Boffset%5D=0&filter%5Bstatus%5D=1", "drupalArticleFiles/jsonapi/node/article.json");
+            mockHttpClient.addGetUrl("https://domain.com/jsonapi/node/article?sort=drupal_internal__nid&page%5Blimit%5D=50&filter%5Bstatus%5D=1", "drupalArticleFiles/jsonapi/node/article.json");
 
             Assertions.assertEquals(HealthStatus.Green, searchClient.getHealthStatus(), "The Elastic Search engine health status is not Green before starting the test.");
 
@@ -27,6 +27,20 @@ public class GeoNetworkIndexerTest extends IndexerTestBase {
 
             // Search page
             mockHttpClient.addGetUrl("https://domain.com/geonetwork/srv/eng/xml.search?from=1", "metadataRecords/search.xml");
+            // Batch of metadata records. The batch response only contains 2 records,
+            //     the other records are downloaded one at the time.
+            mockHttpClient.addPostUrl("https://domain.com/geonetwork/srv/eng/csw",
+                "<?xml version=\"1.0\"?>\n" +
+                "<GetRecordById xmlns=\"http://www.opengis.net/cat/csw/2.0.2\" service=\"CSW\" version=\"2.0.2\" outputSchema=\"own\">" +
+                    "<Id>f6636322-28d9-47fe-878d-0e70cc7c6920</Id>" +
+                    "<Id>61a4bac5-79d1-4c1f-9358-a7bb587e07df</Id>" +
+                    "<Id>356e7b3c-1508-432e-9d85-263ec8a67cef</Id>" +
+                    "<Id>e9a43553-dbe4-40e2-9d3a-aa200f9e2277</Id>" +
+                    "<Id>09ac8e36-5d65-40f9-9bb7-c32a0dd9f24f</Id>" +
+                    "<Id>a2a8f9c0-d7bc-4fae-b9b1-ccebfa642068</Id>" +
+                    "<ElementSetName>full</ElementSetName>" +
+                "</GetRecordById>",
+                "metadataRecords/csw/GetRecordById.xml");
             // Metadata records
             mockHttpClient.addGetUrl("https://domain.com/geonetwork/srv/eng/xml.metadata.get?uuid=09ac8e36-5d65-40f9-9bb7-c32a0dd9f24f", "metadataRecords/records/09ac8e36-5d65-40f9-9bb7-c32a0dd9f24f.xml");
             mockHttpClient.addGetUrl("https://domain.com/geonetwork/srv/eng/xml.metadata.get?uuid=61a4bac5-79d1-4c1f-9358-a7bb587e07df", "metadataRecords/records/61a4bac5-79d1-4c1f-9358-a7bb587e07df.xml");
@@ -0,0 +1,90 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine.index;
+
+import au.gov.aims.eatlas.searchengine.logger.ConsoleLogger;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.List;
+import java.util.Set;
+
+public class HarvestSnapshotTest {
+
+    @Test
+    public void testHashIgnoresKeyOrder() {
+        JSONObject layer1 = new JSONObject("{\"title\": \"Coral\", \"bbox\": [1, 2, 3, 4], \"options\": {\"a\": 1, \"b\": true}}");
+        JSONObject layer2 = new JSONObject("{\"options\": {\"b\": true, \"a\": 1}, \"bbox\": [1, 2, 3, 4], \"title\": \"Coral\"}");
+        JSONObject layer3 = new JSONObject("{\"title\": \"Coral\", \"bbox\": [4, 3, 2, 1], \"options\": {\"a\": 1, \"b\": true}}");
+
+        Assertions.assertEquals(HarvestSnapshot.hash(layer1, "base"), HarvestSnapshot.hash(layer2, "base"),
+                "The hash should not depend on the order of the keys");
+        Assertions.assertNotEquals(HarvestSnapshot.hash(layer1, "base"), HarvestSnapshot.hash(layer3, "base"),
+                "The hash should depend on the order of array values");
+        Assertions.assertNotEquals(HarvestSnapshot.hash(layer1, "base"), HarvestSnapshot.hash(layer1, "other"),
+                "The hash should depend on every values");
+        Assertions.assertNotEquals(HarvestSnapshot.hash(layer1, null), HarvestSnapshot.hash(layer1, "null"),
+                "The hash should differentiate null from the string \"null\"");
+    }
+
+    @Test
+    public void testDiff() {
+        HarvestSnapshot previousSnapshot = new HarvestSnapshot();
+        previousSnapshot.put("unchanged", "1");
+        previousSnapshot.put("changed", "2");
+        previousSnapshot.put("removed", "3");
+
+        HarvestSnapshot snapshot = new HarvestSnapshot();
+        snapshot.put("unchanged", "1");
+        snapshot.put("changed", "22");
+        snapshot.put("added", "4");
+
+        List<String> changedIds = snapshot.getChangedIds(previousSnapshot);
+        Assertions.assertEquals(2, changedIds.size(), "Wrong number of changed IDs");
+        Assertions.assertTrue(changedIds.contains("changed"), "Missing changed ID");
+        Assertions.assertTrue(changedIds.contains("added"), "Missing added ID");
+
+        Assertions.assertEquals(Set.of("removed"), snapshot.getRemovedIds(previousSnapshot), "Wrong removed IDs");
+
+        // Without a previous snapshot, everything has changed
+        Assertions.assertEquals(3, snapshot.getChangedIds(null).size(), "Every ID should be changed");
+        Assertions.assertTrue(snapshot.getRemovedIds(null).isEmpty(), "Nothing should be removed");
+    }
+
+    @Test
+    public void testSaveAndLoad(@TempDir File tempDirectory) throws Exception {
+        File snapshotFile = new File(tempDirectory, "snapshot/atlasmapper.json");
+        Assertions.assertNull(HarvestSnapshot.load(snapshotFile, ConsoleLogger.getInstance()),
+                "A missing snapshot file should return null");
+
+        HarvestSnapshot snapshot = new HarvestSnapshot();
+        snapshot.put("ea_layer1", HarvestSnapshot.hash("layer1"));
+        snapshot.put("ea_layer2", HarvestSnapshot.hash("layer2"));
+        snapshot.save(snapshotFile);
+
+        HarvestSnapshot loadedSnapshot = HarvestSnapshot.load(snapshotFile, ConsoleLogger.getInstance());
+        Assertions.assertNotNull(loadedSnapshot, "The snapshot was not loaded");
+        Assertions.assertEquals(2, loadedSnapshot.size(), "Wrong number of loaded hashes");
+        Assertions.assertEquals(HarvestSnapshot.hash("layer1"), loadedSnapshot.getHash("ea_layer1"), "Wrong loaded hash");
+        Assertions.assertTrue(loadedSnapshot.getChangedIds(snapshot).isEmpty(), "The loaded snapshot should be identical");
+    }
+}
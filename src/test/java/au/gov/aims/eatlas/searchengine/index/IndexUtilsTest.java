@@ -0,0 +1,132 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine.index;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.xml.sax.SAXParseException;
+
+import javax.xml.parsers.DocumentBuilder;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class IndexUtilsTest {
+    private static final String RECORD_PATH = "geonetworkRecords/geonetwork3/iso19115-3-2018_a2a8f9c0-d7bc-4fae-b9b1-ccebfa642068.xml";
+
+    @Test
+    public void testThreadXMLParser() throws Exception {
+        DocumentBuilder xmlParser = IndexUtils.getXMLParser();
+        Assertions.assertSame(xmlParser, IndexUtils.getXMLParser(), "The XML parser should be reused within a thread");
+
+        Document document1 = xmlParser.parse(this.toInputStream("<root><a>1</a></root>"));
+        Document document2 = IndexUtils.getXMLParser().parse(this.toInputStream("<root><a>2</a></root>"));
+        Assertions.assertEquals("1", document1.getDocumentElement().getTextContent(), "Reusing the parser altered a parsed document");
+        Assertions.assertEquals("2", document2.getDocumentElement().getTextContent(), "Wrong parsed document");
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            DocumentBuilder otherThreadXmlParser = executor.submit(() -> IndexUtils.getXMLParser()).get();
+            Assertions.assertNotSame(xmlParser, otherThreadXmlParser, "Threads should not share XML parsers");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testThreadXMLParserSecurity() throws Exception {
+        String xxe = "<?xml version=\"1.0\"?>\n" +
+            "<!DOCTYPE root [<!ENTITY xxe SYSTEM \"file:///etc/passwd\">]>\n" +
+            "<root>&xxe;</root>";
+
+        // The security features must survive the parser reset
+        for (int i = 0; i < 3; i++) {
+            DocumentBuilder xmlParser = IndexUtils.getXMLParser();
+            Assertions.assertThrows(SAXParseException.class, () -> xmlParser.parse(this.toInputStream(xxe)),
+                    "DOCTYPE declarations must be rejected");
+            Assertions.assertNotNull(xmlParser.parse(this.toInputStream("<root/>")), "The parser can not be used after an error");
+        }
+    }
+
+    /**
+     * Compare creating a DocumentBuilder for each record (synchronised factory)
+     *     with the per-thread DocumentBuilder, using as many threads as the GeoNetwork indexers.
+     * Disabled by default, it's a benchmark, not a test. Run it manually.
+     */
+    @Test
+    @Disabled
+    public void benchmarkXMLParser() throws Exception {
+        byte[] record;
+        try (InputStream inputStream = IndexUtilsTest.class.getClassLoader().getResourceAsStream(RECORD_PATH)) {
+            Assertions.assertNotNull(inputStream, String.format("Missing test resource: %s", RECORD_PATH));
+            record = inputStream.readAllBytes();
+        }
+        byte[] smallRecord = "<root><a>1</a></root>".getBytes(StandardCharsets.UTF_8);
+
+        int threads = 10;
+        int parsesPerThread = 2000;
+
+        for (byte[] xml : List.of(smallRecord, record)) {
+            // Warm up
+            this.runParsers(xml, threads, 200, false);
+            this.runParsers(xml, threads, 200, true);
+
+            long newParserTime = this.runParsers(xml, threads, parsesPerThread, false);
+            long threadParserTime = this.runParsers(xml, threads, parsesPerThread, true);
+
+            System.out.printf("Document of %d bytes, %d threads x %d parses%n", xml.length, threads, parsesPerThread);
+            System.out.printf("    getNewXMLParser: %d ms%n", newParserTime / 1000000);
+            System.out.printf("    getXMLParser: %d ms%n", threadParserTime / 1000000);
+        }
+    }
+
+    private long runParsers(byte[] xml, int threads, int parsesPerThread, boolean reuse) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < parsesPerThread; j++) {
+                    DocumentBuilder xmlParser = reuse ? IndexUtils.getXMLParser() : IndexUtils.getNewXMLParser();
+                    xmlParser.parse(new ByteArrayInputStream(xml));
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        return elapsed;
+    }
+
+    private InputStream toInputStream(String xml) {
+        return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+    }
+}
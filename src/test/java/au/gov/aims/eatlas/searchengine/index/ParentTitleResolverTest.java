@@ -0,0 +1,88 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine.index;
+
+import au.gov.aims.eatlas.searchengine.entity.GeoNetworkRecord;
+import au.gov.aims.eatlas.searchengine.logger.ConsoleLogger;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class ParentTitleResolverTest {
+
+    @Test
+    public void testParentHarvestedFirst() {
+        ParentTitleResolver resolver = new ParentTitleResolver();
+
+        GeoNetworkRecord parent = createRecord("parent", "Parent title", null);
+        GeoNetworkRecord child = createRecord("child", "Child title", "parent");
+        resolver.resolve(parent);
+        resolver.resolve(child);
+
+        Assertions.assertEquals("Parent title", child.getParentTitle(), "The parent title was not set before indexation");
+        Assertions.assertTrue(resolver.getParentTitles(null).isEmpty(), "The child record should not need to be updated");
+    }
+
+    @Test
+    public void testChildHarvestedFirst() {
+        ParentTitleResolver resolver = new ParentTitleResolver();
+
+        GeoNetworkRecord child = createRecord("child", "Child title", "parent");
+        GeoNetworkRecord parent = createRecord("parent", "Parent title", null);
+        resolver.resolve(child);
+        resolver.resolve(parent);
+
+        Assertions.assertNull(child.getParentTitle(), "The parent title is unknown when the child is indexed");
+
+        Map<String, String> parentTitles = resolver.getParentTitles(null);
+        Assertions.assertEquals(1, parentTitles.size(), "Wrong number of records to update");
+        Assertions.assertEquals("Parent title", parentTitles.get("child"), "Wrong parent title");
+    }
+
+    @Test
+    public void testParentNotHarvested() {
+        ParentTitleResolver resolver = new ParentTitleResolver();
+
+        resolver.resolve(createRecord("child1", "Child 1", "parent"));
+        resolver.resolve(createRecord("child2", "Child 2", "parent"));
+        resolver.resolve(createRecord("child3", "Child 3", "deleted"));
+
+        List<String> lookups = new ArrayList<>();
+        Map<String, String> parentTitles = resolver.getParentTitles(parentUUID -> {
+            lookups.add(parentUUID);
+            return "parent".equals(parentUUID) ? "Indexed parent title" : null;
+        });
+
+        Assertions.assertEquals(2, parentTitles.size(), "Wrong number of records to update");
+        Assertions.assertEquals("Indexed parent title", parentTitles.get("child1"), "Wrong parent title");
+        Assertions.assertEquals("Indexed parent title", parentTitles.get("child2"), "Wrong parent title");
+        Assertions.assertEquals(2, lookups.size(), "Each parent should be looked up only once");
+    }
+
+    private static GeoNetworkRecord createRecord(String uuid, String title, String parentUUID) {
+        return GeoNetworkRecord.load(new JSONObject()
+                .put("id", uuid)
+                .put("title", title)
+                .put("parentUUID", parentUUID), ConsoleLogger.getInstance());
+    }
+}
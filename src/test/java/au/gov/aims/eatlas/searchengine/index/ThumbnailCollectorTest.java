@@ -0,0 +1,92 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine.index;
+
+import au.gov.aims.eatlas.searchengine.logger.ConsoleLogger;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+public class ThumbnailCollectorTest {
+    private static final String USED_THUMBNAIL = "80f61f96184524ba54db767ed49487392430ad26bf5cf2ef689905f3400325d7.jpg";
+    private static final String UNUSED_THUMBNAIL = "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef.jpg";
+    private static final String RECENT_THUMBNAIL = "fedcba9876543210fedcba9876543210fedcba9876543210fedcba9876543210.jpg";
+
+    @Test
+    public void testDeleteUnused(@TempDir File cacheDirectory) throws Exception {
+        long now = System.currentTimeMillis();
+        long old = now - TimeUnit.DAYS.toMillis(10);
+
+        File usedFile = this.createFile(new File(cacheDirectory, "80"), USED_THUMBNAIL, old);
+        File unusedFile = this.createFile(new File(cacheDirectory, "01"), UNUSED_THUMBNAIL, old);
+        // Created by the thumbnail queue, not yet set in the index
+        File recentFile = this.createFile(new File(cacheDirectory, "fe"), RECENT_THUMBNAIL, now);
+        // Thumbnail created before the content-addressed store
+        File legacyFile = this.createFile(cacheDirectory, "layer_thumbnail.jpg", old);
+
+        ThumbnailCollector collector = new ThumbnailCollector(TimeUnit.DAYS.toMillis(2));
+        ThumbnailCollector.Result result = collector.deleteUnused(cacheDirectory, Set.of(USED_THUMBNAIL),
+                now - collector.getGracePeriod(), TimeUnit.MINUTES.toMillis(1), ConsoleLogger.getInstance());
+
+        Assertions.assertTrue(result.isComplete(), "The collection should be complete");
+        Assertions.assertEquals(2, result.getDeletedCount(), "Wrong number of deleted thumbnails");
+        Assertions.assertEquals(2 * "thumbnail".length(), result.getReclaimedBytes(), "Wrong number of bytes reclaimed");
+        Assertions.assertEquals(result.getReclaimedBytes(), collector.getReclaimedBytes(), "Wrong collector statistics");
+
+        Assertions.assertTrue(usedFile.exists(), "The used thumbnail was deleted");
+        Assertions.assertTrue(recentFile.exists(), "The thumbnail within the grace period was deleted");
+        Assertions.assertFalse(unusedFile.exists(), "The unused thumbnail was not deleted");
+        Assertions.assertFalse(legacyFile.exists(), "The unused legacy thumbnail was not deleted");
+    }
+
+    @Test
+    public void testDeleteUnusedInBatches(@TempDir File cacheDirectory) throws Exception {
+        long old = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(10);
+        for (int i = 0; i < 250; i++) {
+            this.createFile(cacheDirectory, String.format("thumbnail_%d.jpg", i), old);
+        }
+
+        ThumbnailCollector collector = new ThumbnailCollector(TimeUnit.DAYS.toMillis(2));
+
+        // No time left after the first batch. The remaining files are left for the next run.
+        ThumbnailCollector.Result result = collector.deleteUnused(cacheDirectory, Set.of(),
+                System.currentTimeMillis(), 0, ConsoleLogger.getInstance());
+        Assertions.assertFalse(result.isComplete(), "The collection should have been interrupted");
+        Assertions.assertEquals(100, result.getDeletedCount(), "Wrong number of thumbnails deleted in the first batch");
+
+        result = collector.deleteUnused(cacheDirectory, Set.of(),
+                System.currentTimeMillis(), TimeUnit.MINUTES.toMillis(1), ConsoleLogger.getInstance());
+        Assertions.assertTrue(result.isComplete(), "The collection should be complete");
+        Assertions.assertEquals(150, result.getDeletedCount(), "Wrong number of thumbnails deleted in the second run");
+        Assertions.assertEquals(250, collector.getDeletedCount(), "Wrong total number of deleted thumbnails");
+    }
+
+    private File createFile(File directory, String filename, long lastModified) throws Exception {
+        File file = new File(directory, filename);
+        FileUtils.writeStringToFile(file, "thumbnail", StandardCharsets.UTF_8);
+        Assertions.assertTrue(file.setLastModified(lastModified), "Could not set the file last modified date");
+        return file;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine.index;
+
+import au.gov.aims.eatlas.searchengine.client.SearchClient;
+import au.gov.aims.eatlas.searchengine.logger.ConsoleLogger;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import org.apache.commons.io.FileUtils;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+public class ThumbnailQueueTest {
+
+    @Test
+    public void testTaskSerialisation() {
+        ThumbnailTask task = ThumbnailTask.layer("atlasmapper", "ea_ea:layer", "https://domain.com/wms?LAYERS=layer", 30000,
+                "https://domain.com/wms?BBOX={BBOX}&WIDTH={WIDTH}&HEIGHT={HEIGHT}",
+                142.5f, -24.25f, 153.75f, -10.5f, 300, 250);
+
+        ThumbnailTask loadedTask = ThumbnailTask.fromJSON(new JSONObject(task.toJSON().toString()));
+        Assertions.assertNotNull(loadedTask, "The task could not be loaded");
+        Assertions.assertEquals(task.toJSON().toString(), loadedTask.toJSON().toString(), "The task changed after serialisation");
+        Assertions.assertEquals("ea_ea:layer", loadedTask.getId(), "Wrong task ID");
+        Assertions.assertEquals("https://domain.com/wms?BBOX={BBOX}&WIDTH={WIDTH}&HEIGHT={HEIGHT}", loadedTask.getBaseLayerUrl(), "Wrong base layer URL");
+
+        ThumbnailTask imageTask = ThumbnailTask.fromJSON(new ThumbnailTask("drupal", "123", null, null).toJSON());
+        Assertions.assertNotNull(imageTask, "The image task could not be loaded");
+        Assertions.assertNull(imageTask.getImageUrl(), "The image URL should be null");
+        Assertions.assertNull(imageTask.getBaseLayerUrl(), "The base layer URL should be null");
+    }
+
+    @Test
+    public void testResumeSavedTasks(@TempDir File queueDirectory) throws Exception {
+        // Tasks saved on disk before the application stopped
+        FileUtils.writeStringToFile(new File(queueDirectory, "task1.json"),
+                new ThumbnailTask("drupal", "1", null, null).toJSON().toString(), StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(queueDirectory, "task2.json"),
+                new ThumbnailTask("drupal", "2", null, null).toJSON().toString(), StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(new File(queueDirectory, "invalid.json"),
+                "{", StandardCharsets.UTF_8);
+
+        ThumbnailQueue thumbnailQueue = new ThumbnailQueue(queueDirectory, 2);
+        int resumed = thumbnailQueue.resume(this.createSearchClient(), ConsoleLogger.getInstance());
+        Assertions.assertEquals(2, resumed, "Wrong number of resumed tasks");
+
+        Assertions.assertTrue(thumbnailQueue.awaitCompletion(10, TimeUnit.SECONDS), "The queue did not complete");
+        Assertions.assertEquals(0, thumbnailQueue.getPendingCount(), "The queue should be empty");
+
+        String[] remainingFiles = queueDirectory.list();
+        Assertions.assertNotNull(remainingFiles, "The queue directory was deleted");
+        Assertions.assertEquals(0, remainingFiles.length, "The task files were not deleted");
+    }
+
+    // Search client which accepts every bulk request.
+    private SearchClient createSearchClient() {
+        return (SearchClient)Proxy.newProxyInstance(
+                SearchClient.class.getClassLoader(),
+                new Class<?>[]{ SearchClient.class },
+                (proxy, method, args) -> {
+                    if ("bulk".equals(method.getName())) {
+                        return BulkResponse.of(response -> response
+                                .errors(false)
+                                .took(1)
+                                .items(new ArrayList<>()));
+                    }
+                    return null;
+                });
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine.index;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+public class XmlElementIndexTest {
+    private static final String[] RECORD_DIRECTORIES = {
+        "geonetworkRecords/geonetwork2",
+        "geonetworkRecords/geonetwork3"
+    };
+
+    @Test
+    public void testSameAsGetElementsByTagName() throws Exception {
+        for (File recordFile : getRecordFiles()) {
+            Document document = parse(recordFile);
+            XmlElementIndex elementIndex = XmlElementIndex.index(document);
+            Assertions.assertNotNull(elementIndex, "The document was not indexed");
+            Assertions.assertSame(elementIndex, XmlElementIndex.get(document.getDocumentElement()), "The index is not attached to the document");
+
+            for (Element element : getAllElements(document)) {
+                Set<String> tagNames = new LinkedHashSet<>();
+                tagNames.add("gco:CharacterString");
+                tagNames.add(element.getTagName());
+                Element firstChild = getFirstChildElement(element);
+                if (firstChild != null) {
+                    tagNames.add(firstChild.getTagName());
+                }
+
+                for (String tagName : tagNames) {
+                    NodeList expected = element.getElementsByTagName(tagName);
+                    List<Element> actual = elementIndex.getDescendants(element, tagName);
+
+                    Assertions.assertEquals(expected.getLength(), actual.size(),
+                            String.format("Wrong number of %s in %s, file: %s", tagName, element.getTagName(), recordFile.getName()));
+                    for (int i = 0; i < expected.getLength(); i++) {
+                        Assertions.assertSame(expected.item(i), actual.get(i),
+                                String.format("Wrong element order for %s in %s, file: %s", tagName, element.getTagName(), recordFile.getName()));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testChildren() throws Exception {
+        Document document = IndexUtils.getNewXMLParser().parse(new InputSource(new StringReader(
+                "<root><a><b>1</b><c><b>2</b></c></a><b>3</b></root>")));
+        XmlElementIndex elementIndex = XmlElementIndex.index(document);
+
+        Element root = document.getDocumentElement();
+        Element a = elementIndex.getDescendants(root, "a").get(0);
+
+        Assertions.assertEquals(3, elementIndex.getDescendants(root, "b").size(), "Wrong number of descendants");
+        Assertions.assertEquals(1, elementIndex.getChildren(root, "b").size(), "Wrong number of children");
+        Assertions.assertEquals("3", elementIndex.getChildren(root, "b").get(0).getTextContent(), "Wrong child");
+        Assertions.assertEquals(2, elementIndex.getDescendants(a, "b").size(), "Wrong number of descendants");
+        Assertions.assertEquals("1", elementIndex.getChildren(a, "b").get(0).getTextContent(), "Wrong child");
+        Assertions.assertTrue(elementIndex.getDescendants(a, "root").isEmpty(), "An element is not its own descendant");
+    }
+
+    /**
+     * Compare IndexUtils.getXMLChild lookups, with and without element index.
+     * The lookups mimic the parsers: for every element in the record,
+     *     look for its children and parse their CharacterString.
+     * Disabled by default, it's a benchmark, not a test. Run it manually.
+     */
+    @Test
+    @Disabled
+    public void benchmarkElementIndex() throws Exception {
+        int iterations = 20;
+        List<File> recordFiles = getRecordFiles();
+
+        // Warm up
+        this.runLookups(recordFiles, false, 2);
+        this.runLookups(recordFiles, true, 2);
+
+        long start = System.nanoTime();
+        int lookups = this.runLookups(recordFiles, false, iterations);
+        long withoutIndex = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        this.runLookups(recordFiles, true, iterations);
+        long withIndex = System.nanoTime() - start;
+
+        System.out.printf("%d records, %d lookups per iteration, %d iterations%n", recordFiles.size(), lookups, iterations);
+        System.out.printf("getElementsByTagName: %d ms%n", withoutIndex / 1000000);
+        System.out.printf("XmlElementIndex (including indexing): %d ms%n", withIndex / 1000000);
+        System.out.printf("Speedup: %.1fx%n", (double)withoutIndex / withIndex);
+    }
+
+    private int runLookups(List<File> recordFiles, boolean useIndex, int iterations) throws Exception {
+        List<Document> documents = new ArrayList<>();
+        for (File recordFile : recordFiles) {
+            documents.add(parse(recordFile));
+        }
+
+        int lookups = 0;
+        for (int i = 0; i < iterations; i++) {
+            lookups = 0;
+            for (Document document : documents) {
+                if (useIndex) {
+                    XmlElementIndex.index(document);
+                } else {
+                    document.setUserData(XmlElementIndex.class.getName(), null, null);
+                }
+                for (Element element : getAllElements(document)) {
+                    for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+                        if (child instanceof Element) {
+                            IndexUtils.parseCharacterString(IndexUtils.getXMLChild(element, ((Element)child).getTagName()));
+                            lookups++;
+                        }
+                    }
+                }
+            }
+        }
+        return lookups;
+    }
+
+    private static List<File> getRecordFiles() throws Exception {
+        List<File> recordFiles = new ArrayList<>();
+        for (String recordDirectory : RECORD_DIRECTORIES) {
+            URL directoryUrl = XmlElementIndexTest.class.getClassLoader().getResource(recordDirectory);
+            Assertions.assertNotNull(directoryUrl, String.format("Missing test resource directory: %s", recordDirectory));
+            File[] files = new File(directoryUrl.toURI()).listFiles((dir, name) -> name.endsWith(".xml"));
+            if (files != null) {
+                recordFiles.addAll(List.of(files));
+            }
+        }
+        return recordFiles;
+    }
+
+    private static Document parse(File recordFile) throws Exception {
+        try (InputStream inputStream = Files.newInputStream(recordFile.toPath())) {
+            Document document = IndexUtils.getNewXMLParser().parse(inputStream);
+            document.getDocumentElement().normalize();
+            return document;
+        }
+    }
+
+    private static List<Element> getAllElements(Document document) {
+        List<Element> elements = new ArrayList<>();
+        NodeList nodeList = document.getElementsByTagName("*");
+        for (int i = 0; i < nodeList.getLength(); i++) {
+            elements.add((Element)nodeList.item(i));
+        }
+        return elements;
+    }
+
+    private static Element getFirstChildElement(Element element) {
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child instanceof Element) {
+                return (Element)child;
+            }
+        }
+        return null;
+    }
+}
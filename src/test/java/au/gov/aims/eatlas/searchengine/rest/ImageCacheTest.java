@@ -0,0 +1,60 @@
+/*
+ *  Copyright (C) 2024 Australian Institute of Marine Science
+ *
+ *  Contact: Gael Lafond <g.lafond@aims.gov.au>
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package au.gov.aims.eatlas.searchengine.rest;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+public class ImageCacheTest {
+
+    @Test
+    public void testContentAddressedStore(@TempDir File cacheDirectory) throws Exception {
+        byte[] imageBytes = "thumbnail".getBytes(StandardCharsets.UTF_8);
+
+        File cacheFile = ImageCache.store(cacheDirectory, imageBytes);
+        Assertions.assertEquals("80f61f96184524ba54db767ed49487392430ad26bf5cf2ef689905f3400325d7.jpg", cacheFile.getName(), "Wrong content address");
+        Assertions.assertEquals(new File(cacheDirectory, "80"), cacheFile.getParentFile(), "Wrong shard directory");
+        Assertions.assertTrue(ImageCache.isContentAddress(cacheFile.getName()), "The filename is not recognised as a content address");
+        Assertions.assertArrayEquals(imageBytes, FileUtils.readFileToByteArray(cacheFile), "Wrong file content");
+
+        // Identical thumbnails share the same file
+        cacheFile.setLastModified(cacheFile.lastModified() - 60000);
+        long lastModified = cacheFile.lastModified();
+        File duplicateFile = ImageCache.store(cacheDirectory, imageBytes);
+        Assertions.assertEquals(cacheFile, duplicateFile, "Identical thumbnails should share the same file");
+        Assertions.assertTrue(duplicateFile.lastModified() > lastModified, "The last modified date of the shared file was not updated");
+
+        File otherFile = ImageCache.store(cacheDirectory, "other thumbnail".getBytes(StandardCharsets.UTF_8));
+        Assertions.assertNotEquals(cacheFile, otherFile, "Different thumbnails should not share the same file");
+
+        // Only the 2 thumbnails, no temporary file left behind
+        Assertions.assertEquals(2, FileUtils.listFiles(cacheDirectory, null, true).size(), "Wrong number of files in the cache");
+    }
+
+    @Test
+    public void testLegacyFilename() {
+        Assertions.assertFalse(ImageCache.isContentAddress("123_4417854366378213745.jpg"), "Legacy filenames are not content addresses");
+        Assertions.assertFalse(ImageCache.isContentAddress("../80f61f96184524ba54db767ed49487392430ad26bf5cf2ef689905f3400325d7.jpg"), "Invalid content address");
+    }
+}